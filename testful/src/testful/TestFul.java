@@ -70,6 +70,12 @@ public class TestFul {
 	/** Set the maximum execution time for methods and constructors (long; default: 500) */
 	public static final String PROPERTY_MAX_EXEC_TIME = "testful.maxExecTime";
 
+	/** Learn from past executions the time required by each method, and tighten its maximum execution time accordingly (boolean; default: true) */
+	public static final String PROPERTY_MAX_EXEC_TIME_ADAPTIVE = "testful.maxExecTime.adaptive";
+
+	/** The safety margin (ms) added to the learned execution time of methods and constructors (int; default: 50) */
+	public static final String PROPERTY_MAX_EXEC_TIME_MARGIN = "testful.maxExecTime.margin";
+
 	/** Monitor TestFul to collect internal execution performances (boolean; default: false) */
 	public static final String PROPERTY_MONITOR_PERFORMANCE = "testful.monitorPerformance";
 
@@ -94,6 +100,63 @@ public class TestFul {
 	/** Number of jobs to store on the worker side (integer, default: 50)  */
 	public static final String PROPERTY_RUNNER_WORKER_JOBS = "testful.runner.nWorkerJobs";
 
+	/** Accepts WorkerManagers connecting through the socket transport (socket://host:port) on this port (integer; 0 disables it; default: 0) */
+	public static final String PROPERTY_RUNNER_SOCKET = "testful.runner.socket";
+
+	/** Executes jobs in child JVMs (one per worker), which are recycled periodically (boolean; default: false) */
+	public static final String PROPERTY_RUNNER_FORK = "testful.runner.fork";
+
+	/** Number of jobs executed by a child JVM before recycling it (integer; default: 1000) */
+	public static final String PROPERTY_RUNNER_FORK_JOBS = "testful.runner.fork.jobs";
+
+	/** Recycle a child JVM when its used heap exceeds this percentage of the maximum heap (integer; default: 80) */
+	public static final String PROPERTY_RUNNER_FORK_HEAP = "testful.runner.fork.heap";
+
+	/** Recycle a child JVM when it has more than this number of live threads (integer; default: 50) */
+	public static final String PROPERTY_RUNNER_FORK_THREADS = "testful.runner.fork.threads";
+
+	/** Maximum number of jobs sent at once to a child JVM (integer; default: 10) */
+	public static final String PROPERTY_RUNNER_FORK_BATCH = "testful.runner.fork.batch";
+
+	/** Kill a child JVM if it does not respond within this amount of time (ms) (integer; default: 60000) */
+	public static final String PROPERTY_RUNNER_FORK_TIMEOUT = "testful.runner.fork.timeout";
+
+	/** Additional arguments for the child JVMs, separated by spaces (String; default: "") */
+	public static final String PROPERTY_RUNNER_FORK_JVM_ARGS = "testful.runner.fork.jvmArgs";
+
+	/** Interval between two load reports sent by a WorkerManager to its job repositories (ms) (integer; 0 disables reports; default: 5000) */
+	public static final String PROPERTY_RUNNER_REPORT = "testful.runner.report";
+
+	/** Maximum number of jobs handed out to a WorkerManager for each of its workers, once it has sent a load report (integer; default: 2) */
+	public static final String PROPERTY_RUNNER_DISPATCH_DEPTH = "testful.runner.dispatch.depth";
+
+	/** Jobs are preferably dispatched to the WorkerManagers that already have their classes loaded, unless they are waiting for more than this amount of time (ms) (integer; 0 disables the affinity; default: 1000) */
+	public static final String PROPERTY_RUNNER_AFFINITY = "testful.runner.affinity";
+
+	/** Jobs with a low priority are dispatched before jobs with a higher priority if they are waiting for more than this amount of time (ms) (integer; default: 5000) */
+	public static final String PROPERTY_RUNNER_STARVATION = "testful.runner.starvation";
+
+	/** Re-dispatch a job if its result does not arrive within this amount of time (ms) (integer; 0 disables it; default: 300000) */
+	public static final String PROPERTY_RUNNER_DEADLINE = "testful.runner.deadline";
+
+	/** Number of times a job is dispatched before failing it (integer; default: 3) */
+	public static final String PROPERTY_RUNNER_ATTEMPTS = "testful.runner.attempts";
+
+	/** When there are no more jobs to dispatch, speculatively re-dispatch the jobs running for longer than this multiple of the p99 latency of jobs, measured from their dispatch (integer; 0 disables it; default: 2) */
+	public static final String PROPERTY_RUNNER_SPECULATE = "testful.runner.speculate";
+
+	/** The compression used to transfer objects to workers (String, one of {auto, none, deflate}; default: auto (compress only remote transfers) ) */
+	public static final String PROPERTY_RUNNER_COMPRESSION = "testful.runner.compression";
+
+	/** Fraction of the heap that can be used before moving stored tests to disk (float, between 0.1 and 1; default: 0.75) */
+	public static final String PROPERTY_MEMORY_LIMIT = "testful.memory.limit";
+
+	/** Number of threads generating random tests (integer; default: 1) */
+	public static final String PROPERTY_RANDOM_GENERATORS = "testful.random.generators";
+
+	/** Number of threads reading and de-serializing the files of tests (integer; 1 reads files sequentially; default: 1) */
+	public static final String PROPERTY_READER_THREADS = "testful.reader.threads";
+
 	// --------------------- end of testful's system properties ----------------------
 
 	//  ------------------------- Shared values --------------------------------------
@@ -23,35 +23,34 @@ import java.util.logging.Logger;
 
 import testful.TestFul;
 import testful.runner.RemoteClassLoader;
-import testful.utils.Timer;
-import testful.utils.Timer.TimerCallBack;
+import testful.utils.TimeoutScheduler;
 
 /**
  * Ensure that third-party code terminates within a given threshold.
+ * It relies on the {@link TimeoutScheduler} shared by all the workers:
+ * starting and stopping the stopper around each operation does not acquire any lock.
  *
  * @author matteo
  */
-public final class Stopper implements TimerCallBack {
+public final class Stopper implements TimeoutScheduler.Callback {
 
 	/** If the kill switch is enabled and the classes' loading time is less then  this threshold, stops the execution of the controlled thread */
 	private static final long LOADING_THRESHOLD = 10;
 
+	/** Amount of time (ms) between two attempts to stop the controlled thread */
+	private static final long SNOOZE = 20;
+
 	private static final Logger logger = Logger.getLogger("testful.coverage.stopper");
 	private static final boolean LOG_FINE = logger.isLoggable(Level.FINE);
 	private static final boolean LOG_FINER = logger.isLoggable(Level.FINER);
 
-	private static ThreadLocal<Timer> timers = new ThreadLocal<Timer>() {
-
-		@Override
-		protected Timer initialValue() {
-			return new Timer(Thread.currentThread().getName() + "-timer");
-		}
-	};
-
 	private final RemoteClassLoader loader;
-	private final Timer timer;
+	private final TimeoutScheduler.Timeout timeout;
 	private final Thread controlledThread;
 
+	/** the time spent by the class loader to load classes, when the timeout has been armed or delayed */
+	private volatile long loadingTime;
+
 	public Stopper() {
 		controlledThread = Thread.currentThread();
 
@@ -59,8 +58,7 @@ public final class Stopper implements TimerCallBack {
 		if(TestFul.DEBUG && !(cl instanceof RemoteClassLoader)) TestFul.debug("Stopper must be loaded by the Testful Class Loader");
 		loader = (RemoteClassLoader) cl;
 
-		timer = timers.get();
-		timer.setCallBack(this);
+		timeout = TimeoutScheduler.singleton.register(this);
 	}
 
 	/**
@@ -69,43 +67,43 @@ public final class Stopper implements TimerCallBack {
 	 */
 	public void start(int maxExecTime) {
 
-		// reset the loading counter
-		loader.getLoadingTime();
+		loadingTime = loader.getLoadingTime();
 
-		if(LOG_FINER) logger.finer("Alarm " + timer + " set " + maxExecTime + " ms from now");
-		timer.start(maxExecTime);
+		if(LOG_FINER) logger.finer("Alarm " + controlledThread.getName() + " set " + maxExecTime + " ms from now");
+		timeout.arm(maxExecTime);
 	}
 
 	/**
 	 * Stops the timer: the Stopper does not try to kill the execution of any operation.
 	 */
 	public void stop() {
-		timer.stop();
+		timeout.disarm();
 		TestStoppedException.dontKill();
 
-		// reset the loading counter
-		loader.getLoadingTime();
-
-		if(LOG_FINER) logger.finer("Alarm " + timer + " cleared");
+		if(LOG_FINER) logger.finer("Alarm " + controlledThread.getName() + " cleared");
 	}
 
 	/* (non-Javadoc)
-	 * @see testful.utils.Timer.TimerCallBack#timerExpired()
+	 * @see testful.utils.TimeoutScheduler.Callback#timeoutExpired()
 	 */
 	@Override
-	public void timerExpired() {
-
-		long loadingTime = loader.getLoadingTime();
-		if(LOG_FINER) logger.finer("Alarm " + timer + ": " + loadingTime + " ms spent to load classes");
-		if(loadingTime > LOADING_THRESHOLD) {
-			timer.stop();
-			timer.start(loadingTime);
-			if(LOG_FINE) logger.fine("Alarm " + timer + " is delayed of " + loadingTime + "ms to compensate the classes loading time");
-		} else {
-			TestStoppedException.kill();
-			controlledThread.interrupt();
-			if(LOG_FINE) logger.fine("Alarm " + timer + " is ringing");
+	public long timeoutExpired() {
+
+		final long now = loader.getLoadingTime();
+		final long spent = now - loadingTime;
+		loadingTime = now;
+
+		if(LOG_FINER) logger.finer("Alarm " + controlledThread.getName() + ": " + spent + " ms spent to load classes");
+		if(spent > LOADING_THRESHOLD) {
+			if(LOG_FINE) logger.fine("Alarm " + controlledThread.getName() + " is delayed of " + spent + "ms to compensate the classes loading time");
+			return spent;
 		}
+
+		TestStoppedException.kill();
+		controlledThread.interrupt();
+		if(LOG_FINE) logger.fine("Alarm " + controlledThread.getName() + " is ringing");
+
+		return SNOOZE;
 	}
 
 	/**
@@ -113,7 +111,7 @@ public final class Stopper implements TimerCallBack {
 	 * Note: after invoking this method, the instance is no longer usable
 	 */
 	public void done() {
-		timer.setCallBack(null);
-		if(LOG_FINER) logger.finer("Alarm " + timer + " de-registered");
+		TimeoutScheduler.singleton.unregister(timeout);
+		if(LOG_FINER) logger.finer("Alarm " + controlledThread.getName() + " de-registered");
 	}
 }
@@ -28,6 +28,7 @@ import testful.ConfigGeneration;
 import testful.IConfigCut;
 import testful.IConfigGeneration;
 import testful.IConfigProject;
+import testful.TestFul;
 import testful.TestfulException;
 
 /**
@@ -45,9 +46,27 @@ public class ConfigEvolutionary implements IConfigEvolutionary, IConfigFitness.A
 	@Option(required = false, name = "-localSearchElements", usage = "% of elements on which the local search is applied (0 to consider the whole fronteer, 100 to enhance all the elements in the population)")
 	private int localSearchElements = 0;
 
+	@Option(required = false, name = "-localSearchClimbers", usage = "Number of hill climbers working concurrently during the local search (on different targets, if possible)")
+	private int localSearchClimbers = 1;
+
+	@Option(required = false, name = "-localSearchNeighbours", usage = "Number of neighbours evaluated in parallel by each hill climber at each step")
+	private int localSearchNeighbours = 1;
+
+	@Option(required = false, name = "-islands", usage = "Number of islands evolving their own population on the runner nodes (0 to disable the island model)")
+	private int islands = 0;
+
+	@Option(required = false, name = "-islandEpoch", usage = "Duration (in seconds) of the epochs of the island model; at the end of each epoch islands exchange their best individuals")
+	private int islandEpoch = 30;
+
+	@Option(required = false, name = "-islandMigrants", usage = "Number of individuals migrating from an island to the next one at the end of each epoch")
+	private int islandMigrants = 4;
+
 	@Option(required = false, name = "-popSize", usage = "The size of the population (# of individuals)")
 	private int popSize = 128;
 
+	@Option(required = false, name = "-offspringThreads", usage = "Number of threads mutating the offspring and submitting it for evaluation")
+	private int offspringThreads = 1;
+
 	@Option(required = false, name = "-fitnessInheritance", usage = "Select the type of fitness inheritance")
 	private FitnessInheritance fitnessInheritance = FitnessInheritance.UNIFORM;
 
@@ -71,6 +90,51 @@ public class ConfigEvolutionary implements IConfigEvolutionary, IConfigFitness.A
 		return localSearchElements;
 	}
 
+	@Override
+	public int getLocalSearchClimbers() {
+		return localSearchClimbers;
+	}
+
+	public void setLocalSearchClimbers(int localSearchClimbers) {
+		this.localSearchClimbers = localSearchClimbers;
+	}
+
+	@Override
+	public int getLocalSearchNeighbours() {
+		return localSearchNeighbours;
+	}
+
+	public void setLocalSearchNeighbours(int localSearchNeighbours) {
+		this.localSearchNeighbours = localSearchNeighbours;
+	}
+
+	@Override
+	public int getIslands() {
+		return islands;
+	}
+
+	public void setIslands(int islands) {
+		this.islands = islands;
+	}
+
+	@Override
+	public int getIslandEpoch() {
+		return islandEpoch;
+	}
+
+	public void setIslandEpoch(int islandEpoch) {
+		this.islandEpoch = islandEpoch;
+	}
+
+	@Override
+	public int getIslandMigrants() {
+		return islandMigrants;
+	}
+
+	public void setIslandMigrants(int islandMigrants) {
+		this.islandMigrants = islandMigrants;
+	}
+
 	@Override
 	public int getPopSize() {
 		return popSize;
@@ -80,6 +144,15 @@ public class ConfigEvolutionary implements IConfigEvolutionary, IConfigFitness.A
 		this.popSize = popSize;
 	}
 
+	@Override
+	public int getOffspringThreads() {
+		return offspringThreads;
+	}
+
+	public void setOffspringThreads(int offspringThreads) {
+		this.offspringThreads = offspringThreads;
+	}
+
 	@Override
 	public FitnessInheritance getFitnessInheritance() {
 		return fitnessInheritance;
@@ -284,6 +357,7 @@ public class ConfigEvolutionary implements IConfigEvolutionary, IConfigFitness.A
 	 */
 	@Override
 	public void validate() throws CmdLineException {
-		// everything is ok!
+		if(islands > 0 && islandEpoch * 1000l > IslandModel.getMaxEpoch())
+			throw new CmdLineException(null, "The epoch of the islands (-islandEpoch) must be at most half of the runner deadline (" + TestFul.PROPERTY_RUNNER_DEADLINE + "): " + (IslandModel.getMaxEpoch() / 1000) + " seconds");
 	}
 }
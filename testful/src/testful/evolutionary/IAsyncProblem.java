@@ -0,0 +1,41 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.concurrent.Future;
+
+import jmetal.base.Solution;
+import jmetal.base.Variable;
+
+/**
+ * Problems implementing this interface are able to evaluate solutions asynchronously.
+ * @param <V> the type of the variables of solutions
+ * @author matteo
+ */
+public interface IAsyncProblem<V extends Variable> {
+
+	/**
+	 * Starts the evaluation of a solution.
+	 * The objectives of the solution are set when the result of the returned future is retrieved.
+	 * @param solution the solution to evaluate
+	 * @return the future evaluated solution
+	 */
+	public Future<Solution<V>> evaluateAsync(Solution<V> solution);
+
+}
@@ -27,15 +27,51 @@ import testful.IConfigGeneration;
 public interface IConfigEvolutionary extends IConfigGeneration, IConfigFitness {
 
 	public static enum FitnessInheritance {
-		DISABLED, UNIFORM, FRONTEER;
+		DISABLED, UNIFORM, FRONTEER, SURROGATE;
 	}
 
 	public int getLocalSearchPeriod();
 
 	public int getLocalSearchElements();
 
+	/**
+	 * Returns the number of hill climbers working concurrently during the local search
+	 * @return the number of hill climbers working concurrently during the local search
+	 */
+	public int getLocalSearchClimbers();
+
+	/**
+	 * Returns the number of neighbours evaluated in parallel by each hill climber at each step
+	 * @return the number of neighbours evaluated in parallel by each hill climber at each step
+	 */
+	public int getLocalSearchNeighbours();
+
+	/**
+	 * Returns the number of islands evolving their own population on the runner nodes
+	 * @return the number of islands (0 if the island model is disabled)
+	 */
+	public int getIslands();
+
+	/**
+	 * Returns the duration of the epochs of the island model
+	 * @return the duration of the epochs of the island model (in seconds)
+	 */
+	public int getIslandEpoch();
+
+	/**
+	 * Returns the number of individuals migrating from an island to the next one at the end of each epoch
+	 * @return the number of individuals migrating from an island to the next one at the end of each epoch
+	 */
+	public int getIslandMigrants();
+
 	public int getPopSize();
 
+	/**
+	 * Returns the number of threads mutating the offspring and submitting it for evaluation
+	 * @return the number of threads mutating the offspring and submitting it for evaluation
+	 */
+	public int getOffspringThreads();
+
 	public FitnessInheritance getFitnessInheritance();
 
 	public int getRandomSeeding();
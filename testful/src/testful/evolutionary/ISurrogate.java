@@ -0,0 +1,51 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import jmetal.base.Solution;
+import jmetal.base.Variable;
+
+/**
+ * A cheap model of the fitness, trained with the solutions actually evaluated.
+ * It is used to estimate the objectives of the offspring, and to choose which children are worth evaluating.
+ * @param <V> the type of the variables of solutions
+ * @author matteo
+ */
+public interface ISurrogate<V extends Variable> {
+
+	/**
+	 * Trains the model with a solution whose objectives have been evaluated
+	 * @param solution the evaluated solution
+	 */
+	public void train(Solution<V> solution);
+
+	/**
+	 * Checks if the model has seen enough solutions to give meaningful predictions
+	 * @return true if the model is ready to predict the objectives
+	 */
+	public boolean isReady();
+
+	/**
+	 * Predicts the objectives of a solution, without evaluating it
+	 * @param solution the solution
+	 * @return the predicted objectives of the solution (null if the model has not been trained yet)
+	 */
+	public double[] predict(Solution<V> solution);
+
+}
@@ -0,0 +1,287 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+import jmetal.base.Solution;
+import jmetal.base.SolutionSet;
+import jmetal.util.JMException;
+import testful.coverage.CoverageInformation;
+import testful.coverage.TrackerDatum;
+import testful.evolutionary.IConfigEvolutionary.FitnessInheritance;
+import testful.model.Operation;
+import testful.model.ReferenceFactory;
+import testful.model.Test;
+import testful.model.TestCluster;
+import testful.model.TestCoverage;
+import testful.runner.Job;
+import testful.utils.ElementManager;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * An island of the distributed genetic algorithm.
+ * Each island evolves its own population for an epoch, evaluating tests in the node where it runs
+ * (see {@link IslandExecutor}); at the end of the epoch, {@link IslandModel} migrates the best
+ * individuals among islands and collects the tests with the best coverage.
+ * @author matteo
+ */
+public class Island implements Serializable {
+
+	private static final long serialVersionUID = -2374616468318472409L;
+
+	private static final Logger logger = Logger.getLogger("testful.evolutionary.island");
+
+	/** Evaluates a test in the node running the island */
+	public static interface Evaluator {
+
+		/**
+		 * Evaluates a test
+		 * @param test the test to evaluate
+		 * @param reloadClasses true if the test must be executed in a new class loader
+		 * @param data the tracker data to use
+		 * @return the coverage of the test
+		 * @throws Exception if something goes wrong
+		 */
+		public ElementManager<String, CoverageInformation> evaluate(Test test, boolean reloadClasses, TrackerDatum[] data) throws Exception;
+	}
+
+	private final int id;
+
+	private final TestCluster cluster;
+	private final ReferenceFactory refFactory;
+	private final TrackerDatum[] data;
+	private final boolean reloadClasses;
+
+	private final boolean basicBlock;
+	private final boolean branch;
+	private final boolean defUse;
+
+	private final int popSize;
+	private final int maxTestLen;
+	private final FitnessInheritance inherit;
+
+	/** the duration of the next epoch (ms) */
+	private long epoch;
+
+	/** the seed of the random number generator for the next epoch */
+	private long seed;
+
+	/** the population of the island, sorted by rank */
+	private Operation[][] population;
+
+	/** individuals coming from another island, to insert in the population in the next epoch */
+	private Operation[][] immigrants;
+
+	/** the frontier at the end of the last epoch */
+	private Operation[][] frontier;
+
+	/** the tests with the best coverage found in the last epoch */
+	private TestCoverage[] optimal;
+
+	/**
+	 * Creates an island
+	 * @param id the identifier of the island
+	 * @param problem the problem (the island uses its test cluster and reference factory)
+	 * @param config the configuration
+	 * @param population the initial population of the island
+	 */
+	public Island(int id, TestfulProblem problem, IConfigEvolutionary config, Operation[][] population) {
+		this.id = id;
+
+		cluster = problem.getCluster();
+		refFactory = problem.getReferenceFactory();
+		data = problem.getData();
+		reloadClasses = problem.isReloadClasses();
+
+		basicBlock = config.isBasicBlock();
+		branch = config.isBranch();
+		defUse = config.isDefUse();
+
+		popSize = config.getPopSize();
+		maxTestLen = config.getMaxTestLen();
+		inherit = config.getFitnessInheritance();
+
+		this.population = population;
+		frontier = new Operation[0][];
+		optimal = new TestCoverage[0];
+	}
+
+	/**
+	 * Creates a copy of the island, sharing its configuration
+	 * @param island the island to copy
+	 */
+	private Island(Island island) {
+		id = island.id;
+
+		cluster = island.cluster;
+		refFactory = island.refFactory;
+		data = island.data;
+		reloadClasses = island.reloadClasses;
+
+		basicBlock = island.basicBlock;
+		branch = island.branch;
+		defUse = island.defUse;
+
+		popSize = island.popSize;
+		maxTestLen = island.maxTestLen;
+		inherit = island.inherit;
+
+		population = island.population;
+		frontier = island.frontier;
+		optimal = island.optimal;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Prepares the next epoch
+	 * @param epoch the duration of the epoch (ms)
+	 * @param seed the seed of the random number generator
+	 * @param immigrants the individuals coming from another island (can be null)
+	 */
+	public void setEpoch(long epoch, long seed, Operation[][] immigrants) {
+		this.epoch = epoch;
+		this.seed = seed;
+		this.immigrants = immigrants;
+	}
+
+	/**
+	 * Returns the frontier at the end of the last epoch.
+	 * Operations refer to the test cluster of the island.
+	 * @return the frontier at the end of the last epoch
+	 */
+	public Operation[][] getFrontier() {
+		return frontier;
+	}
+
+	/**
+	 * Returns the tests with the best coverage found in the last epoch.
+	 * Operations refer to the test cluster of the island.
+	 * @return the tests with the best coverage found in the last epoch
+	 */
+	public TestCoverage[] getOptimal() {
+		return optimal;
+	}
+
+	/**
+	 * Evolves the population of the island for an epoch.
+	 * This island is not modified: the result of the evolution is stored in a new island.
+	 * The island uses its own random number generator (see {@link NSGAII#setRandom(MersenneTwisterFast)}):
+	 * islands running in the same node evolve concurrently.
+	 * @param evaluator the evaluator of tests
+	 * @return the island at the end of the epoch
+	 * @throws JMException if something goes wrong
+	 */
+	public Island evolve(Evaluator evaluator) throws JMException {
+		NSGAII.setRandom(new MersenneTwisterFast(seed));
+		try {
+			IslandProblem problem = new IslandProblem(this, evaluator);
+			if(immigrants != null) // immigrants refer to the test cluster of another island
+				for (Operation[] ops : immigrants) problem.addSeed(Operation.adapt(ops, cluster, refFactory));
+			for (Operation[] ops : population) problem.addSeed(ops);
+
+			NSGAII<Operation> algorithm = new NSGAII<Operation>(new JMProblem(problem, basicBlock, branch, defUse, null));
+			algorithm.setPopulationSize(popSize);
+			algorithm.setInherit(inherit);
+			algorithm.setTerminationCriterion(new TimeTerminationCriterion.TimeWall(epoch));
+			NSGAII.setOperators(algorithm, problem, maxTestLen);
+
+			SolutionSet<Operation> front = algorithm.execute();
+
+			Island ret = new Island(this);
+			ret.population = toArray(algorithm.getPopulation());
+			ret.frontier = toArray(front);
+			ret.optimal = problem.getOptimalTests().toArray(new TestCoverage[problem.getOptimalTests().size()]);
+
+			logger.info("Island " + id + ": epoch completed, " + ret.optimal.length + " optimal tests, " + ret.frontier.length + " individuals in the frontier");
+
+			return ret;
+		} finally {
+			NSGAII.setRandom(null);
+		}
+	}
+
+	private static Operation[][] toArray(SolutionSet<Operation> set) {
+		Operation[][] ret = new Operation[set.size()][];
+
+		int i = 0;
+		for (Solution<Operation> s : set) {
+			List<Operation> ops = s.getDecisionVariables().variables_;
+			ret[i++] = ops.toArray(new Operation[ops.size()]);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * The problem addressed by an island: tests are evaluated by the node running the island,
+	 * and the initial population is taken from the island.
+	 */
+	private static class IslandProblem extends TestfulProblem {
+
+		private static final long serialVersionUID = 6325019612578384106L;
+
+		private final transient Evaluator evaluator;
+		private final LinkedList<Operation[]> seeds = new LinkedList<Operation[]>();
+
+		public IslandProblem(Island island, Evaluator evaluator) {
+			super(island.cluster, island.refFactory, island.data, island.reloadClasses);
+			this.evaluator = evaluator;
+		}
+
+		public void addSeed(Operation[] ops) {
+			seeds.add(ops);
+		}
+
+		@Override
+		public Future<ElementManager<String, CoverageInformation>> evaluate(final Test test, TrackerDatum[] data, Job.Priority priority) {
+			final TrackerDatum[] d = data == null ? getData() : data;
+
+			FutureTask<ElementManager<String, CoverageInformation>> ret = new FutureTask<ElementManager<String, CoverageInformation>>(new Callable<ElementManager<String, CoverageInformation>>() {
+				@Override
+				public ElementManager<String, CoverageInformation> call() throws Exception {
+					return evaluator.evaluate(test, isReloadClasses(), d);
+				}
+			});
+
+			ret.run();
+			return ret;
+		}
+
+		@Override
+		public List<Operation> generateTest() {
+			final Operation[] ops = seeds.poll();
+			if(ops == null) return super.generateTest();
+
+			List<Operation> ret = new ArrayList<Operation>(ops.length);
+			for (Operation o : ops) ret.add(intern(o));
+			return ret;
+		}
+	}
+}
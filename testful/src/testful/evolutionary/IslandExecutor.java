@@ -0,0 +1,67 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import testful.coverage.CoverageInformation;
+import testful.coverage.CoverageTestExecutor;
+import testful.coverage.TrackerDatum;
+import testful.model.Test;
+import testful.model.executor.TestExecutorInput;
+import testful.runner.IExecutor;
+import testful.runner.Job;
+import testful.runner.RemoteClassLoader;
+import testful.utils.ElementManager;
+
+/**
+ * Evolves an island of the distributed genetic algorithm for an epoch.
+ * Tests are evaluated directly by the worker running the island, using the class loader of the executor:
+ * there is no traffic between the master and the workers during the epoch.<br/>
+ *
+ * <b>This class is loaded through the Testful ClassLoader.<b>
+ *
+ * @author matteo
+ */
+public class IslandExecutor implements IExecutor<Island, Island>, Island.Evaluator {
+
+	private final RemoteClassLoader loader;
+
+	private Island input;
+
+	public IslandExecutor() {
+		loader = (RemoteClassLoader) IslandExecutor.class.getClassLoader();
+	}
+
+	@Override
+	public void setInput(Island input) {
+		this.input = input;
+	}
+
+	@Override
+	public Island execute() throws Exception {
+		return input.evolve(this);
+	}
+
+	@Override
+	public ElementManager<String, CoverageInformation> evaluate(Test test, boolean reloadClasses, TrackerDatum[] data) throws Exception {
+		Job<TestExecutorInput, ElementManager<String, CoverageInformation>, CoverageTestExecutor> job =
+			CoverageTestExecutor.getContext(loader.getFinder(), test, reloadClasses, data);
+
+		return job.execute(reloadClasses ? loader.getNew() : loader);
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jmetal.base.TerminationCriterion;
+import testful.IUpdate;
+import testful.model.Operation;
+import testful.model.TestCoverage;
+import testful.runner.Job;
+import testful.runner.RunnerPool;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Distributed genetic algorithm, based on the island model.
+ * Each island evolves its own population on a runner node for an epoch (see {@link IslandExecutor});
+ * at the end of each epoch, the frontier of each island migrates to the next one (ring topology),
+ * and the tests found by the islands are merged in the optimal test suite of the problem.
+ * @author matteo
+ */
+public class IslandModel implements IUpdate {
+
+	private static final Logger logger = Logger.getLogger("testful.evolutionary.island");
+
+	private final List<Callback> callbacks = new LinkedList<Callback>();
+
+	@Override
+	public void register(Callback c) {
+		this.callbacks.add(c);
+	}
+
+	@Override
+	public void unregister(Callback c) {
+		this.callbacks.remove(c);
+	}
+
+	private void update(TerminationCriterion criterion) {
+		for(Callback c : callbacks)
+			c.update(criterion);
+	}
+
+	private final TestfulProblem problem;
+
+	private final Island[] islands;
+
+	/** the duration of each epoch (ms) */
+	private final long epoch;
+
+	/** the number of individuals migrating from an island to the next one */
+	private final int migrants;
+
+	private final MersenneTwisterFast random;
+
+	private TerminationCriterion terminationCriterion;
+
+	/**
+	 * Returns the maximum duration of an epoch. Each epoch is a single job on a runner node:
+	 * it must end well within the deadline of the runner (see {@link RunnerPool#getDeadline()}),
+	 * otherwise it is dispatched again until it fails.
+	 * @return the maximum duration of an epoch (ms)
+	 */
+	public static long getMaxEpoch() {
+		final long deadline = RunnerPool.getDeadline();
+		if(deadline <= 0) return Long.MAX_VALUE;
+		return Math.max(1000, deadline / 2);
+	}
+
+	/**
+	 * Creates the islands. Their initial population is generated by the problem
+	 * (i.e., it uses the tests in the reserve of the problem, if any).
+	 * @param problem the problem
+	 * @param config the configuration
+	 */
+	public IslandModel(TestfulProblem problem, IConfigEvolutionary config) {
+		this.problem = problem;
+
+		final long maxEpoch = getMaxEpoch();
+		if(config.getIslandEpoch() * 1000l > maxEpoch) {
+			logger.warning("The epoch of the islands is too long for the runner deadline: using " + (maxEpoch / 1000) + " seconds");
+			epoch = maxEpoch;
+		} else {
+			epoch = Math.max(1, config.getIslandEpoch()) * 1000l;
+		}
+		migrants = Math.max(0, config.getIslandMigrants());
+		random = new MersenneTwisterFast(config.getSeed());
+
+		islands = new Island[Math.max(1, config.getIslands())];
+		for (int i = 0; i < islands.length; i++) {
+			Operation[][] population = new Operation[config.getPopSize()][];
+			for (int j = 0; j < population.length; j++) {
+				List<Operation> ops = problem.generateTest();
+				population[j] = ops.toArray(new Operation[ops.size()]);
+			}
+
+			islands[i] = new Island(i, problem, config, population);
+		}
+	}
+
+	public void setTerminationCriterion(TerminationCriterion terminationCriterion) {
+		this.terminationCriterion = terminationCriterion;
+	}
+
+	public TerminationCriterion getTerminationCriterion() {
+		return terminationCriterion;
+	}
+
+	/**
+	 * Runs epochs until the termination criterion is met
+	 * @throws InterruptedException if interrupted while waiting for the islands
+	 */
+	public void execute() throws InterruptedException {
+		int nEpoch = 0;
+		while(!terminationCriterion.isTerminated()) {
+			update(terminationCriterion);
+
+			final long duration = Math.min(epoch, Math.max(1000, terminationCriterion.getTarget() - terminationCriterion.getProgress()));
+			logger.info(String.format("(%5.2f%%) Epoch %d on %d islands - %s to go", terminationCriterion.getProgressPercent(), ++nEpoch, islands.length, terminationCriterion.getRemaining()));
+
+			// migrate the frontier of each island to the next one
+			Operation[][][] immigrants = new Operation[islands.length][][];
+			if(islands.length > 1)
+				for (int i = 0; i < islands.length; i++)
+					immigrants[(i + 1) % islands.length] = getMigrants(islands[i]);
+
+			List<Future<Island>> futures = new ArrayList<Future<Island>>(islands.length);
+			for (int i = 0; i < islands.length; i++) {
+				islands[i].setEpoch(duration, random.nextLong(), immigrants[i]);
+
+				Job<Island, Island, IslandExecutor> job = new Job<Island, Island, IslandExecutor>(IslandExecutor.class, problem.getFinder(), islands[i]);
+				futures.add(RunnerPool.getRunnerPool().execute(job));
+			}
+
+			for (int i = 0; i < islands.length; i++) {
+				try {
+					islands[i] = futures.get(i).get();
+				} catch (ExecutionException e) {
+					logger.log(Level.WARNING, "Island " + i + " failed: " + e.getMessage(), e);
+					continue;
+				}
+
+				for (TestCoverage t : islands[i].getOptimal())
+					problem.updateOptimal(new TestCoverage(problem.getCluster(), problem.getReferenceFactory(),
+							Operation.adapt(t.getTest(), problem.getCluster(), problem.getReferenceFactory()), t.getCoverage()));
+			}
+
+			problem.getOptimal().log(nEpoch, problem.getNumberOfExecutedOperations(), terminationCriterion.getProgress());
+		}
+	}
+
+	/**
+	 * Selects the individuals migrating from an island (chosen randomly from its frontier)
+	 * @param island the island
+	 * @return the individuals migrating from the island
+	 */
+	private Operation[][] getMigrants(Island island) {
+		Operation[][] frontier = island.getFrontier().clone();
+		final int n = Math.min(migrants, frontier.length);
+
+		// partial Fisher-Yates shuffle
+		for (int i = 0; i < n; i++) {
+			int j = i + random.nextInt(frontier.length - i);
+			Operation[] tmp = frontier[i];
+			frontier[i] = frontier[j];
+			frontier[j] = tmp;
+		}
+
+		Operation[][] ret = new Operation[n][];
+		System.arraycopy(frontier, 0, ret, 0, n);
+		return ret;
+	}
+}
@@ -18,10 +18,14 @@
 
 package testful.evolutionary;
 
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,7 +48,7 @@ import testful.utils.SimpleEntry;
  * Testful problem for JMetal.
  * @author matteo
  */
-public class JMProblem extends Problem<Operation> {
+public class JMProblem extends Problem<Operation> implements IAsyncProblem<Operation> {
 
 	private static final long serialVersionUID = -6806014368055641433L;
 
@@ -60,19 +64,31 @@ public class JMProblem extends Problem<Operation> {
 	private final Collector[] collectors;
 
 	public JMProblem(TestfulProblem problem, IConfigEvolutionary config) {
+		this(problem, config.isBasicBlock(), config.isBranch(), config.isDefUse(), config.getDirBase());
+	}
+
+	/**
+	 * Creates the problem
+	 * @param problem the testful problem
+	 * @param basicBlock true if the basic block coverage is an objective
+	 * @param branch true if the branch coverage is an objective
+	 * @param defUse true if the def-use coverage is an objective
+	 * @param dirBase the directory where collectors save their data (null to disable collectors)
+	 */
+	public JMProblem(TestfulProblem problem, boolean basicBlock, boolean branch, boolean defUse, File dirBase) {
 		problemName_ = "Testful";
 		numberOfObjectives_  =
-			(config.isBasicBlock() ? 1 : 0) +
-			(config.isBranch() ? 1 : 0) +
-			(config.isDefUse() ? 1 : 0) +
+			(basicBlock ? 1 : 0) +
+			(branch ? 1 : 0) +
+			(defUse ? 1 : 0) +
 			1; // length
 
 		coverageKeys = new String[numberOfObjectives_-1];
 		{
 			int i = 0;
-			if(config.isBasicBlock()) coverageKeys[i++] = CoverageBasicBlocks.KEY;
-			if(config.isBranch()) coverageKeys[i++] = CoverageBranch.KEY;
-			if(config.isDefUse()) coverageKeys[i++] = CoverageDataFlow.KEY;
+			if(basicBlock) coverageKeys[i++] = CoverageBasicBlocks.KEY;
+			if(branch) coverageKeys[i++] = CoverageBranch.KEY;
+			if(defUse) coverageKeys[i++] = CoverageDataFlow.KEY;
 		}
 
 		this.problem = problem;
@@ -83,10 +99,10 @@ public class JMProblem extends Problem<Operation> {
 			coverageWriter = null;
 		}
 
-		if(logger.isLoggable(Level.FINEST)) {
+		if(dirBase != null && logger.isLoggable(Level.FINEST)) {
 			collectors = new Collector[] {
-					new Collector(config.getDirBase(), CoverageBasicBlocks.KEY),
-					new Collector(config.getDirBase(), CoverageBranch.KEY)
+					new Collector(dirBase, CoverageBasicBlocks.KEY),
+					new Collector(dirBase, CoverageBranch.KEY)
 			};
 		} else {
 			collectors = new Collector[0];
@@ -143,6 +159,49 @@ public class JMProblem extends Problem<Operation> {
 		return n;
 	}
 
+	@Override
+	public Future<Solution<Operation>> evaluateAsync(final Solution<Operation> solution) {
+		final Future<ElementManager<String, CoverageInformation>> fut = problem.evaluate(problem.getTest(solution.getDecisionVariables().variables_));
+
+		return new Future<Solution<Operation>>() {
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return fut.cancel(mayInterruptIfRunning);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return fut.isCancelled();
+			}
+
+			@Override
+			public boolean isDone() {
+				return fut.isDone();
+			}
+
+			@Override
+			public Solution<Operation> get() throws InterruptedException, ExecutionException {
+				return setObjectives(fut.get());
+			}
+
+			@Override
+			public Solution<Operation> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+				return setObjectives(fut.get(timeout, unit));
+			}
+
+			private Solution<Operation> setObjectives(ElementManager<String, CoverageInformation> covs) throws ExecutionException {
+				try {
+					evaluateObjectives(solution, covs);
+				} catch (JMException e) {
+					throw new ExecutionException(e);
+				}
+
+				return solution;
+			}
+		};
+	}
+
 	private void evaluateObjectives(Solution<Operation> solution, ElementManager<String, CoverageInformation> covs) throws JMException {
 		if(covs == null)
 			throw new JMException("Cannot retrieve test's coverage information");
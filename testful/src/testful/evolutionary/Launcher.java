@@ -26,11 +26,7 @@ import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import jmetal.base.Solution;
-import jmetal.base.operator.crossover.OnePointCrossoverVarLen;
-import jmetal.base.operator.localSearch.LocalSearch;
-import jmetal.base.operator.selection.BinaryTournament2;
-import jmetal.base.operator.selection.Selection;
+import jmetal.base.TerminationCriterion;
 import jmetal.util.JMException;
 import jmetal.util.PseudoRandom;
 import testful.IUpdate.Callback;
@@ -83,6 +79,8 @@ public class Launcher {
 			int popSize = config.getPopSize();
 			int avgOpSize = 400; // average operation size (as reported by jvisualvm)
 
+			// upper bound: tests share equal operations (see testful.model.OperationPool)
+			// the reserve and the optimal tests are not considered: they are moved to disk when the heap is running out (see testful.model.TestStore)
 			long maxUsedMemory = 2L*popSize * maxLen * avgOpSize;
 
 			long availableMemory = Runtime.getRuntime().maxMemory();
@@ -105,12 +103,11 @@ public class Launcher {
 			throw new TestfulException(e);
 		}
 
-		JMProblem problem = new JMProblem(testfulProblem, config);
-
-		NSGAII<Operation> algorithm = new NSGAII<Operation>(problem);
-		algorithm.setPopulationSize(config.getPopSize());
-		algorithm.setInherit(config.getFitnessInheritance());
-		algorithm.setTerminationCriterion(TimeTerminationCriterion.getTimeTerminationCriterion(config.getTime() * 1000));
+		final TerminationCriterion terminationCriterion;
+		if(config.getIslands() > 0) // the master is idle while the islands evolve: use the wall-clock time
+			terminationCriterion = new TimeTerminationCriterion.TimeWall(config.getTime() * 1000);
+		else
+			terminationCriterion = TimeTerminationCriterion.getTimeTerminationCriterion(config.getTime() * 1000);
 
 		try {
 			testfulProblem.addReserve(genRandomSeeds(config, testfulProblem));
@@ -118,41 +115,53 @@ public class Launcher {
 			logger.log(Level.WARNING, "Cannot create the initial population: " + e.getMessage(), e);
 		}
 
-		// Crossover
-		OnePointCrossoverVarLen<Operation> crossover = new OnePointCrossoverVarLen<Operation>();
-		crossover.setProbability(0.50);
-		crossover.setMaxLen(config.getMaxTestLen());
+		if(config.getIslands() > 0) {
+			IslandModel islands = new IslandModel(testfulProblem, config);
+			islands.setTerminationCriterion(terminationCriterion);
 
-		algorithm.setCrossover(crossover);
+			for (Callback callBack : callBacks)
+				islands.register(callBack);
 
-		// Mutation
-		TestfulMutation mutation = new TestfulMutation(testfulProblem);
-		mutation.setProbability(0.05);
-		algorithm.setMutation(mutation);
+			try {
+				islands.execute();
+			} catch (InterruptedException e) {
+				logger.log(Level.WARNING, "Interrupted while waiting for the islands: " + e.getMessage(), e);
+				throw new TestfulException(e);
+			}
 
-		/* Selection Operator */
-		Selection<Operation,Solution<Operation>> selection = new BinaryTournament2<Operation>();
-		algorithm.setSelection(selection);
+		} else {
+			JMProblem problem = new JMProblem(testfulProblem, config);
 
-		if(config.getLocalSearchPeriod() > 0) {
-			LocalSearch<Operation> localSearch = new LocalSearchBranch(testfulProblem);
-			localSearch.setTerminationCriterion(algorithm.getTerminationCriterion());
-			localSearch.setAbsoluteTerminationCriterion(true);
+			NSGAII<Operation> algorithm = new NSGAII<Operation>(problem);
+			algorithm.setPopulationSize(config.getPopSize());
+			algorithm.setInherit(config.getFitnessInheritance());
+			algorithm.setOffspringThreads(config.getOffspringThreads());
+			algorithm.setTerminationCriterion(terminationCriterion);
 
-			algorithm.setImprovement(localSearch);
-			algorithm.setLocalSearchPeriod(config.getLocalSearchPeriod());
-			algorithm.setLocalSearchNum(config.getLocalSearchElements()/100.0f);
-		}
+			NSGAII.setOperators(algorithm, testfulProblem, config.getMaxTestLen());
 
-		for (Callback callBack : callBacks)
-			algorithm.register(callBack);
+			if(config.getLocalSearchPeriod() > 0) {
+				LocalSearchBranch localSearch = new LocalSearchBranch(testfulProblem);
+				localSearch.setClimbers(config.getLocalSearchClimbers());
+				localSearch.setNeighbours(config.getLocalSearchNeighbours());
+				localSearch.setTerminationCriterion(algorithm.getTerminationCriterion());
+				localSearch.setAbsoluteTerminationCriterion(true);
 
-		/* Execute the Algorithm */
-		try {
-			algorithm.execute();
-		} catch (JMException e) {
-			logger.log(Level.WARNING, "Cannot find some classes: " + e.getMessage(), e);
-			throw new TestfulException(e);
+				algorithm.setImprovement(localSearch);
+				algorithm.setLocalSearchPeriod(config.getLocalSearchPeriod());
+				algorithm.setLocalSearchNum(config.getLocalSearchElements()/100.0f);
+			}
+
+			for (Callback callBack : callBacks)
+				algorithm.register(callBack);
+
+			/* Execute the Algorithm */
+			try {
+				algorithm.execute();
+			} catch (JMException e) {
+				logger.log(Level.WARNING, "Cannot find some classes: " + e.getMessage(), e);
+				throw new TestfulException(e);
+			}
 		}
 
 		if(logger.isLoggable(Level.FINE))
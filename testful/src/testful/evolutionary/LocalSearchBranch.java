@@ -77,6 +77,7 @@ import testful.model.Test;
 import testful.model.TestCoverage;
 import testful.model.transformation.SimplifierDynamic;
 import testful.model.transformation.Splitter;
+import testful.runner.Job;
 import testful.utils.ElementManager;
 import testful.utils.ElementWithKey;
 import ec.util.MersenneTwisterFast;
@@ -130,6 +131,18 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 	// prefer branches never executed
 	private final float SCORE_PUSE = -500;
 
+	/** number of climbers working concurrently */
+	private int climbers = 1;
+
+	/** number of neighbours evaluated by each climber at each step */
+	private int neighbours = 1;
+
+	/** the targets of the tests analyzed in the last local search, indexed by test */
+	private Map<Test, TestTargets> targetsCache = new HashMap<Test, TestTargets>();
+
+	/** the part of the score of each target that does not depend on the test */
+	private final Map<ConditionTargetDatum, Float> staticScores = new HashMap<ConditionTargetDatum, Float>();
+
 	/** probability to add an operation before the selected operation */
 	private float probAdd = 0.05f;
 
@@ -150,6 +163,25 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 		random = PseudoRandom.getMersenneTwisterFast();
 	}
 
+	/**
+	 * Sets the number of hill climbers working concurrently (on different targets, if possible).
+	 * The local search stops as soon as one of them hits its target.
+	 * @param climbers the number of hill climbers working concurrently
+	 */
+	public void setClimbers(int climbers) {
+		this.climbers = Math.max(1, climbers);
+	}
+
+	/**
+	 * Sets the number of neighbours evaluated by each hill climber at each step:
+	 * they are evaluated in parallel, and the climber moves to the best one.
+	 * Higher values reduce the wall-clock time of the local search, but require more evaluations.
+	 * @param neighbours the number of neighbours evaluated at each step
+	 */
+	public void setNeighbours(int neighbours) {
+		this.neighbours = Math.max(1, neighbours);
+	}
+
 	/**
 	 * Sets the probability to add an operation before the selected operation
 	 * @param probAdd the probability to add an operation before the selected operation
@@ -183,10 +215,10 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 			Set<TestWithScore> testScore = getTargets(tests);
 			if(LOG_FINEST) logger.finest("Targets: " + testScore);
 
-			TestWithScore test = getBest(testScore);
-			if(test == null) return null;
+			List<TestWithScore> best = getBest(testScore, climbers);
+			if(best.isEmpty()) return null;
 
-			List<Operation> result = hillClimb(test);
+			List<Operation> result = hillClimb(best);
 			if(result == null) return null;
 
 			for(Operation op : result)
@@ -210,10 +242,10 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 
 			if(LOG_FINEST) logger.finest("Targets: " + testScore);
 
-			TestWithScore test = getBest(testScore);
-			if(test == null) return null;
+			List<TestWithScore> best = getBest(testScore, climbers);
+			if(best.isEmpty()) return null;
 
-			List<Operation> result = hillClimb(test);
+			List<Operation> result = hillClimb(best);
 			if(result == null) return null;
 
 			SolutionSet<Operation> ret = new SolutionSet<Operation>(solutionSet.size());
@@ -229,83 +261,213 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 		}
 	}
 
-	private List<Operation> hillClimb(TestWithScore test) throws InterruptedException, ExecutionException {
+	/**
+	 * Runs a climber for each test, concurrently, until one of them hits its target.
+	 * At each step, each climber evaluates a batch of neighbours: evaluations are submitted together,
+	 * so that they are executed in parallel by the workers.
+	 * @param tests the tests (with the target) to work on
+	 * @return the operations of the first test hitting its target, or null if all the climbers fail
+	 */
+	private List<Operation> hillClimb(List<TestWithScore> tests) throws InterruptedException, ExecutionException {
+
+		List<Climber> climbers = new ArrayList<Climber>(tests.size());
+		for (TestWithScore test : tests)
+			climbers.add(new Climber(test));
+
+		for (Climber climber : climbers)
+			climber.start();
+
+		/** the targets missed by the climbers */
+		Set<ConditionTargetDatum> missed = new LinkedHashSet<ConditionTargetDatum>();
+
+		Climber winner = null;
+		while(winner == null && !climbers.isEmpty() && !terminationCriterion.isTerminated()) {
+
+			for (Climber climber : climbers)
+				climber.submit();
+
+			for (Iterator<Climber> iter = climbers.iterator(); iter.hasNext(); ) {
+				Climber climber = iter.next();
+
+				if(climber.collect() && winner == null) winner = climber;
+
+				if(climber.isExhausted()) {
+					missed.add(climber.target);
+					iter.remove();
+				}
+			}
+		}
+
+		if(winner != null) {
+			logger.info("Target " + winner.target + " hit");
+			attempts.remove(winner.target);
+			return winner.opsOrig;
+		}
+
+		for (Climber climber : climbers)
+			missed.add(climber.target);
+
+		for (ConditionTargetDatum target : missed) {
+			Integer nAttempts = attempts.containsKey(target) ? attempts.get(target) : 0;
+			attempts.put(target, ++nAttempts);
+			logger.info("Target " + target + " missed " + nAttempts + " times");
+		}
+
+		return null;
+	}
+
+	/** A hill climber, working on a test to hit a target */
+	private class Climber {
+
+		final TestWithScore test;
+		final ConditionTargetDatum target;
+		final TrackerDatum[] data;
+		final int localSearchId;
+		final int maxIterations;
 
-		logger.info("Selected target: " + test.target + " (score: " + test.score + " length: " + test.test.getTest().length + ")");
+		private boolean branchFeasible;
 
-		TrackerDatum[] data = new TrackerDatum[]{ test.target };
-		final int localSearchId = this.localSearchId.incrementAndGet();
-		Integer nAttempts = attempts.containsKey(test.target) ? attempts.get(test.target) : 0;
+		List<Operation> opsOrig;
+		private CoverageBranchTarget covCondOrig;
 
-		final ElementManager<String, CoverageInformation> covs = problem.evaluate(test.test, data).get();
-		CoverageBranchTarget covCondOrig = (CoverageBranchTarget)covs.get(CoverageBranchTarget.KEY);
+		private int pos = 0; // the position to target
+		private int ttl = 0; // how many times the position can be targeted again
+		private int iteration = 0;
 
-		if(TestFul.DEBUG && covCondOrig == null) {
-			TestFul.debug("hillClimb: cannot retrieve the CoverageBranchTarget");
+		/** the neighbours being evaluated */
+		private final List<Neighbour> batch = new ArrayList<Neighbour>(neighbours);
+
+		public Climber(TestWithScore test) {
+			this.test = test;
+			target = test.target;
+			data = new TrackerDatum[]{ test.target };
+			localSearchId = LocalSearchBranch.this.localSearchId.incrementAndGet();
+
+			Integer nAttempts = attempts.containsKey(test.target) ? attempts.get(test.target) : 0;
+			maxIterations = ITERATIONS*(nAttempts+1);
+
+			logger.info("Selected target: " + test.target + " (score: " + test.score + " length: " + test.test.getTest().length + ")");
+
+			batch.add(new Neighbour(opsOrig, -1, false, test.test, problem.evaluate(test.test, data, Job.Priority.LATENCY)));
 		}
 
-		final boolean branchFeasible;
-		{
+		/** Collects the evaluation of the original test */
+		void start() throws InterruptedException, ExecutionException {
+			final ElementManager<String, CoverageInformation> covs = batch.remove(0).future.get();
+			covCondOrig = (CoverageBranchTarget)covs.get(CoverageBranchTarget.KEY);
+
+			if(TestFul.DEBUG && covCondOrig == null) {
+				TestFul.debug("hillClimb: cannot retrieve the CoverageBranchTarget");
+			}
+
 			CoverageDataFlow duCov = (CoverageDataFlow) test.test.getCoverage().get(CoverageDataFlow.KEY);
 			if(duCov == null) branchFeasible = false;
 			else branchFeasible = checkFeasibility(test.test, test.target, duCov) >= 0;
-		}
-
-		if(LOG_FINER) logger.finer("coverageLocalSearch " + localSearchId + " target=" + test.target + ";iter=" + 0 + ";cov=" + covCondOrig.getQuality() + ";distance=" + covCondOrig + ";len=" + test.test.getTest().length + ";feasible=" + (branchFeasible ? "true" : "n/a"));
 
-		List<Operation> opsOrig = new LinkedList<Operation>();
-		for(Operation op : test.test.getTest()) opsOrig.add(op);
+			if(LOG_FINER) logger.finer("coverageLocalSearch " + localSearchId + " target=" + test.target + ";iter=" + 0 + ";cov=" + covCondOrig.getQuality() + ";distance=" + covCondOrig + ";len=" + test.test.getTest().length + ";feasible=" + (branchFeasible ? "true" : "n/a"));
 
-		int pos = 0; // the position to target
-		int ttl = 0; // how many times the position can be targeted again
-		for(int i = 0; i < ITERATIONS*(nAttempts+1) && !terminationCriterion.isTerminated(); i++) {
+			opsOrig = new LinkedList<Operation>();
+			for(Operation op : test.test.getTest()) opsOrig.add(op);
+		}
 
-			List<Operation> ops = new LinkedList<Operation>(opsOrig);
+		/** @return true if the climber has performed all its iterations */
+		boolean isExhausted() {
+			return iteration >= maxIterations;
+		}
 
+		/**
+		 * Creates a batch of neighbours of the current test, and submits their evaluation.
+		 * The first neighbour mutates the targeted position; the others alternate between
+		 * the targeted position (trying different values) and random positions.
+		 */
+		void submit() {
 			if(--ttl < 0) {
-				pos = ops.isEmpty() ? -1 : random.nextInt(ops.size());
+				pos = opsOrig.isEmpty() ? -1 : random.nextInt(opsOrig.size());
 				ttl = TTL_FIRST;
 			}
 
-			boolean canContinue = mutate(ops, pos);
+			final int n = Math.min(neighbours, maxIterations - iteration);
+			for (int i = 0; i < n; i++) {
+				List<Operation> ops = new LinkedList<Operation>(opsOrig);
 
-			final Test newTest = problem.getTest(ops);
-			ElementManager<String, CoverageInformation> cov = problem.evaluate(newTest, data).get();
-			CoverageBranchTarget covCond = (CoverageBranchTarget) cov.get(CoverageBranchTarget.KEY);
-			if(covCond == null) covCond = new CoverageBranchTarget(test.target.getBranchId(), test.target.isPUse(), test.target.getDefinitionId());
+				int p = pos;
+				if(i % 2 == 1) p = ops.isEmpty() ? -1 : random.nextInt(ops.size());
 
-			final boolean stillFeasible;
-			if(branchFeasible) {
-				CoverageDataFlow duCov = (CoverageDataFlow) test.test.getCoverage().get(CoverageDataFlow.KEY);
-				stillFeasible = duCov != null && checkFeasibility(new TestCoverage(newTest, cov), test.target, duCov) >= 0;
-			} else
-				stillFeasible = true;
+				boolean canContinue = mutate(ops, p);
 
-			if(LOG_FINER) logger.finer("coverageLocalSearch " + localSearchId + " target=" + test.target + ";iter=" + (i+1) + ";cov=" + covCond.getQuality() + ";distance=" + covCond + ";len=" + ops.size() + ";feasible=" + (branchFeasible ? stillFeasible : "n/a"));
+				Test newTest = problem.getTest(ops);
+				batch.add(new Neighbour(ops, p, canContinue, newTest, problem.evaluate(newTest, data, Job.Priority.LATENCY)));
+			}
+		}
+
+		/**
+		 * Collects the evaluation of the neighbours, and moves to the best one if it is better than the current test
+		 * @return true if the target has been hit
+		 */
+		boolean collect() throws InterruptedException, ExecutionException {
+			Neighbour best = null;
+			CoverageBranchTarget covBest = null;
 
-			if(!stillFeasible) continue;
+			for (Neighbour n : batch) {
+				iteration++;
 
-			if(covCond.getQuality() < covCondOrig.getQuality()) continue;
-			if(covCond.getQuality() == covCondOrig.getQuality() && ops.size() >= opsOrig.size()) continue;
+				ElementManager<String, CoverageInformation> cov = n.future.get();
 
-			if(!canContinue) ttl = 0;
-			else ttl = TTL_IMPROVEMENT;
+				CoverageBranchTarget covCond = (CoverageBranchTarget) cov.get(CoverageBranchTarget.KEY);
+				if(covCond == null) covCond = new CoverageBranchTarget(test.target.getBranchId(), test.target.isPUse(), test.target.getDefinitionId());
 
-			opsOrig = ops;
-			covCondOrig = covCond;
+				final boolean stillFeasible;
+				if(branchFeasible) {
+					CoverageDataFlow duCov = (CoverageDataFlow) test.test.getCoverage().get(CoverageDataFlow.KEY);
+					stillFeasible = duCov != null && checkFeasibility(new TestCoverage(n.test, cov), test.target, duCov) >= 0;
+				} else
+					stillFeasible = true;
 
-			if(covCond.getQuality() == Float.POSITIVE_INFINITY) {
-				logger.info("Target " + test.target + " hit");
-				attempts.remove(test.target);
-				return ops;
+				if(LOG_FINER) logger.finer("coverageLocalSearch " + localSearchId + " target=" + test.target + ";iter=" + iteration + ";cov=" + covCond.getQuality() + ";distance=" + covCond + ";len=" + n.ops.size() + ";feasible=" + (branchFeasible ? stillFeasible : "n/a"));
+
+				if(!stillFeasible) continue;
+
+				if(best == null || covCond.getQuality() > covBest.getQuality() ||
+						(covCond.getQuality() == covBest.getQuality() && n.ops.size() < best.ops.size())) {
+					best = n;
+					covBest = covCond;
+				}
 			}
-		}
+			batch.clear();
 
-		attempts.put(test.target, ++nAttempts);
+			if(best == null) return false;
 
-		logger.info("Target " + test.target + " missed " + nAttempts + " times");
+			if(covBest.getQuality() < covCondOrig.getQuality()) return false;
+			if(covBest.getQuality() == covCondOrig.getQuality() && best.ops.size() >= opsOrig.size()) return false;
 
-		return null;
+			pos = best.pos;
+			if(!best.canContinue) ttl = 0;
+			else ttl = TTL_IMPROVEMENT;
+
+			opsOrig = best.ops;
+			covCondOrig = covBest;
+
+			return covBest.getQuality() == Float.POSITIVE_INFINITY;
+		}
+	}
+
+	/** A neighbour of the test of a climber */
+	private static class Neighbour {
+		final List<Operation> ops;
+		/** the mutated position */
+		final int pos;
+		/** true if it is possible to keep working on the mutated position */
+		final boolean canContinue;
+		final Test test;
+		final Future<ElementManager<String, CoverageInformation>> future;
+
+		public Neighbour(List<Operation> ops, int pos, boolean canContinue, Test test, Future<ElementManager<String, CoverageInformation>> future) {
+			this.ops = ops;
+			this.pos = pos;
+			this.canContinue = canContinue;
+			this.test = test;
+			this.future = future;
+		}
 	}
 
 	/**
@@ -370,13 +532,13 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 			if(pos < 0) pos = 0;
 			int num = random.nextInt(10);
 			for(int i = 0; i < num; i++)
-				ops.add(pos, Operation.randomlyGenerate(problem.getCluster(), problem.getReferenceFactory(), random));
+				ops.add(pos, problem.intern(Operation.randomlyGenerate(problem.getCluster(), problem.getReferenceFactory(), random)));
 			return false;
 
 		case 1:
 			AssignPrimitive ap = (AssignPrimitive) ops.get(pos);
 			Serializable newValue = modify(ap);
-			ops.set(pos, new AssignPrimitive(ap.getTarget(), newValue));
+			ops.set(pos, problem.intern(new AssignPrimitive(ap.getTarget(), newValue)));
 			return true;
 
 		case 2:
@@ -555,6 +717,33 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 		return value;
 	}
 
+	/**
+	 * Selects the tests to work on, preferring tests with the highest score and different targets.
+	 * If there are not enough targets, the same target is selected multiple times
+	 * (its climbers will explore different mutations).
+	 * @param testScore the available tests
+	 * @param n the number of tests to select
+	 * @return the selected tests (empty if there are no tests)
+	 */
+	private List<TestWithScore> getBest(Set<TestWithScore> testScore, int n) {
+		List<TestWithScore> ret = new ArrayList<TestWithScore>(n);
+		Set<ConditionTargetDatum> targets = new HashSet<ConditionTargetDatum>();
+
+		Set<TestWithScore> remaining = new LinkedHashSet<TestWithScore>(testScore);
+		while(ret.size() < n) {
+			TestWithScore best = getBest(remaining);
+			if(best == null) break;
+
+			remaining.remove(best);
+			if(targets.add(best.target)) ret.add(best);
+		}
+
+		for(int i = 0; !ret.isEmpty() && ret.size() < n; i++)
+			ret.add(ret.get(i));
+
+		return ret;
+	}
+
 	private TestWithScore getBest(Set<TestWithScore> testScore) {
 
 		TestWithScore max = null;
@@ -638,6 +827,13 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 		return tests;
 	}
 
+	/**
+	 * Calculates the targets of each test, with their score.
+	 * The targets of a test, and their feasibility, are computed only the first time the test is seen:
+	 * the result is kept as long as the test is passed to this method.
+	 * @param tests the tests to analyze
+	 * @return the tests with the target and the score
+	 */
 	private Set<TestWithScore> getTargets(Collection<TestCoverage> tests) {
 
 		// calculate the executed branches
@@ -647,12 +843,76 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 			if(cov != null) execBranches.or(cov.getCoverage());
 		}
 
+		final Map<Test, TestTargets> cache = new HashMap<Test, TestTargets>();
+		int created = 0;
+
 		final Set<TestWithScore> ret = new TreeSet<TestWithScore>();
 		for(TestCoverage t : tests) {
 
+			TestTargets tt = cache.get(t);
+			if(tt == null) {
+				tt = targetsCache.get(t);
+				if(tt == null) {
+					tt = new TestTargets(t);
+					created++;
+				}
+				cache.put(t, tt);
+			}
+
+			if(tt.targets == null) continue;
+
+			for (int i = 0; i < tt.targets.length; i++) {
+				final ConditionTargetDatum target = tt.targets[i];
+
+				// skip branches executed by other tests
+				if(!target.isPUse() && execBranches.get(target.getBranchId())) continue;
+
+				float score = getStaticScore(target) + tt.feasibility[i];
+				if(attempts.containsKey(target))
+					score += SCORE_MISS_ATTEMPTS * attempts.get(target);
+
+				ret.add(new TestWithScore(t, target, score));
+			}
+		}
+
+		targetsCache = cache;
+		if(LOG_FINER) logger.finer("getTargets: " + cache.size() + " tests (" + created + " new), " + ret.size() + " targets");
+
+		if(logger.isLoggable(Level.FINEST)) {
+			StringBuilder sb = new StringBuilder("Candidate tests:\n");
+
+			for (TestWithScore t : ret) {
+				sb.append("Target ").append(t.target).append(" score: ").append(t.score).append("\n");
+				sb.append(t.test.toString()).append("\n");
+			}
+
+			logger.finest(sb.toString());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * The targets of a test, with the part of their score depending on the test.
+	 * Targets on branches not executed by the test are included even if other tests execute them:
+	 * they are filtered by {@link LocalSearchBranch#getTargets(Collection)}.
+	 */
+	private class TestTargets {
+
+		/** the targets of the test (null if the test has not the required coverage) */
+		final ConditionTargetDatum[] targets;
+
+		/** the feasibility score of each target */
+		final float[] feasibility;
+
+		public TestTargets(TestCoverage t) {
 			final CoverageBasicBlocks bbCov = (CoverageBasicBlocks) t.getCoverage().get(CoverageBasicBlocks.KEY);
 			final CoverageBranch brCov = (CoverageBranch) t.getCoverage().get(CoverageBranch.KEY);
-			if(bbCov == null || brCov == null) continue;
+			if(bbCov == null || brCov == null) {
+				targets = null;
+				feasibility = null;
+				return;
+			}
 
 			// collect reachable branches, i.e., those branches whose condition has been evaluated
 			ElementManager<Integer, BranchTrack> reachableBranches = new ElementManager<Integer, LocalSearchBranch.BranchTrack>();
@@ -685,41 +945,36 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 			Set<ConditionTargetDatum> targets = new HashSet<ConditionTargetDatum>();
 			for (BranchTrack br : reachableBranches) {
 				if(!br.isExecuted()) {
-					if(!execBranches.get(br.getKey()))
-						targets.add(new ConditionTargetDatum(br.getKey()));
+					targets.add(new ConditionTargetDatum(br.getKey()));
 				} else {
 					for (ContextualId m : br.getMissingDefs())
 						targets.add(new ConditionTargetDatum(br.getKey(), m));
 				}
 			}
-
-			// calculate scores
-			for (ConditionTargetDatum target : targets) {
-				ret.add(calculateScore(t, target));
-			}
-		}
-
-		if(logger.isLoggable(Level.FINEST)) {
-			StringBuilder sb = new StringBuilder("Candidate tests:\n");
-
-			for (TestWithScore t : ret) {
-				sb.append("Target ").append(t.target).append(" score: ").append(t.score).append("\n");
-				sb.append(t.test.toString()).append("\n");
-			}
-
-			logger.finest(sb.toString());
+			this.targets = targets.toArray(new ConditionTargetDatum[targets.size()]);
+
+			// calculate the feasibility
+			final CoverageDataFlow duCov = (CoverageDataFlow) t.getCoverage().get(CoverageDataFlow.KEY);
+			feasibility = new float[this.targets.length];
+			if(duCov != null)
+				for (int i = 0; i < this.targets.length; i++)
+					feasibility[i] = checkFeasibility(t, this.targets[i], duCov);
 		}
-
-		return ret;
 	}
 
-	private TestWithScore calculateScore(TestCoverage t, ConditionTargetDatum target) {
+	/**
+	 * Returns the part of the score of the target that does not depend on the test.
+	 * It only depends on the static analysis of the class under test, and it is cached.
+	 * @param target the target
+	 * @return the score of the target
+	 */
+	private float getStaticScore(ConditionTargetDatum target) {
+		Float cached = staticScores.get(target);
+		if(cached != null) return cached;
+
 		final Condition c = problem.getWhiteAnalysis().getConditionFromBranch(target.getBranchId());
 		float score = 0;
 
-		if(attempts.containsKey(target))
-			score += SCORE_MISS_ATTEMPTS * attempts.get(target);
-
 		if(target.isPUse())
 			score += SCORE_PUSE;
 
@@ -760,11 +1015,8 @@ public class LocalSearchBranch extends LocalSearchPopulation<Operation> {
 			else if(data.isField()) score += SCORE_FIELD;
 		}
 
-		CoverageDataFlow duCov = (CoverageDataFlow) t.getCoverage().get(CoverageDataFlow.KEY);
-		if(duCov != null)
-			score += checkFeasibility(t, target, duCov);
-
-		return new TestWithScore(t, target, score);
+		staticScores.put(target, score);
+		return score;
 	}
 
 	/**
@@ -19,8 +19,16 @@
 package testful.evolutionary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
 import jmetal.base.Algorithm;
@@ -39,6 +47,8 @@ import jmetal.util.JMException;
 import jmetal.util.PseudoRandom;
 import testful.IUpdate;
 import testful.evolutionary.IConfigEvolutionary.FitnessInheritance;
+import testful.model.Operation;
+import ec.util.MersenneTwisterFast;
 
 /**
  * This class implements the NSGA-II algorithm. Adapted from JMetal.
@@ -83,6 +93,18 @@ implements IUpdate {
 	/** number of elements on which the local search is applied */
 	private int localSearchNum = 0;
 
+	/** number of threads mutating the offspring and submitting it for evaluation (1 to create the offspring sequentially) */
+	private int offspringThreads = 1;
+
+	/** the surrogate model of the fitness (used with the {@link FitnessInheritance#SURROGATE} fitness inheritance) */
+	private ISurrogate<V> surrogate;
+
+	/** share of the evaluated children chosen randomly, instead of using the surrogate model */
+	private final float SURROGATE_EXPLORATION = 0.2f;
+
+	/** the population at the end of the last execution */
+	private SolutionSet<V> population;
+
 	/**
 	 * Constructor
 	 * @param problem Problem to solve
@@ -122,6 +144,103 @@ implements IUpdate {
 		return localSearchNum;
 	}
 
+	/**
+	 * Sets the surrogate model of the fitness, used to choose the children to evaluate
+	 * with the {@link FitnessInheritance#SURROGATE} fitness inheritance.
+	 * Until the model is ready, children are chosen as in the {@link FitnessInheritance#UNIFORM} fitness inheritance.
+	 * @param surrogate the surrogate model of the fitness
+	 */
+	public void setSurrogate(ISurrogate<V> surrogate) {
+		this.surrogate = surrogate;
+	}
+
+	public ISurrogate<V> getSurrogate() {
+		return surrogate;
+	}
+
+	/**
+	 * Sets the number of threads creating the offspring.
+	 * Selection and crossover are always performed by the thread running the algorithm,
+	 * while the mutation and the submission of children for evaluation are performed in parallel.
+	 * The parallel creation is not used with the {@link FitnessInheritance#FRONTEER} and {@link FitnessInheritance#SURROGATE} fitness inheritance,
+	 * or if the problem is not able to evaluate solutions asynchronously (see {@link IAsyncProblem}).
+	 * @param offspringThreads the number of threads creating the offspring
+	 */
+	public void setOffspringThreads(int offspringThreads) {
+		this.offspringThreads = Math.max(1, offspringThreads);
+	}
+
+	public int getOffspringThreads() {
+		return offspringThreads;
+	}
+
+	/** the random number generators set with {@link #setRandom(MersenneTwisterFast)} */
+	private static final ThreadLocal<MersenneTwisterFast> threadRandom = new ThreadLocal<MersenneTwisterFast>();
+
+	/**
+	 * Returns the random number generator to use in the current thread:
+	 * threads creating the offspring have their own generator, threads that set their own generator
+	 * (see {@link #setRandom(MersenneTwisterFast)}) use it, while the other threads use the one of jMetal.
+	 * @return the random number generator to use in the current thread
+	 */
+	public static MersenneTwisterFast getRandom() {
+		final Thread t = Thread.currentThread();
+		if(t instanceof VariationThread) return ((VariationThread) t).random;
+
+		final MersenneTwisterFast random = threadRandom.get();
+		if(random != null) return random;
+
+		return PseudoRandom.getMersenneTwisterFast();
+	}
+
+	/**
+	 * Sets the random number generator of the current thread, used by the algorithm and by its operators
+	 * (this allows several algorithms to run concurrently, each one with its own generator).
+	 * The threads creating the offspring are seeded using this generator.
+	 * @param random the generator to use in the current thread (null to use the one of jMetal)
+	 */
+	public static void setRandom(MersenneTwisterFast random) {
+		if(random == null) threadRandom.remove();
+		else threadRandom.set(random);
+	}
+
+	/**
+	 * Returns the population at the end of the last execution, sorted by rank
+	 * @return the population at the end of the last execution (null if the algorithm has not been executed)
+	 */
+	public SolutionSet<V> getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Sets up the genetic operators (crossover, mutation, and selection) used by TestFul,
+	 * and the surrogate model of the fitness if the fitness inheritance requires it.
+	 * The fitness inheritance must be set before calling this method.
+	 * @param algorithm the algorithm
+	 * @param testfulProblem the problem
+	 * @param maxTestLen the maximum length of tests
+	 */
+	public static void setOperators(NSGAII<Operation> algorithm, TestfulProblem testfulProblem, int maxTestLen) {
+		// Crossover
+		TestfulCrossover<Operation> crossover = new TestfulCrossover<Operation>();
+		crossover.setProbability(0.50);
+		crossover.setMaxLen(maxTestLen);
+
+		algorithm.setCrossover(crossover);
+
+		// Mutation
+		TestfulMutation mutation = new TestfulMutation(testfulProblem);
+		mutation.setProbability(0.05);
+		algorithm.setMutation(mutation);
+
+		/* Selection Operator */
+		Selection<Operation,Solution<Operation>> selection = new TestfulSelection<Operation>();
+		algorithm.setSelection(selection);
+
+		if(algorithm.getInherit() == FitnessInheritance.SURROGATE)
+			algorithm.setSurrogate(new SurrogateFitness());
+	}
+
 	/**
 	 * Runs the NSGA-II algorithm.
 	 * @return a <code>SolutionSet</code> that is a set of non dominated solutions
@@ -153,139 +272,355 @@ implements IUpdate {
 		for(Solution<V> solution : population)
 			problem_.evaluateConstraints(solution);
 
-		// Generations ...
-		while (!getTerminationCriterion().isTerminated()) {
-			problem_.setCurrentGeneration(++currentGeneration, getTerminationCriterion().getProgress());
-			update(getTerminationCriterion());
-
-			logger.info(String.format("(%5.2f%%) Generation %d - %s to go", getTerminationCriterion().getProgressPercent(), currentGeneration, getTerminationCriterion().getRemaining()));
+		// the threads creating the offspring, if children are mutated and evaluated in parallel
+		final ExecutorService variation;
+		if(offspringThreads > 1 && (inherit == FitnessInheritance.DISABLED || inherit == FitnessInheritance.UNIFORM) && problem_ instanceof IAsyncProblem<?>)
+			variation = createVariationExecutor();
+		else
+			variation = null;
+
+		try {
+			// Generations ...
+			while (!getTerminationCriterion().isTerminated()) {
+				problem_.setCurrentGeneration(++currentGeneration, getTerminationCriterion().getProgress());
+				update(getTerminationCriterion());
+
+				logger.info(String.format("(%5.2f%%) Generation %d - %s to go", getTerminationCriterion().getProgressPercent(), currentGeneration, getTerminationCriterion().getRemaining()));
+
+				// perform the improvement
+				if(improvement != null && currentGeneration % localSearchPeriod == 0) {
+
+					if(localSearchNum == 0 && improvement instanceof LocalSearchPopulation<?>) {
+						SolutionSet<V> front = Ranking.getFrontier(population);
+						logger.info("Local search on fronteer (" + front.size() + ")");
+						SolutionSet<V> mutated = ((LocalSearchPopulation<V>)improvement).execute(front);
+						if(mutated != null) problem_.evaluate(mutated);
+					} else {
+						for (int i = 0; i < localSearchNum && !getTerminationCriterion().isTerminated(); i++) {
+							final int randInt = getRandom().nextInt(populationSize);
+							logger.info("Local search " + i + "/" + localSearchNum + " on element " + randInt);
+							Solution<V> solution = population.get(randInt);
+							solution = improvement.execute(solution);
+							if(solution != null) problem_.evaluate(solution);
+						}
+					}
+					continue;
+				}
 
-			// perform the improvement
-			if(improvement != null && currentGeneration % localSearchPeriod == 0) {
+				// Create the offSpring solutionSet
+				final SolutionSet<V> offspringPopulation;
+				if(variation != null) {
+					// mutate and evaluate children in parallel
+					offspringPopulation = generateOffspring(population, variation);
 
-				if(localSearchNum == 0 && improvement instanceof LocalSearchPopulation<?>) {
-					SolutionSet<V> front = Ranking.getFrontier(population);
-					logger.info("Local search on fronteer (" + front.size() + ")");
-					SolutionSet<V> mutated = ((LocalSearchPopulation<V>)improvement).execute(front);
-					if(mutated != null) problem_.evaluate(mutated);
 				} else {
-					for (int i = 0; i < localSearchNum && !getTerminationCriterion().isTerminated(); i++) {
-						final int randInt = PseudoRandom.getMersenneTwisterFast().nextInt(populationSize);
-						logger.info("Local search " + i + "/" + localSearchNum + " on element " + randInt);
-						Solution<V> solution = population.get(randInt);
-						solution = improvement.execute(solution);
-						if(solution != null) problem_.evaluate(solution);
+					offspringPopulation = new SolutionSet<V>(populationSize);
+					for (int i = 0; i < (populationSize / 2); i++) {
+						//obtain parents
+						Solution<V> parent1 = selectionOperator.execute(population);
+						Solution<V> parent2 = selectionOperator.execute(population);
+						Solution<V>[] offSpring = crossoverOperator.execute(parent1, parent2);
+						mutationOperator.execute(offSpring[0]);
+						mutationOperator.execute(offSpring[1]);
+						offspringPopulation.add(offSpring[0]);
+						offspringPopulation.add(offSpring[1]);
+					}
+
+					// select individuals to evaluate
+					Iterable<Solution<V>> toEval = offspringPopulation;
+
+					switch (inherit) {
+					case SURROGATE:
+						if(surrogate != null && surrogate.isReady()) {
+							toEval = selectBySurrogate(offspringPopulation, population);
+							break;
+						}
+
+						// the model is not ready yet: use the uniform fitness inheritance
+						//$FALL-THROUGH$
+					case UNIFORM:
+						List<Solution<V>> tmpu = new ArrayList<Solution<V>>();
+						for(Solution<V> s : offspringPopulation)
+							if(!getRandom().nextBoolean(INHERIT_PROBABILITY))
+								tmpu.add(s);
+
+						toEval = tmpu;
+						break;
+
+					case FRONTEER:
+						List<Solution<V>> tmpf = new ArrayList<Solution<V>>();
+
+						final Ranking<V> ranking = new Ranking<V>(population);
+						final SolutionSet<V> fronteer = ranking.next();
+						final List<Solution<V>> others = new ArrayList<Solution<V>>();
+
+						while(ranking.hasNext())
+							for(Solution<V> s : ranking.next())
+								others.add(s);
+
+						final int n = offspringPopulation.size();
+						final int f = fronteer.size();
+
+						final float k = 0.5f;
+						final float pf = k * INHERIT_PROBABILITY * n / (n + f*(k - 1.0f));
+						final float po = (pf / k) >= 1 ? 1 : pf / k;
+
+						for(Solution<V> s : fronteer) {
+							if(!getRandom().nextBoolean(pf)) {
+								tmpf.add(s);
+							}
+						}
+
+						for(Solution<V> s : others) {
+							if(!getRandom().nextBoolean(po))  {
+								tmpf.add(s);
+							}
+						}
+
+						toEval = tmpf;
+						break;
 					}
+
+					// evaluate individuals
+					problem_.evaluate(toEval);
+					for(Solution<V> solution : toEval) problem_.evaluateConstraints(solution);
+
+					if(surrogate != null)
+						for(Solution<V> solution : toEval) surrogate.train(solution);
 				}
-				continue;
-			}
 
-			// Create the offSpring solutionSet
-			SolutionSet<V> offspringPopulation = new SolutionSet<V>(populationSize);
-			for (int i = 0; i < (populationSize / 2); i++) {
-				//obtain parents
-				Solution<V> parent1 = selectionOperator.execute(population);
-				Solution<V> parent2 = selectionOperator.execute(population);
-				Solution<V>[] offSpring = crossoverOperator.execute(parent1, parent2);
-				mutationOperator.execute(offSpring[0]);
-				mutationOperator.execute(offSpring[1]);
-				offspringPopulation.add(offSpring[0]);
-				offspringPopulation.add(offSpring[1]);
-			}
+				// Create the solutionSet union of solutionSet and offSpring
+				union = population.union(offspringPopulation);
 
-			// select individuals to evaluate
-			Iterable<Solution<V>> toEval = offspringPopulation;
+				// Ranking the union
+				Ranking<V> ranking = new Ranking<V>(union);
 
-			switch (inherit) {
-			case UNIFORM:
-				List<Solution<V>> tmpu = new ArrayList<Solution<V>>();
-				for(Solution<V> s : offspringPopulation)
-					if(!PseudoRandom.getMersenneTwisterFast().nextBoolean(INHERIT_PROBABILITY))
-						tmpu.add(s);
+				int remain = populationSize;
+				SolutionSet<V> front = null;
+				population.clear();
 
-				toEval = tmpu;
-				break;
+				// Obtain the next front
+				front = ranking.next();
 
-			case FRONTEER:
-				List<Solution<V>> tmpf = new ArrayList<Solution<V>>();
+				while ((remain > 0) && (remain >= front.size())) {
+					//Assign crowding distance to individuals
+					Distance.crowdingDistanceAssignment(front, problem_.getNumberOfObjectives());
+					//Add the individuals of this front
+					for(Solution<V> s : front)
+						population.add(s);
 
-				final Ranking<V> ranking = new Ranking<V>(population);
-				final SolutionSet<V> fronteer = ranking.next();
-				final List<Solution<V>> others = new ArrayList<Solution<V>>();
+					//Decrement remain
+					remain = remain - front.size();
 
-				while(ranking.hasNext())
-					for(Solution<V> s : ranking.next())
-						others.add(s);
+					//Obtain the next front
+					if (remain > 0)
+						front = ranking.next();
+				} // while
 
-				final int n = offspringPopulation.size();
-				final int f = fronteer.size();
+				// Remain is less than front(index).size, insert only the best one
+				if (remain > 0) {  // front contains individuals to insert
+					Distance.crowdingDistanceAssignment(front, problem_.getNumberOfObjectives());
+					front.sort(new jmetal.base.operator.comparator.CrowdingComparator<V>());
+					for (int k = 0; k < remain; k++)
+						population.add(front.get(k));
 
-				final float k = 0.5f;
-				final float pf = k * INHERIT_PROBABILITY * n / (n + f*(k - 1.0f));
-				final float po = (pf / k) >= 1 ? 1 : pf / k;
+					remain = 0;
+				} // if
 
-				for(Solution<V> s : fronteer) {
-					if(!PseudoRandom.getMersenneTwisterFast().nextBoolean(pf)) {
-						tmpf.add(s);
-					}
+			} // while
+		} finally {
+			if(variation != null) variation.shutdownNow();
+		}
+
+		this.population = population;
+
+		// Return the first non-dominated front
+		SolutionSet<V> result = Ranking.getFrontier(population);
+		return result;
+	} // execute
+
+	/**
+	 * Selects the children to evaluate using the surrogate model of the fitness.
+	 * Children (with their predicted objectives) and the current population (with their actual objectives)
+	 * are ranked together on each objective, and scored with the sum of their ranks:
+	 * a child is evaluated only if its score is among the best {@link #getPopulationSize()} ones,
+	 * i.e., if it is predicted to survive the next selection.
+	 * To keep the model accurate, a share of the evaluated children is chosen randomly among the others.
+	 * At most as many children as in the {@link FitnessInheritance#UNIFORM} fitness inheritance are evaluated,
+	 * and fewer when the model predicts that most children are worse than the current population:
+	 * children that are not evaluated inherit the fitness of their parents.
+	 * @param offspring the offspring
+	 * @param population the current population (evaluated)
+	 * @return the children to evaluate
+	 */
+	List<Solution<V>> selectBySurrogate(SolutionSet<V> offspring, SolutionSet<V> population) {
+		final int n = offspring.size();
+		final int m = population.size();
+		final int nEval = Math.round(n * (1 - INHERIT_PROBABILITY));
+		final int nRandom = Math.round(nEval * SURROGATE_EXPLORATION);
+
+		// objectives of the children (predicted) followed by the ones of the population (actual)
+		final double[][] objectives = new double[n + m][];
+		for (int i = 0; i < n; i++)
+			objectives[i] = surrogate.predict(offspring.get(i));
+		for (int i = 0; i < m; i++) {
+			final Solution<V> s = population.get(i);
+			objectives[n + i] = new double[s.numberOfObjectives()];
+			for (int o = 0; o < objectives[n + i].length; o++)
+				objectives[n + i][o] = s.getObjective(o);
+		}
+
+		// score each solution with the sum of its ranks (objectives are minimized)
+		final int[] score = new int[n + m];
+		final Integer[] order = new Integer[n + m];
+		for (int o = 0; o < objectives[0].length; o++) {
+			final int obj = o;
+			for (int i = 0; i < order.length; i++) order[i] = i;
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(objectives[a][obj], objectives[b][obj]);
 				}
+			});
 
-				for(Solution<V> s : others) {
-					if(!PseudoRandom.getMersenneTwisterFast().nextBoolean(po))  {
-						tmpf.add(s);
-					}
+			for (int r = 0; r < order.length; r++) score[order[r]] += r;
+		}
+
+		for (int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return score[a] - score[b];
+			}
+		});
+
+		// the children predicted to survive (the best ones first)
+		final List<Solution<V>> ret = new ArrayList<Solution<V>>(nEval);
+		final boolean[] selected = new boolean[n];
+		for (int r = 0; r < m && ret.size() < nEval - nRandom; r++) {
+			if(order[r] < n) {
+				ret.add(offspring.get(order[r]));
+				selected[order[r]] = true;
+			}
+		}
+
+		final List<Solution<V>> others = new ArrayList<Solution<V>>(n);
+		for (int i = 0; i < n; i++)
+			if(!selected[i]) others.add(offspring.get(i));
+
+		final MersenneTwisterFast random = getRandom();
+		for (int i = 0; i < nRandom && !others.isEmpty(); i++)
+			ret.add(others.remove(random.nextInt(others.size())));
+
+		return ret;
+	}
+
+	/**
+	 * Creates the offspring, and evaluates the children that do not inherit the fitness.
+	 * Selection and crossover are performed by the current thread, using its random number generator (see {@link #getRandom()}).
+	 * Each child is then mutated by a {@link VariationThread}, which submits it for evaluation as soon as it is ready:
+	 * the mutation of children overlaps with the evaluation of the previous ones.
+	 * @param population the current population
+	 * @param executor the executor running the {@link VariationThread}s (see {@link #createVariationExecutor()})
+	 * @return the offspring, evaluated
+	 * @throws JMException if something goes wrong
+	 */
+	SolutionSet<V> generateOffspring(SolutionSet<V> population, ExecutorService executor) throws JMException {
+		final int populationSize = getPopulationSize();
+
+		@SuppressWarnings("unchecked")
+		final IAsyncProblem<V> async = (IAsyncProblem<V>) problem_;
+
+		final MersenneTwisterFast random = getRandom();
+
+		try {
+			SolutionSet<V> offspringPopulation = new SolutionSet<V>(populationSize);
+			List<Future<Future<Solution<V>>>> evaluations = new ArrayList<Future<Future<Solution<V>>>>(populationSize);
+
+			for (int i = 0; i < (populationSize / 2); i++) {
+				//obtain parents
+				Solution<V> parent1 = selectionOperator.execute(population);
+				Solution<V> parent2 = selectionOperator.execute(population);
+				Solution<V>[] offSpring = crossoverOperator.execute(parent1, parent2);
+
+				for (Solution<V> child : offSpring) {
+					offspringPopulation.add(child);
+
+					final boolean evaluate = inherit != FitnessInheritance.UNIFORM || !random.nextBoolean(INHERIT_PROBABILITY);
+					evaluations.add(executor.submit(new Variation(child, random.nextLong(), evaluate ? async : null)));
 				}
+			}
 
-				toEval = tmpf;
-				break;
+			for (Future<Future<Solution<V>>> variation : evaluations) {
+				Future<Solution<V>> evaluation = variation.get();
+				if(evaluation != null) problem_.evaluateConstraints(evaluation.get());
 			}
 
-			// evaluate individuals
-			problem_.evaluate(toEval);
-			for(Solution<V> solution : toEval) problem_.evaluateConstraints(solution);
+			return offspringPopulation;
+
+		} catch (InterruptedException e) {
+			throw new JMException(e);
+		} catch (ExecutionException e) {
+			throw new JMException(e.getCause());
+		}
+	}
+
+	/**
+	 * Creates the threads mutating the children (see {@link #setOffspringThreads(int)}).
+	 * The threads are created once for each execution of the algorithm, and must be shut down by the caller.
+	 * @return the executor running the {@link VariationThread}s
+	 */
+	ExecutorService createVariationExecutor() {
+		return Executors.newFixedThreadPool(offspringThreads, new ThreadFactory() {
+			private int n = 0;
 
-			// Create the solutionSet union of solutionSet and offSpring
-			union = population.union(offspringPopulation);
+			@Override
+			public Thread newThread(Runnable r) {
+				return new VariationThread(r, "NSGAII-variation-" + (n++));
+			}
+		});
+	}
 
-			// Ranking the union
-			Ranking<V> ranking = new Ranking<V>(union);
+	/**
+	 * Mutates a child and submits it for evaluation.
+	 * The random number generator of the thread is re-seeded for each child,
+	 * hence the random choices of the mutation do not depend on the scheduling of threads.
+	 * However, children mutated into a new test (i.e., empty ones) take it from the reserve of the problem,
+	 * which is shared among threads: which child gets which test depends on the scheduling of threads.
+	 */
+	private class Variation implements Callable<Future<Solution<V>>> {
 
-			int remain = populationSize;
-			SolutionSet<V> front = null;
-			population.clear();
+		private final Solution<V> child;
+		private final long seed;
 
-			// Obtain the next front
-			front = ranking.next();
+		/** the problem evaluating the child (null if the child inherits the fitness) */
+		private final IAsyncProblem<V> evaluator;
 
-			while ((remain > 0) && (remain >= front.size())) {
-				//Assign crowding distance to individuals
-				Distance.crowdingDistanceAssignment(front, problem_.getNumberOfObjectives());
-				//Add the individuals of this front
-				for(Solution<V> s : front)
-					population.add(s);
+		public Variation(Solution<V> child, long seed, IAsyncProblem<V> evaluator) {
+			this.child = child;
+			this.seed = seed;
+			this.evaluator = evaluator;
+		}
 
-				//Decrement remain
-				remain = remain - front.size();
+		@Override
+		public Future<Solution<V>> call() throws Exception {
+			getRandom().setSeed(seed);
 
-				//Obtain the next front
-				if (remain > 0)
-					front = ranking.next();
-			} // while
+			mutationOperator.execute(child);
 
-			// Remain is less than front(index).size, insert only the best one
-			if (remain > 0) {  // front contains individuals to insert
-				Distance.crowdingDistanceAssignment(front, problem_.getNumberOfObjectives());
-				front.sort(new jmetal.base.operator.comparator.CrowdingComparator<V>());
-				for (int k = 0; k < remain; k++)
-					population.add(front.get(k));
+			if(evaluator == null) return null;
+			return evaluator.evaluateAsync(child);
+		}
+	}
 
-				remain = 0;
-			} // if
+	/** A thread creating the offspring, with its own random number generator */
+	private static class VariationThread extends Thread {
 
-		} // while
+		private final MersenneTwisterFast random = new MersenneTwisterFast();
 
-		// Return the first non-dominated front
-		SolutionSet<V> result = Ranking.getFrontier(population);
-		return result;
-	} // execute
+		public VariationThread(Runnable target, String name) {
+			super(target, name);
+			setDaemon(true);
+		}
+	}
 } // NSGA-II
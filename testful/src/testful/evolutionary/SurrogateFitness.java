@@ -0,0 +1,165 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.io.Serializable;
+import java.util.List;
+
+import jmetal.base.Solution;
+import testful.model.AssignConstant;
+import testful.model.AssignPrimitive;
+import testful.model.CreateObject;
+import testful.model.Invoke;
+import testful.model.Operation;
+import testful.model.Reference;
+import testful.model.ResetRepository;
+
+/**
+ * Surrogate model of the fitness of tests.
+ * Each test is described by the (hashed) occurrences of its operations and of the pairs of consecutive operations:
+ * operations are identified by their kind and by the method, constructor, or class they refer to.
+ * Each objective is predicted by a linear regression, trained online with the normalized least mean squares rule.
+ * The model is not thread-safe: it must be used by the thread running the algorithm.
+ * @author matteo
+ */
+public class SurrogateFitness implements ISurrogate<Operation>, Serializable {
+
+	private static final long serialVersionUID = -3453162458960547264L;
+
+	/** number of hashed features (the last two are the bias and the length of the test) */
+	private static final int FEATURES = 512;
+
+	/** number of evaluated solutions to see before making predictions */
+	private static final int MIN_TRAINING = 100;
+
+	/** learning rate */
+	private static final double MU = 0.5;
+
+	private static final double EPSILON = 1e-6;
+
+	/** weights of the regressions: weights[objective][feature] */
+	private double[][] weights;
+
+	/** number of solutions used to train the model */
+	private int trained;
+
+	@Override
+	public void train(Solution<Operation> solution) {
+		final double[] x = getFeatures(solution.getDecisionVariables().variables_);
+
+		final int n = solution.numberOfObjectives();
+		if(weights == null || weights.length != n) {
+			weights = new double[n][FEATURES];
+			trained = 0;
+		}
+
+		double norm = EPSILON;
+		for (double v : x) norm += v*v;
+
+		for (int i = 0; i < n; i++) {
+			final double err = solution.getObjective(i) - dot(weights[i], x);
+			final double k = MU * err / norm;
+
+			final double[] w = weights[i];
+			for (int j = 0; j < FEATURES; j++)
+				if(x[j] != 0) w[j] += k * x[j];
+		}
+
+		trained++;
+	}
+
+	@Override
+	public boolean isReady() {
+		return trained >= MIN_TRAINING;
+	}
+
+	@Override
+	public double[] predict(Solution<Operation> solution) {
+		if(weights == null) return null;
+
+		final double[] x = getFeatures(solution.getDecisionVariables().variables_);
+
+		final double[] ret = new double[weights.length];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = dot(weights[i], x);
+
+		return ret;
+	}
+
+	private static double dot(double[] w, double[] x) {
+		double ret = 0;
+		for (int j = 0; j < FEATURES; j++)
+			if(x[j] != 0) ret += w[j] * x[j];
+
+		return ret;
+	}
+
+	private static double[] getFeatures(List<Operation> ops) {
+		final double[] x = new double[FEATURES];
+		final int hashed = FEATURES - 2;
+
+		int prev = 0;
+		for (Operation op : ops) {
+			final int key = getKey(op);
+
+			x[(key & 0x7fffffff) % hashed]++;
+			x[((31*prev + key) * 0x9e3779b9 & 0x7fffffff) % hashed]++;
+
+			prev = key;
+		}
+
+		// use logarithmic counts, to limit the influence of repeated operations
+		for (int j = 0; j < hashed; j++)
+			if(x[j] != 0) x[j] = Math.log(1 + x[j]);
+
+		x[hashed] = 1;
+		x[hashed + 1] = Math.log(1 + ops.size());
+
+		return x;
+	}
+
+	/**
+	 * Identifies the operation by its kind and by the element of the test cluster it refers to
+	 * @param op the operation
+	 * @return the key of the operation
+	 */
+	private static int getKey(Operation op) {
+		if(op instanceof Invoke)
+			return 1 + 8 * ((Invoke) op).getMethod().getId();
+
+		if(op instanceof CreateObject)
+			return 2 + 8 * ((CreateObject) op).getConstructor().getId();
+
+		if(op instanceof AssignPrimitive)
+			return 3 + 8 * getClazzId(((AssignPrimitive) op).getTarget());
+
+		if(op instanceof AssignConstant)
+			return 4 + 8 * getClazzId(((AssignConstant) op).getTarget());
+
+		if(op instanceof ResetRepository)
+			return 5;
+
+		return 0;
+	}
+
+	private static int getClazzId(Reference ref) {
+		if(ref == null) return -1;
+		return ref.getClazz().getId();
+	}
+}
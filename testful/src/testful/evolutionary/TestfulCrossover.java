@@ -0,0 +1,105 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jmetal.base.Solution;
+import jmetal.base.Variable;
+import jmetal.base.operator.crossover.Crossover;
+import jmetal.util.JMException;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Single point crossover with variable-length individuals.
+ * It behaves as jMetal's OnePointCrossoverVarLen, but it uses the random number generator
+ * of the current thread (see {@link NSGAII#getRandom()}).
+ * @author matteo
+ */
+public class TestfulCrossover<T extends Variable> extends Crossover<T> {
+
+	private static final long serialVersionUID = -6318542290214536466L;
+
+	/** Maximum length of an individual */
+	private int maxLen = 10000;
+
+	public int getMaxLen() {
+		return maxLen;
+	}
+
+	public void setMaxLen(int maxLen) {
+		this.maxLen = maxLen;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Solution<T>[] execute(Solution<T> p1, Solution<T> p2) throws JMException {
+		final MersenneTwisterFast random = NSGAII.getRandom();
+
+		if(!p1.getDecisionVariables().variables_.isEmpty() &&
+				!p2.getDecisionVariables().variables_.isEmpty() &&
+				random.nextBoolean(probability)) {
+
+			int cx1 = random.nextInt(p1.getDecisionVariables().variables_.size());
+			int cx2 = random.nextInt(p2.getDecisionVariables().variables_.size());
+
+			return new Solution[] {
+					cross(cx1, p1, cx2, p2),
+					cross(cx2, p2, cx1, p1)
+			};
+		}
+
+		return new Solution[] { new Solution<T>(p1), new Solution<T>(p2) };
+	}
+
+	private Solution<T> cross(int c1, Solution<T> p1, int c2, Solution<T> p2) {
+		Solution<T> son = new Solution<T>(p1);
+
+		List<T> r1 = p1.getDecisionVariables().variables_;
+		List<T> r2 = p2.getDecisionVariables().variables_;
+
+		int len = c1 + r2.size() - c2;
+		if(len > maxLen) len = maxLen;
+
+		List<T> rep = new ArrayList<T>(len);
+		for(int j = 0; j < c1; j++)
+			rep.add(r1.get(j));
+		for(int j = c2; j < r2.size() && rep.size() < maxLen; j++)
+			rep.add(r2.get(j));
+
+		son.getDecisionVariables().variables_ = rep;
+
+		// inherit all the parameters
+		final float perc1 = (1.0f * c1) / len;
+		final float perc2 = 1 - perc1;
+
+		son.setOverallConstraintViolation(perc1 * p1.getOverallConstraintViolation() + perc2 * p2.getOverallConstraintViolation());
+		son.setNumberOfViolatedConstraint((int) (perc1 * p1.getNumberOfViolatedConstraint() + perc2 * p2.getNumberOfViolatedConstraint()));
+		son.setDistanceToSolutionSet(perc1 * p1.getDistanceToSolutionSet() + perc2 * p2.getDistanceToSolutionSet());
+		son.setCrowdingDistance(perc1 * p1.getCrowdingDistance() + perc2 * p2.getCrowdingDistance());
+		son.setKDistance(perc1 * p1.getCrowdingDistance() + perc2 * p2.getCrowdingDistance());
+		son.setFitness(perc1 * p1.getFitness() + perc2 * p2.getFitness());
+
+		for(int i = 0; i < son.numberOfObjectives(); i++)
+			son.setObjective(i, perc1 * p1.getObjective(i) + perc2 * p2.getObjective(i));
+
+		return son;
+	}
+}
@@ -25,7 +25,6 @@ import java.util.logging.Logger;
 import jmetal.base.Solution;
 import jmetal.base.operator.mutation.Mutation;
 import jmetal.util.JMException;
-import jmetal.util.PseudoRandom;
 import testful.TestFul;
 import testful.model.Operation;
 import testful.model.ReferenceFactory;
@@ -71,7 +70,7 @@ public class TestfulMutation extends Mutation<Operation> {
 
 		TestCluster cluster = problem.getCluster();
 		ReferenceFactory refFactory = problem.getReferenceFactory();
-		MersenneTwisterFast random = PseudoRandom.getMersenneTwisterFast();
+		MersenneTwisterFast random = NSGAII.getRandom();
 
 		if(probSimplify > 0 && random.nextBoolean(probSimplify)) {
 			try {
@@ -83,7 +82,7 @@ public class TestfulMutation extends Mutation<Operation> {
 
 				repr.clear();
 				for(Operation operation : test.getTest())
-					repr.add(operation);
+					repr.add(problem.intern(operation));
 
 				return;
 			} catch (Exception e) {
@@ -98,7 +97,7 @@ public class TestfulMutation extends Mutation<Operation> {
 					repr.remove(random.nextInt(repr.size()));
 					i--;
 				} else {
-					repr.add(random.nextInt(repr.size()), Operation.randomlyGenerate(cluster, refFactory, random));
+					repr.add(random.nextInt(repr.size()), problem.intern(Operation.randomlyGenerate(cluster, refFactory, random)));
 					i++;
 				}
 			}
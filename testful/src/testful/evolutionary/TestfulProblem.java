@@ -28,13 +28,13 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import jmetal.util.PseudoRandom;
 import testful.coverage.CoverageInformation;
 import testful.coverage.CoverageTestExecutor;
 import testful.coverage.TrackerDatum;
 import testful.coverage.behavior.AbstractorRegistry;
 import testful.coverage.whiteBox.WhiteBoxAnalysisData;
 import testful.model.Operation;
+import testful.model.OperationPool;
 import testful.model.OptimalTestCreator;
 import testful.model.ReferenceFactory;
 import testful.model.Test;
@@ -73,6 +73,9 @@ public class TestfulProblem implements Serializable {
 	/** Saves the tests with the best coverage (including fault coverage!) */
 	private final OptimalTestCreator optimal = new OptimalTestCreator();
 
+	/** operations shared among the tests of the population (lazily created) */
+	private transient OperationPool operations;
+
 	/** cumulative number of invocations */
 	private AtomicLong invTot = new AtomicLong(0);
 
@@ -108,6 +111,27 @@ public class TestfulProblem implements Serializable {
 		}
 	}
 
+	/**
+	 * Creates a problem working on an existing test cluster, without any class-loading facility
+	 * (e.g., an island of the distributed genetic algorithm, running in a remote node).
+	 * Since the problem has no data finder, subclasses must override
+	 * {@link TestfulProblem#evaluate(Test, TrackerDatum[], testful.runner.Job.Priority)}.
+	 * @param cluster the test cluster
+	 * @param refFactory the reference factory
+	 * @param data the tracker data to use
+	 * @param reloadClasses true if classes must be reloaded before each test
+	 */
+	protected TestfulProblem(TestCluster cluster, ReferenceFactory refFactory, TrackerDatum[] data, boolean reloadClasses) {
+		this.cluster = cluster;
+		this.refFactory = refFactory;
+		this.data = data;
+		this.reloadClasses = reloadClasses;
+
+		finder = null;
+		objectType = null;
+		whiteAnalysis = null;
+	}
+
 	public TestCluster getCluster() {
 		return cluster;
 	}
@@ -157,12 +181,24 @@ public class TestfulProblem implements Serializable {
 	}
 
 	public Future<ElementManager<String, CoverageInformation>> evaluate(Test test, TrackerDatum[] data) {
+		return evaluate(test, data, Job.Priority.THROUGHPUT);
+	}
+
+	/**
+	 * Evaluates a test
+	 * @param test the test to evaluate
+	 * @param data the tracker data to use (if null, the default ones are used)
+	 * @param priority the scheduling class of the evaluation
+	 * @return the future coverage of the test
+	 */
+	public Future<ElementManager<String, CoverageInformation>> evaluate(Test test, TrackerDatum[] data, Job.Priority priority) {
 		if(data == null) data = this.data;
 
 		invTot.addAndGet(test.getTest().length);
 
 		Job<TestExecutorInput, ElementManager<String, CoverageInformation>, CoverageTestExecutor> ctx =
 			CoverageTestExecutor.getContext(finder, test, reloadClasses, data);
+		ctx.setPriority(priority);
 
 		return RunnerPool.getRunnerPool().execute(ctx);
 	}
@@ -175,6 +211,21 @@ public class TestfulProblem implements Serializable {
 		return new Test(cluster, refFactory, ops.toArray(new Operation[ops.size()]));
 	}
 
+	/**
+	 * Returns the shared operation equal to the given one, to let tests of the population share their operations.
+	 * It can be called by the threads generating the offspring.
+	 * @param op the operation
+	 * @return the shared operation equal to op (op itself if it has some operation information)
+	 * @see OperationPool
+	 */
+	public Operation intern(Operation op) {
+		synchronized (this) {
+			if(operations == null) operations = new OperationPool();
+		}
+
+		return operations.intern(op);
+	}
+
 	public WhiteBoxAnalysisData getWhiteAnalysis() {
 		return whiteAnalysis;
 	}
@@ -188,7 +239,9 @@ public class TestfulProblem implements Serializable {
 	public void addReserve(TestSuite tests) {
 		if(tests == null) return;
 
-		reserve.add(tests);
+		synchronized (reserve) {
+			reserve.add(tests);
+		}
 	}
 
 	/**
@@ -198,22 +251,34 @@ public class TestfulProblem implements Serializable {
 	public void addReserve(TestCoverage test) {
 		if(test == null) return;
 
-		reserve.add(test);
+		synchronized (reserve) {
+			reserve.add(test);
+		}
 	}
 
+	/**
+	 * Generates a new test, taking it from the reserve (if not empty) or creating it randomly.
+	 * It can be called by the threads generating the offspring (see {@link NSGAII#getRandom()}):
+	 * in this case, the order in which they take the tests of the reserve depends on the scheduling of threads.
+	 * @return the operations of the new test
+	 */
 	public List<Operation> generateTest() {
-		Operation[] ops = reserve.getBestTest();
+		Operation[] ops;
+		synchronized (reserve) {
+			ops = reserve.getBestTest();
+		}
+
 		if (ops!=null) {
 			ops = Operation.adapt(ops, cluster, refFactory);
 			List<Operation> ret = new ArrayList<Operation>(ops.length);
-			for (Operation o : ops) ret.add(o);
+			for (Operation o : ops) ret.add(intern(o));
 			return ret;
 		}
 
 		List<Operation> ret = new ArrayList<Operation>(10);
 
 		for (int i = 0; i < 10; i++)
-			ret.add(Operation.randomlyGenerate(cluster, refFactory, PseudoRandom.getMersenneTwisterFast()));
+			ret.add(intern(Operation.randomlyGenerate(cluster, refFactory, NSGAII.getRandom())));
 
 		return ret;
 	}
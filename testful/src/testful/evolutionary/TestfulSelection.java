@@ -0,0 +1,96 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.Comparator;
+
+import jmetal.base.Solution;
+import jmetal.base.SolutionSet;
+import jmetal.base.Variable;
+import jmetal.base.operator.comparator.DominanceComparator;
+import jmetal.base.operator.selection.Selection;
+import jmetal.util.JMException;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Binary tournament selection, as implemented in Deb's NSGA-II.
+ * It behaves as jMetal's BinaryTournament2, but it uses the random number generator
+ * of the current thread (see {@link NSGAII#getRandom()}).
+ * @author matteo
+ */
+public class TestfulSelection<T extends Variable> extends Selection<T, Solution<T>> {
+
+	private final Comparator<Solution<T>> dominance = new DominanceComparator<T>();
+
+	/** a permutation of the population */
+	private int[] permutation;
+
+	/** the position of the next tournament in the permutation */
+	private int index = 0;
+
+	@Override
+	public Solution<T> execute(SolutionSet<T> population) throws JMException {
+		final MersenneTwisterFast random = NSGAII.getRandom();
+
+		if(index == 0) permutation = permutation(population.size(), random);
+
+		Solution<T> solution1 = population.get(permutation[index]);
+		Solution<T> solution2 = population.get(permutation[index + 1]);
+
+		index = (index + 2) % population.size();
+
+		int flag = dominance.compare(solution1, solution2);
+		if(flag == -1) return solution1;
+		if(flag == 1) return solution2;
+		if(solution1.getCrowdingDistance() > solution2.getCrowdingDistance()) return solution1;
+		if(solution2.getCrowdingDistance() > solution1.getCrowdingDistance()) return solution2;
+
+		return random.nextDouble() < 0.5 ? solution1 : solution2;
+	}
+
+	/**
+	 * Creates a random permutation of [0, length - 1], sorting the indexes by a random key
+	 * (as jMetal's PermutationUtility does)
+	 */
+	private static int[] permutation(int length, MersenneTwisterFast random) {
+		int[] key = new int[length];
+		int[] ret = new int[length];
+
+		for (int i = 0; i < length; i++) {
+			ret[i] = i;
+			key[i] = random.nextInt(length);
+		}
+
+		for (int i = 0; i < length; i++) {
+			for (int j = i + 1; j < length; j++) {
+				if (key[i] > key[j]) {
+					int tmp = key[i];
+					key[i] = key[j];
+					key[j] = tmp;
+
+					tmp = ret[i];
+					ret[i] = ret[j];
+					ret[j] = tmp;
+				}
+			}
+		}
+
+		return ret;
+	}
+}
@@ -108,7 +108,7 @@ public class AssignConstant extends Operation {
 	}
 
 	@Override
-	public Operation clone() {
+	public Operation copy() {
 		final AssignConstant clone = new AssignConstant(ref, staticValue);
 		clone.addInfo(getInfos());
 		return clone;
@@ -337,7 +337,7 @@ public class AssignPrimitive extends Operation {
 	}
 
 	@Override
-	public Operation clone() {
+	public Operation copy() {
 		final AssignPrimitive clone = new AssignPrimitive(ref, value);
 		clone.addInfo(getInfos());
 		return clone;
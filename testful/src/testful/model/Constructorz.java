@@ -39,6 +39,9 @@ public class Constructorz implements Serializable, Comparable<Constructorz> {
 	/** The maximum execution time (in milliseconds) */
 	private final int maxExecutionTime;
 
+	/** The execution times observed so far (it is not transferred) */
+	private transient ExecutionTime executionTime;
+
 	Constructorz(int id, Clazz clazz, Clazz[] params, XmlConstructor xml) {
 		this.id = id;
 		this.clazz = clazz;
@@ -95,6 +98,24 @@ public class Constructorz implements Serializable, Comparable<Constructorz> {
 		return maxExecutionTime;
 	}
 
+	/**
+	 * Returns the execution times of the constructor observed so far
+	 * @return the execution times of the constructor observed so far
+	 */
+	public ExecutionTime getExecutionTime() {
+		if(executionTime == null) executionTime = new ExecutionTime();
+		return executionTime;
+	}
+
+	/**
+	 * Returns the time budget (in milliseconds) for the next execution of the constructor:
+	 * it is learned from past executions, and never exceeds the maximum execution time.
+	 * @return the time budget (in milliseconds)
+	 */
+	public int getExecutionBudget() {
+		return getExecutionTime().getBudget(maxExecutionTime);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder(clazz.getClassName()).append("(");
@@ -137,7 +137,7 @@ public class CreateObject extends Operation {
 	}
 
 	@Override
-	public Operation clone() {
+	public Operation copy() {
 		final CreateObject clone = new CreateObject(ref, constructor, params);
 		clone.addInfo(getInfos());
 		return clone;
@@ -0,0 +1,111 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2010  Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import testful.TestFul;
+import testful.utils.LogHistogram;
+
+/**
+ * Learns the distribution of the execution times of a method (or a constructor),
+ * and uses it to tighten the maximum execution time allowed to the method.
+ * Execution times are collected in a {@link LogHistogram} (in microseconds):
+ * once enough executions have been observed, the budget of the method becomes
+ * twice the 99th percentile of its execution time, plus a safety margin
+ * (never exceeding the maximum execution time specified by the user).
+ * Recording an execution does not acquire any lock.
+ *
+ * @author matteo
+ */
+public class ExecutionTime {
+
+	/** If false, the maximum execution time is never tightened */
+	private static final boolean ADAPTIVE = TestFul.getProperty(TestFul.PROPERTY_MAX_EXEC_TIME_ADAPTIVE, true);
+
+	/** The safety margin (ms) added to the learned budget */
+	private static final int MARGIN = TestFul.getProperty(TestFul.PROPERTY_MAX_EXEC_TIME_MARGIN, 50);
+
+	/** The minimum number of executions to observe before tightening the budget */
+	private static final int MIN_SAMPLES = 30;
+
+	/** The budget is updated every UPDATE_PERIOD executions */
+	private static final int UPDATE_PERIOD = 16;
+
+	/** The percentile of the execution time to use */
+	private static final int PERCENTILE = 99;
+
+	/** The execution times, in microseconds */
+	private final LogHistogram histogram = new LogHistogram();
+	private final AtomicInteger samples = new AtomicInteger();
+
+	/** the learned budget (ms), or -1 if not enough executions have been observed */
+	private volatile int budget = -1;
+
+	/**
+	 * Records a successful execution of the method.
+	 * Executions reaching their budget must be recorded with {@link #recordTimeout(int)}.
+	 * @param nanos the duration of the execution (in nanoseconds)
+	 */
+	public void record(long nanos) {
+		if(!ADAPTIVE) return;
+
+		histogram.record(nanos / 1000);
+
+		final int n = samples.incrementAndGet();
+		if(n >= MIN_SAMPLES && n % UPDATE_PERIOD == 0)
+			budget = calculateBudget();
+	}
+
+	/**
+	 * Records an execution of the method that reached its budget (and that may have been stopped).
+	 * Its actual duration is unknown: it is recorded as lasting the whole budget (i.e., a censored sample),
+	 * so that the budget of methods that time out repeatedly grows back.
+	 * @param budget the budget (ms) of the execution
+	 */
+	public void recordTimeout(int budget) {
+		record(budget * 1000000L);
+	}
+
+	/**
+	 * Returns the budget for the next execution of the method
+	 * @param maxExecutionTime the maximum execution time (ms) allowed by the user
+	 * @return the budget (ms) for the next execution of the method
+	 */
+	public int getBudget(int maxExecutionTime) {
+		final int b = budget;
+		if(b < 0 || b > maxExecutionTime) return maxExecutionTime;
+		return b;
+	}
+
+	private int calculateBudget() {
+		final long micros = histogram.getPercentile(PERCENTILE);
+		if(micros < 0) return -1;
+
+		final long percentile = (micros + 999) / 1000;
+		return (int) Math.min(Integer.MAX_VALUE, 2 * percentile + MARGIN);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return samples.get() + " executions, budget: " + (budget < 0 ? "N/A" : (budget + " ms"));
+	}
+}
@@ -174,7 +174,7 @@ public class Invoke extends Operation {
 	}
 
 	@Override
-	public Operation clone() {
+	public Operation copy() {
 		final Invoke clone = new Invoke(_return, _this, method, params);
 		clone.addInfo(getInfos());
 		return clone;
@@ -45,6 +45,9 @@ public class Methodz implements Serializable, Comparable<Methodz> {
 	/** The maximum execution time (in milliseconds) */
 	private final int maxExecutionTime;
 
+	/** The execution times observed so far (it is not transferred) */
+	private transient ExecutionTime executionTime;
+
 	private final MethodInformation info;
 
 	Methodz(int id, boolean _static, Clazz returnType, Clazz clazz, String name, Clazz[] params, XmlMethod xml) {
@@ -114,6 +117,24 @@ public class Methodz implements Serializable, Comparable<Methodz> {
 		return maxExecutionTime;
 	}
 
+	/**
+	 * Returns the execution times of the method observed so far
+	 * @return the execution times of the method observed so far
+	 */
+	public ExecutionTime getExecutionTime() {
+		if(executionTime == null) executionTime = new ExecutionTime();
+		return executionTime;
+	}
+
+	/**
+	 * Returns the time budget (in milliseconds) for the next execution of the method:
+	 * it is learned from past executions, and never exceeds the maximum execution time.
+	 * @return the time budget (in milliseconds)
+	 */
+	public int getExecutionBudget() {
+		return getExecutionTime().getBudget(maxExecutionTime);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder(name).append("(");
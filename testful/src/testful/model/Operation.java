@@ -19,7 +19,6 @@
 package testful.model;
 
 import java.io.Serializable;
-import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -43,12 +42,33 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 
 	private ElementManager<String, OperationInformation> infos;
 
+	/** true if the operation is shared among tests (see {@link OperationPool}) */
+	private transient boolean shared;
+
+	/**
+	 * Checks if the operation is shared among tests (see {@link OperationPool}).
+	 * Shared operations are immutable: they cannot be annotated with operation information.
+	 * @return true if the operation is shared among tests
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	void setShared() {
+		shared = true;
+	}
+
+	private void checkNotShared() {
+		if(shared) throw new IllegalStateException("Shared operations cannot be annotated: use a copy of the operation");
+	}
+
 	/**
 	 * Adds the given operationInformation.
 	 * If the operation already contains an operation information with the same key, this operation does not do anything.
 	 * @param info the operation information to add
 	 */
 	public void addInfo(OperationInformation info) {
+		checkNotShared();
 		if(infos == null) infos = new ElementManager<String, OperationInformation>();
 		infos.put(info);
 	}
@@ -68,6 +88,7 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 	 * @param info the operation information to add
 	 */
 	public void setInfo(OperationInformation info) {
+		checkNotShared();
 		if(infos == null) infos = new ElementManager<String, OperationInformation>();
 		infos.putAndReplace(info);
 	}
@@ -109,8 +130,22 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 	@Override
 	public abstract boolean equals(Object o);
 
+	/**
+	 * Clones the operation. Shared operations are immutable, and are not cloned.
+	 * To obtain a private copy of the operation, which can be annotated, use {@link Operation#copy()}.
+	 * @return the operation itself if it is shared, a copy of the operation otherwise
+	 */
 	@Override
-	public abstract Operation clone();
+	public final Operation clone() {
+		if(shared) return this;
+		return copy();
+	}
+
+	/**
+	 * Creates a private copy of the operation, including its operation information
+	 * @return a new operation, equal to this one
+	 */
+	public abstract Operation copy();
 
 	protected static final transient Set<Reference> emptyRefsSet = new HashSet<Reference>();
 
@@ -120,15 +155,25 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 		if(defs == null) defs = calculateDefs();
 		return defs;
 	}
-	private transient BitSet defsBitset = null;
-	public BitSet getDefsBitset() {
-		if(defsBitset == null) {
-			defsBitset = new BitSet();
-			for(Reference u : getDefs())
-				defsBitset.set(u.getId());
-		}
+	private transient long[] defsMask = null;
+
+	/**
+	 * Returns the references defined by the operation, as a mask (see {@link ReferenceMask}).
+	 * It is computed once, and shared operations compute it once for the whole population.
+	 * @return the mask of the defined references (do not modify it)
+	 */
+	public long[] getDefsMask() {
+		if(defsMask == null) defsMask = ReferenceMask.create(getDefs());
+		return defsMask;
+	}
 
-		return defsBitset;
+	/**
+	 * Checks if the operation defines the reference
+	 * @param ref the reference
+	 * @return true if the operation defines the reference
+	 */
+	public boolean defines(Reference ref) {
+		return ReferenceMask.contains(getDefsMask(), ref);
 	}
 
 	private transient Set<Reference> uses = null;
@@ -137,15 +182,25 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 		if(uses == null) uses = calculateUses();
 		return uses;
 	}
-	private transient BitSet usesBitset = null;
-	public BitSet getUsesBitset() {
-		if(usesBitset == null) {
-			usesBitset = new BitSet();
-			for(Reference u : getUses())
-				usesBitset.set(u.getId());
-		}
+	private transient long[] usesMask = null;
 
-		return usesBitset;
+	/**
+	 * Returns the references used by the operation, as a mask (see {@link ReferenceMask}).
+	 * It is computed once, and shared operations compute it once for the whole population.
+	 * @return the mask of the used references (do not modify it)
+	 */
+	public long[] getUsesMask() {
+		if(usesMask == null) usesMask = ReferenceMask.create(getUses());
+		return usesMask;
+	}
+
+	/**
+	 * Checks if the operation uses the reference
+	 * @param ref the reference
+	 * @return true if the operation uses the reference
+	 */
+	public boolean uses(Reference ref) {
+		return ReferenceMask.contains(getUsesMask(), ref);
 	}
 
 	/**
@@ -158,24 +213,12 @@ public abstract class Operation implements Serializable, Cloneable, Variable {
 		if(this instanceof ResetRepository || other instanceof ResetRepository)
 			return false;
 
-		Set<Reference> use1 = getUses();
-		Set<Reference> def1 = getDefs();
-
-		Set<Reference> use2 = other.getUses();
-		Set<Reference> def2 = other.getDefs();
-
-		for(Reference d : def1) {
-			if(use2.contains(d)) return false;
-			if(def2.contains(d)) return false;
-		}
-
-		for(Reference d : def2) {
-			if(use1.contains(d)) return false;
-			// useless
-			// if(def1.contains(d)) return false;
-		}
+		final long[] def1 = getDefsMask();
+		final long[] def2 = other.getDefsMask();
 
-		return true;
+		return !ReferenceMask.intersects(def1, other.getUsesMask()) &&
+		!ReferenceMask.intersects(def1, def2) &&
+		!ReferenceMask.intersects(def2, getUsesMask());
 	}
 
 	/**
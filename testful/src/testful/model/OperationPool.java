@@ -0,0 +1,77 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-conses operations: equal operations without operation information are represented by the same (shared) object.
+ * Shared operations are immutable: cloning them returns the operation itself, and they cannot be annotated.
+ * Operations with information are never shared, and must be copied before being annotated
+ * (see {@link Operation#copy()} and {@link Test#ensureNoDuplicateOps()}).
+ * Operations are weakly referenced: they are removed from the pool when no test uses them.
+ * A pool must contain operations referring to the same test cluster and reference factory.
+ * @author matteo
+ */
+public class OperationPool {
+
+	private final Map<Operation, WeakReference<Operation>> pool = new WeakHashMap<Operation, WeakReference<Operation>>();
+
+	/**
+	 * Returns the shared operation equal to the given one.
+	 * If the pool does not contain it, the given operation becomes shared and it is added to the pool.
+	 * @param op the operation
+	 * @return the shared operation equal to op, or op itself if it has some operation information
+	 */
+	public synchronized Operation intern(Operation op) {
+		if(op == null || op.isShared()) return op;
+		if(op.getInfos().hasNext()) return op;
+
+		final WeakReference<Operation> ref = pool.get(op);
+		if(ref != null) {
+			final Operation ret = ref.get();
+			if(ret != null) return ret;
+		}
+
+		op.setShared();
+		pool.put(op, new WeakReference<Operation>(op));
+		return op;
+	}
+
+	/**
+	 * Replaces each operation of the list with the equal shared one
+	 * @param ops the list of operations (it is modified)
+	 */
+	public void intern(List<Operation> ops) {
+		for(ListIterator<Operation> iter = ops.listIterator(); iter.hasNext(); )
+			iter.set(intern(iter.next()));
+	}
+
+	/**
+	 * Returns the number of shared operations
+	 * @return the number of shared operations
+	 */
+	public synchronized int size() {
+		return pool.size();
+	}
+}
@@ -18,8 +18,13 @@
 
 package testful.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,14 +46,16 @@ public class OptimalTestCreator {
 
 	/**
 	 * stores the optimal solution found so far.
-	 * Key: coverage criteria;
-	 * value: solutions
+	 * Key: the test, in its compact form (moved to disk when the heap is running out);
+	 * value: the coverage of the test
 	 */
-	private final Set<TestCoverage> optimal;
+	private final Map<TestStore.Handle, ElementManager<String, CoverageInformation>> optimal;
+
+	private final TestStore store = TestStore.singleton;
 
 	public OptimalTestCreator() {
 		combinedCoverage = new ElementManager<String, CoverageInformation>();
-		optimal = new HashSet<TestCoverage>();
+		optimal = new HashMap<TestStore.Handle, ElementManager<String, CoverageInformation>>();
 	}
 
 	/**
@@ -82,17 +89,17 @@ public class OptimalTestCreator {
 		}
 
 		// check if it is possible to remove some tests
-		Set<TestCoverage> toRemove = new HashSet<TestCoverage>();
-		for(TestCoverage other : optimal) {
-			if(performsBetter(test, other))
-				toRemove.add(other);
+		Set<TestStore.Handle> toRemove = new HashSet<TestStore.Handle>();
+		for(Entry<TestStore.Handle, ElementManager<String, CoverageInformation>> other : optimal.entrySet()) {
+			if(performsBetter(test.getCoverage(), other.getValue()))
+				toRemove.add(other.getKey());
 		}
 
 		// if the test is not innovative, it should be shorter than to-be-removed tests
 		if(!innovative) {
 			int tot = 0;
-			for(TestCoverage t : toRemove)
-				tot += t.getTest().length;
+			for(TestStore.Handle t : toRemove)
+				tot += t.getLength();
 
 			if(test.getTest().length > tot) toRemove.clear();
 		}
@@ -100,31 +107,46 @@ public class OptimalTestCreator {
 		// if the test is innovative
 		//    or if it is more efficient than the others
 		if(innovative || !toRemove.isEmpty()) {
-			for(TestCoverage t : toRemove)
+			for(TestStore.Handle t : toRemove) {
 				optimal.remove(t);
+				store.remove(t);
+			}
+
+			optimal.put(store.add(new PackedTest(test)), test.getCoverage());
 
-			optimal.add(test);
+			// optimal tests are only needed at the end: move all of them to disk
+			if(store.isUnderPressure())
+				for(TestStore.Handle t : optimal.keySet())
+					store.spill(t);
 		}
 	}
 
 	/**
 	 * Checks if the test can replace the other test
 	 * (i.e., the other test does not cover any element not covered by the given test).
-	 * @param test the reference test
-	 * @param other the test that we want to remove
+	 * @param test the coverage of the reference test
+	 * @param other the coverage of the test that we want to remove
 	 * @return true if the other test can be removed
 	 */
-	private boolean performsBetter(TestCoverage test, TestCoverage other) {
-		for (CoverageInformation otherCov : other.getCoverage()) {
-			CoverageInformation thisCov = test.getCoverage().get(otherCov.getKey());
+	private boolean performsBetter(ElementManager<String, CoverageInformation> test, ElementManager<String, CoverageInformation> other) {
+		for (CoverageInformation otherCov : other) {
+			CoverageInformation thisCov = test.get(otherCov.getKey());
 			if(thisCov == null || !thisCov.contains(otherCov)) return false;
 		}
 
 		return true;
 	}
 
-	public Collection<TestCoverage> get() {
-		return optimal;
+	/**
+	 * Returns the optimal tests found so far. Tests are decoded at each invocation.
+	 * @return the optimal tests found so far
+	 */
+	public synchronized Collection<TestCoverage> get() {
+		List<TestCoverage> ret = new ArrayList<TestCoverage>(optimal.size());
+		for(Entry<TestStore.Handle, ElementManager<String, CoverageInformation>> t : optimal.entrySet())
+			ret.add(new TestCoverage(store.get(t.getKey()).getTest(), t.getValue()));
+
+		return ret;
 	}
 
 	public ElementManager<String, CoverageInformation> getCoverage() {
@@ -152,8 +174,8 @@ public class OptimalTestCreator {
 		sb.append(";").append("tests-num").append("=").append(optimal.size());
 
 		int tot = 0;
-		for(Test t : optimal)
-			tot += t.getTest().length;
+		for(TestStore.Handle t : optimal.keySet())
+			tot += t.getLength();
 		sb.append(";").append("tests-length").append("=").append(tot);
 
 		for (CoverageInformation cov : combinedCoverage)
@@ -0,0 +1,452 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compact representation of a test, used to store tests for a long time (e.g., the reserve of the evolutionary algorithm,
+ * or the optimal tests found so far). Operations are encoded in three arrays:
+ * <ul>
+ * <li>the code: for each operation, its type followed by the ids of the elements it uses (references, methods, constructors, static values)</li>
+ * <li>the primitive pool, with the values of primitive assignments</li>
+ * <li>the string table, with the (distinct) strings used in the test</li>
+ * </ul>
+ * Operation information, which is rare, is kept aside.
+ * Operations are decoded only when needed, using the test cluster and the reference factory of the test.
+ * @author matteo
+ */
+public class PackedTest implements Serializable {
+
+	private static final long serialVersionUID = -6214836019623462351L;
+
+	// operation types
+	private static final int RESET_REPOSITORY = 0;
+	private static final int ASSIGN_CONSTANT  = 1;
+	private static final int ASSIGN_PRIMITIVE = 2;
+	private static final int CREATE_OBJECT    = 3;
+	private static final int INVOKE           = 4;
+
+	// primitive types
+	private static final int NULL      = -1;
+	private static final int BOOLEAN   = 0;
+	private static final int BYTE      = 1;
+	private static final int CHARACTER = 2;
+	private static final int DOUBLE    = 3;
+	private static final int FLOAT     = 4;
+	private static final int INTEGER   = 5;
+	private static final int LONG      = 6;
+	private static final int SHORT     = 7;
+	private static final int STRING    = 8;
+
+	private final TestCluster cluster;
+	private final ReferenceFactory refFactory;
+
+	/** number of operations */
+	private final int length;
+
+	/** op.type [op-specific ids] (see the encode method) */
+	private final int[] code;
+
+	/** values of the primitive assignments, in order */
+	private final long[] primitives;
+
+	/** distinct strings used in the test */
+	private final String[] strings;
+
+	/** the information of each operation (null if no operation has information) */
+	private final OperationInformation[][] infos;
+
+	private final int hashCode;
+
+	public PackedTest(Test test) {
+		this(test.getCluster(), test.getReferenceFactory(), test.getTest());
+	}
+
+	public PackedTest(TestCluster cluster, ReferenceFactory refFactory, Operation[] ops) {
+		this.cluster = cluster;
+		this.refFactory = refFactory;
+		length = ops.length;
+
+		Encoder enc = new Encoder(ops.length);
+		OperationInformation[][] infos = null;
+		for (int i = 0; i < ops.length; i++) {
+			enc.encode(ops[i]);
+
+			Iterator<OperationInformation> iter = ops[i].getInfos();
+			if(iter.hasNext()) {
+				if(infos == null) infos = new OperationInformation[ops.length][];
+
+				int n = 0;
+				OperationInformation[] opInfos = new OperationInformation[4];
+				while(iter.hasNext()) {
+					if(n == opInfos.length) opInfos = Arrays.copyOf(opInfos, 2*n);
+					opInfos[n++] = iter.next().clone();
+				}
+				infos[i] = Arrays.copyOf(opInfos, n);
+			}
+		}
+
+		code = Arrays.copyOf(enc.code, enc.nCode);
+		primitives = Arrays.copyOf(enc.primitives, enc.nPrimitives);
+		strings = new String[enc.strings.size()];
+		for (Map.Entry<String, Integer> e : enc.strings.entrySet())
+			strings[e.getValue()] = e.getKey();
+		this.infos = infos;
+
+		hashCode = 31 * (31 * Arrays.hashCode(code) + Arrays.hashCode(primitives)) + Arrays.hashCode(strings);
+	}
+
+	private PackedTest(TestCluster cluster, ReferenceFactory refFactory, int length, int[] code, long[] primitives, String[] strings, OperationInformation[][] infos) {
+		this.cluster = cluster;
+		this.refFactory = refFactory;
+		this.length = length;
+		this.code = code;
+		this.primitives = primitives;
+		this.strings = strings;
+		this.infos = infos;
+
+		hashCode = 31 * (31 * Arrays.hashCode(code) + Arrays.hashCode(primitives)) + Arrays.hashCode(strings);
+	}
+
+	public TestCluster getCluster() {
+		return cluster;
+	}
+
+	public ReferenceFactory getReferenceFactory() {
+		return refFactory;
+	}
+
+	/**
+	 * Returns the number of operations of the test
+	 * @return the number of operations of the test
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Estimates the number of bytes used in the heap by this packed test
+	 * (the test cluster and the reference factory are shared, and are not considered).
+	 * @return the estimated size in bytes
+	 */
+	public long getSize() {
+		long size = 64 + 16 + 4L*code.length + 16 + 8L*primitives.length + 16 + 4L*strings.length;
+
+		for (String s : strings)
+			size += 40 + 2L*s.length();
+
+		if(infos != null) {
+			size += 16 + 4L*infos.length;
+			for (OperationInformation[] info : infos)
+				if(info != null) size += 16 + 64L*info.length;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Writes the packed test, without the test cluster and the reference factory
+	 * @param out the output
+	 * @throws IOException if something goes wrong
+	 * @see PackedTest#read(TestCluster, ReferenceFactory, DataInput)
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(length);
+
+		out.writeInt(code.length);
+		for (int c : code) out.writeInt(c);
+
+		out.writeInt(primitives.length);
+		for (long p : primitives) out.writeLong(p);
+
+		out.writeInt(strings.length);
+		for (String str : strings) {
+			out.writeInt(str.length());
+			out.writeChars(str);
+		}
+
+		if(infos == null) {
+			out.writeInt(0);
+		} else {
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			ObjectOutputStream oo = new ObjectOutputStream(buf);
+			oo.writeObject(infos);
+			oo.close();
+
+			out.writeInt(buf.size());
+			out.write(buf.toByteArray());
+		}
+	}
+
+	/**
+	 * Reads a packed test written by {@link PackedTest#write(DataOutput)}
+	 * @param cluster the test cluster of the test
+	 * @param refFactory the reference factory of the test
+	 * @param in the input
+	 * @return the packed test
+	 * @throws IOException if something goes wrong
+	 */
+	public static PackedTest read(TestCluster cluster, ReferenceFactory refFactory, DataInput in) throws IOException {
+		final int length = in.readInt();
+
+		final int[] code = new int[in.readInt()];
+		for (int i = 0; i < code.length; i++) code[i] = in.readInt();
+
+		final long[] primitives = new long[in.readInt()];
+		for (int i = 0; i < primitives.length; i++) primitives[i] = in.readLong();
+
+		final String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			final char[] chars = new char[in.readInt()];
+			for (int j = 0; j < chars.length; j++) chars[j] = in.readChar();
+			strings[i] = new String(chars);
+		}
+
+		OperationInformation[][] infos = null;
+		final int infoSize = in.readInt();
+		if(infoSize > 0) {
+			byte[] buf = new byte[infoSize];
+			in.readFully(buf);
+			try {
+				infos = (OperationInformation[][]) new ObjectInputStream(new ByteArrayInputStream(buf)).readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Cannot read the operation information: " + e);
+			}
+		}
+
+		return new PackedTest(cluster, refFactory, length, code, primitives, strings, infos);
+	}
+
+	/**
+	 * Decodes the test
+	 * @return the test
+	 */
+	public Test getTest() {
+		return new Test(cluster, refFactory, getOperations());
+	}
+
+	/**
+	 * Decodes the operations of the test. Each invocation creates new operations.
+	 * @return the operations of the test
+	 */
+	public Operation[] getOperations() {
+		final Reference[] refs = refFactory.getReferences();
+		final Operation[] ops = new Operation[length];
+
+		int c = 0;
+		int p = 0;
+		for (int i = 0; i < length; i++) {
+			switch(code[c++]) {
+			case RESET_REPOSITORY:
+				ops[i] = (infos == null || infos[i] == null) ? ResetRepository.singleton : ResetRepository.singleton.copy();
+				break;
+
+			case ASSIGN_CONSTANT: {
+				final Reference target = getRef(refs, code[c++]);
+				final int value = code[c++];
+				ops[i] = new AssignConstant(target, value < 0 ? null : cluster.getStaticValueById(value));
+				break;
+			}
+
+			case ASSIGN_PRIMITIVE: {
+				final Reference target = getRef(refs, code[c++]);
+				final Serializable value;
+				switch(code[c++]) {
+				case NULL:      value = null; break;
+				case BOOLEAN:   value = primitives[p++] != 0; break;
+				case BYTE:      value = (byte) primitives[p++]; break;
+				case CHARACTER: value = (char) primitives[p++]; break;
+				case DOUBLE:    value = Double.longBitsToDouble(primitives[p++]); break;
+				case FLOAT:     value = Float.intBitsToFloat((int) primitives[p++]); break;
+				case INTEGER:   value = (int) primitives[p++]; break;
+				case LONG:      value = primitives[p++]; break;
+				case SHORT:     value = (short) primitives[p++]; break;
+				case STRING:    value = strings[(int) primitives[p++]]; break;
+				default: throw new IllegalStateException("Corrupted packed test: unknown primitive type");
+				}
+				ops[i] = new AssignPrimitive(target, value);
+				break;
+			}
+
+			case CREATE_OBJECT: {
+				final Reference target = getRef(refs, code[c++]);
+				final Constructorz cns = cluster.getConstructorById(code[c++]);
+				final Reference[] params = new Reference[code[c++]];
+				for (int j = 0; j < params.length; j++)
+					params[j] = refs[code[c++]];
+				ops[i] = new CreateObject(target, cns, params);
+				break;
+			}
+
+			case INVOKE: {
+				final Reference target = getRef(refs, code[c++]);
+				final Reference _this = getRef(refs, code[c++]);
+				final Methodz method = cluster.getMethodById(code[c++]);
+				final Reference[] params = new Reference[code[c++]];
+				for (int j = 0; j < params.length; j++)
+					params[j] = refs[code[c++]];
+				ops[i] = new Invoke(target, _this, method, params);
+				break;
+			}
+
+			default:
+				throw new IllegalStateException("Corrupted packed test: unknown operation type");
+			}
+
+			if(infos != null && infos[i] != null)
+				for (OperationInformation info : infos[i])
+					ops[i].addInfo(info.clone());
+		}
+
+		return ops;
+	}
+
+	private static Reference getRef(Reference[] refs, int id) {
+		return id < 0 ? null : refs[id];
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj) return true;
+		if(obj == null) return false;
+		if(!(obj instanceof PackedTest)) return false;
+
+		PackedTest other = (PackedTest) obj;
+		return hashCode == other.hashCode &&
+		length == other.length &&
+		Arrays.equals(code, other.code) &&
+		Arrays.equals(primitives, other.primitives) &&
+		Arrays.equals(strings, other.strings) &&
+		refFactory.equals(other.refFactory);
+	}
+
+	/** Encodes operations, growing the arrays when needed */
+	private static class Encoder {
+		int[] code;
+		int nCode = 0;
+
+		long[] primitives = new long[8];
+		int nPrimitives = 0;
+
+		final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		Encoder(int length) {
+			code = new int[4 * length + 4];
+		}
+
+		void encode(Operation op) {
+			if(op instanceof ResetRepository) {
+				// RESET_REPOSITORY
+				add(RESET_REPOSITORY);
+
+			} else if(op instanceof AssignConstant) {
+				// ASSIGN_CONSTANT target.id staticValue.id
+				AssignConstant ac = (AssignConstant) op;
+				add(ASSIGN_CONSTANT);
+				add(getId(ac.getTarget()));
+				add(ac.getValue() == null ? -1 : ac.getValue().getId());
+
+			} else if(op instanceof AssignPrimitive) {
+				// ASSIGN_PRIMITIVE target.id primitive.type (the value is in the primitive pool)
+				AssignPrimitive ap = (AssignPrimitive) op;
+				add(ASSIGN_PRIMITIVE);
+				add(getId(ap.getTarget()));
+				encode(ap.getValue());
+
+			} else if(op instanceof CreateObject) {
+				// CREATE_OBJECT target.id constructor.id params.len {param.id}
+				CreateObject co = (CreateObject) op;
+				add(CREATE_OBJECT);
+				add(getId(co.getTarget()));
+				add(co.getConstructor().getId());
+				add(co.getParams().length);
+				for (Reference param : co.getParams())
+					add(param.getId());
+
+			} else if(op instanceof Invoke) {
+				// INVOKE target.id this.id method.id params.len {param.id}
+				Invoke in = (Invoke) op;
+				add(INVOKE);
+				add(getId(in.getTarget()));
+				add(getId(in.getThis()));
+				add(in.getMethod().getId());
+				add(in.getParams().length);
+				for (Reference param : in.getParams())
+					add(param.getId());
+
+			} else {
+				throw new IllegalArgumentException("Unknown operation: " + op.getClass().getName() + " - " + op);
+			}
+		}
+
+		private void encode(Serializable value) {
+			if(value == null)                   { add(NULL); }
+			else if(value instanceof Boolean)   { add(BOOLEAN);   addPrimitive(((Boolean) value) ? 1 : 0); }
+			else if(value instanceof Byte)      { add(BYTE);      addPrimitive((Byte) value); }
+			else if(value instanceof Character) { add(CHARACTER); addPrimitive((Character) value); }
+			else if(value instanceof Double)    { add(DOUBLE);    addPrimitive(Double.doubleToRawLongBits((Double) value)); }
+			else if(value instanceof Float)     { add(FLOAT);     addPrimitive(Float.floatToRawIntBits((Float) value)); }
+			else if(value instanceof Integer)   { add(INTEGER);   addPrimitive((Integer) value); }
+			else if(value instanceof Long)      { add(LONG);      addPrimitive((Long) value); }
+			else if(value instanceof Short)     { add(SHORT);     addPrimitive((Short) value); }
+			else if(value instanceof String) {
+				Integer id = strings.get(value);
+				if(id == null) {
+					id = strings.size();
+					strings.put((String) value, id);
+				}
+
+				add(STRING);
+				addPrimitive(id);
+			}
+			else throw new IllegalArgumentException("Unexpected primitive: " + value);
+		}
+
+		private static int getId(Reference ref) {
+			return ref == null ? -1 : ref.getId();
+		}
+
+		private void add(int v) {
+			if(nCode == code.length) code = Arrays.copyOf(code, 2 * code.length);
+			code[nCode++] = v;
+		}
+
+		private void addPrimitive(long v) {
+			if(nPrimitives == primitives.length) primitives = Arrays.copyOf(primitives, 2 * primitives.length);
+			primitives[nPrimitives++] = v;
+		}
+	}
+}
@@ -273,34 +273,40 @@ public final class PrimitiveClazz extends Clazz {
 		return ret;
 	}
 
+	/**
+	 * Converts the value to this primitive type. The value is returned as is
+	 * if it already has the right type, to avoid boxing it again.
+	 * @param object the value to convert
+	 * @return the converted value
+	 */
 	public Object cast(Object object) {
 		if(object instanceof Number) {
 			Number num = (Number) object;
 			switch(realType) {
 			case ByteClass:
 			case ByteType:
-				return num.byteValue();
+				return (num instanceof Byte) ? num : (Object) num.byteValue();
 			case ShortClass:
 			case ShortType:
-				return num.shortValue();
+				return (num instanceof Short) ? num : (Object) num.shortValue();
 			case IntegerClass:
 			case IntegerType:
-				return num.intValue();
+				return (num instanceof Integer) ? num : (Object) num.intValue();
 			case LongClass:
 			case LongType:
-				return num.longValue();
+				return (num instanceof Long) ? num : (Object) num.longValue();
 			case FloatClass:
 			case FloatType:
-				return num.floatValue();
+				return (num instanceof Float) ? num : (Object) num.floatValue();
 			case DoubleClass:
 			case DoubleType:
-				return num.doubleValue();
+				return (num instanceof Double) ? num : (Object) num.doubleValue();
 			}
 		}
 
-		if(object instanceof Character) return ((Character) object).charValue();
+		if(object instanceof Character) return object;
 
-		if(object instanceof Boolean) return ((Boolean) object).booleanValue();
+		if(object instanceof Boolean) return object;
 
 		logger.warning("Cannot perform the conversion for type: " + object.getClass().getName());
 		return null;
@@ -0,0 +1,129 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.util.Set;
+
+/**
+ * Compact sets of references, represented as masks of reference ids:
+ * the reference with id i is in the set if the bit (i % 64) of the word (i / 64) is set.
+ * Masks of operations are shorter than the masks of tests: missing words are empty.
+ * @author matteo
+ */
+public final class ReferenceMask {
+
+	private ReferenceMask() { }
+
+	/**
+	 * Creates an empty mask, able to contain all the references of a reference factory
+	 * @param refFactory the reference factory
+	 * @return an empty mask
+	 */
+	public static long[] create(ReferenceFactory refFactory) {
+		return new long[(refFactory.getReferences().length + 63) >>> 6];
+	}
+
+	/**
+	 * Creates the mask of a set of references
+	 * @param refs the references
+	 * @return the mask
+	 */
+	public static long[] create(Set<Reference> refs) {
+		if(refs.isEmpty()) return new long[0];
+
+		int max = 0;
+		for (Reference r : refs)
+			if(r.getId() > max) max = r.getId();
+
+		final long[] mask = new long[(max >>> 6) + 1];
+		for (Reference r : refs)
+			mask[r.getId() >>> 6] |= 1L << r.getId();
+
+		return mask;
+	}
+
+	/**
+	 * Checks if the mask contains the reference
+	 * @param mask the mask
+	 * @param ref the reference
+	 * @return true if the reference is in the mask
+	 */
+	public static boolean contains(long[] mask, Reference ref) {
+		return contains(mask, ref.getId());
+	}
+
+	/**
+	 * Checks if the mask contains the reference with the given id
+	 * @param mask the mask
+	 * @param id the id of the reference
+	 * @return true if the reference is in the mask
+	 */
+	public static boolean contains(long[] mask, int id) {
+		final int w = id >>> 6;
+		return w < mask.length && (mask[w] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Checks if two masks have at least one reference in common
+	 * @param a the first mask
+	 * @param b the second mask
+	 * @return true if the masks intersect
+	 */
+	public static boolean intersects(long[] a, long[] b) {
+		final int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++)
+			if((a[i] & b[i]) != 0) return true;
+
+		return false;
+	}
+
+	/**
+	 * Adds the references of a mask to the target mask
+	 * @param target the target mask (it must be able to contain all the references of mask)
+	 * @param mask the references to add
+	 * @throws IllegalArgumentException if the target is not able to contain some references of the mask
+	 *         (e.g., the mask refers to a different reference factory)
+	 */
+	public static void or(long[] target, long[] mask) {
+		for (int i = target.length; i < mask.length; i++)
+			if(mask[i] != 0) throw new IllegalArgumentException("The mask contains references not belonging to the target (" + mask.length + " words, target: " + target.length + " words)");
+
+		final int n = Math.min(target.length, mask.length);
+		for (int i = 0; i < n; i++)
+			target[i] |= mask[i];
+	}
+
+	/**
+	 * Adds a reference to the mask
+	 * @param mask the mask (it must be able to contain the reference)
+	 * @param id the id of the reference
+	 */
+	public static void set(long[] mask, int id) {
+		mask[id >>> 6] |= 1L << id;
+	}
+
+	/**
+	 * Empties the mask
+	 * @param mask the mask
+	 */
+	public static void clear(long[] mask) {
+		for (int i = 0; i < mask.length; i++)
+			mask[i] = 0;
+	}
+}
@@ -61,7 +61,7 @@ public final class ResetRepository extends Operation {
 	}
 
 	@Override
-	public Operation clone() {
+	public Operation copy() {
 		ResetRepository clone = new ResetRepository();
 		clone.addInfo(getInfos());
 		return clone;
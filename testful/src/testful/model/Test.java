@@ -108,11 +108,15 @@ public class Test implements Serializable {
 		}
 	}
 
+	/**
+	 * Clones the test, creating a private copy of each operation (including shared ones).
+	 * Operations of the cloned test can be annotated with operation information.
+	 */
 	@Override
 	public Test clone() {
 		Operation[] ops = new Operation[test.length];
 		for (int i = 0; i < ops.length; i++)
-			ops[i] = test[i].clone();
+			ops[i] = test[i].copy();
 
 		return new Test(cluster, refFactory, ops);
 	}
@@ -128,7 +132,8 @@ public class Test implements Serializable {
 
 
 	/**
-	 * Ensures that there are no duplicate operations.<br>
+	 * Ensures that there are no duplicate operations, and that no operation is shared
+	 * with other tests (see {@link OperationPool}): after this method, operations can be annotated.<br>
 	 * after this method holds: (\forall int i; 0 <= i && i < test.length;
 	 * (\forall int j; i < j && j < test.length; test[i] != test[j] ))
 	 */
@@ -136,7 +141,7 @@ public class Test implements Serializable {
 		IdentityHashMap<Operation, Operation> map = new IdentityHashMap<Operation, Operation>();
 
 		for(int i = 0; i < test.length; i++) {
-			if(map.containsKey(test[i])) test[i] = test[i].clone();
+			if(test[i].isShared() || map.containsKey(test[i])) test[i] = test[i].copy();
 
 			map.put(test[i], test[i]);
 		}
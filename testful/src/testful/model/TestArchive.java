@@ -0,0 +1,476 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import testful.coverage.CoverageInformation;
+import testful.model.executor.TestSerializer;
+import testful.utils.ElementManager;
+
+/**
+ * An archive of tests, stored in a single file which is read through a memory mapping.
+ * Each test can be accessed individually, without reading the others.
+ * The file is append-only, and has the following structure:
+ * <ul>
+ * <li>the header: magic number, version, and the position of the index (written when the archive is closed)</li>
+ * <li>the records: test clusters (java serialization) and tests (see {@link TestSerializer}, followed by the java serialization of their coverage, if any)</li>
+ * <li>the index: for each test cluster its position; for each test its position, name, test cluster, length, and a summary of its coverage</li>
+ * </ul>
+ * Archives are written using a {@link TestArchive.Writer}.
+ * @author matteo
+ */
+public class TestArchive implements Closeable {
+
+	/** the extension of archive files */
+	public static final String EXTENSION = ".tfa";
+
+	private static final int MAGIC = 0x54464152; // TFAR
+	private static final int VERSION = 1;
+
+	/** magic.int version.int index.long */
+	private static final int HEADER_LENGTH = 16;
+	private static final int INDEX_POSITION = 8;
+
+	/** A test stored in the archive */
+	public static class Entry {
+		private final String name;
+		private final long offset;
+		private final int testLength;
+		private final int coverageLength;
+		private final int cluster;
+		private final int length;
+		private final Map<String, Float> coverage;
+
+		private Entry(String name, long offset, int testLength, int coverageLength, int cluster, int length, Map<String, Float> coverage) {
+			this.name = name;
+			this.offset = offset;
+			this.testLength = testLength;
+			this.coverageLength = coverageLength;
+			this.cluster = cluster;
+			this.length = length;
+			this.coverage = coverage;
+		}
+
+		/**
+		 * Returns the name of the test
+		 * @return the name of the test
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the number of operations of the test
+		 * @return the number of operations of the test
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Returns the quality of each coverage criterion of the test (empty if the test has no coverage)
+		 * @return key: the coverage criterion; value: the quality of the test
+		 */
+		public Map<String, Float> getCoverage() {
+			return coverage;
+		}
+
+		/**
+		 * Checks if the coverage of the test is stored in the archive
+		 * @return true if the coverage of the test is stored in the archive
+		 */
+		public boolean hasCoverage() {
+			return coverageLength >= 0;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeUTF(name);
+			out.writeLong(offset);
+			out.writeInt(testLength);
+			out.writeInt(coverageLength);
+			out.writeInt(cluster);
+			out.writeInt(length);
+			out.writeInt(coverage.size());
+			for (Map.Entry<String, Float> e : coverage.entrySet()) {
+				out.writeUTF(e.getKey());
+				out.writeFloat(e.getValue());
+			}
+		}
+
+		private static Entry read(DataInputStream in) throws IOException {
+			String name = in.readUTF();
+			long offset = in.readLong();
+			int testLength = in.readInt();
+			int coverageLength = in.readInt();
+			int cluster = in.readInt();
+			int length = in.readInt();
+
+			int n = in.readInt();
+			Map<String, Float> coverage = new LinkedHashMap<String, Float>();
+			for (int i = 0; i < n; i++)
+				coverage.put(in.readUTF(), in.readFloat());
+
+			return new Entry(name, offset, testLength, coverageLength, cluster, length, Collections.unmodifiableMap(coverage));
+		}
+	}
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+
+	/** the whole file (null if it is too big to be mapped at once) */
+	private final MappedByteBuffer mapped;
+
+	/** position and length of each test cluster */
+	private final long[] clusterOffsets;
+	private final int[] clusterLengths;
+
+	/** test clusters read so far */
+	private final TestCluster[] clusters;
+
+	private final List<Entry> entries;
+
+	/**
+	 * Opens an archive
+	 * @param file the archive
+	 * @throws IOException if the file is not an archive, or if it is corrupted
+	 */
+	public TestArchive(File file) throws IOException {
+		this.file = file;
+		raf = new RandomAccessFile(file, "r");
+
+		try {
+			channel = raf.getChannel();
+			final long size = channel.size();
+			if(size < HEADER_LENGTH) throw new IOException(file + " is not a test archive");
+			mapped = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+
+			final DataInputStream header = new DataInputStream(new ByteBufferInputStream(getBuffer(0, HEADER_LENGTH)));
+			if(header.readInt() != MAGIC) throw new IOException(file + " is not a test archive");
+			if(header.readInt() != VERSION) throw new IOException(file + " has an unsupported version");
+			final long index = header.readLong();
+			if(index < HEADER_LENGTH) throw new IOException(file + " has not been closed properly");
+
+			final DataInputStream in = new DataInputStream(new ByteBufferInputStream(getBuffer(index, (int) (size - index))));
+
+			final int nClusters = in.readInt();
+			clusterOffsets = new long[nClusters];
+			clusterLengths = new int[nClusters];
+			clusters = new TestCluster[nClusters];
+			for (int i = 0; i < nClusters; i++) {
+				clusterOffsets[i] = in.readLong();
+				clusterLengths[i] = in.readInt();
+			}
+
+			final int nEntries = in.readInt();
+			entries = new ArrayList<Entry>(nEntries);
+			for (int i = 0; i < nEntries; i++)
+				entries.add(Entry.read(in));
+
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks if the file is an archive of tests (looking at its name)
+	 * @param file the file
+	 * @return true if the file is an archive of tests
+	 */
+	public static boolean isArchive(File file) {
+		return file.getName().endsWith(EXTENSION);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of tests in the archive
+	 * @return the number of tests in the archive
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the index entry of a test, without reading the test
+	 * @param i the position of the test
+	 * @return the index entry of the test
+	 */
+	public Entry getEntry(int i) {
+		return entries.get(i);
+	}
+
+	/**
+	 * Reads a test
+	 * @param i the position of the test
+	 * @return the test (a {@link TestCoverage} if the archive contains its coverage)
+	 * @throws IOException if the archive is corrupted
+	 */
+	public Test getTest(int i) throws IOException {
+		final Entry e = entries.get(i);
+
+		final Test test = TestSerializer.deserialize(getCluster(e.cluster), new DataInputStream(new ByteBufferInputStream(getBuffer(e.offset, e.testLength))));
+		if(!e.hasCoverage()) return test;
+
+		return new TestCoverage(test, getCoverage(i));
+	}
+
+	/**
+	 * Reads the coverage of a test, without reading the test
+	 * @param i the position of the test
+	 * @return the coverage of the test (null if the archive does not contain it)
+	 * @throws IOException if the archive is corrupted
+	 */
+	@SuppressWarnings("unchecked")
+	public ElementManager<String, CoverageInformation> getCoverage(int i) throws IOException {
+		final Entry e = entries.get(i);
+		if(!e.hasCoverage()) return null;
+
+		return (ElementManager<String, CoverageInformation>) readObject(e.offset + e.testLength, e.coverageLength);
+	}
+
+	private synchronized TestCluster getCluster(int i) throws IOException {
+		if(clusters[i] == null)
+			clusters[i] = (TestCluster) readObject(clusterOffsets[i], clusterLengths[i]);
+
+		return clusters[i];
+	}
+
+	private Object readObject(long offset, int length) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(getBuffer(offset, length)));
+		try {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Cannot read from " + file + ": " + e.getMessage());
+		} finally {
+			in.close();
+		}
+	}
+
+	private ByteBuffer getBuffer(long offset, int length) throws IOException {
+		if(mapped == null) return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+		ByteBuffer ret = mapped.duplicate();
+		ret.position((int) offset);
+		ret.limit((int) offset + length);
+		return ret;
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	/** Reads a byte buffer */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			if(!buffer.hasRemaining()) return -1;
+			return buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if(len == 0) return 0;
+			if(!buffer.hasRemaining()) return -1;
+
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * Appends tests to an archive.
+	 * The index is written when the writer is closed: until then, the archive cannot be read.
+	 * Writers are thread-safe.
+	 */
+	public static class Writer implements Closeable {
+
+		private final RandomAccessFile raf;
+
+		/** the end of the records (where the index will be written) */
+		private long position;
+
+		private final List<TestCluster> clusters = new ArrayList<TestCluster>();
+		private final List<Long> clusterOffsets = new ArrayList<Long>();
+		private final List<Integer> clusterLengths = new ArrayList<Integer>();
+
+		private final List<Entry> entries = new ArrayList<Entry>();
+
+		/**
+		 * Creates a new archive, or appends tests to an existing one
+		 * @param file the archive
+		 * @throws IOException if the existing file is not an archive, or if it is corrupted
+		 */
+		public Writer(File file) throws IOException {
+			if(file.exists() && file.length() > 0) {
+				// load the index of the existing archive
+				TestArchive archive = new TestArchive(file);
+				try {
+					for (int i = 0; i < archive.clusters.length; i++) {
+						clusters.add(archive.getCluster(i));
+						clusterOffsets.add(archive.clusterOffsets[i]);
+						clusterLengths.add(archive.clusterLengths[i]);
+					}
+					entries.addAll(archive.entries);
+				} finally {
+					archive.close();
+				}
+
+				raf = new RandomAccessFile(file, "rw");
+				raf.seek(INDEX_POSITION);
+				position = raf.readLong();
+
+				// the archive is not valid until the writer is closed
+				raf.seek(INDEX_POSITION);
+				raf.writeLong(0);
+				raf.setLength(position);
+
+			} else {
+				raf = new RandomAccessFile(file, "rw");
+				raf.setLength(0);
+				raf.writeInt(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeLong(0);
+				position = HEADER_LENGTH;
+			}
+		}
+
+		/**
+		 * Appends a test to the archive. If the test is a {@link TestCoverage}, its coverage is stored as well.
+		 * @param name the name of the test
+		 * @param test the test
+		 * @throws IOException if something goes wrong
+		 */
+		public synchronized void add(String name, Test test) throws IOException {
+			// serialize the test first: nothing is written if it cannot be encoded
+			final ByteArrayOutputStream tBytes = new ByteArrayOutputStream();
+			final DataOutputStream tOut = new DataOutputStream(tBytes);
+			TestSerializer.serialize(test, tOut);
+			tOut.close();
+			final byte[] t = tBytes.toByteArray();
+
+			int cluster = clusters.indexOf(test.getCluster());
+			if(cluster < 0) {
+				byte[] b = serialize(test.getCluster());
+				cluster = clusters.size();
+				clusters.add(test.getCluster());
+				clusterOffsets.add(position);
+				clusterLengths.add(b.length);
+				write(b);
+			}
+
+			final long offset = position;
+			write(t);
+
+			int coverageLength = -1;
+			final Map<String, Float> coverage = new LinkedHashMap<String, Float>();
+			if(test instanceof TestCoverage) {
+				final ElementManager<String, CoverageInformation> covs = ((TestCoverage) test).getCoverage();
+				for (CoverageInformation cov : covs)
+					coverage.put(cov.getKey(), cov.getQuality());
+
+				byte[] c = serialize(covs);
+				coverageLength = c.length;
+				write(c);
+			}
+
+			entries.add(new Entry(name, offset, t.length, coverageLength, cluster, test.getTest().length, Collections.unmodifiableMap(coverage)));
+		}
+
+		private void write(byte[] b) throws IOException {
+			raf.seek(position);
+			raf.write(b);
+			position += b.length;
+		}
+
+		private static byte[] serialize(Object o) throws IOException {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(baos);
+			out.writeObject(o);
+			out.close();
+			return baos.toByteArray();
+		}
+
+		/**
+		 * Writes the index, and closes the archive
+		 * @throws IOException if something goes wrong
+		 */
+		@Override
+		public synchronized void close() throws IOException {
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(baos);
+
+				out.writeInt(clusters.size());
+				for (int i = 0; i < clusters.size(); i++) {
+					out.writeLong(clusterOffsets.get(i));
+					out.writeInt(clusterLengths.get(i));
+				}
+
+				out.writeInt(entries.size());
+				for (Entry e : entries)
+					e.write(out);
+
+				out.close();
+
+				final long index = position;
+				write(baos.toByteArray());
+
+				raf.seek(INDEX_POSITION);
+				raf.writeLong(index);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+}
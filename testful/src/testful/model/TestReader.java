@@ -24,24 +24,57 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 
+import testful.TestFul;
 import testful.coverage.CoverageInformation;
 import testful.model.Collector.DataLight;
 
+/**
+ * Reads tests from files, and passes them to the read methods.
+ * Files can be read and de-serialized in parallel by a pool of threads, keeping a bounded number of files in memory;
+ * tests are passed to the read methods by the calling thread, in the same order of the files.
+ * The number of threads is set by the property {@link TestFul#PROPERTY_READER_THREADS} (by default, files are read sequentially).
+ */
 public abstract class TestReader {
 
+	/** number of threads de-serializing files */
+	private int readThreads = TestFul.getProperty(TestFul.PROPERTY_READER_THREADS, 1);
+
 	protected abstract Logger getLogger();
 
+	/**
+	 * Sets the number of threads reading and de-serializing files
+	 * @param readThreads the number of threads (1 to read files sequentially)
+	 */
+	public void setReadThreads(int readThreads) {
+		this.readThreads = readThreads;
+	}
+
+	public int getReadThreads() {
+		return readThreads;
+	}
+
 	public void read(Iterable<? extends Test> tests) {
 
 		// count the number of tests
 		int tot = 1;
-		{
+		if(tests instanceof Collection<?>) {
+			tot += ((Collection<?>) tests).size();
+		} else {
 			Iterator<? extends Test> it = tests.iterator();
 			while(it.hasNext()) {
 				it.next();
@@ -64,19 +97,105 @@ public abstract class TestReader {
 
 	public void read(List<String> fileNames) {
 		getLogger().fine("Reading " + fileNames.size() + " files");
-		for(String fileName : fileNames)
-			read(new File(fileName));
+		File[] files = new File[fileNames.size()];
+		for (int i = 0; i < files.length; i++)
+			files[i] = new File(fileNames.get(i));
+		read(files);
 	}
 
 	public void read(String[] fileNames) {
 		getLogger().fine("Reading " + fileNames.length + " files");
-		for(String fileName : fileNames)
-			read(new File(fileName));
+		File[] files = new File[fileNames.length];
+		for (int i = 0; i < files.length; i++)
+			files[i] = new File(fileNames[i]);
+		read(files);
 	}
 
 	public void read(File[] files) {
-		for(File file : files)
-			read(file);
+		if(readThreads <= 1) {
+			for(File file : files)
+				read(file);
+
+		} else {
+			List<File> list = new ArrayList<File>();
+			for (File file : files)
+				list(file, list);
+
+			readParallel(list);
+		}
+	}
+
+	/** adds the file (or the files in the directory) to the list */
+	private void list(File file, List<File> list) {
+		if(file.isDirectory()) {
+			File[] children = file.listFiles();
+			getLogger().fine("Reading files inside directory " + file.getAbsolutePath() + " (" + children.length + " elements)");
+			for (File child : children)
+				list(child, list);
+		} else {
+			list.add(file);
+		}
+	}
+
+	/**
+	 * Reads the files using a pool of threads.
+	 * At most 2 files per thread are read in advance: the read methods are invoked by the calling thread, in the same order of the files.
+	 * @param files the files to read (no directories)
+	 */
+	private void readParallel(List<File> files) {
+		final ExecutorService executor = Executors.newFixedThreadPool(readThreads, new ThreadFactory() {
+			private int n = 0;
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "TestReader-" + (n++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			final int readAhead = 2 * readThreads;
+			final Iterator<File> iter = files.iterator();
+			final LinkedList<File> pendingFiles = new LinkedList<File>();
+			final LinkedList<Future<Object>> pending = new LinkedList<Future<Object>>();
+
+			while(iter.hasNext() || !pending.isEmpty()) {
+
+				while(iter.hasNext() && pending.size() < readAhead) {
+					final File file = iter.next();
+					pendingFiles.add(file);
+
+					// archives are read test by test by the calling thread
+					if(TestArchive.isArchive(file)) pending.add(null);
+					else pending.add(executor.submit(new Callable<Object>() {
+						@Override
+						public Object call() {
+							return readObject(file);
+						}
+					}));
+				}
+
+				final File file = pendingFiles.removeFirst();
+				final Future<Object> future = pending.removeFirst();
+
+				if(future == null) {
+					read(file);
+				} else {
+					try {
+						process(file.getAbsolutePath(), future.get());
+					} catch (InterruptedException e) {
+						getLogger().log(Level.WARNING, "Interrupted while reading " + file.getAbsolutePath(), e);
+						return;
+					} catch (ExecutionException e) {
+						getLogger().log(Level.WARNING, "Cannot read from " + file.getAbsolutePath() + ": " + e.getCause(), e.getCause());
+					}
+				}
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	public void read(File file) {
@@ -85,20 +204,59 @@ public abstract class TestReader {
 			File[] list = file.listFiles();
 			getLogger().fine("Reading files inside directory " + fileName + " (" + list.length + " elements)");
 			read(list);
+		} else if(TestArchive.isArchive(file)) {
+			read(getBaseFileName(fileName), file);
 		} else {
 			long start = System.currentTimeMillis();
 			Object read = readObject(file);
 			long stop = System.currentTimeMillis();
 			getLogger().fine("Read " + fileName + "  in " + (stop - start) / 1000.0 + " seconds");
 
-			if(read == null) return;
-			else if(read instanceof DataLight[]) read(getBaseFileName(fileName), (DataLight[]) read);
-			else if(read instanceof DataLight) read(getBaseFileName(fileName), (DataLight) read);
-			else if(read instanceof TestCoverage[]) read(getBaseFileName(fileName), (TestCoverage[]) read);
-			else if(read instanceof TestCoverage) read(getBaseFileName(fileName), (TestCoverage) read);
-			else if(read instanceof Test[]) read(getBaseFileName(fileName), (Test[]) read);
-			else if(read instanceof Test) read(getBaseFileName(fileName), (Test) read);
-			else getLogger().warning("Read an unknown object: " + read.getClass().getName());
+			process(fileName, read);
+		}
+	}
+
+	/** passes the content of a file to the right read method */
+	private void process(String fileName, Object read) {
+		if(read == null) return;
+		else if(read instanceof DataLight[]) read(getBaseFileName(fileName), (DataLight[]) read);
+		else if(read instanceof DataLight) read(getBaseFileName(fileName), (DataLight) read);
+		else if(read instanceof TestCoverage[]) read(getBaseFileName(fileName), (TestCoverage[]) read);
+		else if(read instanceof TestCoverage) read(getBaseFileName(fileName), (TestCoverage) read);
+		else if(read instanceof Test[]) read(getBaseFileName(fileName), (Test[]) read);
+		else if(read instanceof Test) read(getBaseFileName(fileName), (Test) read);
+		else getLogger().warning("Read an unknown object: " + read.getClass().getName());
+	}
+
+	/**
+	 * Reads the tests of an archive, one at a time
+	 * @param fileName the base name of the archive
+	 * @param file the archive
+	 */
+	private void read(String fileName, File file) {
+		TestArchive archive = null;
+		try {
+			archive = new TestArchive(file);
+			getLogger().fine("Reading archive " + file.getAbsolutePath() + " (" + archive.size() + " tests)");
+
+			for (int i = 0; i < archive.size(); i++) {
+				final String name = fileName + "-" + archive.getEntry(i).getName();
+				try {
+					Test t = archive.getTest(i);
+					if(t instanceof TestCoverage) read(name, (TestCoverage) t);
+					else read(name, t);
+				} catch (IOException e) {
+					getLogger().log(Level.WARNING, "Cannot read test " + name + ": " + e.getMessage(), e);
+				}
+			}
+
+		} catch(IOException e) {
+			getLogger().log(Level.WARNING, "Cannot read from " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+		} finally {
+			if(archive != null) try {
+				archive.close();
+			} catch(IOException e) {
+			}
 		}
 	}
 
@@ -129,13 +287,19 @@ public abstract class TestReader {
 	}
 
 	private static String getBaseFileName(String fileName) {
+		if(fileName.endsWith(TestArchive.EXTENSION)) fileName = fileName.substring(0, fileName.length() - TestArchive.EXTENSION.length());
 		if(fileName.endsWith(".gz")) fileName = fileName.substring(0, fileName.length() - 3);
 		if(fileName.endsWith(".ser")) fileName = fileName.substring(0, fileName.length() - 4);
 
 		return fileName;
 	}
 
-	private Object readObject(File file) {
+	/**
+	 * De-serializes the content of a file (called by the threads reading files)
+	 * @param file the file to read
+	 * @return the object read from the file (null if it cannot be read)
+	 */
+	Object readObject(File file) {
 		InputStream is = null;
 		try {
 			is = new FileInputStream(file);
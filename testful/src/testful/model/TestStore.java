@@ -0,0 +1,290 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.utils.MemoryGovernor;
+
+/**
+ * Stores packed tests in memory, and moves them to a temporary file when the heap is running out
+ * (see {@link MemoryGovernor}). Spilled tests are read back from disk when they are needed.
+ * The store is shared by all the containers of tests of the JVM. Removed tests leave a hole in the temporary file:
+ * the file is compacted when the holes take more than half of it.
+ * Handles must not be shared among containers: once removed, a handle cannot be used anymore.
+ * @author matteo
+ */
+public class TestStore {
+
+	private static final Logger logger = Logger.getLogger("testful.model");
+
+	public static final TestStore singleton = new TestStore();
+
+	/** A stored test, either in memory or on disk */
+	public static final class Handle {
+		private final TestCluster cluster;
+		private final ReferenceFactory refFactory;
+		private final int length;
+		private final long size;
+
+		/** the test, if it is in memory */
+		private PackedTest test;
+
+		/** the position of the test in the file, if it is on disk */
+		private long position = -1;
+
+		/** the number of bytes used by the test in the file, if it is on disk */
+		private int diskSize;
+
+		/** true if the test has been removed from the store */
+		private boolean removed;
+
+		private Handle(PackedTest test) {
+			this.test = test;
+			cluster = test.getCluster();
+			refFactory = test.getReferenceFactory();
+			length = test.getLength();
+			size = test.getSize();
+		}
+
+		/**
+		 * Returns the number of operations of the test
+		 * @return the number of operations of the test
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Returns the (estimated) number of bytes used by the test in memory
+		 * @return the number of bytes used by the test in memory
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Checks if the test has been moved to disk
+		 * @return true if the test is on disk
+		 */
+		public boolean isSpilled() {
+			return test == null;
+		}
+	}
+
+	/** the minimum number of bytes taken by removed tests before compacting the temporary file */
+	private static final long COMPACT_MIN = 8 * 1024 * 1024;
+
+	private final MemoryGovernor governor = MemoryGovernor.singleton;
+
+	/** the temporary file (lazily created) */
+	private RandomAccessFile file;
+	private File path;
+
+	/** the tests stored in the temporary file */
+	private final Set<Handle> spilled = new HashSet<Handle>();
+
+	/** the number of bytes of the temporary file taken by removed tests */
+	private long deadBytes;
+
+	/** the temporary file is compacted when removed tests take more than compactMin bytes (and more than half of the file) */
+	private final long compactMin;
+
+	private TestStore() {
+		this(COMPACT_MIN);
+	}
+
+	TestStore(long compactMin) {
+		this.compactMin = compactMin;
+	}
+
+	/**
+	 * Stores a test in memory
+	 * @param test the test
+	 * @return the handle of the test
+	 */
+	public Handle add(PackedTest test) {
+		Handle h = new Handle(test);
+		governor.allocate(h.size);
+		return h;
+	}
+
+	/**
+	 * Retrieves a test, reading it from disk if it has been spilled (the test is not moved back in memory)
+	 * @param h the handle of the test
+	 * @return the test
+	 */
+	public synchronized PackedTest get(Handle h) {
+		if(h.removed) throw new IllegalStateException("The test has been removed from the store");
+		if(h.test != null) return h.test;
+
+		try {
+			file.seek(h.position);
+			byte[] buf = new byte[file.readInt()];
+			file.readFully(buf);
+			return PackedTest.read(h.cluster, h.refFactory, new DataInputStream(new ByteArrayInputStream(buf)));
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read a test from " + file + ": " + e, e);
+		}
+	}
+
+	/**
+	 * Removes a test from the store
+	 * @param h the handle of the test
+	 */
+	public synchronized void remove(Handle h) {
+		if(h.removed) return;
+		h.removed = true;
+
+		if(h.test != null) {
+			h.test = null;
+			governor.release(h.size);
+
+		} else if(spilled.remove(h)) {
+			deadBytes += h.diskSize;
+			h.position = -1;
+
+			try {
+				if(deadBytes >= compactMin && deadBytes * 2 > file.length())
+					compact();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Cannot compact " + path + ": " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * Moves a test to disk
+	 * @param h the handle of the test
+	 * @return the number of bytes released from the heap (0 if the test cannot be moved to disk)
+	 */
+	public synchronized long spill(Handle h) {
+		if(h.test == null) return 0;
+
+		try {
+			if(file == null) {
+				path = createTempFile();
+				file = new RandomAccessFile(path, "rw");
+				logger.fine("Moving tests to " + path);
+			}
+
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(buf);
+			h.test.write(out);
+			out.close();
+
+			final long position = file.length();
+			file.seek(position);
+			file.writeInt(buf.size());
+			file.write(buf.toByteArray());
+
+			h.position = position;
+			h.diskSize = 4 + buf.size();
+			h.test = null;
+			spilled.add(h);
+			governor.release(h.size);
+			return h.size;
+
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot move a test to disk: " + e, e);
+			return 0;
+		}
+	}
+
+	/**
+	 * Copies the tests still stored in the temporary file to a new file, and deletes the old one
+	 * @throws IOException if something goes wrong (the old file is still used)
+	 */
+	private void compact() throws IOException {
+		final List<Handle> live = new ArrayList<Handle>(spilled);
+		Collections.sort(live, new Comparator<Handle>() {
+			@Override
+			public int compare(Handle o1, Handle o2) {
+				return o1.position < o2.position ? -1 : (o1.position == o2.position ? 0 : 1);
+			}
+		});
+
+		final File newPath = createTempFile();
+		final RandomAccessFile newFile = new RandomAccessFile(newPath, "rw");
+		final long[] positions = new long[live.size()];
+		try {
+			for (int i = 0; i < positions.length; i++) {
+				final Handle h = live.get(i);
+
+				byte[] buf = new byte[h.diskSize];
+				file.seek(h.position);
+				file.readFully(buf);
+
+				positions[i] = newFile.getFilePointer();
+				newFile.write(buf);
+			}
+		} catch (IOException e) {
+			newFile.close();
+			newPath.delete();
+			throw e;
+		}
+
+		logger.fine("Compacted " + path + " into " + newPath + ": " + deadBytes + " bytes released");
+
+		file.close();
+		path.delete();
+
+		file = newFile;
+		path = newPath;
+		for (int i = 0; i < positions.length; i++)
+			live.get(i).position = positions[i];
+		deadBytes = 0;
+	}
+
+	private static File createTempFile() throws IOException {
+		File tmp = File.createTempFile("testful-", ".spill");
+		tmp.deleteOnExit();
+		return tmp;
+	}
+
+	/**
+	 * Returns the size of the temporary file
+	 * @return the number of bytes of the temporary file
+	 */
+	synchronized long getFileLength() throws IOException {
+		return file == null ? 0 : file.length();
+	}
+
+	/**
+	 * Checks if the heap is running out
+	 * @return true if the containers of tests should spill their cold tests
+	 */
+	public boolean isUnderPressure() {
+		return governor.isUnderPressure();
+	}
+}
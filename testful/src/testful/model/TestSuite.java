@@ -18,7 +18,10 @@
 
 package testful.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -26,15 +29,17 @@ import java.util.Queue;
  * This class stores tests, and is able to give back the best/worst test
  * stored based on its declared rating (during insertion).
  * This container is ideal for giving the best population to the evolutionary algorithm.
+ * Tests are stored in their compact form (see {@link PackedTest}), and are decoded when retrieved.
+ * When the heap is running out, the worst tests are moved to disk (see {@link TestStore}).
  * @author Tudor
  */
 public class TestSuite {
 
 	private static class Entry {
-		final Operation[] test;
+		final TestStore.Handle test;
 		final float quality;
 
-		public Entry(Operation[] test, float quality) {
+		public Entry(TestStore.Handle test, float quality) {
 			this.test = test;
 			this.quality = quality;
 		}
@@ -54,17 +59,55 @@ public class TestSuite {
 
 	});
 
+	private final TestStore store = TestStore.singleton;
+
 	public void add(TestCoverage test){
-		tests.add(new Entry(test.getTest(), test.getRating()));
+		tests.add(new Entry(store.add(new PackedTest(test)), test.getRating()));
+
+		if(store.isUnderPressure()) spill();
 	}
 
 	public Operation[] getBestTest(){
 		Entry test = tests.poll();
-		if(test != null) return test.test;
-		else return null;
+		if(test == null) return null;
+
+		Operation[] ops = store.get(test.test).getOperations();
+		store.remove(test.test);
+		return ops;
 	}
 
+	/**
+	 * Moves the tests of another suite into this one: the other suite becomes empty
+	 * (the tests are not shared, since retrieving a test removes it from the store).
+	 * @param tc the suite whose tests are moved
+	 */
 	public void add(TestSuite tc) {
 		tests.addAll(tc.tests);
+		tc.tests.clear();
+	}
+
+	/** moves to disk the worst tests kept in memory, releasing at least half of the memory they use */
+	private void spill() {
+		List<Entry> inMemory = new ArrayList<Entry>();
+		long size = 0;
+		for (Entry e : tests) {
+			if(!e.test.isSpilled()) {
+				inMemory.add(e);
+				size += e.test.getSize();
+			}
+		}
+
+		Collections.sort(inMemory, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				return Float.compare(o1.quality, o2.quality);
+			}
+		});
+
+		long released = 0;
+		for (Entry e : inMemory) {
+			if(released >= size / 2) break;
+			released += store.spill(e.test);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -35,6 +35,7 @@ import testful.model.ClassRegistry;
 import testful.model.Clazz;
 import testful.model.Constructorz;
 import testful.model.CreateObject;
+import testful.model.ExecutionTime;
 import testful.model.Invoke;
 import testful.model.Methodz;
 import testful.model.Operation;
@@ -65,6 +66,14 @@ public class ReflectionExecutor {
 
 	/** The internal object repository */
 	private final Object[] repository;
+
+	/**
+	 * For each primitive reference, its value converted to the type of the last parameter it has been passed to.
+	 * Since reflection requires boxed parameters, this avoids boxing the same value at each invocation.
+	 * The converted value is valid if convertedType is not null, and is invalidated when the reference is set.
+	 */
+	private final Object[] converted;
+	private final Clazz[] convertedType;
 	private final Operation[] ops;
 	private final Reference[] repositoryType;
 	private final TestCluster cluster;
@@ -83,6 +92,8 @@ public class ReflectionExecutor {
 		cluster = test.getCluster();
 
 		repository = new Object[repositoryType.length];
+		converted = new Object[repositoryType.length];
+		convertedType = new Clazz[repositoryType.length];
 
 		this.discoverFaults = discoverFaults;
 		this.stopOnBug = stopOnBug;
@@ -114,21 +125,32 @@ public class ReflectionExecutor {
 
 		for(Operation op : ops) {
 
+			final ExecutionTime executionTime;
 			final Integer maxExecTime;
-			if(op instanceof CreateObject) maxExecTime = ((CreateObject)op).getConstructor().getMaxExecutionTime();
-			else if (op instanceof Invoke) maxExecTime = ((Invoke)op).getMethod().getMaxExecutionTime();
-			else maxExecTime = null;
+			if(op instanceof CreateObject) {
+				final Constructorz cns = ((CreateObject)op).getConstructor();
+				executionTime = cns.getExecutionTime();
+				maxExecTime = cns.getExecutionBudget();
+			} else if (op instanceof Invoke) {
+				final Methodz meth = ((Invoke)op).getMethod();
+				executionTime = meth.getExecutionTime();
+				maxExecTime = meth.getExecutionBudget();
+			} else {
+				executionTime = null;
+				maxExecTime = null;
+			}
+
+			final long start;
+			if(maxExecTime != null) start = System.nanoTime();
+			else start = -1;
+
+			/** the duration of the execution (ns), or -1 if it did not complete */
+			long length = -1;
 
 			try {
 
-				final long start;
-				if(maxExecTime != null) {
+				if(maxExecTime != null)
 					stopper.start(maxExecTime);
-					if(LOGGER_FINER) start = System.nanoTime();
-					else start = -1;
-				} else {
-					start = -1;
-				}
 
 				if(op instanceof AssignPrimitive) assignPrimitive((AssignPrimitive) op);
 				else if(op instanceof AssignConstant) assignConstant((AssignConstant) op);
@@ -139,15 +161,20 @@ public class ReflectionExecutor {
 
 				nValid++;
 
-				if(LOGGER_FINER) {
-					float length = (System.nanoTime() - start) / 1000000.0f;
+				if(maxExecTime != null) {
+					length = System.nanoTime() - start;
+
+					// executions reaching the budget are recorded as time-outs (see below)
+					if(length < maxExecTime * 1000000L)
+						executionTime.record(length);
 
-					final String name;
-					if(op instanceof CreateObject) name = ((CreateObject)op).getConstructor().toString();
-					else if(op instanceof Invoke) name = ((Invoke)op).getMethod().toString();
-					else name = "";
+					if(LOGGER_FINER) {
+						final String name;
+						if(op instanceof CreateObject) name = ((CreateObject)op).getConstructor().toString();
+						else name = ((Invoke)op).getMethod().toString();
 
-					logger.finer(String.format("OpExecution %.3f ms (%5.2f%%) %s", length, (100 * length / maxExecTime), name));
+						logger.finer(String.format("OpExecution %.3f ms (%5.2f%% of %d ms) %s", length / 1000000.0f, (100 * length / 1000000.0f / maxExecTime), maxExecTime, name));
+					}
 				}
 
 			} catch(Throwable e) {
@@ -174,6 +201,11 @@ public class ReflectionExecutor {
 					stopper.stop();
 					if(Thread.interrupted())
 						logger.finest("Clean the thread interrupted status");
+
+					// executions reaching the budget may have been stopped: their duration is censored at the budget
+					if(length < 0) length = System.nanoTime() - start;
+					if(length >= maxExecTime * 1000000L)
+						executionTime.recordTimeout(maxExecTime);
 				}
 			}
 		}
@@ -241,7 +273,9 @@ public class ReflectionExecutor {
 		}
 
 		try {
-			repository[objRef.getId()] = value;
+			final int id = objRef.getId();
+			repository[id] = value;
+			convertedType[id] = null;
 		} catch(Throwable e) {
 			logger.log(Level.WARNING, "Reflection error in set(" + objRef + "=" + value + "): " + e.getMessage(), e);
 
@@ -262,8 +296,31 @@ public class ReflectionExecutor {
 	}
 
 	private void reset() {
-		for(int i = 0; i < repository.length; i++)
+		for(int i = 0; i < repository.length; i++) {
 			repository[i] = null;
+			converted[i] = null;
+			convertedType[i] = null;
+		}
+	}
+
+	/**
+	 * Returns the value of a reference, converted to the given primitive type
+	 * @param ref the reference
+	 * @param type the primitive type
+	 * @return the converted value, or null if the reference has not been initialized
+	 */
+	private Object getPrimitive(Reference ref, PrimitiveClazz type) throws TestfulInternalException.Impl {
+		final Object value = get(ref);
+		if(value == null) return null;
+
+		final int id = ref.getId();
+		final Clazz key = type.getReferenceClazz();
+		if(convertedType[id] == key) return converted[id];
+
+		final Object ret = type.cast(value);
+		converted[id] = ret;
+		convertedType[id] = key;
+		return ret;
 	}
 
 	/** createObject */
@@ -279,15 +336,15 @@ public class ReflectionExecutor {
 		Object[] initargs = new Object[params.length];
 
 		for(int i = 0; i < initargs.length; i++) {
-			initargs[i] = get(params[i]);
-
 			if(constructozParamsType[i] instanceof PrimitiveClazz) {
+				initargs[i] = getPrimitive(params[i], (PrimitiveClazz) constructozParamsType[i]);
+
 				if(initargs[i] == null) {
 					if(opRes != null) opRes.setPreconditionError();
 					throw new PreconditionViolationException.Impl("The primitive value has not been initialized", null);
-				} else {
-					initargs[i] = ((PrimitiveClazz) constructozParamsType[i]).cast(initargs[i]);
 				}
+			} else {
+				initargs[i] = get(params[i]);
 			}
 		}
 
@@ -410,15 +467,15 @@ public class ReflectionExecutor {
 		// create parameters
 		final Object[] args = new Object[params.length];
 		for(int i = 0; i < args.length; i++) {
-			args[i] = get(params[i]);
-
 			if(paramsTypes[i] instanceof PrimitiveClazz) {
+				args[i] = getPrimitive(params[i], (PrimitiveClazz) paramsTypes[i]);
+
 				if(args[i] == null) {
 					if(opRes != null) opRes.setPreconditionError();
 					throw new PreconditionViolationException.Impl("The primitive value has not been initialized", null);
-				} else {
-					args[i] = ((PrimitiveClazz) paramsTypes[i]).cast(args[i]);
 				}
+			} else {
+				args[i] = get(params[i]);
 			}
 		}
 
@@ -86,10 +86,7 @@ public class TestExecutorInput implements Externalizable {
 		for (TrackerDatum datum : trackerData)
 			out.writeObject(datum);
 
-		byte[] testSerialized = TestSerializer.serialize(test);
-		out.writeInt(testSerialized.length);
-		out.write(testSerialized);
-
+		TestSerializer.serialize(test, out);
 	}
 
 	/* (non-Javadoc)
@@ -106,10 +103,6 @@ public class TestExecutorInput implements Externalizable {
 		for (int i = 0; i < trackerDataLen; i++)
 			trackerData[i] = (TrackerDatum) in.readObject();
 
-		int testSerializedLen = in.readInt();
-		byte[] testSerialized = new byte[testSerializedLen];
-		in.readFully(testSerialized);
-
-		test = TestSerializer.deserialize(ObjectRegistry.singleton, testSerialized);
+		test = TestSerializer.deserialize(ObjectRegistry.singleton, in);
 	}
 }
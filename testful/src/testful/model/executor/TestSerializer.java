@@ -20,11 +20,17 @@ package testful.model.executor;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -49,289 +55,426 @@ import testful.model.TestCluster;
 import testful.runner.ObjectRegistry;
 
 /**
- * Efficiently serializes and de-serializes Tests
+ * Efficiently serializes and de-serializes Tests.
+ * Tests are written on a plain {@link DataOutput}: ids and lengths are written as variable-length integers,
+ * integral primitive values are zig-zag encoded, and each distinct string is written only once.
  * @author matteo
  */
 public class TestSerializer {
 
 	private static final Logger logger = Logger.getLogger("testful.runner");
 
-	// ---------------------------------- serialize ----------------------------------
+	// operation types
+	private static final byte RESET_REPOSITORY = 0;
+	private static final byte ASSIGN_CONSTANT  = 1;
+	private static final byte ASSIGN_PRIMITIVE = 2;
+	private static final byte CREATE_OBJECT    = 3;
+	private static final byte INVOKE           = 4;
+
+	// primitive types
+	private static final byte NULL       = 0;
+	private static final byte BOOLEAN    = 1;
+	private static final byte BYTE       = 2;
+	private static final byte CHARACTER  = 3;
+	private static final byte DOUBLE     = 4;
+	private static final byte FLOAT      = 5;
+	private static final byte INTEGER    = 6;
+	private static final byte LONG       = 7;
+	private static final byte SHORT      = 8;
+	private static final byte STRING_NEW = 9;
+	private static final byte STRING_REF = 10;
+
+	// operation information
+	private static final byte INFO_NONE     = 0;
+	private static final byte INFO_RESULT   = 1;
+	private static final byte INFO_VERIFIER = 2;
+
+	/** buffers larger than this size are not reused */
+	private static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+	/** Reusable buffer, one for each thread serializing tests */
+	private static class Buffer extends ByteArrayOutputStream {
+		final DataOutputStream out = new DataOutputStream(this);
+
+		Buffer() {
+			super(4096);
+		}
 
-	public static byte[] serialize(Test test) {
-		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ObjectOutputStream oo = new ObjectOutputStream(baos);
+		boolean isPoolable() {
+			return buf.length <= MAX_POOLED_BUFFER;
+		}
+	}
 
-			// write the references: num.type.refs { ref.class.id, num.refs }
-			Map<Clazz, Integer> refNum = test.getReferenceFactory().getRefNum();
-			oo.writeInt(refNum.size());
-			for (Entry<Clazz, Integer> ref : refNum.entrySet()) {
-				oo.writeInt(ref.getKey().getId());
-				oo.writeInt(ref.getValue());
-			}
+	private static final ThreadLocal<Buffer> buffers = new ThreadLocal<Buffer>();
 
-			// write the test: test.length { op.type [op-specific data] }
-			oo.writeInt(test.getTest().length);
-			for (Operation op : test.getTest()) {
-
-				if (op instanceof ResetRepository) {
-					// op.type=0 no_extra_data
-					oo.writeByte(0);
-
-				} else if(op instanceof AssignConstant) {
-					// op.type=1 target.id staticValue.id {info ~ null}
-					oo.writeByte(1);
-					AssignConstant ac = (AssignConstant)op;
-					oo.writeInt(ac.getTarget() == null ? -1 : ac.getTarget().getId());
-					oo.writeInt(ac.getValue() == null ? -1 : ac.getValue().getId());
-
-				} else if(op instanceof AssignPrimitive) {
-					// op.type=2 target.id value {info ~ null}
-					oo.writeByte(2);
-					AssignPrimitive ap = (AssignPrimitive)op;
-					oo.writeInt(ap.getTarget() == null ? -1 : ap.getTarget().getId());
-					writePrimitive(oo, ap.getValue());
-
-				} else if(op instanceof CreateObject) {
-					// op.type=3 target.id cosntructor.id params.len {param.id} {info ~ null}
-					oo.writeByte(3);
-					CreateObject co = (CreateObject)op;
-					oo.writeInt(co.getTarget() == null ? -1 : co.getTarget().getId());
-					oo.writeInt(co.getConstructor().getId());
-					oo.writeInt(co.getParams().length);
-					for (Reference param : co.getParams())
-						oo.writeInt(param.getId());
-
-					writeOpInfo(oo, op);
-
-				} else if(op instanceof Invoke) {
-					// op.type=3 target.id this.id method.id params.len {param.id} {info ~ null}
-					oo.writeByte(4);
-					Invoke in = (Invoke)op;
-					oo.writeInt(in.getTarget() == null ? -1 : in.getTarget().getId());
-					oo.writeInt(in.getThis() == null ? -1 : in.getThis().getId());
-					oo.writeInt(in.getMethod().getId());
-					oo.writeInt(in.getParams().length);
-					for (Reference param : in.getParams())
-						oo.writeInt(param.getId());
-
-					writeOpInfo(oo, op);
-
-				} else
-					logger.warning("Unknown operation: " + op.getClass().getName() + " - " + op);
-			}
+	// ---------------------------------- serialize ----------------------------------
 
-			oo.close();
-			return baos.toByteArray();
+	public static byte[] serialize(Test test) {
+		Buffer buffer = buffers.get();
+		if(buffer == null) {
+			buffer = new Buffer();
+			buffers.set(buffer);
+		}
+		buffer.reset();
+
+		try {
+			serialize(test, buffer.out);
+			buffer.out.flush();
+			return buffer.toByteArray();
 
 		} catch (IOException e) {
 			logger.log(Level.WARNING, e.getMessage(), e);
 			return new byte[0];
+
+		} finally {
+			// do not keep huge buffers alive
+			if(!buffer.isPoolable()) buffers.remove();
 		}
 	}
-	private static void writePrimitive(ObjectOutputStream oo, Serializable value) throws IOException {
 
-		// isNull [ type value ]
+	/**
+	 * Writes the test on the given output
+	 * @param test the test to write
+	 * @param out the output
+	 * @throws IOException if something goes wrong
+	 */
+	public static void serialize(Test test, DataOutput out) throws IOException {
+
+		// write the references: num.type.refs { ref.class.id, num.refs }
+		Map<Clazz, Integer> refNum = test.getReferenceFactory().getRefNum();
+		writeVarInt(out, refNum.size());
+		for (Entry<Clazz, Integer> ref : refNum.entrySet()) {
+			writeVarInt(out, ref.getKey().getId());
+			writeVarInt(out, ref.getValue());
+		}
 
-		if(value == null) oo.writeBoolean(true);
-		else {
-			oo.writeBoolean(false);
-
-			if(value instanceof Boolean)        { oo.writeShort(0); oo.writeBoolean((Boolean) value); }
-			else if(value instanceof Byte)      { oo.writeShort(1); oo.writeByte((Byte) value); }
-			else if(value instanceof Character) { oo.writeShort(2); oo.writeChar((Character) value); }
-			else if(value instanceof Double)    { oo.writeShort(3); oo.writeDouble((Double) value); }
-			else if(value instanceof Float)     { oo.writeShort(4); oo.writeFloat((Float) value); }
-			else if(value instanceof Integer)   { oo.writeShort(5); oo.writeInt((Integer) value); }
-			else if(value instanceof Long)      { oo.writeShort(6); oo.writeLong((Long) value); }
-			else if(value instanceof Short)     { oo.writeShort(7); oo.writeShort((Short) value); }
-			else if(value instanceof String)    { oo.writeShort(8); oo.writeUTF((String) value); }
-			else { oo.writeShort(-1); logger.warning("Unexpected primitive: " + value); }
+		final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+		// write the test: test.length { op.type [op-specific data] }
+		writeVarInt(out, test.getTest().length);
+		for (Operation op : test.getTest()) {
+
+			if (op instanceof ResetRepository) {
+				// op.type=0 no_extra_data
+				out.writeByte(RESET_REPOSITORY);
+
+			} else if(op instanceof AssignConstant) {
+				// op.type=1 target.id staticValue.id {info ~ null}
+				out.writeByte(ASSIGN_CONSTANT);
+				AssignConstant ac = (AssignConstant)op;
+				writeId(out, ac.getTarget());
+				writeVarInt(out, ac.getValue() == null ? 0 : ac.getValue().getId() + 1);
+
+			} else if(op instanceof AssignPrimitive) {
+				// op.type=2 target.id value {info ~ null}
+				out.writeByte(ASSIGN_PRIMITIVE);
+				AssignPrimitive ap = (AssignPrimitive)op;
+				writeId(out, ap.getTarget());
+				writePrimitive(out, ap.getValue(), strings);
+
+			} else if(op instanceof CreateObject) {
+				// op.type=3 target.id constructor.id params.len {param.id} info
+				out.writeByte(CREATE_OBJECT);
+				CreateObject co = (CreateObject)op;
+				writeId(out, co.getTarget());
+				writeVarInt(out, co.getConstructor().getId());
+				writeVarInt(out, co.getParams().length);
+				for (Reference param : co.getParams())
+					writeVarInt(out, param.getId());
+
+				writeOpInfo(out, op);
+
+			} else if(op instanceof Invoke) {
+				// op.type=4 target.id this.id method.id params.len {param.id} info
+				out.writeByte(INVOKE);
+				Invoke in = (Invoke)op;
+				writeId(out, in.getTarget());
+				writeId(out, in.getThis());
+				writeVarInt(out, in.getMethod().getId());
+				writeVarInt(out, in.getParams().length);
+				for (Reference param : in.getParams())
+					writeVarInt(out, param.getId());
+
+				writeOpInfo(out, op);
+
+			} else
+				throw new IOException("Unknown operation: " + op.getClass().getName() + " - " + op);
 		}
 	}
-	private static void writeOpInfo(ObjectOutputStream oo, Operation op) throws IOException {
 
-		OperationResult or = (OperationResult) op.getInfo(OperationResult.KEY);
+	/** writes the id of a reference which can be null (shifted by one: 0 means null) */
+	private static void writeId(DataOutput out, Reference ref) throws IOException {
+		writeVarInt(out, ref == null ? 0 : ref.getId() + 1);
+	}
 
-		// isOpResult [ isVerifier [ verifier ] ]
-		if(or == null) oo.writeBoolean(false);
-		else {
-			oo.writeBoolean(true);
-			if(or instanceof OperationResult.Verifier) {
-				oo.writeBoolean(true);
-				oo.writeObject(or);
+	private static void writePrimitive(DataOutput out, Serializable value, Map<String, Integer> strings) throws IOException {
+
+		// type [ value ]
+
+		if(value == null)                   { out.writeByte(NULL); }
+		else if(value instanceof Boolean)   { out.writeByte(BOOLEAN);   out.writeBoolean((Boolean) value); }
+		else if(value instanceof Byte)      { out.writeByte(BYTE);      out.writeByte((Byte) value); }
+		else if(value instanceof Character) { out.writeByte(CHARACTER); writeVarInt(out, (Character) value); }
+		else if(value instanceof Double)    { out.writeByte(DOUBLE);    out.writeDouble((Double) value); }
+		else if(value instanceof Float)     { out.writeByte(FLOAT);     out.writeFloat((Float) value); }
+		else if(value instanceof Integer)   { out.writeByte(INTEGER);   writeVarLong(out, zigZag((Integer) value)); }
+		else if(value instanceof Long)      { out.writeByte(LONG);      writeVarLong(out, zigZag((Long) value)); }
+		else if(value instanceof Short)     { out.writeByte(SHORT);     writeVarLong(out, zigZag((Short) value)); }
+		else if(value instanceof String) {
+			Integer id = strings.get(value);
+			if(id != null) {
+				out.writeByte(STRING_REF);
+				writeVarInt(out, id);
 			} else {
-				oo.writeBoolean(false);
+				strings.put((String) value, strings.size());
+				out.writeByte(STRING_NEW);
+				out.writeUTF((String) value);
 			}
 		}
+		else throw new IOException("Unexpected primitive: " + value);
+	}
+
+	private static void writeOpInfo(DataOutput out, Operation op) throws IOException {
+
+		OperationResult or = (OperationResult) op.getInfo(OperationResult.KEY);
+
+		// none | result | verifier verifier.len verifier
+		if(or == null) out.writeByte(INFO_NONE);
+		else if(!(or instanceof OperationResult.Verifier)) out.writeByte(INFO_RESULT);
+		else {
+			// verifiers are rare: use the java serialization
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oo = new ObjectOutputStream(baos);
+			oo.writeObject(or);
+			oo.close();
+
+			out.writeByte(INFO_VERIFIER);
+			writeVarInt(out, baos.size());
+			out.write(baos.toByteArray());
+		}
 	}
 
 	// --------------------------------- deserialize ---------------------------------
 
 	public static Test deserialize(ObjectRegistry registry, byte[] serialized) {
-
-		ObjectInputStream oi = null;
 		try {
+			return deserialize(registry, new DataInputStream(new ByteArrayInputStream(serialized)));
+		} catch(Exception exc) {
+			logger.log(Level.WARNING, exc.getMessage(), exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads a test, using the test cluster provided by the object registry
+	 * @param registry the object registry
+	 * @param in the input
+	 * @return the test
+	 * @throws IOException if something goes wrong
+	 */
+	public static Test deserialize(ObjectRegistry registry, DataInput in) throws IOException {
+		// use the ObjectRegistry and the advanced serialization
+		return deserialize((TestCluster) registry.getObject(TestCluster.ISERIALIZABLE_ID), in);
+	}
 
-			ByteArrayInputStream bais = new ByteArrayInputStream(serialized);
-			oi = new ObjectInputStream(bais);
+	/**
+	 * Reads a test
+	 * @param testCluster the test cluster of the test
+	 * @param in the input
+	 * @return the test
+	 * @throws IOException if something goes wrong
+	 */
+	public static Test deserialize(TestCluster testCluster, DataInput in) throws IOException {
+
+		// read the references: num.type.refs { ref.class.id, num.refs }
+		int refLen = readVarInt(in);
+
+		Map<Clazz, Integer> refMap = new TreeMap<Clazz, Integer>();
+		for(int i = 0; i < refLen; i++) {
+			Clazz clazz = testCluster.getClazzById(readVarInt(in));
+			int num = readVarInt(in);
+			refMap.put(clazz, num);
+		}
+		final ReferenceFactory testRefFactory = new ReferenceFactory(refMap);
+		final Reference[] testRefs = testRefFactory.getReferences();
 
-			//			String execClassName = oi.readUTF();
-			//			boolean discoverFaults = oi.readBoolean();
+		final List<String> strings = new ArrayList<String>();
 
-			final TestCluster testCluster;
-			final ReferenceFactory testRefFactory;
-			final Operation[] testOps;
+		// read the operations
+		int testLen = readVarInt(in);
+		final Operation[] testOps = new Operation[testLen];
+		for (int i = 0; i < testLen; i++) {
 
-			// use the ObjectRegistry and the advanced serialization
-			testCluster = (TestCluster) registry.getObject(TestCluster.ISERIALIZABLE_ID);
+			byte operationType = in.readByte();
+			switch(operationType) {
+			case RESET_REPOSITORY: {
+				testOps[i] = ResetRepository.singleton;
+				break;
+			}
 
-			// read the references: num.type.refs { ref.class.id, num.refs }
-			int refLen = oi.readInt();
+			case ASSIGN_CONSTANT: {
+				Reference ref = readRef(in, testRefs);
 
-			Map<Clazz, Integer> refMap = new TreeMap<Clazz, Integer>();
-			for(int i = 0; i < refLen; i++) {
-				Clazz clazz = testCluster.getClazzById(oi.readInt());
-				int num = oi.readInt();
-				refMap.put(clazz, num);
+				int valueId = readVarInt(in) - 1;
+				StaticValue staticValue = valueId < 0 ? null : testCluster.getStaticValueById(valueId);
+
+				testOps[i] = new AssignConstant(ref, staticValue);
+				break;
 			}
-			testRefFactory = new ReferenceFactory(refMap);
-			final Reference[] testRefs = testRefFactory.getReferences();
-
-			// read the operations
-			int testLen = oi.readInt();
-			testOps = new Operation[testLen];
-			for (int i = 0; i < testLen; i++) {
-
-				byte operationType = oi.readByte();
-				switch(operationType) {
-				case 0: { // ResetRepository
-					testOps[i] = ResetRepository.singleton;
-					break;
-				}
-
-				case 1: { // AssignConstant
-					int targetId = oi.readInt();
-					Reference ref = (targetId < 0 ? null : testRefs[targetId]);
-
-					int valueId = oi.readInt();
-					StaticValue staticValue = valueId < 0 ? null : testCluster.getStaticValueById(valueId);
-
-					testOps[i] = new AssignConstant(ref, staticValue);
-					break;
-				}
-
-				case 2: { // AssignPrimitive
-					int targetId = oi.readInt();
-					Reference ref = (targetId < 0 ? null : testRefs[targetId]);
-
-					Serializable value = readPrimitive(oi);
-
-					testOps[i] = new AssignPrimitive(ref, value);
-					break;
-				}
-
-				case 3: { // CreateObject
-					int targetId = oi.readInt();
-					Reference target = (targetId < 0 ? null : testRefs[targetId]);
-
-					int constructorId = oi.readInt();
-					Constructorz constructor = testCluster.getConstructorById(constructorId);
-
-					int paramLen = oi.readInt();
-					Reference[] params = new Reference[paramLen];
-					for (int j = 0; j < paramLen; j++) {
-						int paramId = oi.readInt();
-						params[j] = testRefs[paramId];
-					}
-
-					testOps[i] = new CreateObject(target, constructor, params);
-					readOpInfo(oi, testOps[i]);
-					break;
-				}
-
-				case 4: { // Invoke
-					int targetId = oi.readInt();
-					Reference target = (targetId < 0 ? null : testRefs[targetId]);
-
-					int thisId = oi.readInt();
-					Reference _this = (thisId < 0 ? null : testRefs[thisId]);
-
-					int methodId = oi.readInt();
-					Methodz method = testCluster.getMethodById(methodId);
-
-					int paramLen = oi.readInt();
-					Reference[] params = new Reference[paramLen];
-					for (int j = 0; j < paramLen; j++) {
-						int paramId = oi.readInt();
-						params[j] = testRefs[paramId];
-					}
-
-					testOps[i] = new Invoke(target, _this, method, params);
-					readOpInfo(oi, testOps[i]);
-					break;
-				}
-
-				default:
-					logger.warning("Unknown operation serialized type " + operationType);
-				}
+
+			case ASSIGN_PRIMITIVE: {
+				Reference ref = readRef(in, testRefs);
+
+				Serializable value = readPrimitive(in, strings);
+
+				testOps[i] = new AssignPrimitive(ref, value);
+				break;
 			}
 
-			return new Test(testCluster, testRefFactory, testOps);
+			case CREATE_OBJECT: {
+				Reference target = readRef(in, testRefs);
 
-		} catch(Exception exc) {
-			logger.log(Level.WARNING, exc.getMessage(), exc);
+				Constructorz constructor = testCluster.getConstructorById(readVarInt(in));
 
-		} finally {
-			if(oi != null) {
-				try {
-					oi.close();
-				} catch(IOException e) {
-					logger.log(Level.WARNING, e.getMessage(), e);
-				}
+				int paramLen = readVarInt(in);
+				Reference[] params = new Reference[paramLen];
+				for (int j = 0; j < paramLen; j++)
+					params[j] = testRefs[readVarInt(in)];
+
+				testOps[i] = new CreateObject(target, constructor, params);
+				readOpInfo(in, testOps[i]);
+				break;
+			}
+
+			case INVOKE: {
+				Reference target = readRef(in, testRefs);
+				Reference _this = readRef(in, testRefs);
+
+				Methodz method = testCluster.getMethodById(readVarInt(in));
+
+				int paramLen = readVarInt(in);
+				Reference[] params = new Reference[paramLen];
+				for (int j = 0; j < paramLen; j++)
+					params[j] = testRefs[readVarInt(in)];
+
+				testOps[i] = new Invoke(target, _this, method, params);
+				readOpInfo(in, testOps[i]);
+				break;
+			}
+
+			default:
+				throw new IOException("Unknown operation serialized type " + operationType);
 			}
 		}
 
-		return null;
+		return new Test(testCluster, testRefFactory, testOps);
 	}
 
-	private static Serializable readPrimitive(ObjectInputStream oi) throws IOException {
+	private static Reference readRef(DataInput in, Reference[] refs) throws IOException {
+		int id = readVarInt(in) - 1;
+		return id < 0 ? null : refs[id];
+	}
 
-		// isNull [ type value ]
+	private static Serializable readPrimitive(DataInput in, List<String> strings) throws IOException {
 
-		boolean isNull = oi.readBoolean();
-		if(isNull) return null;
+		// type [ value ]
 
-		final Serializable ret;
-		short type = oi.readShort();
+		final byte type = in.readByte();
 		switch(type) {
-		case 0: ret = oi.readBoolean(); break;
-		case 1: ret = oi.readByte(); break;
-		case 2: ret = oi.readChar(); break;
-		case 3: ret = oi.readDouble(); break;
-		case 4: ret = oi.readFloat(); break;
-		case 5: ret = oi.readInt(); break;
-		case 6: ret = oi.readLong(); break;
-		case 7: ret = oi.readShort(); break;
-		case 8: ret = oi.readUTF(); break;
-		default: logger.warning("Unexpected serialized primitive type: " + type); ret = null;
+		case NULL:       return null;
+		case BOOLEAN:    return in.readBoolean();
+		case BYTE:       return in.readByte();
+		case CHARACTER:  return (char) readVarInt(in);
+		case DOUBLE:     return in.readDouble();
+		case FLOAT:      return in.readFloat();
+		case INTEGER:    return (int) unZigZag(readVarLong(in));
+		case LONG:       return unZigZag(readVarLong(in));
+		case SHORT:      return (short) unZigZag(readVarLong(in));
+		case STRING_REF: return strings.get(readVarInt(in));
+		case STRING_NEW:
+			String s = in.readUTF();
+			strings.add(s);
+			return s;
+		default:
+			throw new IOException("Unexpected serialized primitive type: " + type);
 		}
-
-		return ret;
 	}
 
-	private static void readOpInfo(ObjectInput oi, Operation op) throws ClassNotFoundException, IOException {
+	private static void readOpInfo(DataInput in, Operation op) throws IOException {
 
-		boolean isOpResult = oi.readBoolean();
-		if(isOpResult) {
+		byte info = in.readByte();
+		switch(info) {
+		case INFO_NONE:
+			break;
 
-			boolean isVerifier = oi.readBoolean();
-			if(isVerifier)
+		case INFO_RESULT:
+			op.addInfo(new OperationResult());
+			break;
+
+		case INFO_VERIFIER:
+			byte[] b = new byte[readVarInt(in)];
+			in.readFully(b);
+
+			ObjectInputStream oi = new ObjectInputStream(new ByteArrayInputStream(b));
+			try {
 				op.addInfo((OperationResult.Verifier) oi.readObject());
-			else
-				op.addInfo(new OperationResult());
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Cannot read the operation verifier: " + e.getMessage());
+			} finally {
+				oi.close();
+			}
+			break;
+
+		default:
+			throw new IOException("Unexpected serialized operation information: " + info);
+		}
+	}
+
+	// ------------------------------ variable-length integers ------------------------------
+
+	/** Writes a non-negative integer using 7 bits per byte (the highest bit signals that other bytes follow) */
+	private static void writeVarInt(DataOutput out, int v) throws IOException {
+		while((v & ~0x7F) != 0) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readVarInt(DataInput in) throws IOException {
+		int ret = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			final byte b = in.readByte();
+			ret |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) return ret;
+		}
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	private static void writeVarLong(DataOutput out, long v) throws IOException {
+		while((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(DataInput in) throws IOException {
+		long ret = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			final byte b = in.readByte();
+			ret |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) return ret;
 		}
+		throw new IOException("Malformed variable-length integer");
 	}
 
+	/** maps signed values to unsigned ones, so that values with a small magnitude have a short encoding */
+	private static long zigZag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private static long unZigZag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
 }
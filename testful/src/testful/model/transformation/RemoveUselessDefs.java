@@ -29,6 +29,7 @@ import testful.model.CreateObject;
 import testful.model.Invoke;
 import testful.model.Operation;
 import testful.model.Reference;
+import testful.model.ReferenceMask;
 import testful.model.ResetRepository;
 import testful.model.Test;
 
@@ -51,22 +52,21 @@ public class RemoveUselessDefs implements TestTransformation {
 
 		Clazz cut = t.getCluster().getCut();
 
-		// usedReference[i] == true <==> exist a live use of i between the current point and the end of the test
-		boolean[] usedReference = new boolean[t.getReferenceFactory().getReferences().length];
-		for(int j = 0; j < usedReference.length; j++) usedReference[j] = false;
+		// usedReference contains i <==> exist a live use of i between the current point and the end of the test
+		final long[] usedReference = ReferenceMask.create(t.getReferenceFactory());
 
 		for(int i = test.length - 1; i >= 0; i--) {
 			Operation op = test[i];
 
 			if(op instanceof ResetRepository) {
-				for(int j = 0; j < usedReference.length; j++) usedReference[j] = false;
+				ReferenceMask.clear(usedReference);
 
 			} else if(op instanceof AssignConstant) {
 				AssignConstant ac = (AssignConstant) op;
 				Reference target = ac.getTarget();
 
 				if(target == null) op = null;
-				else if(target.getClazz() != cut && !usedReference[target.getId()])
+				else if(target.getClazz() != cut && !ReferenceMask.contains(usedReference, target))
 					op = null;
 
 			} else if(op instanceof AssignPrimitive) {
@@ -74,14 +74,14 @@ public class RemoveUselessDefs implements TestTransformation {
 				Reference target = ap.getTarget();
 
 				if(target == null) op = null;
-				else if(target.getClazz() != cut && !usedReference[target.getId()])
+				else if(target.getClazz() != cut && !ReferenceMask.contains(usedReference, target))
 					op = null;
 
 			} else if(op instanceof CreateObject) {
 				CreateObject co = (CreateObject) op;
 				Reference target = co.getTarget();
 
-				if(target != null && target.getClazz() != cut && !usedReference[target.getId()]) {
+				if(target != null && target.getClazz() != cut && !ReferenceMask.contains(usedReference, target)) {
 					op = new CreateObject(null, co.getConstructor(), co.getParams());
 					op.addInfo(co.getInfos());
 				}
@@ -90,7 +90,7 @@ public class RemoveUselessDefs implements TestTransformation {
 				Invoke in = (Invoke) op;
 				Reference target = in.getTarget();
 
-				if(target != null && target.getClazz() != cut && !usedReference[target.getId()]) {
+				if(target != null && target.getClazz() != cut && !ReferenceMask.contains(usedReference, target)) {
 					op = new Invoke(null, in.getThis(), in.getMethod(), in.getParams());
 					op.addInfo(in.getInfos());
 				}
@@ -99,8 +99,7 @@ public class RemoveUselessDefs implements TestTransformation {
 			if(op != null) {
 				ret.addFirst(op);
 
-				for(Reference r : op.getUses())
-					usedReference[r.getId()] = true;
+				ReferenceMask.or(usedReference, op.getUsesMask());
 			}
 		}
 
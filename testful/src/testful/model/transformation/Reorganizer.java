@@ -21,7 +21,6 @@ package testful.model.transformation;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -37,6 +36,7 @@ import testful.model.Operation;
 import testful.model.OperationResult;
 import testful.model.OperationResult.Status;
 import testful.model.Reference;
+import testful.model.ReferenceMask;
 import testful.model.ResetRepository;
 import testful.model.StaticValue;
 import testful.model.Test;
@@ -61,11 +61,14 @@ public class Reorganizer implements TestTransformation {
 		// contains the reversed clustered version of the test
 		LinkedList<ReorganizeOperationSet> builder = new LinkedList<ReorganizeOperationSet>();
 
+		// number of words of the def/use masks
+		final int words = ReferenceMask.create(t.getReferenceFactory()).length;
+
 		int n = 0;
 		for(Operation op : t.getTest()) {
 			final OperationResult result = (OperationResult) op.getInfo(OperationResult.KEY);
 			if(result == null || result.getStatus() != Status.PRECONDITION_ERROR) {
-				reorganizeAdd(builder, op);
+				reorganizeAdd(builder, op, words);
 				n++;
 			}
 		}
@@ -86,7 +89,7 @@ public class Reorganizer implements TestTransformation {
 		return new Test(t.getCluster(), t.getReferenceFactory(), newOps);
 	}
 
-	private static void reorganizeAdd(List<ReorganizeOperationSet> builder, Operation op) {
+	private static void reorganizeAdd(List<ReorganizeOperationSet> builder, Operation op, int words) {
 		ListIterator<ReorganizeOperationSet> iter = builder.listIterator();
 
 		while(iter.hasNext()) {
@@ -101,7 +104,7 @@ public class Reorganizer implements TestTransformation {
 				if(iter.hasPrevious()) {
 					iter.previous().add(op);
 				} else {
-					iter.add(new ReorganizeOperationSet(op));
+					iter.add(new ReorganizeOperationSet(op, words));
 				}
 
 				return;
@@ -115,7 +118,7 @@ public class Reorganizer implements TestTransformation {
 		}
 
 		// the list is empty: adding a new element!
-		iter.add(new ReorganizeOperationSet(op));
+		iter.add(new ReorganizeOperationSet(op, words));
 	}
 
 	private static final class ReorganizeOperationSet extends ArrayList<Operation> {
@@ -125,11 +128,13 @@ public class Reorganizer implements TestTransformation {
 		private boolean containsResetRepository = false;
 		private boolean containsFaulty = false;
 
-		private final BitSet defs = new BitSet();
-		private final BitSet uses = new BitSet();
+		private final long[] defs;
+		private final long[] uses;
 
-		public ReorganizeOperationSet(Operation op) {
+		public ReorganizeOperationSet(Operation op, int words) {
 			super();
+			defs = new long[words];
+			uses = new long[words];
 			add(op);
 		}
 
@@ -146,8 +151,8 @@ public class Reorganizer implements TestTransformation {
 					final OperationResult opResult = (OperationResult) e.getInfo(OperationResult.KEY);
 					containsFaulty = opResult != null && opResult.getStatus() == Status.POSTCONDITION_ERROR;
 
-					defs.or(e.getDefsBitset());
-					uses.or(e.getUsesBitset());
+					ReferenceMask.or(defs, e.getDefsMask());
+					ReferenceMask.or(uses, e.getUsesMask());
 				}
 			}
 
@@ -162,16 +167,13 @@ public class Reorganizer implements TestTransformation {
 			if(containsFaulty || (opResult != null && opResult.getStatus() == Status.POSTCONDITION_ERROR))
 				return false;
 
+			final long[] opDefs = op.getDefsMask();
+
 			// check def-def or use-def
-			BitSet tmp = (BitSet) defs.clone();
-			tmp.or(uses);
-			tmp.and(op.getDefsBitset());
-			if(!tmp.isEmpty()) return false;
+			if(ReferenceMask.intersects(defs, opDefs) || ReferenceMask.intersects(uses, opDefs)) return false;
 
 			// check def-use
-			tmp = (BitSet) defs.clone();
-			tmp.and(op.getUsesBitset());
-			if(!tmp.isEmpty()) return false;
+			if(ReferenceMask.intersects(defs, op.getUsesMask())) return false;
 
 			return true;
 		}
@@ -27,7 +27,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.Future;
@@ -51,6 +50,7 @@ import testful.model.OperationPosition;
 import testful.model.OptimalTestCreator;
 import testful.model.PrimitiveClazz;
 import testful.model.Reference;
+import testful.model.ReferenceMask;
 import testful.model.ReferenceFactory;
 import testful.model.ResetRepository;
 import testful.model.Test;
@@ -203,25 +203,70 @@ public class Splitter {
 		return ret;
 	}
 
+	/**
+	 * Removes the tests contained in other tests (i.e., tests that are a prefix of another test).
+	 * Among equal tests, only the first one is kept.
+	 * Each prefix of each test is indexed by its hash, so that a test is only compared with the tests having a prefix with the same hash.
+	 * @param res the tests to simplify
+	 */
 	private static void simplify(final List<Test> res) {
-		// removes tests contained in other tests
-		for(int i = 0; i < res.size(); i++) {
-			Operation[] ops_i = res.get(i).getTest();
+		final int n = res.size();
+		if(n < 2) return;
+
+		final Operation[][] tests = new Operation[n][];
+		for (int i = 0; i < n; i++)
+			tests[i] = res.get(i).getTest();
+
+		// prefix (length and hash) => the tests having that prefix (the first element is the number of tests)
+		final Map<Long, int[]> prefixes = new HashMap<Long, int[]>();
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			int hash = 1;
+			for (int len = 0; ; len++) {
+				final Long key = ((long) len << 32) | (hash & 0xFFFFFFFFL);
+
+				int[] idx = prefixes.get(key);
+				if(idx == null) {
+					idx = new int[4];
+					prefixes.put(key, idx);
+				} else if(idx[0] + 1 == idx.length) {
+					idx = Arrays.copyOf(idx, 2 * idx.length);
+					prefixes.put(key, idx);
+				}
+				idx[++idx[0]] = i;
 
-			int j = -1;
-			Iterator<Test> iter = res.iterator();
-			while(iter.hasNext()) {
-				j++;
-				Operation[] ops_j = iter.next().getTest();
-				if(ops_i != ops_j && contains(ops_i, ops_j)) {
-					iter.remove();
-					if(j < i) {
-						i--;
-						j--;
-					}
+				if(len == tests[i].length) {
+					keys[i] = key;
+					break;
 				}
+
+				hash = 31 * hash + tests[i][len].hashCode();
 			}
 		}
+
+		final boolean[] removed = new boolean[n];
+		for (int j = 0; j < n; j++) {
+			final int[] idx = prefixes.get(keys[j]);
+			for (int k = 1; k <= idx[0]; k++) {
+				final int i = idx[k];
+				if(i == j) continue;
+
+				// equal tests: keep the first one
+				if(tests[i].length == tests[j].length && i > j) continue;
+
+				if(contains(tests[i], tests[j])) {
+					removed[j] = true;
+					break;
+				}
+			}
+		}
+
+		int j = 0;
+		Iterator<Test> iter = res.iterator();
+		while(iter.hasNext()) {
+			iter.next();
+			if(removed[j++]) iter.remove();
+		}
 	}
 
 	/**
@@ -240,6 +285,21 @@ public class Splitter {
 		return true;
 	}
 
+	/**
+	 * Checks if a contains all the operations of b.
+	 * Before comparing all the elements, rejects sets that are smaller, or that do not contain the first or the last element of b.
+	 * @param a the container
+	 * @param b the contained set
+	 * @return true if a contains all the elements of b
+	 */
+	private static boolean containsAll(SortedSet<Operation> a, SortedSet<Operation> b) {
+		if(a == b || b.isEmpty()) return true;
+		if(a.size() < b.size()) return false;
+		if(!a.contains(b.last()) || !a.contains(b.first())) return false;
+
+		return a.containsAll(b);
+	}
+
 	private int position = 0;
 
 	/** if true, split observers (i.e. find longest invocation sequences leading to new object states) */
@@ -291,7 +351,7 @@ public class Splitter {
 		this.cluster = cluster;
 		this.refFactory = refFactory;
 
-		refs = refFactory.getReferences();
+		refs = refFactory.getReferences().clone();
 		Arrays.sort(refs, new Comparator<Reference>() {
 			@Override
 			public int compare(Reference o1, Reference o2) { return o1.getId() - o2.getId(); }
@@ -356,7 +416,7 @@ public class Splitter {
 					for(int z = 0; z < operations.length; z++) {
 						if(z == t.getId()) continue;
 
-						if(operations[z] == operations[t.getId()] || operations[z].containsAll(operations[t.getId()])) {
+						if(containsAll(operations[z], operations[t.getId()])) {
 							isACopy[i] = true;
 							break;
 						}
@@ -380,7 +440,7 @@ public class Splitter {
 							iter.remove();
 							ops.add(oldAliasesOp);
 							break;
-						} else if(op.getUses().contains(t) || op instanceof ResetRepository || op.getDefs().contains(t)) {
+						} else if(op.uses(t) || op instanceof ResetRepository || op.defines(t)) {
 							break;
 						}
 					}
@@ -516,13 +576,13 @@ public class Splitter {
 			operations[opTargetId] = new TreeSet<Operation>(OperationPosition.orderComparator);
 			deleteAliases(opTarget, false);
 
-			if(!newSet.containsAll(targetOps) && toEmit)
+			if(!containsAll(newSet, targetOps) && toEmit)
 				emit(targetOps);
 		}
 
 		// 5. check if op is an observer and there is an equivalent operation
 		if(!splitObservers && methodInfo.getType() != Kind.MUTATOR) {
-			Set<Reference> deps = op.getUses();
+			final long[] deps = op.getUsesMask();
 
 			Iterator<Operation> iter = newSet.descendingIterator();
 			iter.next(); // skip op itself!
@@ -532,7 +592,7 @@ public class Splitter {
 				if(p instanceof ResetRepository)
 					break;
 
-				if(Operation.existDefUse(p.getDefs(), deps))
+				if(ReferenceMask.intersects(p.getDefsMask(), deps))
 					break;
 
 				if(p instanceof Invoke &&
@@ -565,7 +625,7 @@ public class Splitter {
 							}
 
 							// if there is a definition, the target has been modified
-							if(tOp instanceof ResetRepository || tOp.getDefs().contains(pTarget))
+							if(tOp instanceof ResetRepository || tOp.defines(pTarget))
 								break;
 
 						}
@@ -582,7 +642,7 @@ public class Splitter {
 								if(nOp == p) break;
 
 								// if there is a use, the target cannot be deleted
-								if(nOp.getUses().contains(pTarget))
+								if(nOp.uses(pTarget))
 									removable = false;
 
 							}
@@ -798,7 +858,7 @@ public class Splitter {
 				if(emitted)
 					for(int j = 0; j < operations.length; j++)
 						if((splitObservers || !isACopy[j]) &&
-								(operations[j] == tmp || tmp.containsAll(operations[j])))
+								containsAll(tmp, operations[j]))
 							operations[j] = new TreeSet<Operation>(OperationPosition.orderComparator);
 			}
 		}
@@ -820,7 +880,7 @@ public class Splitter {
 
 		for(int i = 0; i < operations.length; i++)
 			if((splitObservers || !isACopy[i]) &&
-					(operations[i] == ops || operations[i].containsAll(ops)) )
+					containsAll(operations[i], ops))
 				return false;
 
 		if(logger.isLoggable(Level.FINEST)) {
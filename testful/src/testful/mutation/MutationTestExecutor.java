@@ -148,9 +148,8 @@ public class MutationTestExecutor extends Executor<TestExecutorInput, MutationCo
 
 			coverage = new MutationCoverageSingle(notExecutedMutants);
 
-			//TODO: set the max execution time by modifying the test cluster!
-			// final long maxExecutionTime = 5 * (originalExecutionTime) + 500;
-			// logger.fine("Set maximum execution time to " + maxExecutionTime + " (" + originalExecutionTime + ")");
+			// the executions on the original class (and on previous tests) train the execution time of each method (see ExecutionTime):
+			// mutants that take too long (e.g., infinite loops) are stopped as soon as they exceed the learned budget
 
 			for(int mutation = executedMutants.nextSetBit(0); mutation >= 0; mutation = executedMutants.nextSetBit(mutation + 1)) {
 				try {
@@ -28,6 +28,7 @@ import testful.ConfigGeneration;
 import testful.IConfigCut;
 import testful.IConfigGeneration;
 import testful.IConfigProject;
+import testful.TestFul;
 import testful.TestfulException;
 
 public class ConfigRandom implements IConfigRandom, IConfigGeneration.Args4j, IConfigCut.Args4j, IConfigProject.Args4j {
@@ -43,6 +44,9 @@ public class ConfigRandom implements IConfigRandom, IConfigGeneration.Args4j, IC
 	@Option(required = false, name = "-seed", usage = "Set the seed of the random number generator")
 	private long seed = System.currentTimeMillis();
 
+	@Option(required = false, name = "-generators", usage = "Number of threads generating tests")
+	private int generators = TestFul.getProperty(TestFul.PROPERTY_RANDOM_GENERATORS, 1);
+
 	/* (non-Javadoc)
 	 * @see testful.random.IConfigRandom#getpGenNewObj()
 	 */
@@ -84,6 +88,19 @@ public class ConfigRandom implements IConfigRandom, IConfigGeneration.Args4j, IC
 		return seed;
 	}
 
+	/**
+	 * Set the number of threads generating tests
+	 * @param generators the number of threads generating tests
+	 */
+	public void setGenerators(int generators) {
+		this.generators = generators;
+	}
+
+	@Override
+	public int getGenerators() {
+		return generators;
+	}
+
 	@Override
 	public File getDirBase() {
 		return configGenerator.getDirBase();
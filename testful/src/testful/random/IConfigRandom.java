@@ -37,5 +37,11 @@ public interface IConfigRandom extends IConfigGeneration {
 	 */
 	public long getSeed();
 
+	/**
+	 * Returns the number of threads generating tests
+	 * @return the number of threads generating tests
+	 */
+	public int getGenerators();
+
 	public boolean isBehavioral();
 }
\ No newline at end of file
@@ -107,6 +107,7 @@ public class Launcher {
 		}
 
 		Operation.GEN_NEW = config.getpGenNewObj();
+		rt.setGenerators(config.getGenerators());
 
 		rt.test(config.getTime() * 1000);
 
@@ -19,10 +19,10 @@
 package testful.random;
 
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -46,9 +46,19 @@ import testful.runner.RunnerPool;
 import testful.utils.ElementManager;
 import ec.util.MersenneTwisterFast;
 
+/**
+ * Generates random tests, and keeps the ones with the best coverage.
+ * Tests are generated by one or more threads (see {@link TestFul#PROPERTY_RANDOM_GENERATORS}),
+ * each one with its own random number generator, whose seed is derived from the seed of the random test.
+ * Generated tests are executed by the runner pool, and their pending results are kept in a bounded queue:
+ * when it is full, generators wait for the runners.
+ */
 public abstract class RandomTest {
 	protected static Logger logger = Logger.getLogger("testful.random");
 
+	/** maximum number of tests being executed (or waiting to be executed) by the runner pool */
+	private static final int MAX_PENDING_TESTS = 1000;
+
 	protected long start, stop;
 	private long numCall;
 
@@ -57,13 +67,17 @@ public abstract class RandomTest {
 
 	private AtomicInteger testsDone = new AtomicInteger();
 
-	protected final BlockingQueue<Entry<Operation[], Future<ElementManager<String, CoverageInformation>>>> tests = new LinkedBlockingQueue<Entry<Operation[], Future<ElementManager<String, CoverageInformation>>>>();
+	protected final BlockingQueue<Entry<Operation[], Future<ElementManager<String, CoverageInformation>>>> tests = new ArrayBlockingQueue<Entry<Operation[], Future<ElementManager<String, CoverageInformation>>>>(MAX_PENDING_TESTS);
 	private final OptimalTestCreator optimal;
 	private final DataFinder finder;
 	private final boolean reloadClasses;
 	private final TrackerDatum[] data;
 
-	protected final MersenneTwisterFast random;
+	/** the seed of the random number generators */
+	private final long seed;
+
+	/** number of threads generating tests */
+	private int generators = TestFul.getProperty(TestFul.PROPERTY_RANDOM_GENERATORS, 1);
 
 	protected volatile boolean keepRunning = true;
 
@@ -71,7 +85,7 @@ public abstract class RandomTest {
 		optimal = new OptimalTestCreator();
 
 		logger.config("RandomTest: initializing MersenneTwisterFast with seed " + seed);
-		random = new MersenneTwisterFast(seed);
+		this.seed = seed;
 
 		this.cluster = cluster;
 		this.refFactory = refFactory;
@@ -86,7 +100,80 @@ public abstract class RandomTest {
 		return RunnerPool.getRunnerPool().execute(ctx);
 	}
 
-	protected abstract void work(long duration);
+	/**
+	 * Sets the number of threads generating tests
+	 * @param generators the number of threads generating tests
+	 */
+	public void setGenerators(int generators) {
+		this.generators = generators;
+	}
+
+	public int getGenerators() {
+		return generators;
+	}
+
+	/**
+	 * Creates the random number generator of a generator thread.
+	 * The first generator uses the seed of the random test, while the seeds of the others are derived from it,
+	 * so that runs with the same seed and the same number of generators create the same tests.
+	 * @param generator the index of the generator thread
+	 * @return the random number generator
+	 */
+	private MersenneTwisterFast createRandom(int generator) {
+		if(generator == 0) return new MersenneTwisterFast(seed);
+
+		// SplitMix64 of the seed and the generator index
+		long z = seed + generator * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return new MersenneTwisterFast(z ^ (z >>> 31));
+	}
+
+	/**
+	 * Generates tests until the time is over, putting them in the tests queue.
+	 * It is invoked concurrently by all the generator threads.
+	 * @param random the random number generator of the thread
+	 */
+	protected abstract void generate(MersenneTwisterFast random);
+
+	/**
+	 * Runs the generators for the given time
+	 * @param duration the duration (in milliseconds)
+	 */
+	private void work(long duration) {
+		start = System.currentTimeMillis();
+		stop = start + duration;
+
+		// initialize the lazy structures shared by the generators
+		refFactory.getReferences();
+
+		if(generators <= 1) {
+			generate(createRandom(0));
+			return;
+		}
+
+		logger.config("RandomTest: using " + generators + " generators");
+
+		Thread[] threads = new Thread[generators];
+		for (int i = 0; i < threads.length; i++) {
+			final MersenneTwisterFast random = createRandom(i);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					generate(random);
+				}
+			}, "generator-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		try {
+			for (Thread t : threads)
+				t.join();
+		} catch (InterruptedException e) {
+			logger.log(Level.WARNING, "Interrupted: " + e.getMessage(), e);
+		}
+	}
 
 	public final void test(long duration) {
 		startNotificationThread();
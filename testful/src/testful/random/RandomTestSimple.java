@@ -29,6 +29,7 @@ import testful.model.TestCluster;
 import testful.runner.DataFinder;
 import testful.utils.ElementManager;
 import testful.utils.SimpleEntry;
+import ec.util.MersenneTwisterFast;
 
 public class RandomTestSimple extends RandomTest {
 
@@ -39,11 +40,7 @@ public class RandomTestSimple extends RandomTest {
 	}
 
 	@Override
-	protected void work(long duration) {
-
-		start = System.currentTimeMillis();
-		stop = start + duration;
-
+	protected void generate(MersenneTwisterFast random) {
 		try {
 			while(System.currentTimeMillis() < stop) {
 
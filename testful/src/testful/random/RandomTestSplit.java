@@ -31,22 +31,18 @@ import testful.model.transformation.Splitter.Listener;
 import testful.runner.DataFinder;
 import testful.utils.ElementManager;
 import testful.utils.SimpleEntry;
+import ec.util.MersenneTwisterFast;
 
 public class RandomTestSplit extends RandomTest {
 
-	private final Splitter simplifier;
-
 	public RandomTestSplit(DataFinder finder, boolean reloadClasses, TestCluster cluster, ReferenceFactory refFactory, long seed, TrackerDatum ... data) {
 		super(finder, reloadClasses, cluster, refFactory, seed, data);
-
-		simplifier = new Splitter(true, cluster, refFactory);
 	}
 
 	@Override
-	public void work(long duration) {
-		start = System.currentTimeMillis();
-		stop = start + duration;
-
+	protected void generate(MersenneTwisterFast random) {
+		// each generator has its own splitter
+		final Splitter simplifier = new Splitter(true, cluster, refFactory);
 		simplifier.register(new Listener() {
 
 			@Override
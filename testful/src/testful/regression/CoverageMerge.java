@@ -32,10 +32,11 @@ import org.kohsuke.args4j.Option;
 import testful.IConfig;
 import testful.TestFul;
 import testful.coverage.CoverageInformation;
+import testful.model.TestArchive;
 import testful.utils.ElementManager;
 
 /**
- * Reads binary coverage reports and merge them
+ * Reads binary coverage reports (or archives of tests, see {@link TestArchive}) and merge them
  * @author matteo
  */
 public class CoverageMerge {
@@ -65,15 +66,20 @@ public class CoverageMerge {
 		ElementManager<String, CoverageInformation> combined = new ElementManager<String, CoverageInformation>();
 		for (File file : config.arguments) {
 			try {
-				ElementManager<String, CoverageInformation> read = ElementManager.read(file);
-				for (CoverageInformation rCov : read) {
-					CoverageInformation cCov = combined.get(rCov.getKey());
-					if(cCov == null) {
-						cCov = rCov.createEmpty();
-						combined.put(cCov);
+				if(TestArchive.isArchive(file)) {
+					// merge the coverage of each test, without reading the tests
+					TestArchive archive = new TestArchive(file);
+					try {
+						for (int i = 0; i < archive.size(); i++) {
+							ElementManager<String, CoverageInformation> read = archive.getCoverage(i);
+							if(read != null) merge(combined, read);
+						}
+					} finally {
+						archive.close();
 					}
 
-					cCov.merge(rCov);
+				} else {
+					merge(combined, ElementManager.<String, CoverageInformation>read(file));
 				}
 			} catch (Exception e) {
 				logger.log(Level.WARNING, e.getMessage(), e);
@@ -97,5 +103,17 @@ public class CoverageMerge {
 		}
 	}
 
+	private static void merge(ElementManager<String, CoverageInformation> combined, ElementManager<String, CoverageInformation> read) {
+		for (CoverageInformation rCov : read) {
+			CoverageInformation cCov = combined.get(rCov.getKey());
+			if(cCov == null) {
+				cCov = rCov.createEmpty();
+				combined.put(cCov);
+			}
+
+			cCov.merge(rCov);
+		}
+	}
+
 
 }
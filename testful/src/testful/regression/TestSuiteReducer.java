@@ -42,6 +42,7 @@ import testful.coverage.CoverageTestExecutor;
 import testful.coverage.TrackerDatum;
 import testful.model.OptimalTestCreator;
 import testful.model.Test;
+import testful.model.TestArchive;
 import testful.model.TestCoverage;
 import testful.model.TestReader;
 import testful.model.executor.TestExecutorInput;
@@ -111,6 +112,7 @@ public class TestSuiteReducer {
 		Job<TestExecutorInput, ElementManager<String, CoverageInformation>, CoverageTestExecutor> ctx =
 			CoverageTestExecutor.getContext(finder, t, reloadClasses, data);
 		ctx.setReloadClasses(reloadClasses);
+		ctx.setPriority(Job.Priority.BACKGROUND);
 		Future<ElementManager<String, CoverageInformation>> f = RunnerPool.getRunnerPool().execute(ctx);
 
 		ElementManager<String, CoverageInformation> cov = f.get();
@@ -150,6 +152,9 @@ public class TestSuiteReducer {
 		@Option(required = true, name = "-dirOut", usage = "Specify the output directory")
 		private File out;
 
+		@Option(required = false, name = "-archive", usage = "Save the tests in a single archive (" + TestArchive.EXTENSION + ") in the output directory")
+		private boolean archive;
+
 		@Argument
 		private List<String> tests = new ArrayList<String>();
 
@@ -195,12 +200,28 @@ public class TestSuiteReducer {
 		}.read(config.tests);
 
 
-		int i = 0;
-		for (TestCoverage t : reducer.getOutput()) {
+		if(config.archive) {
 			try {
-				t.write(new GZIPOutputStream(new FileOutputStream(new File(config.out, "Test-" + (i++) + ".ser.gz"))));
+				TestArchive.Writer archive = new TestArchive.Writer(new File(config.out, "Test" + TestArchive.EXTENSION));
+				try {
+					int i = 0;
+					for (TestCoverage t : reducer.getOutput())
+						archive.add(Integer.toString(i++), t);
+				} finally {
+					archive.close();
+				}
 			} catch (IOException e) {
-				logger.log(Level.WARNING, "Cannot write a test: " + e.getLocalizedMessage(), e);
+				logger.log(Level.WARNING, "Cannot write the archive: " + e.getLocalizedMessage(), e);
+			}
+
+		} else {
+			int i = 0;
+			for (TestCoverage t : reducer.getOutput()) {
+				try {
+					t.write(new GZIPOutputStream(new FileOutputStream(new File(config.out, "Test-" + (i++) + ".ser.gz"))));
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Cannot write a test: " + e.getLocalizedMessage(), e);
+				}
 			}
 		}
 
@@ -71,6 +71,14 @@ public class DataFinderCaching implements DataFinder {
 		return key;
 	}
 
+	/**
+	 * Returns the finder whose elements are being cached
+	 * @return the finder whose elements are being cached
+	 */
+	public DataFinder getFinder() {
+		return finder;
+	}
+
 	/* (non-Javadoc)
 	 * @see testful.runner.DataFinder#getData(java.lang.String, java.lang.String)
 	 */
@@ -101,6 +109,9 @@ public class DataFinderCaching implements DataFinder {
 			if(buff == null) {
 				if(LOG_FINER) logger.finer("(" + key + ") serving retrieved element " + name + " (missing)");
 				missing.add(name);
+			} else if(ObjectType.NAME.equals(type) && ObjectType.isChunkRequest(id)) {
+				// chunks of objects are read only once: the ObjectRegistry caches the deserialized object
+				if(LOG_FINER) logger.finer("(" + key + ") serving retrieved element " + name + " (not cached)");
 			} else {
 				if(LOG_FINER) logger.finer("(" + key + ") serving retrieved element " + name);
 				cache.put(name, new Cacheable<byte[]>(buff));
@@ -0,0 +1,108 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Replaces data finders when jobs are sent through a transport other than RMI (e.g., pipes or sockets).
+ * The receiver resolves the reference with a data finder that fetches the data through the same transport.
+ *
+ * @author matteo
+ */
+class FinderReference implements Serializable {
+
+	private static final long serialVersionUID = 6329367216431409418L;
+
+	/** Resolves the references to data finders */
+	interface Resolver {
+		DataFinder getFinder(String key) throws IOException;
+	}
+
+	final String key;
+
+	FinderReference(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Serializes an object (typically a job), replacing data finders with references
+	 * @param obj the object to serialize
+	 * @param finders if not null, it is filled with the data finders being replaced (key: finder's key)
+	 * @return the serialized object
+	 * @throws IOException if something goes wrong
+	 */
+	static byte[] serialize(Serializable obj, final Map<String, DataFinder> finders) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oo = new ObjectOutputStream(baos) {
+			{
+				enableReplaceObject(true);
+			}
+
+			@Override
+			protected Object replaceObject(Object obj) throws IOException {
+				if(obj instanceof DataFinder) {
+					DataFinder finder = (DataFinder) obj;
+					String key = finder.getKey();
+					if(finders != null) finders.put(key, finder);
+					return new FinderReference(key);
+				}
+
+				return obj;
+			}
+		};
+
+		oo.writeObject(obj);
+		oo.close();
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object (typically a job), resolving the references to data finders
+	 * @param b the serialized object
+	 * @param resolver the resolver to use
+	 * @return the deserialized object
+	 * @throws IOException if something goes wrong
+	 * @throws ClassNotFoundException if the class of the object cannot be found
+	 */
+	static Object deserialize(byte[] b, final Resolver resolver) throws IOException, ClassNotFoundException {
+		ObjectInputStream oi = new ObjectInputStream(new ByteArrayInputStream(b)) {
+			{
+				enableResolveObject(true);
+			}
+
+			@Override
+			protected Object resolveObject(Object obj) throws IOException {
+				if(obj instanceof FinderReference) return resolver.getFinder(((FinderReference) obj).key);
+				return obj;
+			}
+		};
+
+		try {
+			return oi.readObject();
+		} finally {
+			oi.close();
+		}
+	}
+}
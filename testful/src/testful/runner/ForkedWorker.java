@@ -0,0 +1,472 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.TestFul;
+import testful.utils.SerializationUtils;
+import testful.utils.TimeoutScheduler;
+
+/**
+ * A worker that executes jobs in a child JVM (see {@link ForkedWorkerChild}),
+ * so that CUTs spawning threads, leaking memory, or corrupting their static state do not affect the WorkerManager.
+ * The child JVM is long-lived, and it is recycled after executing a given number of jobs,
+ * or when its heap or its number of threads exceeds a threshold.
+ * Jobs are sent to the child in batches, and the child retrieves classes and objects
+ * through the pipe: the worker serves these requests using the (cached) finders of the WorkerManager.
+ * Batches are written by a separate thread while the worker reads the results:
+ * otherwise, both the worker and the child may block writing large messages on a full pipe.
+ *
+ * @author matteo
+ */
+public class ForkedWorker extends Thread implements TimeoutScheduler.Callback {
+
+	private static Logger logger = Logger.getLogger("testful.executor.worker");
+	private static final boolean LOG_FINE = logger.isLoggable(Level.FINE);
+	private static final boolean LOG_FINER = logger.isLoggable(Level.FINER);
+
+	private static final int MAX_JOBS = TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_JOBS, 1000);
+	private static final int MAX_HEAP = TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_HEAP, 80);
+	private static final int MAX_THREADS = TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_THREADS, 50);
+	private static final int BATCH = Math.max(1, TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_BATCH, 10));
+	private static final int TIMEOUT = TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_TIMEOUT, 60000);
+	private static final String JVM_ARGS = TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK_JVM_ARGS, "");
+
+	// messages sent by the worker to the child JVM
+	/** a job to execute: job.id finder.key job.len job */
+	static final byte MSG_JOB = 'J';
+	/** the data requested by the child JVM: data.len (-1 if null) data */
+	static final byte MSG_DATA = 'D';
+	/** the child JVM must quit */
+	static final byte MSG_EXIT = 'X';
+
+	// messages sent by the child JVM to the worker
+	/** a request of data: finder.key type id */
+	static final byte MSG_GET_DATA = 'G';
+	/** the result of a job: job.id result.len result */
+	static final byte MSG_RESULT = 'R';
+	/** the exception thrown by a job: job.id exception.len exception */
+	static final byte MSG_EXCEPTION = 'E';
+	/** the status of the child JVM, sent before the result (or the exception) of each job: used.heap max.heap threads */
+	static final byte MSG_STATUS = 'S';
+
+	private static int idGenerator = 0;
+
+	private final WorkerManager workerManager;
+	private final TimeoutScheduler.Timeout timeout;
+
+	/** the child JVM is recycled after executing jobsLimit jobs, or if it uses more than heapLimit% of its heap or more than threadsLimit threads */
+	private final int jobsLimit, heapLimit, threadsLimit;
+
+	private volatile Process process;
+	private DataInputStream in;
+	/** the pipe to the child JVM: writers must synchronize on it */
+	private DataOutputStream out;
+
+	/** writes batches of jobs to the child JVM */
+	private ExecutorService sender;
+
+	/** number of jobs executed by the current child JVM */
+	private int executedJobs;
+
+	/** the last status reported by the child JVM */
+	private long usedHeap, maxHeap;
+	private int threads;
+
+	public ForkedWorker(WorkerManager manager) {
+		this(manager, MAX_JOBS, MAX_HEAP, MAX_THREADS);
+	}
+
+	ForkedWorker(WorkerManager manager, int jobsLimit, int heapLimit, int threadsLimit) {
+		super("ForkedWorker-" + ++idGenerator);
+		workerManager = manager;
+		this.jobsLimit = jobsLimit;
+		this.heapLimit = heapLimit;
+		this.threadsLimit = threadsLimit;
+		timeout = TimeoutScheduler.singleton.register(this);
+		setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		if(LOG_FINE) logger.fine("Created forked worker " + getName());
+
+		sender = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, getName() + "-stdin");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		try {
+			while(true) {
+				List<Job<?,?,?>> batch = new ArrayList<Job<?,?,?>>(BATCH);
+				batch.add(workerManager.getJob());
+				workerManager.drainJobs(batch, BATCH - 1);
+
+				/** Key: job.id; Value: jobs being executed */
+				Map<String, Job<?,?,?>> pending = new LinkedHashMap<String, Job<?,?,?>>();
+				/** Key: finder.key; Value: the finder to use */
+				Map<String, DataFinder> finders = new HashMap<String, DataFinder>();
+				/** the serialized jobs */
+				List<byte[]> messages = new ArrayList<byte[]>(batch.size());
+
+				Future<?> sending = null;
+				try {
+					if(process == null) startProcess();
+
+					for (Job<?,?,?> job : batch) {
+						final DataFinder finder;
+						try {
+							finder = workerManager.getFinder(job);
+						} catch(RemoteException e) {
+							logger.warning("Worker " + getName() + " cannot retrieve the data finder: " + e.getMessage());
+							workerManager.putException(job, e, null);
+							continue;
+						}
+
+						finders.put(finder.getKey(), finder);
+						pending.put(job.id, job);
+						messages.add(encodeJob(job, finder.getKey()));
+					}
+
+					sending = send(messages);
+
+					while(!pending.isEmpty())
+						receive(pending, finders);
+
+					// the child JVM has received all the jobs of the batch
+					waitFor(sending);
+
+					if(mustRecycle()) stopProcess();
+
+				} catch(IOException e) {
+					logger.log(Level.WARNING, "Worker " + getName() + " lost its child JVM: " + e.getMessage(), e);
+
+					for (Job<?,?,?> job : pending.values())
+						workerManager.putException(job, new Exception("The child JVM died while executing the job", e), null);
+
+					destroyProcess();
+
+					// the sender fails as well, since the pipe is closed
+					try {
+						if(sending != null) waitFor(sending);
+					} catch(IOException ignored) {
+					}
+				}
+			}
+		} catch(RemoteException e) {
+			logger.warning("Worker " + getName() + " interrupted: " + e.getMessage());
+		} finally {
+			destroyProcess();
+			sender.shutdownNow();
+		}
+	}
+
+	/**
+	 * Serializes a job
+	 * @return the MSG_JOB message to send to the child JVM
+	 */
+	private static byte[] encodeJob(Job<?,?,?> job, String finderKey) throws IOException {
+		byte[] b = FinderReference.serialize(job, null);
+
+		ByteArrayOutputStream ret = new ByteArrayOutputStream(b.length + 64);
+		DataOutputStream msg = new DataOutputStream(ret);
+		msg.writeByte(MSG_JOB);
+		msg.writeUTF(job.id);
+		msg.writeUTF(finderKey);
+		msg.writeInt(b.length);
+		msg.write(b);
+		msg.flush();
+
+		return ret.toByteArray();
+	}
+
+	/**
+	 * Writes the messages to the child JVM, using the sender thread
+	 * @return the pending write
+	 */
+	private Future<?> send(final List<byte[]> messages) {
+		final DataOutputStream pipe = out;
+
+		return sender.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				if(LOG_FINER) logger.finer("Worker " + getName() + " is sending " + messages.size() + " jobs to its child JVM");
+
+				synchronized(pipe) {
+					for (byte[] msg : messages)
+						pipe.write(msg);
+					pipe.flush();
+				}
+
+				return null;
+			}
+		});
+	}
+
+	private static void waitFor(Future<?> sending) throws IOException {
+		try {
+			sending.get();
+		} catch(InterruptedException e) {
+			throw new IOException("Interrupted while sending jobs to the child JVM: " + e.getMessage());
+		} catch(ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if(cause instanceof IOException) throw (IOException) cause;
+			throw new IOException("Cannot send jobs to the child JVM: " + cause);
+		}
+	}
+
+	private void receive(Map<String, Job<?,?,?>> pending, Map<String, DataFinder> finders) throws IOException {
+
+		final byte msg;
+		timeout.arm(TIMEOUT);
+		try {
+			msg = in.readByte();
+		} finally {
+			timeout.disarm();
+		}
+
+		switch(msg) {
+		case MSG_GET_DATA: {
+			final String key = in.readUTF();
+			final String type = in.readUTF();
+			final String id = in.readUTF();
+
+			byte[] data = null;
+			DataFinder finder = finders.get(key);
+			if(finder != null) {
+				try {
+					data = finder.getData(type, id);
+				} catch(RemoteException e) {
+					logger.log(Level.WARNING, "Worker " + getName() + " cannot retrieve " + type + " " + id + ": " + e.getMessage(), e);
+				}
+			}
+
+			synchronized(out) {
+				out.writeByte(MSG_DATA);
+				if(data == null) out.writeInt(-1);
+				else {
+					out.writeInt(data.length);
+					out.write(data);
+				}
+				out.flush();
+			}
+			break;
+		}
+
+		case MSG_RESULT: {
+			final Job<?,?,?> job = pending.remove(in.readUTF());
+			final Serializable result = SerializationUtils.deserialize(readBytes(), false);
+			executedJobs++;
+
+			if(job == null) logger.warning("Worker " + getName() + " received the result of an unknown job");
+			else if(result == null) workerManager.putException(job, new Exception("Cannot read the result of the job"), null);
+			else workerManager.putResult(job, result, null);
+			break;
+		}
+
+		case MSG_EXCEPTION: {
+			final Job<?,?,?> job = pending.remove(in.readUTF());
+			final Serializable exc = SerializationUtils.deserialize(readBytes(), false);
+			executedJobs++;
+
+			if(job == null) logger.warning("Worker " + getName() + " received the exception of an unknown job");
+			else if(exc instanceof Exception) workerManager.putException(job, (Exception) exc, null);
+			else workerManager.putException(job, new Exception("Cannot read the exception thrown by the job"), null);
+			break;
+		}
+
+		case MSG_STATUS:
+			usedHeap = in.readLong();
+			maxHeap = in.readLong();
+			threads = in.readInt();
+			break;
+
+		default:
+			throw new IOException("Unexpected message from the child JVM: " + msg);
+		}
+	}
+
+	private byte[] readBytes() throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return b;
+	}
+
+	private boolean mustRecycle() {
+		if(executedJobs >= jobsLimit) {
+			if(LOG_FINE) logger.fine("Worker " + getName() + " recycles its child JVM: " + executedJobs + " jobs executed");
+			return true;
+		}
+
+		if(usedHeap * 100 > maxHeap * heapLimit) {
+			if(LOG_FINE) logger.fine("Worker " + getName() + " recycles its child JVM: heap " + (usedHeap/(1024*1024)) + "/" + (maxHeap/(1024*1024)) + " Mb");
+			return true;
+		}
+
+		if(threads > threadsLimit) {
+			if(LOG_FINE) logger.fine("Worker " + getName() + " recycles its child JVM: " + threads + " live threads");
+			return true;
+		}
+
+		return false;
+	}
+
+	private void startProcess() throws IOException {
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+		for (String arg : JVM_ARGS.split(" "))
+			if(!arg.trim().isEmpty()) cmd.add(arg.trim());
+
+		for (String name : System.getProperties().stringPropertyNames())
+			if(name.startsWith("testful.") && !name.equals(TestFul.PROPERTY_RUNNER_REMOTE))
+				cmd.add("-D" + name + "=" + System.getProperty(name));
+
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(ForkedWorkerChild.class.getName());
+
+		if(LOG_FINE) logger.fine("Worker " + getName() + " is starting a child JVM: " + cmd);
+
+		final Process p = new ProcessBuilder(cmd).start();
+		pump(p.getErrorStream());
+
+		out = new DataOutputStream(new BufferedOutputStream(p.getOutputStream()));
+		in = new DataInputStream(new BufferedInputStream(p.getInputStream()));
+		process = p;
+
+		executedJobs = 0;
+		usedHeap = 0;
+		maxHeap = 0;
+		threads = 0;
+	}
+
+	private void stopProcess() {
+		try {
+			synchronized(out) {
+				out.writeByte(MSG_EXIT);
+				out.flush();
+			}
+		} catch(IOException e) {
+			if(LOG_FINE) logger.log(Level.FINE, "Worker " + getName() + " cannot stop its child JVM: " + e.getMessage(), e);
+		}
+
+		destroyProcess();
+	}
+
+	private void destroyProcess() {
+		final Process p = process;
+		process = null;
+
+		if(p != null) {
+			p.destroy();
+			close(in);
+			close(out);
+		}
+	}
+
+	/**
+	 * Kills an unresponsive child JVM
+	 * @see testful.utils.TimeoutScheduler.Callback#timeoutExpired()
+	 */
+	@Override
+	public long timeoutExpired() {
+		final Process p = process;
+		if(p != null) {
+			logger.warning("Worker " + getName() + ": the child JVM does not respond since " + TIMEOUT + " ms. Killing it.");
+			p.destroy();
+		}
+
+		return TIMEOUT;
+	}
+
+	/**
+	 * Forwards the error stream of the child JVM (which includes the output of the CUT) to the log
+	 * @param err the error stream of the child JVM
+	 */
+	private void pump(final InputStream err) {
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(err));
+					String line;
+					while((line = reader.readLine()) != null)
+						if(LOG_FINE) logger.fine(getName() + "> " + line);
+				} catch(IOException e) {
+					// the child JVM is dead
+				}
+			}
+		});
+		t.setName(getName() + "-stderr");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	private static void close(InputStream s) {
+		try {
+			if(s != null) s.close();
+		} catch(IOException e) {
+		}
+	}
+
+	private static void close(OutputStream s) {
+		try {
+			if(s != null) s.close();
+		} catch(IOException e) {
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Thread#toString()
+	 */
+	@Override
+	public String toString() {
+		return getName() + " (" + (process == null ? "no child JVM" : executedJobs + " jobs in the child JVM") + ")";
+	}
+}
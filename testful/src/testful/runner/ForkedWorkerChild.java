@@ -0,0 +1,263 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.utils.SerializationUtils;
+
+/**
+ * The child JVM driven by a {@link ForkedWorker}.
+ * It reads jobs from the standard input, executes them one at a time, and writes the results on the standard output.
+ * Classes and objects are requested to the worker through the same pipe.
+ * The output of the CUT is redirected to the standard error.
+ *
+ * @author matteo
+ */
+public class ForkedWorkerChild {
+
+	private static Logger logger = Logger.getLogger("testful.executor.worker");
+
+	public static void main(String[] args) {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+		// the standard output is reserved to the communication with the worker
+		System.setOut(System.err);
+
+		try {
+			new ForkedWorkerChild(in, out).run();
+		} catch(IOException e) {
+			logger.log(Level.WARNING, "Lost the connection with the worker: " + e.getMessage(), e);
+		}
+
+		System.exit(0);
+	}
+
+	/** Retrieves data through the pipe */
+	private class PipeDataFinder implements DataFinder {
+
+		private final String key;
+
+		public PipeDataFinder(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public byte[] getData(String type, String id) throws RemoteException {
+			try {
+				return requestData(key, type, id);
+			} catch(IOException e) {
+				throw new RemoteException("Cannot retrieve " + type + " " + id + " from the worker", e);
+			}
+		}
+	}
+
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	/** serialized jobs received while waiting for some data */
+	private final Queue<byte[]> jobs = new LinkedList<byte[]>();
+
+	/** Key: finder.key; Value: the finder */
+	private final Map<String, DataFinder> finders = new HashMap<String, DataFinder>();
+
+	/** Key: finder.key; Value: the class loader to reuse */
+	private final Map<String, RemoteClassLoader> classLoaders = new HashMap<String, RemoteClassLoader>();
+
+	private ForkedWorkerChild(DataInputStream in, DataOutputStream out) {
+		this.in = in;
+		this.out = out;
+	}
+
+	private void run() throws IOException {
+		while(true) {
+			byte[] b = jobs.poll();
+			if(b == null) b = readJob();
+			if(b == null) return;
+
+			final Job<?,?,?> job;
+			try {
+				job = decodeJob(b);
+			} catch(ClassNotFoundException e) {
+				throw new IOException("Cannot read the job: " + e.getMessage());
+			}
+
+			RemoteClassLoader cl = null;
+			Serializable result = null;
+			Throwable exc = null;
+			try {
+				cl = getClassLoader(job);
+				result = job.execute(cl);
+			} catch(Throwable e) {
+				exc = e;
+			}
+
+			if(cl != null && !job.isReloadClasses())
+				classLoaders.put(cl.getKey(), cl);
+
+			// the status goes first: the worker stops reading as soon as it receives the outcome of its last job
+			sendStatus();
+			if(exc == null) sendResult(job.id, result);
+			else sendException(job.id, exc);
+			out.flush();
+		}
+	}
+
+	private RemoteClassLoader getClassLoader(Job<?,?,?> job) throws RemoteException {
+		final String key = job.getFinder().getKey();
+
+		if(!job.isReloadClasses()) {
+			RemoteClassLoader cl = classLoaders.remove(key);
+			if(cl != null) return cl;
+		}
+
+		return new RemoteClassLoader(job.getFinder());
+	}
+
+	/**
+	 * Reads the next job from the pipe
+	 * @return the serialized job, or null if the child must quit
+	 */
+	private byte[] readJob() throws IOException {
+		final byte msg = in.readByte();
+		switch(msg) {
+		case ForkedWorker.MSG_JOB:
+			in.readUTF(); // job.id
+			in.readUTF(); // finder.key
+			return readBytes();
+
+		case ForkedWorker.MSG_EXIT:
+			return null;
+
+		default:
+			throw new IOException("Unexpected message from the worker: " + msg);
+		}
+	}
+
+	private Job<?,?,?> decodeJob(byte[] b) throws IOException, ClassNotFoundException {
+		return (Job<?,?,?>) FinderReference.deserialize(b, new FinderReference.Resolver() {
+
+			@Override
+			public DataFinder getFinder(String key) throws IOException {
+				return ForkedWorkerChild.this.getFinder(key);
+			}
+		});
+	}
+
+	private DataFinder getFinder(String key) throws RemoteException {
+		DataFinder finder = finders.get(key);
+		if(finder == null) {
+			finder = new DataFinderCaching(new PipeDataFinder(key));
+			finders.put(key, finder);
+		}
+		return finder;
+	}
+
+	private byte[] requestData(String key, String type, String id) throws IOException {
+		out.writeByte(ForkedWorker.MSG_GET_DATA);
+		out.writeUTF(key);
+		out.writeUTF(type);
+		out.writeUTF(id);
+		out.flush();
+
+		while(true) {
+			final byte msg = in.readByte();
+			switch(msg) {
+			case ForkedWorker.MSG_DATA: {
+				final int len = in.readInt();
+				if(len < 0) return null;
+
+				byte[] b = new byte[len];
+				in.readFully(b);
+				return b;
+			}
+
+			case ForkedWorker.MSG_JOB:
+				// the worker sends jobs in batches: keep them for later
+				in.readUTF(); // job.id
+				in.readUTF(); // finder.key
+				jobs.add(readBytes());
+				break;
+
+			default:
+				throw new IOException("Unexpected message from the worker while waiting for data: " + msg);
+			}
+		}
+	}
+
+	private byte[] readBytes() throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return b;
+	}
+
+	private void sendResult(String jobId, Serializable result) throws IOException {
+		byte[] b = SerializationUtils.serialize(result, false);
+		if(b.length == 0) {
+			sendException(jobId, new Exception("Cannot serialize the result of the job"));
+			return;
+		}
+
+		out.writeByte(ForkedWorker.MSG_RESULT);
+		out.writeUTF(jobId);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private void sendException(String jobId, Throwable exc) throws IOException {
+		byte[] b = (exc instanceof Exception) ? SerializationUtils.serialize(exc, false) : new byte[0];
+		if(b.length == 0)
+			b = SerializationUtils.serialize(new Exception(exc.toString()), false);
+
+		out.writeByte(ForkedWorker.MSG_EXCEPTION);
+		out.writeUTF(jobId);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private void sendStatus() throws IOException {
+		final Runtime runtime = Runtime.getRuntime();
+
+		out.writeByte(ForkedWorker.MSG_STATUS);
+		out.writeLong(runtime.totalMemory() - runtime.freeMemory());
+		out.writeLong(runtime.maxMemory());
+		out.writeInt(ManagementFactory.getThreadMXBean().getThreadCount());
+	}
+}
@@ -32,7 +32,31 @@ public interface IJobRepository extends Remote {
 
 	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I,R>> getJob() throws RemoteException;
 
+	/**
+	 * Retrieves a job on behalf of a given WorkerManager.
+	 * The repository may delay the call if the WorkerManager is already overloaded.
+	 * @param runner the name of the WorkerManager
+	 * @return the job to execute
+	 * @throws RemoteException if something goes wrong
+	 */
+	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I,R>> getJob(String runner) throws RemoteException;
+
+	/**
+	 * Receives the load of a WorkerManager
+	 * @param report the load report
+	 * @throws RemoteException if something goes wrong
+	 */
+	public void putLoadReport(LoadReport report) throws RemoteException;
+
 	public void putResult(String key, Serializable result) throws RemoteException;
 
 	public void putException(String key, Exception exc) throws RemoteException;
+
+	/**
+	 * Gives back a job that has been retrieved, but that will not be executed
+	 * (e.g., the connection with the WorkerManager has been lost): the repository dispatches it again.
+	 * @param key the id of the job
+	 * @throws RemoteException if something goes wrong
+	 */
+	public void putBack(String key) throws RemoteException;
 }
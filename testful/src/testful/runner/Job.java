@@ -41,6 +41,16 @@ public class Job<I extends Serializable, R extends Serializable, M extends IExec
 
 	private static final long serialVersionUID = 1615872139934821021L;
 
+	/** The scheduling class of a job: jobs with a higher priority are dispatched first */
+	public enum Priority {
+		/** single evaluations that block the caller (e.g., the steps of a local search) */
+		LATENCY,
+		/** bulk evaluations (e.g., the population of a genetic algorithm) */
+		THROUGHPUT,
+		/** work that can be postponed (e.g., the simplification of tests) */
+		BACKGROUND
+	}
+
 	private final static String ID_PREFIX = UUID.randomUUID().toString();
 	private final static AtomicLong ID_SUFFIX = new AtomicLong(0);
 	final String id;
@@ -50,6 +60,9 @@ public class Job<I extends Serializable, R extends Serializable, M extends IExec
 	/** True if the job must be executed in a new class loader */
 	private boolean reloadClasses = false;
 
+	/** The scheduling class of the job */
+	private Priority priority = Priority.THROUGHPUT;
+
 	/** The name of the execution manager to use */
 	private final String execManager;
 
@@ -83,6 +96,18 @@ public class Job<I extends Serializable, R extends Serializable, M extends IExec
 		this.reloadClasses = reloadClasses;
 	}
 
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the scheduling class of the job (by default, {@link Priority#THROUGHPUT})
+	 * @param priority the scheduling class of the job
+	 */
+	public void setPriority(Priority priority) {
+		this.priority = priority;
+	}
+
 	public DataFinder getFinder() {
 		return finder;
 	}
@@ -0,0 +1,200 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded queue of jobs, with a sub-queue for each priority class and data finder's key.
+ * Jobs with a higher priority are taken first, unless a job with a lower priority
+ * has been waiting for more than the starvation threshold.
+ * Within a priority class, jobs are taken in FIFO order, but a taker can express a (soft) affinity for some keys:
+ * it receives the oldest job with one of those keys, unless the oldest job of the class
+ * has been waiting for more than the affinity window.
+ *
+ * @author matteo
+ */
+class JobQueue {
+
+	/** A job in queue */
+	private static class Entry {
+		final Job<?,?,?> job;
+		final String key;
+		final int priority;
+		final long seq;
+		final long time;
+
+		public Entry(Job<?,?,?> job, String key, long seq) {
+			this.job = job;
+			this.key = key;
+			priority = job.getPriority().ordinal();
+			this.seq = seq;
+			time = System.currentTimeMillis();
+		}
+	}
+
+	private static final int PRIORITIES = Job.Priority.values().length;
+
+	private final int capacity;
+
+	/** the affinity window (ms) */
+	private final long window;
+
+	/** the starvation threshold (ms) */
+	private final long starvation;
+
+	/** For each priority class, the jobs in queue. Key: data finder's key; Value: the jobs in queue with that key */
+	private final List<Map<String, LinkedList<Entry>>> queues;
+
+	/** the number of jobs in queue, for each priority class */
+	private final int[] sizes = new int[PRIORITIES];
+
+	private int size = 0;
+	private long seq = 0;
+
+	/**
+	 * Creates a new queue
+	 * @param capacity the maximum number of jobs in queue
+	 * @param window the maximum time (ms) a job can wait because of the affinity of takers for other keys
+	 * @param starvation the maximum time (ms) a job can wait because of jobs with a higher priority
+	 */
+	public JobQueue(int capacity, long window, long starvation) {
+		this.capacity = capacity;
+		this.window = window;
+		this.starvation = starvation;
+
+		queues = new ArrayList<Map<String, LinkedList<Entry>>>(PRIORITIES);
+		for (int i = 0; i < PRIORITIES; i++)
+			queues.add(new LinkedHashMap<String, LinkedList<Entry>>());
+	}
+
+	/**
+	 * Adds a job, waiting if the queue is full
+	 * @param job the job
+	 * @param key the key of the data finder of the job
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized void put(Job<?,?,?> job, String key) throws InterruptedException {
+		while(size >= capacity) wait();
+		add(job, key);
+	}
+
+	/**
+	 * Adds a job, if the queue is not full
+	 * @param job the job
+	 * @param key the key of the data finder of the job
+	 * @return true if the job has been added
+	 */
+	public synchronized boolean offer(Job<?,?,?> job, String key) {
+		if(size >= capacity) return false;
+		add(job, key);
+		return true;
+	}
+
+	private void add(Job<?,?,?> job, String key) {
+		final Entry e = new Entry(job, key, seq++);
+
+		final Map<String, LinkedList<Entry>> queue = queues.get(e.priority);
+		LinkedList<Entry> q = queue.get(key);
+		if(q == null) {
+			q = new LinkedList<Entry>();
+			queue.put(key, q);
+		}
+
+		q.add(e);
+		sizes[e.priority]++;
+		size++;
+		notifyAll();
+	}
+
+	/** @return the oldest job in queue with the given priority */
+	private Entry getOldest(int priority) {
+		Entry ret = null;
+		for (LinkedList<Entry> q : queues.get(priority).values())
+			if(ret == null || q.getFirst().seq < ret.seq) ret = q.getFirst();
+
+		return ret;
+	}
+
+	/**
+	 * Takes a job, waiting if the queue is empty
+	 * @param affinity the keys preferred by the taker (null if it has no preference)
+	 * @return the job
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized Job<?,?,?> take(Collection<String> affinity) throws InterruptedException {
+		while(size == 0) wait();
+
+		final long now = System.currentTimeMillis();
+
+		// the oldest job of the highest priority class, or the oldest starving job
+		Entry chosen = null;
+		for (int p = 0; p < PRIORITIES; p++) {
+			if(sizes[p] == 0) continue;
+
+			Entry oldest = getOldest(p);
+			if(chosen == null) chosen = oldest;
+			else if(now - oldest.time > starvation && oldest.seq < chosen.seq) chosen = oldest;
+		}
+
+		final Map<String, LinkedList<Entry>> queue = queues.get(chosen.priority);
+
+		if(affinity != null && window > 0 && now - chosen.time < window) {
+			Entry preferred = null;
+			for (String key : affinity) {
+				LinkedList<Entry> q = queue.get(key);
+				if(q != null && (preferred == null || q.getFirst().seq < preferred.seq)) preferred = q.getFirst();
+			}
+
+			if(preferred != null) chosen = preferred;
+		}
+
+		LinkedList<Entry> q = queue.get(chosen.key);
+		q.removeFirst();
+		if(q.isEmpty()) queue.remove(chosen.key);
+
+		sizes[chosen.priority]--;
+		size--;
+		notifyAll();
+
+		return chosen.job;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int p = 0; p < PRIORITIES; p++) {
+			if(p > 0) sb.append(", ");
+			sb.append(Job.Priority.values()[p]).append(": ").append(sizes[p]);
+		}
+		return sb.toString();
+	}
+}
@@ -139,7 +139,7 @@ public class Launcher {
 			Scanner s = new Scanner(System.in);
 			while(true) {
 				System.out.println("\n" + wm.toString());
-				System.out.println("\nEnter a RMI URL or type exit to quit");
+				System.out.println("\nEnter a RMI URL (or socket://host:port) or type exit to quit");
 				String line = s.nextLine().trim();
 
 				if(line.length() <= 0) {
@@ -0,0 +1,137 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the load of a WorkerManager, periodically sent to its job repositories.
+ * Times are in milliseconds; latencies refer to the jobs completed since the previous report.
+ *
+ * @author matteo
+ */
+public class LoadReport implements Serializable {
+
+	private static final long serialVersionUID = -2860934146390829781L;
+
+	private final String name;
+	private final long timestamp;
+
+	private final int workers;
+	private final int waiting;
+	private final int running;
+	private final long completed;
+
+	private final long latencyP50;
+	private final long latencyP99;
+
+	private final long classLoadingTime;
+	private final long gcTime;
+
+	private final long usedHeap;
+	private final long maxHeap;
+
+	public LoadReport(String name, int workers, int waiting, int running, long completed, long latencyP50, long latencyP99, long classLoadingTime, long gcTime, long usedHeap, long maxHeap) {
+		this.name = name;
+		timestamp = System.currentTimeMillis();
+		this.workers = workers;
+		this.waiting = waiting;
+		this.running = running;
+		this.completed = completed;
+		this.latencyP50 = latencyP50;
+		this.latencyP99 = latencyP99;
+		this.classLoadingTime = classLoadingTime;
+		this.gcTime = gcTime;
+		this.usedHeap = usedHeap;
+		this.maxHeap = maxHeap;
+	}
+
+	/** @return the name of the WorkerManager */
+	public String getName() {
+		return name;
+	}
+
+	/** @return when the report has been created (on the WorkerManager's clock) */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/** @return the number of worker threads */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/** @return the number of jobs waiting in the WorkerManager's queue */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	/** @return the number of jobs being executed */
+	public int getRunning() {
+		return running;
+	}
+
+	/** @return the number of jobs completed since the WorkerManager started */
+	public long getCompleted() {
+		return completed;
+	}
+
+	/** @return the median latency of jobs, or -1 if no job has been completed since the previous report */
+	public long getLatencyP50() {
+		return latencyP50;
+	}
+
+	/** @return the 99th percentile of the latency of jobs, or -1 if no job has been completed since the previous report */
+	public long getLatencyP99() {
+		return latencyP99;
+	}
+
+	/** @return the time spent loading classes since the WorkerManager started */
+	public long getClassLoadingTime() {
+		return classLoadingTime;
+	}
+
+	/** @return the time spent in garbage collection since the JVM started */
+	public long getGcTime() {
+		return gcTime;
+	}
+
+	/** @return the used heap (bytes) */
+	public long getUsedHeap() {
+		return usedHeap;
+	}
+
+	/** @return the maximum heap (bytes) */
+	public long getMaxHeap() {
+		return maxHeap;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name);
+
+		sb.append(": ").append(workers).append(" workers");
+		sb.append("; jobs: ").append(waiting).append(" waiting, ").append(running).append(" running, ").append(completed).append(" completed");
+		if(latencyP50 >= 0) sb.append("; latency: p50 ").append(latencyP50).append(" ms, p99 ").append(latencyP99).append(" ms");
+		sb.append("; class loading: ").append(classLoadingTime).append(" ms");
+		sb.append("; gc: ").append(gcTime).append(" ms");
+		sb.append("; mem: ").append(usedHeap/(1024*1024)).append("/").append(maxHeap/(1024*1024)).append(" Mb");
+
+		return sb.toString();
+	}
+}
@@ -18,7 +18,10 @@
 
 package testful.runner;
 
-import java.rmi.RemoteException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,33 +49,133 @@ public class ObjectRegistry {
 		}
 	}
 
-	private final CachingMap<String, ISerializable> cache = new CachingMap<String, ISerializable>(50, 5 * 60 * 1000,  1 * 60 * 1000);
+	/** Entries of the cache older than this amount of time (ms) are validated again (i.e., the hash of the object is checked) */
+	private static final long MAX_AGE = 5 * 60 * 1000;
+
+	/** When the cache contains more than MAX_ENTRIES entries, the expired ones are removed */
+	private static final int MAX_ENTRIES = 50;
+
+	/**
+	 * An object retrieved by a thread: other threads asking for the same identifier
+	 * wait for it, without blocking the retrieval of other objects.
+	 */
+	private static class Entry {
+
+		private final long creation = System.currentTimeMillis();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile ISerializable object;
+
+		void set(ISerializable object) {
+			this.object = object;
+			done.countDown();
+		}
+
+		boolean isExpired(long now) {
+			return done.getCount() == 0 && now - creation > MAX_AGE;
+		}
+
+		ISerializable get() {
+			boolean interrupted = false;
+			while(true) {
+				try {
+					done.await();
+					break;
+				} catch(InterruptedException e) {
+					interrupted = true;
+				}
+			}
+
+			if(interrupted) Thread.currentThread().interrupt();
+			return object;
+		}
+	}
+
+	/** Key: object identifier; Value: the object (possibly being retrieved) */
+	private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+	/** Key: hash of the object; Value: the object. Entries never expire: the least recently used one is removed when the map is full */
+	private final CachingMap<String, ISerializable> objects = new CachingMap<String, ISerializable>(50, Long.MAX_VALUE, Long.MAX_VALUE);
 
 	private final DataFinder finder;
 	private final ClassLoader classLoader;
+	private final ObjectType.Codec codec;
 	private ObjectRegistry(RemoteClassLoader loader) {
-		finder = loader.getFinder();
-		classLoader = loader;
+		this(loader.getFinder(), loader);
+	}
+
+	ObjectRegistry(DataFinder finder, ClassLoader classLoader) {
+		this.finder = finder;
+		this.classLoader = classLoader;
+		codec = ObjectType.Codec.choose(finder);
 	}
 
+	/**
+	 * Returns the object with the given identifier.
+	 * Cached objects are returned without acquiring any lock;
+	 * otherwise, the object is retrieved once, while the other threads asking for it wait.
+	 * @param identifier the identifier of the object
+	 * @return the object, or null if it cannot be retrieved
+	 */
 	public ISerializable getObject(String identifier) {
 
 		// check the cache of the objects
-		CachingMap.Cacheable<ISerializable> tmp = cache.get(identifier);
-		if(tmp != null)
-			return tmp.getElement();
+		Entry entry = cache.get(identifier);
+		if(entry != null) {
+			if(!entry.isExpired(System.currentTimeMillis())) return entry.get();
+			cache.remove(identifier, entry);
+		}
+
+		entry = new Entry();
+		Entry other = cache.putIfAbsent(identifier, entry);
+		if(other != null) return other.get();
 
+		ISerializable object = null;
 		try {
+			object = retrieve(identifier);
+		} finally {
+			entry.set(object);
+
+			// failed retrievals are not cached
+			if(object == null) cache.remove(identifier, entry);
+		}
+
+		if(cache.size() > MAX_ENTRIES) {
+			final long now = System.currentTimeMillis();
+			for (Iterator<Entry> it = cache.values().iterator(); it.hasNext(); )
+				if(it.next().isExpired(now)) it.remove();
+		}
 
+		return object;
+	}
+
+	private ISerializable retrieve(String identifier) {
+		try {
+
+			// retrieve the (small) descriptor of the object
 			byte[] b = finder.getData(ObjectType.NAME, identifier);
 			if(b == null) return null;
+			final ObjectType.Descriptor descriptor = ObjectType.Descriptor.read(b);
+
+			// if the content of the object has not changed, reuse it
+			synchronized(objects) {
+				CachingMap.Cacheable<ISerializable> known = objects.get(descriptor.getHash());
+				if(known != null) return known.getElement();
+			}
+
+			// stream the payload of the object
+			ISerializable object = (ISerializable) SerializationUtils.deserialize(ObjectType.openStream(finder, descriptor.getHash(), codec), classLoader);
+			if(object == null) return null;
+
+			synchronized(objects) {
+				CachingMap.Cacheable<ISerializable> known = objects.get(descriptor.getHash());
+				if(known != null) return known.getElement();
 
-			ISerializable object = (ISerializable) SerializationUtils.deserialize(b, ObjectType.COMPRESS, classLoader);
-			cache.put(identifier, new Cacheable<ISerializable>(object));
+				objects.put(descriptor.getHash(), new Cacheable<ISerializable>(object));
+			}
 
 			return object;
 
-		} catch (RemoteException exc) {
+		} catch (IOException exc) {
 			logger.log(Level.WARNING, exc.getMessage(), exc);
 			return null;
 		}
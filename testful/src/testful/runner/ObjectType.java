@@ -18,22 +18,83 @@
 
 package testful.runner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
 import java.rmi.RemoteException;
-import java.util.HashMap;
+import java.rmi.server.RemoteObject;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+import testful.TestFul;
 import testful.utils.SerializationUtils;
 
 /**
  * Allows one to provide the executor with objects, which will be serialized, transferred, and cached automatically.
+ * Objects are stored once for each distinct content (identified by the hash of their serialized form).
+ * Requesting an object identifier returns only a small descriptor (the content hash and the size of the object),
+ * which can be used to check whether a cached copy is still valid;
+ * the actual payload is transferred in chunks, and it is compressed on demand with the codec chosen by the requester.
  * @author matteo
  */
 public class ObjectType implements DataType {
+
+	private static final Logger logger = Logger.getLogger("testful.executor");
+
 	public static final String NAME = "object";
 
-	public static final boolean COMPRESS = false;
+	/** The size of each chunk used to transfer the payload of an object */
+	public static final int CHUNK_SIZE = 64 * 1024;
+
+	/** Separates the parts of a request for a chunk: hash#codec#chunkNumber */
+	private static final String SEPARATOR = "#";
+
+	/** The encoding used to transfer the payload of objects */
+	public static enum Codec {
+		/** The serialized object is transferred as is (the best option for local transfers) */
+		NONE,
+		/** The serialized object is compressed using deflate (the best option for slow links) */
+		DEFLATE;
+
+		/**
+		 * Chooses the codec to use to retrieve objects from the given finder.
+		 * The user can force a codec by using the {@link TestFul#PROPERTY_RUNNER_COMPRESSION} property;
+		 * by default objects are compressed only if the finder is remote.
+		 * @param finder the finder used to retrieve objects
+		 * @return the codec to use
+		 */
+		public static Codec choose(DataFinder finder) {
+			final String prop = TestFul.getProperty(TestFul.PROPERTY_RUNNER_COMPRESSION, "auto").trim();
+
+			if(!prop.equalsIgnoreCase("auto")) {
+				try {
+					return Codec.valueOf(prop.toUpperCase());
+				} catch(IllegalArgumentException e) {
+					logger.warning("Unknown compression codec " + prop + ": using the automatic selection");
+				}
+			}
 
-	private final Map<String, byte[]> map = new HashMap<String, byte[]>();
+			return isRemote(finder) ? DEFLATE : NONE;
+		}
+	}
+
+	/** Key: object identifier; Value: hash of the serialized object */
+	private final Map<String, String> hashes = new ConcurrentHashMap<String, String>();
+
+	/** Key: hash of the serialized object; Value: the serialized object */
+	private final Map<String, Payload> payloads = new ConcurrentHashMap<String, Payload>();
 
 	public ObjectType() {
 	}
@@ -61,8 +122,15 @@ public class ObjectType implements DataType {
 		String id = obj.getISerializableIdentifier();
 
 		// if it is a new object, insert it in the map
-		if(!map.containsKey(id))
-			map.put(id, SerializationUtils.serialize(obj, COMPRESS));
+		if(!hashes.containsKey(id)) {
+			final byte[] serialized = SerializationUtils.serialize(obj, false);
+			final String hash = hash(serialized);
+
+			if(!payloads.containsKey(hash))
+				payloads.put(hash, new Payload(serialized));
+
+			hashes.put(id, hash);
+		}
 
 		return id;
 	}
@@ -77,11 +145,240 @@ public class ObjectType implements DataType {
 		return false;
 	}
 
-	/* (non-Javadoc)
+	/**
+	 * Serves both descriptors and chunks of objects:
+	 * <ul>
+	 * <li><code>objectId</code> returns the descriptor of the object (see {@link Descriptor})</li>
+	 * <li><code>hash#codec#n</code> returns the n-th chunk of the payload with the given hash, encoded with the given codec.
+	 * The last chunk is shorter than {@link ObjectType#CHUNK_SIZE} (it can be empty).</li>
+	 * </ul>
 	 * @see testful.runner.DataType#getData(java.lang.String)
 	 */
 	@Override
 	public byte[] getData(String identifier) throws RemoteException {
-		return map.get(identifier);
+		if(!isChunkRequest(identifier)) {
+			final String hash = hashes.get(identifier);
+			if(hash == null) return null;
+
+			return new Descriptor(hash, payloads.get(hash).raw.length).toByteArray();
+		}
+
+		final String[] parts = identifier.split(SEPARATOR);
+		if(parts.length != 3) return null;
+
+		final Payload payload = payloads.get(parts[0]);
+		if(payload == null) return null;
+
+		try {
+			final byte[] encoded = payload.get(Codec.valueOf(parts[1]));
+			final int chunk = Integer.parseInt(parts[2]);
+
+			final int start = Math.min(encoded.length, chunk * CHUNK_SIZE);
+			final int end = Math.min(encoded.length, start + CHUNK_SIZE);
+
+			final byte[] ret = new byte[end - start];
+			System.arraycopy(encoded, start, ret, 0, ret.length);
+			return ret;
+
+		} catch(IllegalArgumentException e) {
+			logger.log(Level.WARNING, "Invalid request for object chunk " + identifier, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if the identifier refers to a chunk of the payload of an object
+	 * @param identifier the identifier of the data being requested
+	 * @return true if the identifier refers to a chunk of payload
+	 */
+	public static boolean isChunkRequest(String identifier) {
+		return identifier.contains(SEPARATOR);
+	}
+
+	/**
+	 * Checks if the finder is remote (i.e., if it - or the finder it is caching - is a RMI stub, or it uses the socket transport)
+	 * @param finder the finder
+	 * @return true if the finder is remote
+	 */
+	public static boolean isRemote(DataFinder finder) {
+		if(finder instanceof DataFinderCaching)
+			finder = ((DataFinderCaching) finder).getFinder();
+
+		return finder instanceof RemoteObject || Proxy.isProxyClass(finder.getClass()) || finder instanceof SocketJobRepository.RemoteFinder;
+	}
+
+	/**
+	 * Opens a stream on the payload of an object, retrieving its chunks on demand
+	 * @param finder the finder to use to retrieve the chunks
+	 * @param hash the hash of the object
+	 * @param codec the codec to use in the transfer
+	 * @return the stream containing the serialized object
+	 */
+	public static InputStream openStream(DataFinder finder, String hash, Codec codec) {
+		final InputStream in = new ChunkInputStream(finder, hash, codec);
+
+		switch(codec) {
+		case DEFLATE: return new InflaterInputStream(in);
+		default: return in;
+		}
+	}
+
+	/**
+	 * Calculates the content hash of the given serialized object
+	 * @param serialized the serialized object
+	 * @return the hash of the serialized object
+	 */
+	public static String hash(byte[] serialized) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(serialized);
+
+			final StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest)
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+			return sb.toString();
+
+		} catch(NoSuchAlgorithmException e) {
+			// never happens: SHA-1 is available in every java platform
+			logger.log(Level.WARNING, e.getMessage(), e);
+			return Integer.toHexString(Arrays.hashCode(serialized)) + "-" + serialized.length;
+		}
+	}
+
+	/**
+	 * Describes an object: it contains the hash of its content and the size of its serialized form.
+	 * @author matteo
+	 */
+	public static class Descriptor {
+
+		private final String hash;
+		private final int length;
+
+		public Descriptor(String hash, int length) {
+			this.hash = hash;
+			this.length = length;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public byte[] toByteArray() {
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(baos);
+				out.writeUTF(hash);
+				out.writeInt(length);
+				out.close();
+				return baos.toByteArray();
+			} catch(IOException e) {
+				// never happens: it is an in-memory stream
+				logger.log(Level.WARNING, e.getMessage(), e);
+				return null;
+			}
+		}
+
+		public static Descriptor read(byte[] b) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+			return new Descriptor(in.readUTF(), in.readInt());
+		}
+	}
+
+	/**
+	 * Holds the serialized object, and lazily creates its encoded versions
+	 * @author matteo
+	 */
+	private static class Payload {
+
+		private final byte[] raw;
+		private byte[] deflated;
+
+		public Payload(byte[] raw) {
+			this.raw = raw;
+		}
+
+		public byte[] get(Codec codec) {
+			switch(codec) {
+			case DEFLATE: return getDeflated();
+			default: return raw;
+			}
+		}
+
+		private synchronized byte[] getDeflated() {
+			if(deflated == null) {
+				// DeflaterOutputStream does not release the native memory of a Deflater provided by the caller
+				final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+				try {
+					ByteArrayOutputStream baos = new ByteArrayOutputStream(raw.length / 4);
+					DeflaterOutputStream out = new DeflaterOutputStream(baos, deflater);
+					out.write(raw);
+					out.close();
+					deflated = baos.toByteArray();
+				} catch(IOException e) {
+					// never happens: it is an in-memory stream
+					logger.log(Level.WARNING, e.getMessage(), e);
+					return null;
+				} finally {
+					deflater.end();
+				}
+			}
+
+			return deflated;
+		}
+	}
+
+	/**
+	 * Reads the payload of an object chunk by chunk
+	 * @author matteo
+	 */
+	private static class ChunkInputStream extends InputStream {
+
+		private final DataFinder finder;
+		private final String prefix;
+
+		private int next = 0;
+		private byte[] chunk = new byte[0];
+		private int pos = 0;
+		private boolean last = false;
+
+		public ChunkInputStream(DataFinder finder, String hash, Codec codec) {
+			this.finder = finder;
+			prefix = hash + SEPARATOR + codec.name() + SEPARATOR;
+		}
+
+		private boolean fill() throws IOException {
+			while(pos >= chunk.length) {
+				if(last) return false;
+
+				chunk = finder.getData(NAME, prefix + next++);
+				if(chunk == null) throw new IOException("Cannot retrieve chunk " + (next-1) + " of object " + prefix);
+
+				pos = 0;
+				last = chunk.length < CHUNK_SIZE;
+			}
+
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if(!fill()) return -1;
+			return chunk[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) return 0;
+			if(!fill()) return -1;
+
+			final int n = Math.min(len, chunk.length - pos);
+			System.arraycopy(chunk, pos, b, off, n);
+			pos += n;
+			return n;
+		}
 	}
 }
@@ -49,7 +49,6 @@ public class RemoteClassLoader extends ClassLoader implements ElementWithKey<Str
 		"testful.coverage.behavior.BehaviorTracker",
 		"testful.coverage.fault.FaultTracker",
 		"testful.coverage.stopper.Stopper",
-		"testful.coverage.stopper.Stopper$1",
 		"testful.coverage.whiteBox.TrackerWhiteBox",
 
 		// Execution Managers
@@ -59,6 +58,7 @@ public class RemoteClassLoader extends ClassLoader implements ElementWithKey<Str
 		"testful.coverage.CoverageTestExecutor",
 		"testful.model.OperationResultTestExecutor",
 		"testful.regression.TestfulTestCase$FaultTestExecutor",
+		"testful.evolutionary.IslandExecutor",
 
 		// Test Executor
 		"testful.model.executor.ReflectionExecutor",
@@ -68,6 +68,7 @@ public class RemoteClassLoader extends ClassLoader implements ElementWithKey<Str
 		"testful.model.ClassRegistry$1", // Fix for the sun compiler
 		"testful.runner.Executor",
 		"testful.runner.ObjectRegistry",
+		"testful.runner.ObjectRegistry$Entry",
 	};
 
 	/** for these packages, use always the system class loader */
@@ -159,22 +160,16 @@ public class RemoteClassLoader extends ClassLoader implements ElementWithKey<Str
 
 	}
 
-	/** Total time used by method findClass */
-	private long time;
+	/** Total time used by method findClass (updated while holding the finder's lock) */
+	private volatile long time;
 
 	/**
-	 * Returns the amount of time spent to load classes (and reset the counter)
+	 * Returns the total amount of time spent to load classes.
+	 * It does not acquire any lock.
 	 * @return the amount of time (ms) spent to load classes
 	 */
 	public long getLoadingTime() {
-
-		final long ret;
-		synchronized (finder) {
-			ret = time;
-			time = 0;
-		}
-
-		return ret;
+		return time;
 	}
 
 
@@ -18,6 +18,7 @@
 
 package testful.runner;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
@@ -27,19 +28,24 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import testful.TestFul;
 import testful.utils.ElementManager;
 import testful.utils.ElementWithKey;
+import testful.utils.LogHistogram;
 
 public class RunnerPool implements IRunner, IJobRepository {
 
@@ -59,20 +65,67 @@ public class RunnerPool implements IRunner, IJobRepository {
 	private final ElementManager<String, TestfulFuture<?>> futures;
 
 	/** jobs in queue */
-	private final BlockingQueue<Job<?,?,?>> jobs;
+	private final JobQueue jobs;
 
-	/** jobs being evaluated */
-	private final ConcurrentHashMap<String, Job<?,?,?>> jobsEval;
+	/** Maximum time (ms) a job waits because WorkerManagers prefer jobs whose classes are already loaded */
+	private static final long AFFINITY = TestFul.getProperty(TestFul.PROPERTY_RUNNER_AFFINITY, 1000);
+
+	/** Maximum time (ms) a job waits because of jobs with a higher priority */
+	private static final long STARVATION = TestFul.getProperty(TestFul.PROPERTY_RUNNER_STARVATION, 5000);
+
+	/** Number of data finders' keys whose class loaders are supposed to be warm in a WorkerManager (see WorkerManager.MAX_ELEMS) */
+	private static final int WARM_KEYS = 3;
+
+	/** jobs submitted and not yet completed (either in queue or being evaluated) */
+	private final ConcurrentHashMap<String, InFlight> jobsEval;
+
+	/** Re-dispatch jobs not completed within this amount of time (ms) */
+	private static final long DEADLINE = TestFul.getProperty(TestFul.PROPERTY_RUNNER_DEADLINE, 300000);
+
+	/**
+	 * Returns the time within which the result of a job must arrive before the job is dispatched again
+	 * @return the deadline of jobs (ms), or 0 if there is no deadline
+	 */
+	public static long getDeadline() {
+		return Math.max(0, DEADLINE);
+	}
+
+	/** Maximum number of times a job is dispatched */
+	private static final int ATTEMPTS = Math.max(1, TestFul.getProperty(TestFul.PROPERTY_RUNNER_ATTEMPTS, 3));
+
+	/** Speculatively re-dispatch jobs running for longer than this multiple of the p99 latency */
+	private static final int SPECULATE = TestFul.getProperty(TestFul.PROPERTY_RUNNER_SPECULATE, 2);
+
+	/** the minimum number of completed jobs before speculating */
+	private static final int SPECULATE_MIN_SAMPLES = 10;
+
+	/** Interval between two checks of the jobs being evaluated (ms) */
+	private static final long CHECK_PERIOD = 1000;
+
+	/** Maximum number of jobs handed out to a WorkerManager, for each of its workers */
+	private static final int DISPATCH_DEPTH = Math.max(1, TestFul.getProperty(TestFul.PROPERTY_RUNNER_DISPATCH_DEPTH, 2));
+
+	/** The WorkerManagers fetching jobs. Key: name of the WorkerManager */
+	private final ConcurrentHashMap<String, Node> nodes;
+
+	/** the time elapsed between the dispatch of jobs and their result (ms), for jobs dispatched once */
+	private final LogHistogram latency = new LogHistogram();
+
+	/** the number of samples in {@link #latency} */
+	private final AtomicInteger latencySamples = new AtomicInteger();
+
+	private final long deadline;
+	private final int attempts;
+	private final int speculate;
+	private final long checkPeriod;
+
+	/** the thread checking the jobs being evaluated (null if there is nothing to check) */
+	private final Thread maintenance;
 
 	private final String name;
 
 	private RunnerPool() {
-		int testBuffer = TestFul.getProperty(TestFul.PROPERTY_RUNNER_TESTREPOSITORY_JOBS, 1000);
-		jobs = new ArrayBlockingQueue<Job<?,?,?>>(testBuffer);
-		name = "testful-" + TestFul.runId;
-
-		futures = new ElementManager<String, TestfulFuture<?>>(new ConcurrentHashMap<String, TestfulFuture<?>>());
-		jobsEval = new ConcurrentHashMap<String, Job<?,?,?>>();
+		this(DEADLINE, ATTEMPTS, SPECULATE, CHECK_PERIOD);
 
 		if(LOG_FINE) logger.fine("Created Runner Pool ");
 
@@ -86,6 +139,16 @@ public class RunnerPool implements IRunner, IJobRepository {
 			}
 		}
 
+		int socketPort = TestFul.getProperty(TestFul.PROPERTY_RUNNER_SOCKET, 0);
+		if(socketPort > 0) {
+			try {
+				SocketJobRepositoryServer server = new SocketJobRepositoryServer(this, socketPort);
+				logger.info("Accepting workers at " + SocketTransport.SCHEME + "<host>:" + server.getPort());
+			} catch(IOException e) {
+				logger.log(Level.WARNING, "Socket transport disabled", e);
+			}
+		}
+
 		if(TestFul.getProperty(TestFul.PROPERTY_RUNNER_REMOTE, false)) {
 			Registry registry = null;
 			try {
@@ -140,6 +203,58 @@ public class RunnerPool implements IRunner, IJobRepository {
 		}
 	}
 
+	/**
+	 * Creates a pool without workers
+	 * @param deadline re-dispatch jobs not completed within this amount of time (ms; 0 disables it)
+	 * @param attempts the maximum number of times a job is dispatched
+	 * @param speculate speculatively re-dispatch jobs running for longer than this multiple of the p99 latency (0 disables it)
+	 * @param checkPeriod the interval between two checks of the jobs being evaluated (ms)
+	 */
+	RunnerPool(long deadline, int attempts, int speculate, long checkPeriod) {
+		this.deadline = deadline;
+		this.attempts = Math.max(1, attempts);
+		this.speculate = speculate;
+		this.checkPeriod = checkPeriod;
+
+		int testBuffer = TestFul.getProperty(TestFul.PROPERTY_RUNNER_TESTREPOSITORY_JOBS, 1000);
+		jobs = new JobQueue(testBuffer, AFFINITY, STARVATION);
+		name = "testful-" + TestFul.runId;
+
+		futures = new ElementManager<String, TestfulFuture<?>>(new ConcurrentHashMap<String, TestfulFuture<?>>());
+		jobsEval = new ConcurrentHashMap<String, InFlight>();
+		nodes = new ConcurrentHashMap<String, Node>();
+
+		// the maintenance runs in its own thread: the TimeoutScheduler is reserved to the deadlines of tests
+		if(deadline > 0 || speculate > 0) {
+			maintenance = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while(true) {
+							Thread.sleep(RunnerPool.this.checkPeriod);
+							try {
+								check();
+							} catch(RuntimeException e) {
+								logger.log(Level.WARNING, "Cannot check the jobs being evaluated: " + e.getMessage(), e);
+							}
+						}
+					} catch(InterruptedException e) {
+						// the pool has been stopped
+					}
+				}
+			}, "RunnerPool-maintenance");
+			maintenance.setDaemon(true);
+			maintenance.start();
+		} else {
+			maintenance = null;
+		}
+	}
+
+	/** Stops checking the jobs being evaluated */
+	void stop() {
+		if(maintenance != null) maintenance.interrupt();
+	}
+
 	@Override
 	public boolean addRemoteWorker(String rmiAddress) {
 		if(rmiAddress == null) return false;
@@ -167,9 +282,11 @@ public class RunnerPool implements IRunner, IJobRepository {
 	public <I extends Serializable, R extends Serializable> Future<R> execute(Job<I, R, ? extends IExecutor<I,R>> ctx) {
 		TestfulFuture<R> ret = new TestfulFuture<R>(ctx.id);
 		futures.put(ret);
+		InFlight f = new InFlight(ctx);
+		jobsEval.put(ctx.id, f);
 
 		try {
-			jobs.put(ctx);
+			jobs.put(ctx, f.key);
 		} catch(InterruptedException e) {
 			// this should not happens
 			logger.log(Level.WARNING, e.getMessage(), e);
@@ -180,24 +297,124 @@ public class RunnerPool implements IRunner, IJobRepository {
 
 	@Override
 	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I,R>> getJob() throws RemoteException {
+		return takeJob(null);
+	}
+
+	/**
+	 * Takes a job from the queue, preferring the ones whose classes are already loaded in the node
+	 * @param node the WorkerManager fetching the job (null if unknown)
+	 * @return the job
+	 * @throws RemoteException if interrupted
+	 */
+	private <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I,R>> takeJob(Node node) throws RemoteException {
 		try {
+			while(true) {
+				@SuppressWarnings("unchecked")
+				Job<I, R, ? extends IExecutor<I, R>> ret = (Job<I, R, ? extends IExecutor<I, R>>) jobs.take(node == null ? null : node.getKeys());
+
+				// skip re-dispatched jobs completed in the meantime
+				InFlight f = jobsEval.get(ret.id);
+				if(f != null && f.dispatched()) {
+					if(node != null) node.used(f.key);
+					return ret;
+				}
+			}
 
-			@SuppressWarnings("unchecked")
-			Job<I, R, ? extends IExecutor<I, R>> ret = (Job<I, R, ? extends IExecutor<I, R>>) jobs.take();
-			jobsEval.put(ret.id, ret);
+		} catch(InterruptedException e) {
+			throw new RemoteException("Cannot take the test", e);
+		}
+	}
 
-			return ret;
+	/**
+	 * Hands out a job to the given WorkerManager.
+	 * Once the WorkerManager has sent a load report, the number of jobs it is executing is
+	 * bounded by its number of workers (times {@link TestFul#PROPERTY_RUNNER_DISPATCH_DEPTH}):
+	 * jobs are thus dispatched to the WorkerManagers that complete them faster, instead of
+	 * piling up in the queue of slow or overloaded ones.
+	 */
+	@Override
+	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob(String runner) throws RemoteException {
+		Node node = getNode(runner);
 
+		try {
+			node.acquire();
 		} catch(InterruptedException e) {
 			throw new RemoteException("Cannot take the test", e);
 		}
+
+		try {
+			Job<I, R, ? extends IExecutor<I, R>> ret = takeJob(node);
+
+			InFlight f = jobsEval.get(ret.id);
+			if(f != null) f.addNode(node);
+			else node.release();
+
+			return ret;
+
+		} catch(RemoteException e) {
+			node.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void putLoadReport(LoadReport report) {
+		if(LOG_FINER) logger.finer("Load report: " + report);
+		getNode(report.getName()).setReport(report);
+	}
+
+	/**
+	 * Returns a snapshot of the latest load reports received from WorkerManagers
+	 * @return the load reports. Key: the name of the WorkerManager
+	 */
+	public Map<String, LoadReport> getLoadReports() {
+		Map<String, LoadReport> ret = new TreeMap<String, LoadReport>();
+
+		for (Node node : nodes.values()) {
+			LoadReport report = node.getReport();
+			if(report != null) ret.put(report.getName(), report);
+		}
+
+		return ret;
+	}
+
+	private Node getNode(String name) {
+		Node node = nodes.get(name);
+		if(node == null) {
+			Node prev = nodes.putIfAbsent(name, node = new Node());
+			if(prev != null) node = prev;
+		}
+
+		return node;
+	}
+
+	/**
+	 * Marks a job as completed
+	 * @param key the id of the job
+	 * @return true if this is the first result of the job
+	 */
+	private boolean completed(String key) {
+		InFlight f = jobsEval.remove(key);
+		if(f == null) {
+			if(LOG_FINE) logger.fine("Discarding a late result of " + key);
+			return false;
+		}
+
+		final long elapsed = f.getLatency(System.currentTimeMillis());
+		if(elapsed >= 0) {
+			latency.record(elapsed);
+			latencySamples.incrementAndGet();
+		}
+
+		f.releaseNodes();
+		return true;
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public void putResult(String key, Serializable result) {
 
-		jobsEval.remove(key);
+		if(!completed(key)) return;
 		TestfulFuture<Serializable> future = (TestfulFuture<Serializable>) futures.remove(key);
 
 		if(future == null) logger.warning("Future with " + key + " not found");
@@ -207,13 +424,234 @@ public class RunnerPool implements IRunner, IJobRepository {
 	@Override
 	public void putException(String key, Exception exc) throws RemoteException {
 
-		jobsEval.remove(key);
+		if(!completed(key)) return;
 		TestfulFuture<?> future = futures.remove(key);
 
 		if(future == null) logger.warning("Future with " + key + " not found");
 		else future.setException(exc);
 	}
 
+	@Override
+	public void putBack(String key) {
+		InFlight f = jobsEval.get(key);
+		if(f == null) return; // completed in the meantime
+
+		if(LOG_FINE) logger.fine("Job " + key + " has been given back: dispatching it again");
+		redispatch(f);
+	}
+
+	/**
+	 * Periodically checks the jobs being evaluated.
+	 * Jobs exceeding the deadline are dispatched again (or failed, after too many attempts).
+	 * When there are no more jobs in queue, the slowest jobs are speculatively dispatched again,
+	 * so that a straggler does not delay the whole batch: the first result wins.
+	 * Both the age of jobs and their latency are measured from their dispatch (i.e., they include
+	 * the time spent in the queue of the WorkerManager).
+	 */
+	private void check() {
+		final long now = System.currentTimeMillis();
+
+		long speculate = -1;
+		if(this.speculate > 0 && jobs.isEmpty() && latencySamples.get() >= SPECULATE_MIN_SAMPLES) {
+			speculate = latency.getPercentile(99);
+			if(speculate >= 0) speculate = Math.max(checkPeriod, this.speculate * speculate);
+		}
+
+		for (InFlight f : jobsEval.values()) {
+			final long age = f.getAge(now);
+			if(age < 0) continue; // in queue
+
+			if(deadline > 0 && age > deadline) {
+				if(f.getAttempts() >= attempts) {
+					logger.warning("Job " + f.job.id + " not completed after " + f.getAttempts() + " attempts");
+					try {
+						putException(f.job.id, new Exception("The job has not been completed within " + deadline + " ms (" + f.getAttempts() + " attempts)"));
+					} catch(RemoteException e) {
+						// never happens: it's done locally!
+					}
+				} else {
+					if(LOG_FINE) logger.fine("Job " + f.job.id + " exceeded the deadline: dispatching it again");
+					redispatch(f);
+				}
+
+			} else if(speculate >= 0 && age > speculate && f.getAttempts() == 1) {
+				if(LOG_FINE) logger.fine("Job " + f.job.id + " is running since " + age + " ms: speculatively dispatching it again");
+				redispatch(f);
+			}
+		}
+	}
+
+	private void redispatch(InFlight f) {
+		final long dispatched = f.requeue();
+		if(dispatched < 0) return;
+
+		if(!jobs.offer(f.job, f.key)) {
+			// the queue is full: retry later
+			f.restore(dispatched);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name);
+		sb.append(": ").append(jobs.size()).append(" jobs waiting (").append(jobs).append("), ").append(Math.max(0, jobsEval.size() - jobs.size())).append(" being evaluated");
+
+		for (LoadReport report : getLoadReports().values())
+			sb.append("\n  ").append(report);
+
+		return sb.toString();
+	}
+
+	/** A job submitted to the pool, and not yet completed */
+	private static class InFlight {
+
+		final Job<?,?,?> job;
+
+		/** the key of the job's data finder */
+		final String key;
+
+		/** when the job has been dispatched the last time (-1 if it is in queue) */
+		private long dispatched = -1;
+
+		/** the number of times the job has been dispatched */
+		private int attempts = 0;
+
+		/** the WorkerManagers executing the job */
+		private List<Node> nodes = null;
+
+		public InFlight(Job<?,?,?> job) {
+			this.job = job;
+
+			String key;
+			try {
+				key = job.getFinder().getKey();
+			} catch(RemoteException e) {
+				logger.log(Level.WARNING, "Cannot retrieve the key of the data finder: " + e.getMessage(), e);
+				key = "";
+			}
+			this.key = key;
+		}
+
+		/**
+		 * Records that the job has been taken from the queue
+		 * @return false if the job was not in queue
+		 */
+		public synchronized boolean dispatched() {
+			if(dispatched >= 0) return false;
+
+			dispatched = System.currentTimeMillis();
+			attempts++;
+			return true;
+		}
+
+		/**
+		 * Records that the job is being put back in the queue
+		 * @return when the job has been dispatched, or -1 if it is already in queue
+		 */
+		public synchronized long requeue() {
+			final long ret = dispatched;
+			dispatched = -1;
+			return ret;
+		}
+
+		/**
+		 * Records that the job has not been put back in the queue
+		 * @param dispatched the value returned by {@link #requeue()}
+		 */
+		public synchronized void restore(long dispatched) {
+			if(this.dispatched < 0) this.dispatched = dispatched;
+		}
+
+		/** @return the time elapsed since the job has been dispatched, or -1 if it is in queue */
+		public synchronized long getAge(long now) {
+			if(dispatched < 0) return -1;
+			return now - dispatched;
+		}
+
+		/** @return the time elapsed since the job has been dispatched, or -1 if it has been dispatched more than once (the result may come from any dispatch) */
+		public synchronized long getLatency(long now) {
+			if(dispatched < 0 || attempts != 1) return -1;
+			return now - dispatched;
+		}
+
+		public synchronized int getAttempts() {
+			return attempts;
+		}
+
+		public synchronized void addNode(Node node) {
+			if(nodes == null) nodes = new ArrayList<Node>(1);
+			nodes.add(node);
+		}
+
+		public synchronized void releaseNodes() {
+			if(nodes == null) return;
+
+			for (Node node : nodes)
+				node.release();
+
+			nodes = null;
+		}
+	}
+
+	/** A WorkerManager fetching jobs */
+	private static class Node {
+
+		/** number of jobs handed out and not yet completed */
+		private int inFlight = 0;
+
+		/** the latest load report, or null */
+		private volatile LoadReport report;
+
+		/** the keys of the data finders recently used by the node (the most recent is the last one) */
+		private final Map<String, Boolean> keys = new LinkedHashMap<String, Boolean>(WARM_KEYS * 2, 0.75f, true) {
+
+			private static final long serialVersionUID = -5404829950399400525L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size() > WARM_KEYS;
+			}
+		};
+
+		/** @return the keys of the data finders whose class loaders are likely warm in the node */
+		public synchronized List<String> getKeys() {
+			return new ArrayList<String>(keys.keySet());
+		}
+
+		/** Records that a job with the given key has been dispatched to the node */
+		public synchronized void used(String key) {
+			keys.put(key, Boolean.TRUE);
+		}
+
+		public LoadReport getReport() {
+			return report;
+		}
+
+		public synchronized void setReport(LoadReport report) {
+			this.report = report;
+			notifyAll();
+		}
+
+		/** without load reports (or workers, if the node only relays jobs), the number of jobs handed out is not bounded */
+		private int getCapacity() {
+			final LoadReport r = report;
+			if(r == null || r.getWorkers() <= 0) return Integer.MAX_VALUE;
+			return r.getWorkers() * DISPATCH_DEPTH;
+		}
+
+		public synchronized void acquire() throws InterruptedException {
+			while(inFlight >= getCapacity())
+				wait();
+
+			inFlight++;
+		}
+
+		public synchronized void release() {
+			if(inFlight > 0) inFlight--;
+			notifyAll();
+		}
+	}
+
 	private static class TestfulFuture<T extends Serializable> implements Future<T>, ElementWithKey<String> {
 
 		private final String key;
@@ -230,32 +668,34 @@ public class RunnerPool implements IRunner, IJobRepository {
 			return key;
 		}
 
-		synchronized void setResult(T result) {
+		synchronized boolean setResult(T result) {
 
 			if(TestFul.DEBUG) {
-				if(completed) TestFul.debug(new IllegalStateException("Future already completed!"));
 				if(result == null) TestFul.debug(new Exception("The result cannot be null"));
 			}
 
-			if(completed) throw new IllegalStateException("Future already completed!");
+			// the first result wins
+			if(completed) return false;
 
 			this.result = result;
 			this.completed = true;
 			notifyAll();
+			return true;
 		}
 
-		synchronized void setException(Exception exc) {
+		synchronized boolean setException(Exception exc) {
 
 			if(TestFul.DEBUG) {
-				if(completed) TestFul.debug(new IllegalStateException("Future already completed!"));
 				if(exc == null) TestFul.debug(new Exception("The exception cannot be null"));
 			}
 
-			if(completed) throw new IllegalStateException("Future already completed!");
+			// the first result wins
+			if(completed) return false;
 
 			this.exc = exc;
 			this.completed = true;
 			notifyAll();
+			return true;
 		}
 
 		@Override
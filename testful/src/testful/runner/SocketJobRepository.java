@@ -0,0 +1,370 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.utils.SerializationUtils;
+
+/**
+ * A job repository reached through the socket transport (see {@link SocketTransport}).
+ * Jobs are pipelined: the repository can send up to {@link #PIPELINE} jobs in advance.
+ * Data finders are replaced by finders fetching data through the same connection.
+ *
+ * @author matteo
+ */
+public class SocketJobRepository implements IJobRepository, Runnable {
+
+	private static Logger logger = Logger.getLogger("testful.executor.worker");
+
+	/** the number of jobs the repository can send in advance */
+	private static final int PIPELINE = 8;
+
+	private final String address;
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	/** the name of the job repository */
+	private final String name;
+
+	/** the jobs received from the repository */
+	private final BlockingQueue<Job<?,?,?>> jobs = new LinkedBlockingQueue<Job<?,?,?>>();
+
+	/** the data finders, backed by this connection. Key: finder's key */
+	private final Map<String, DataFinder> finders = new ConcurrentHashMap<String, DataFinder>();
+
+	/** the pending data requests. Key: request id */
+	private final Map<Integer, DataRequest> requests = new ConcurrentHashMap<Integer, DataRequest>();
+	private final AtomicInteger requestId = new AtomicInteger();
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Connects to a job repository
+	 * @param address the address of the repository (<code>socket://host:port</code>)
+	 * @param runner the name of the WorkerManager
+	 * @throws IOException if the connection fails
+	 */
+	public SocketJobRepository(String address, String runner) throws IOException {
+		this.address = address;
+
+		String[] hostPort = SocketTransport.parseAddress(address);
+		socket = new Socket(hostPort[0], Integer.parseInt(hostPort[1]));
+		socket.setTcpNoDelay(true);
+
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		SocketTransport.Frame hello = new SocketTransport.Frame(SocketTransport.MSG_HELLO);
+		hello.writeUTF(runner);
+		send(hello);
+
+		byte[] welcome = readFrame();
+		if(welcome[0] != SocketTransport.MSG_WELCOME) throw new IOException("Unexpected message from " + address + ": " + welcome[0]);
+		name = new DataInputStream(new ByteArrayInputStream(welcome, 1, welcome.length - 1)).readUTF();
+
+		Thread t = new Thread(this, "SocketJobRepository-" + name);
+		t.setDaemon(true);
+		t.start();
+
+		SocketTransport.Frame credit = new SocketTransport.Frame(SocketTransport.MSG_CREDIT);
+		credit.writeInt(PIPELINE);
+		send(credit);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob() throws RemoteException {
+		try {
+			while(true) {
+				Job<?,?,?> job = jobs.poll(1, TimeUnit.SECONDS);
+
+				if(job != null) {
+					SocketTransport.Frame credit = new SocketTransport.Frame(SocketTransport.MSG_CREDIT);
+					credit.writeInt(1);
+					send(credit);
+
+					return (Job<I, R, ? extends IExecutor<I, R>>) job;
+				}
+
+				if(closed) throw new RemoteException("Disconnected from " + address, new EOFException());
+			}
+		} catch(InterruptedException e) {
+			throw new RemoteException("Interrupted", e);
+		} catch(IOException e) {
+			throw new RemoteException("Cannot contact " + address, e);
+		}
+	}
+
+	/** The name of the WorkerManager has been sent in the first message */
+	@Override
+	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob(String runner) throws RemoteException {
+		return getJob();
+	}
+
+	@Override
+	public void putResult(String key, Serializable result) throws RemoteException {
+		byte[] b = SerializationUtils.serialize(result, false);
+		if(b.length == 0) {
+			putException(key, new Exception("Cannot serialize the result of the job"));
+			return;
+		}
+
+		try {
+			SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_RESULT);
+			frame.writeUTF(key);
+			frame.write(b);
+			send(frame);
+		} catch(IOException e) {
+			throw new RemoteException("Cannot contact " + address, e);
+		}
+	}
+
+	@Override
+	public void putException(String key, Exception exc) throws RemoteException {
+		byte[] b = SerializationUtils.serialize(exc, false);
+		if(b.length == 0)
+			b = SerializationUtils.serialize(new Exception(exc.toString()), false);
+
+		try {
+			SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_EXCEPTION);
+			frame.writeUTF(key);
+			frame.write(b);
+			send(frame);
+		} catch(IOException e) {
+			throw new RemoteException("Cannot contact " + address, e);
+		}
+	}
+
+	@Override
+	public void putBack(String key) throws RemoteException {
+		try {
+			SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_PUT_BACK);
+			frame.writeUTF(key);
+			send(frame);
+		} catch(IOException e) {
+			throw new RemoteException("Cannot contact " + address, e);
+		}
+	}
+
+	@Override
+	public void putLoadReport(LoadReport report) throws RemoteException {
+		try {
+			SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_REPORT);
+			frame.write(SerializationUtils.serialize(report, false));
+			send(frame);
+		} catch(IOException e) {
+			throw new RemoteException("Cannot contact " + address, e);
+		}
+	}
+
+	/** Reads the messages sent by the job repository */
+	@Override
+	public void run() {
+		try {
+			while(true) {
+				final byte[] frame = readFrame();
+				final DataInputStream d = new DataInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1));
+
+				switch(frame[0]) {
+				case SocketTransport.MSG_JOB: {
+					byte[] b = new byte[frame.length - 1];
+					d.readFully(b);
+
+					try {
+						jobs.add((Job<?,?,?>) FinderReference.deserialize(b, new FinderReference.Resolver() {
+
+							@Override
+							public DataFinder getFinder(String key) {
+								return SocketJobRepository.this.getFinder(key);
+							}
+						}));
+					} catch(ClassNotFoundException e) {
+						throw new IOException("Cannot read the job: " + e.getMessage());
+					}
+					break;
+				}
+
+				case SocketTransport.MSG_DATA: {
+					final DataRequest req = requests.remove(d.readInt());
+					final int len = d.readInt();
+
+					byte[] data = null;
+					if(len >= 0) {
+						data = new byte[len];
+						d.readFully(data);
+					}
+
+					if(req != null) req.set(data);
+					break;
+				}
+
+				default:
+					throw new IOException("Unexpected message from " + address + ": " + frame[0]);
+				}
+			}
+		} catch(IOException e) {
+			if(e instanceof EOFException) logger.info("Job repository " + address + " disconnected");
+			else logger.log(Level.WARNING, "Connection with " + address + " closed: " + e.getMessage(), e);
+		} finally {
+			close();
+		}
+	}
+
+	private void close() {
+		closed = true;
+
+		try {
+			socket.close();
+		} catch(IOException e) {
+		}
+
+		for (DataRequest req : requests.values())
+			req.fail();
+		requests.clear();
+	}
+
+	private byte[] readFrame() throws IOException {
+		final int len = in.readInt();
+		if(len <= 0 || len > SocketTransport.MAX_FRAME) throw new IOException("Invalid frame length: " + len);
+
+		byte[] frame = new byte[len];
+		in.readFully(frame);
+		return frame;
+	}
+
+	private synchronized void send(SocketTransport.Frame frame) throws IOException {
+		if(closed) throw new EOFException("Disconnected from " + address);
+
+		ByteBuffer b = frame.toByteBuffer();
+		out.write(b.array(), 0, b.limit());
+		out.flush();
+	}
+
+	private DataFinder getFinder(String key) {
+		DataFinder finder = finders.get(key);
+		if(finder == null) {
+			finder = new RemoteFinder(key);
+			finders.put(key, finder);
+		}
+		return finder;
+	}
+
+	private byte[] getData(String key, String type, String id) throws IOException {
+		final int reqId = requestId.incrementAndGet();
+		final DataRequest req = new DataRequest();
+		requests.put(reqId, req);
+
+		SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_GET_DATA);
+		frame.writeInt(reqId);
+		frame.writeUTF(key);
+		frame.writeUTF(type);
+		frame.writeUTF(id);
+
+		try {
+			send(frame);
+			return req.get();
+		} finally {
+			requests.remove(reqId);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + address + (closed ? ", disconnected)" : ")");
+	}
+
+	/** Retrieves data through the connection with the job repository */
+	class RemoteFinder implements DataFinder {
+
+		private final String key;
+
+		public RemoteFinder(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public byte[] getData(String type, String id) throws RemoteException {
+			try {
+				return SocketJobRepository.this.getData(key, type, id);
+			} catch(IOException e) {
+				throw new RemoteException("Cannot retrieve " + type + " " + id + " from " + address, e);
+			}
+		}
+	}
+
+	/** A pending data request */
+	private static class DataRequest {
+
+		private boolean done = false;
+		private boolean failed = false;
+		private byte[] data;
+
+		public synchronized void set(byte[] data) {
+			this.data = data;
+			done = true;
+			notifyAll();
+		}
+
+		public synchronized void fail() {
+			failed = true;
+			done = true;
+			notifyAll();
+		}
+
+		public synchronized byte[] get() throws IOException {
+			try {
+				while(!done) wait();
+			} catch(InterruptedException e) {
+				throw new IOException("Interrupted while waiting for data");
+			}
+
+			if(failed) throw new EOFException("Connection closed");
+			return data;
+		}
+	}
+}
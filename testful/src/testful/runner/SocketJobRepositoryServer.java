@@ -0,0 +1,526 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.utils.SerializationUtils;
+
+/**
+ * Exposes a job repository through the socket transport (see {@link SocketTransport}).
+ * A single selector thread performs all the (non-blocking) I/O; results and data requests
+ * are handled by a small pool of threads, and each connection has a thread fetching jobs
+ * from the repository as long as the WorkerManager grants credits.
+ * When a connection is closed, the jobs sent through it and not yet completed are given back
+ * to the repository (see {@link IJobRepository#putBack(String)}).
+ *
+ * @author matteo
+ */
+public class SocketJobRepositoryServer implements Runnable {
+
+	private static Logger logger = Logger.getLogger("testful.executor.worker");
+	private static final boolean LOG_FINE = logger.isLoggable(Level.FINE);
+	private static final boolean LOG_FINER = logger.isLoggable(Level.FINER);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final IJobRepository repository;
+
+	private final Selector selector;
+	private final ServerSocketChannel server;
+
+	/** connections with frames to write */
+	private final Queue<Connection> writable = new ConcurrentLinkedQueue<Connection>();
+
+	/** handles results, load reports and data requests */
+	private final ExecutorService handlers;
+
+	/** the data finders used by the jobs sent to WorkerManagers and not yet completed. Key: finder's key */
+	private final Map<String, DataFinder> finders = new HashMap<String, DataFinder>();
+
+	/** the number of jobs not yet completed using each data finder (guarded by finders). Key: finder's key */
+	private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+	public SocketJobRepositoryServer(IJobRepository repository, int port) throws IOException {
+		this.repository = repository;
+
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+
+		handlers = Executors.newCachedThreadPool(new ThreadFactory() {
+			private int id = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SocketJobRepository-handler-" + ++id);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		Thread t = new Thread(this, "SocketJobRepository");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** @return the port the server is listening on */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	@Override
+	public void run() {
+		while(true) {
+			try {
+				selector.select();
+			} catch(IOException e) {
+				logger.log(Level.SEVERE, "Socket transport disabled: " + e.getMessage(), e);
+				return;
+			}
+
+			Connection c;
+			while((c = writable.poll()) != null)
+				c.updateInterest();
+
+			Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+			while(iter.hasNext()) {
+				SelectionKey key = iter.next();
+				iter.remove();
+
+				if(!key.isValid()) continue;
+
+				if(key.isAcceptable()) {
+					accept();
+					continue;
+				}
+
+				c = (Connection) key.attachment();
+				try {
+					if(key.isReadable()) c.read();
+					if(key.isValid() && key.isWritable()) c.write();
+				} catch(IOException e) {
+					if(LOG_FINE) logger.log(Level.FINE, "Connection with " + c + " closed: " + e.getMessage(), e);
+					c.close();
+				}
+			}
+		}
+	}
+
+	private void accept() {
+		try {
+			SocketChannel ch = server.accept();
+			if(ch == null) return;
+
+			ch.configureBlocking(false);
+			ch.socket().setTcpNoDelay(true);
+
+			Connection c = new Connection(ch);
+			c.key = ch.register(selector, SelectionKey.OP_READ, c);
+
+			if(LOG_FINE) logger.fine("Accepted connection from " + ch.socket().getRemoteSocketAddress());
+		} catch(IOException e) {
+			logger.log(Level.WARNING, "Cannot accept a connection: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Registers the data finders used by a job being sent
+	 * @param used the data finders used by the job (key: finder's key)
+	 * @return the keys of the data finders
+	 */
+	private Set<String> register(Map<String, DataFinder> used) {
+		synchronized(finders) {
+			for(Map.Entry<String, DataFinder> e : used.entrySet()) {
+				finders.put(e.getKey(), e.getValue());
+
+				Integer n = references.get(e.getKey());
+				references.put(e.getKey(), n == null ? 1 : n + 1);
+			}
+		}
+
+		return used.keySet();
+	}
+
+	/**
+	 * Releases the data finders used by a job, forgetting the ones no longer used by any job
+	 * @param keys the keys of the data finders used by the job
+	 */
+	private void release(Set<String> keys) {
+		synchronized(finders) {
+			for(String key : keys) {
+				Integer n = references.get(key);
+				if(n == null) continue;
+
+				if(n > 1) {
+					references.put(key, n - 1);
+				} else {
+					references.remove(key);
+					finders.remove(key);
+				}
+			}
+		}
+	}
+
+	private DataFinder getFinder(String key) {
+		synchronized(finders) {
+			return finders.get(key);
+		}
+	}
+
+	/** @return the number of data finders in use */
+	int getFinderCount() {
+		synchronized(finders) {
+			return finders.size();
+		}
+	}
+
+	/** A connection with a WorkerManager */
+	private class Connection implements Runnable {
+
+		private final SocketChannel ch;
+		private SelectionKey key;
+
+		private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<ByteBuffer>();
+
+		/** the name of the WorkerManager */
+		private String runner;
+
+		/** fetches jobs for the WorkerManager */
+		private Thread pump;
+
+		/** number of jobs the WorkerManager is ready to receive */
+		private int credits = 0;
+
+		/** the jobs sent to the WorkerManager and not yet completed. Key: job's id; Value: keys of its data finders */
+		private final Map<String, Set<String>> inFlight = new ConcurrentHashMap<String, Set<String>>();
+
+		private volatile boolean closed = false;
+
+		public Connection(SocketChannel ch) {
+			this.ch = ch;
+		}
+
+		/** Reads the available data (called by the selector thread) */
+		void read() throws IOException {
+			if(ch.read(in) < 0) throw new IOException("end of stream");
+
+			in.flip();
+			while(in.remaining() >= 4) {
+				final int len = in.getInt(in.position());
+				if(len <= 0 || len > SocketTransport.MAX_FRAME) throw new IOException("Invalid frame length: " + len);
+
+				if(in.remaining() < 4 + len) {
+					if(in.capacity() < 4 + len) {
+						ByteBuffer bigger = ByteBuffer.allocate(4 + len);
+						bigger.put(in);
+						in = bigger;
+						return;
+					}
+					break;
+				}
+
+				in.getInt();
+				byte[] frame = new byte[len];
+				in.get(frame);
+				handle(frame);
+			}
+			in.compact();
+		}
+
+		/** Writes the pending frames (called by the selector thread) */
+		void write() throws IOException {
+			ByteBuffer b;
+			while((b = out.peek()) != null) {
+				ch.write(b);
+				if(b.hasRemaining()) return;
+				out.poll();
+			}
+
+			key.interestOps(SelectionKey.OP_READ);
+		}
+
+		/** Updates the operations of interest (called by the selector thread) */
+		void updateInterest() {
+			if(key.isValid())
+				key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+
+		/**
+		 * Enqueues a frame (called by any thread)
+		 * @param frame the frame to send
+		 * @return false if the connection is closed (the frame is discarded)
+		 */
+		boolean send(SocketTransport.Frame frame) {
+			if(closed) return false;
+
+			out.add(frame.toByteBuffer());
+			writable.add(this);
+			selector.wakeup();
+			return true;
+		}
+
+		/**
+		 * Marks a job sent through this connection as completed
+		 * @param id the id of the job
+		 * @return false if the job was not pending in this connection
+		 */
+		boolean completed(String id) {
+			final Set<String> keys = inFlight.remove(id);
+			if(keys == null) return false;
+
+			release(keys);
+			return true;
+		}
+
+		/**
+		 * Gives a job sent through this connection back to the repository
+		 * @param id the id of the job
+		 */
+		private void putBack(final String id) {
+			if(!completed(id)) return;
+
+			handlers.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						repository.putBack(id);
+					} catch(RemoteException e) {
+						logger.log(Level.WARNING, "Cannot give " + id + " back to the job repository: " + e.getMessage(), e);
+					}
+				}
+			});
+		}
+
+		private void handle(byte[] frame) throws IOException {
+			final DataInputStream d = new DataInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1));
+
+			switch(frame[0]) {
+			case SocketTransport.MSG_HELLO: {
+				if(pump != null) throw new IOException("Unexpected hello from " + this);
+
+				runner = d.readUTF();
+				logger.info("Connected to " + runner + " (" + ch.socket().getRemoteSocketAddress() + ")");
+
+				SocketTransport.Frame welcome = new SocketTransport.Frame(SocketTransport.MSG_WELCOME);
+				welcome.writeUTF(repository.getName());
+				send(welcome);
+
+				pump = new Thread(this, "SocketJobRepository-" + runner);
+				pump.setDaemon(true);
+				pump.start();
+				break;
+			}
+
+			case SocketTransport.MSG_CREDIT: {
+				final int n = d.readInt();
+				synchronized(this) {
+					credits += n;
+					notifyAll();
+				}
+				break;
+			}
+
+			case SocketTransport.MSG_RESULT:
+			case SocketTransport.MSG_EXCEPTION:
+			case SocketTransport.MSG_PUT_BACK:
+			case SocketTransport.MSG_REPORT:
+			case SocketTransport.MSG_GET_DATA:
+				handlers.execute(new Handler(this, frame[0], d));
+				break;
+
+			default:
+				throw new IOException("Unexpected message from " + this + ": " + frame[0]);
+			}
+		}
+
+		/** Fetches jobs from the repository, as long as the WorkerManager has credits */
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					synchronized(this) {
+						while(credits <= 0 && !closed) wait();
+						if(closed) return;
+						credits--;
+					}
+
+					Job<?,?,?> job = repository.getJob(runner);
+
+					final Map<String, DataFinder> used = new HashMap<String, DataFinder>();
+					SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_JOB);
+					frame.write(FinderReference.serialize(job, used));
+
+					final Set<String> prev = inFlight.put(job.id, register(used));
+					if(prev != null) release(prev);
+
+					if(!send(frame)) {
+						// the connection has been closed in the meantime
+						putBack(job.id);
+						return;
+					}
+
+					if(LOG_FINER) logger.finer("Sent " + job.id + " to " + runner);
+				}
+			} catch(InterruptedException e) {
+				// the connection has been closed
+			} catch(IOException e) {
+				if(!closed) logger.log(Level.WARNING, "Cannot send jobs to " + runner + ": " + e.getMessage(), e);
+				close();
+			}
+		}
+
+		void close() {
+			if(closed) return;
+			closed = true;
+
+			logger.info("Disconnected from " + this);
+
+			key.cancel();
+			try {
+				ch.close();
+			} catch(IOException e) {
+			}
+
+			synchronized(this) {
+				notifyAll();
+			}
+
+			if(pump != null) pump.interrupt();
+
+			for(String id : inFlight.keySet())
+				putBack(id);
+		}
+
+		@Override
+		public String toString() {
+			return runner != null ? runner : ch.socket().getRemoteSocketAddress().toString();
+		}
+	}
+
+	/** Handles a message that may take some time (e.g., deserializing a result or retrieving data) */
+	private class Handler implements Runnable {
+
+		private final Connection c;
+		private final byte type;
+		private final DataInputStream d;
+
+		public Handler(Connection c, byte type, DataInputStream d) {
+			this.c = c;
+			this.type = type;
+			this.d = d;
+		}
+
+		@Override
+		public void run() {
+			try {
+				switch(type) {
+				case SocketTransport.MSG_RESULT: {
+					final String id = d.readUTF();
+					c.completed(id);
+					final Serializable result = SerializationUtils.deserialize(readRemaining(), false);
+					if(result == null) repository.putException(id, new Exception("Cannot read the result of the job"));
+					else repository.putResult(id, result);
+					break;
+				}
+
+				case SocketTransport.MSG_EXCEPTION: {
+					final String id = d.readUTF();
+					c.completed(id);
+					final Serializable exc = SerializationUtils.deserialize(readRemaining(), false);
+					if(exc instanceof Exception) repository.putException(id, (Exception) exc);
+					else repository.putException(id, new Exception("Cannot read the exception thrown by the job"));
+					break;
+				}
+
+				case SocketTransport.MSG_PUT_BACK: {
+					final String id = d.readUTF();
+					if(c.completed(id)) repository.putBack(id);
+					break;
+				}
+
+				case SocketTransport.MSG_REPORT: {
+					final Serializable report = SerializationUtils.deserialize(readRemaining(), false);
+					if(report instanceof LoadReport) repository.putLoadReport((LoadReport) report);
+					break;
+				}
+
+				case SocketTransport.MSG_GET_DATA: {
+					final int reqId = d.readInt();
+					final String key = d.readUTF();
+					final String dataType = d.readUTF();
+					final String id = d.readUTF();
+
+					byte[] data = null;
+					DataFinder finder = getFinder(key);
+					if(finder != null) {
+						try {
+							data = finder.getData(dataType, id);
+						} catch(RemoteException e) {
+							logger.log(Level.WARNING, "Cannot retrieve " + dataType + " " + id + ": " + e.getMessage(), e);
+						}
+					}
+
+					SocketTransport.Frame frame = new SocketTransport.Frame(SocketTransport.MSG_DATA);
+					frame.writeInt(reqId);
+					if(data == null) frame.writeInt(-1);
+					else {
+						frame.writeInt(data.length);
+						frame.write(data);
+					}
+					c.send(frame);
+					break;
+				}
+				}
+			} catch(IOException e) {
+				logger.log(Level.WARNING, "Cannot handle a message from " + c + ": " + e.getMessage(), e);
+			}
+		}
+
+		private byte[] readRemaining() throws IOException {
+			byte[] b = new byte[d.available()];
+			d.readFully(b);
+			return b;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol used by the socket transport, an alternative to RMI to connect
+ * WorkerManagers to a job repository (see {@link SocketJobRepositoryServer} and {@link SocketJobRepository}).
+ * <p>
+ * Each message is a frame: <code>length (int) type (byte) payload</code>, where the length
+ * counts the type and the payload. Jobs, results and data requests are multiplexed on the same connection,
+ * and WorkerManagers pipeline their job requests by granting credits to the job repository.
+ * </p>
+ *
+ * @author matteo
+ */
+final class SocketTransport {
+
+	/** the scheme of the addresses of job repositories using the socket transport */
+	static final String SCHEME = "socket://";
+
+	/** the maximum size of a frame */
+	static final int MAX_FRAME = 256 * 1024 * 1024;
+
+	// messages sent by the WorkerManager
+	/** first message: runner.name */
+	static final byte MSG_HELLO = 'H';
+	/** the WorkerManager is ready to receive n more jobs: n */
+	static final byte MSG_CREDIT = 'C';
+	/** the result of a job: job.id result */
+	static final byte MSG_RESULT = 'R';
+	/** the exception thrown by a job: job.id exception */
+	static final byte MSG_EXCEPTION = 'E';
+	/** the load of the WorkerManager: report */
+	static final byte MSG_REPORT = 'L';
+	/** a request of data: request.id finder.key type id */
+	static final byte MSG_GET_DATA = 'G';
+	/** a job that will not be executed: job.id */
+	static final byte MSG_PUT_BACK = 'B';
+
+	// messages sent by the job repository
+	/** first message: repository.name (the same type of the WorkerManager's first message) */
+	static final byte MSG_WELCOME = 'H';
+	/** a job to execute: job */
+	static final byte MSG_JOB = 'J';
+	/** the data requested by the WorkerManager: request.id data.len (-1 if null) data */
+	static final byte MSG_DATA = 'D';
+
+	private SocketTransport() {
+	}
+
+	/** Builds a frame */
+	static class Frame extends DataOutputStream {
+
+		public Frame(byte type) {
+			super(new ByteArrayOutputStream());
+
+			try {
+				writeInt(0); // placeholder for the length
+				writeByte(type);
+			} catch(IOException e) {
+				// never happens: it's in memory
+			}
+		}
+
+		/** @return the frame, ready to be written */
+		public ByteBuffer toByteBuffer() {
+			ByteBuffer buf = ByteBuffer.wrap(((ByteArrayOutputStream) out).toByteArray());
+			buf.putInt(0, buf.limit() - 4);
+			return buf;
+		}
+	}
+
+	/**
+	 * Parses the host and the port of an address (<code>socket://host:port</code>)
+	 * @param address the address
+	 * @return the host (element 0) and the port (element 1)
+	 * @throws IllegalArgumentException if the address is not valid
+	 */
+	static String[] parseAddress(String address) {
+		if(!address.startsWith(SCHEME)) throw new IllegalArgumentException("Invalid address: " + address);
+
+		String hostPort = address.substring(SCHEME.length());
+		if(hostPort.endsWith("/")) hostPort = hostPort.substring(0, hostPort.length() - 1);
+
+		int colon = hostPort.lastIndexOf(':');
+		if(colon <= 0) throw new IllegalArgumentException("Invalid address (the port is missing): " + address);
+
+		try {
+			Integer.parseInt(hostPort.substring(colon + 1));
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid port in " + address);
+		}
+
+		return new String[] { hostPort.substring(0, colon), hostPort.substring(colon + 1) };
+	}
+}
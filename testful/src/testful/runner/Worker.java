@@ -60,12 +60,15 @@ public class Worker extends Thread {
 					continue;
 				}
 
+				final long loadingTime = cl.getLoadingTime();
 				try {
 					if(LOG_FINER) logger.finer("Worker " + getName() + " is evaluating " + ctx.id);
 					Serializable result = ctx.execute(cl);
+					workerManager.addClassLoadingTime(cl.getLoadingTime() - loadingTime);
 					workerManager.putResult(ctx, result, cl);
 
 				} catch(Exception e) {
+					workerManager.addClassLoadingTime(cl.getLoadingTime() - loadingTime);
 					workerManager.putException(ctx, e, cl);
 				}
 			}
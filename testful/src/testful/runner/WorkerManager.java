@@ -19,21 +19,28 @@
 package testful.runner;
 
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,14 +48,19 @@ import java.util.logging.Logger;
 import testful.TestFul;
 import testful.utils.CachingMap;
 import testful.utils.CachingMap.Cacheable;
+import testful.utils.LogHistogram;
 
 public class WorkerManager implements IWorkerManager, IJobRepository {
 
 	private static Logger logger = Logger.getLogger("testful.executor.worker");
 	private static final boolean LOG_FINE = logger.isLoggable(Level.FINE);
+	private static final boolean LOG_FINER = logger.isLoggable(Level.FINER);
 
 	private final Set<String> testRepositories = Collections.synchronizedSet(new HashSet<String>());
 
+	/** the job repositories receiving load reports */
+	private final List<IJobRepository> repositories = new CopyOnWriteArrayList<IJobRepository>();
+
 	private volatile boolean running = true;
 
 	private final BlockingQueue<Job<?,?,?>> jobs;
@@ -66,6 +78,18 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 
 	private AtomicLong executedJobs = new AtomicLong();
 
+	/** number of worker threads */
+	private final AtomicInteger workers = new AtomicInteger();
+
+	/** Key: job.id; Value: when a worker started the job (ms) */
+	private final Map<String, Long> started = new ConcurrentHashMap<String, Long>();
+
+	/** latency of the jobs completed since the last report */
+	private final LogHistogram latency = new LogHistogram();
+
+	/** total time spent by workers to load classes (ms) */
+	private final AtomicLong classLoadingTime = new AtomicLong();
+
 	public WorkerManager(int cpu) {
 		if(LOG_FINE) logger.fine("Starting: Worker Manager (" + TestFul.runId + ")");
 
@@ -88,6 +112,28 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 		for(int i = 0; i < cpu; i++) createWorker();
 
 		logger.info("Started " + cpu + " workers");
+
+		final long period = TestFul.getProperty(TestFul.PROPERTY_RUNNER_REPORT, 5000);
+		if(period > 0) {
+			Thread t = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while(running) {
+						try {
+							TimeUnit.MILLISECONDS.sleep(period);
+						} catch(InterruptedException e) {
+							return;
+						}
+
+						sendLoadReport();
+					}
+				}
+			});
+			t.setName("WorkerManager-reports");
+			t.setDaemon(true);
+			t.start();
+		}
 	}
 
 	@Override
@@ -95,6 +141,7 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 		final String name = rep.getName();
 
 		if(!testRepositories.add(name)) return;
+		repositories.add(rep);
 
 		Thread t = new Thread(new Runnable() {
 
@@ -105,7 +152,7 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 					logger.info(msg);
 
 					while(running) {
-						Job<?,?,?> j = rep.getJob();
+						Job<?,?,?> j = rep.getJob(getName());
 						logger.finest("Retrieved test: " + j.id);
 						results.put(j.id, rep);
 						jobs.put(j);
@@ -114,8 +161,11 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 				} catch(InterruptedException e) {
 					String msg = "Interrupted: " + e.getMessage();
 					logger.warning(msg);
+					repositories.remove(rep);
 					return;
 				} catch(RemoteException e) {
+					repositories.remove(rep);
+
 					if(e.getCause() instanceof EOFException) {
 						logger.info("Job Repository disconnected");
 						return;
@@ -134,7 +184,17 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 
 	@Override
 	public void addJobRepository(String repName) throws RemoteException, MalformedURLException, NotBoundException {
-		IJobRepository rep = (IJobRepository) Naming.lookup(repName);
+		IJobRepository rep;
+		if(repName.startsWith(SocketTransport.SCHEME)) {
+			try {
+				rep = new SocketJobRepository(repName, getName());
+			} catch(IOException e) {
+				throw new RemoteException("Cannot connect to " + repName, e);
+			}
+		} else {
+			rep = (IJobRepository) Naming.lookup(repName);
+		}
+
 		addJobRepository(rep);
 	}
 
@@ -164,6 +224,13 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 	}
 
 	private void createWorker() {
+		workers.incrementAndGet();
+
+		if(TestFul.getProperty(TestFul.PROPERTY_RUNNER_FORK, false)) {
+			new ForkedWorker(this).start();
+			return;
+		}
+
 		Worker w = new Worker(this);
 		w.setDaemon(true);
 		w.start();
@@ -173,15 +240,40 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 	@SuppressWarnings("unchecked")
 	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I,R>> getJob() throws RemoteException {
 		try {
-			return (Job<I, R, ? extends IExecutor<I, R>>) jobs.take();
+			Job<I, R, ? extends IExecutor<I, R>> job = (Job<I, R, ? extends IExecutor<I, R>>) jobs.take();
+			started.put(job.id, System.currentTimeMillis());
+			return job;
 		} catch(InterruptedException e) {
 			throw new RemoteException("interrupted", e);
 		}
 	}
 
+	@Override
+	public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob(String runner) throws RemoteException {
+		return getJob();
+	}
+
+	/**
+	 * Moves up to max waiting jobs in the given collection, without blocking.
+	 * @param c the collection to fill
+	 * @param max the maximum number of jobs to retrieve
+	 * @return the number of jobs retrieved
+	 */
+	public int drainJobs(Collection<Job<?,?,?>> c, int max) {
+		if(max <= 0) return 0;
+
+		int n = jobs.drainTo(c, max);
+		if(n > 0) {
+			final Long now = System.currentTimeMillis();
+			for (Job<?,?,?> job : c)
+				started.put(job.id, now);
+		}
+
+		return n;
+	}
+
 	public RemoteClassLoader getClassLoader(Job<?,?,?> ctx) throws RemoteException {
-		DataFinder finder = ctx.getFinder();
-		String key = finder.getKey();
+		String key = ctx.getFinder().getKey();
 
 		RemoteClassLoader ret = null;
 		if(!ctx.isReloadClasses()) {
@@ -194,6 +286,19 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 		// if cacheable and cached
 		if(ret != null) return ret;
 
+		return new RemoteClassLoader(getFinder(ctx));
+	}
+
+	/**
+	 * Returns the (cached) data finder to use for the given job
+	 * @param ctx the job
+	 * @return the data finder, wrapped in a {@link DataFinderCaching}
+	 * @throws RemoteException if something goes wrong
+	 */
+	public DataFinder getFinder(Job<?,?,?> ctx) throws RemoteException {
+		DataFinder finder = ctx.getFinder();
+		String key = finder.getKey();
+
 		Cacheable<DataFinder> cacheableFinder;
 		synchronized(finders) {
 			cacheableFinder = finders.get(key);
@@ -206,15 +311,20 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 			}
 		}
 
-		ret = new RemoteClassLoader(cacheableFinder.getElement());
-
-		return ret;
+		return cacheableFinder.getElement();
 	}
 
 	@Override
 	public void putException(String key, Exception exc) throws RemoteException {
+		completed(key);
+
 		try {
 			IJobRepository rep = results.remove(key);
+			if(rep == null) {
+				if(LOG_FINE) logger.fine("Job " + key + " already completed");
+				return;
+			}
+
 			rep.putException(key, exc);
 		} catch(Exception e) {
 			logger.log(Level.WARNING, "Cannot put the result back in the job repository: " + e.getMessage(), e);
@@ -236,8 +346,15 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 
 	@Override
 	public void putResult(String key, Serializable result) throws RemoteException {
+		completed(key);
+
 		try {
 			IJobRepository rep = results.remove(key);
+			if(rep == null) {
+				if(LOG_FINE) logger.fine("Job " + key + " already completed");
+				return;
+			}
+
 			rep.putResult(key, result);
 		} catch(Exception e) {
 			logger.log(Level.WARNING, "Cannot put the result back in the job repository: " + e.getMessage(), e);
@@ -247,7 +364,8 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 	}
 
 	public void putResult(Job<?,?,?> ctx, Serializable result, RemoteClassLoader cl) {
-		reuseClassLoader(cl);
+		if(cl != null)
+			reuseClassLoader(cl);
 
 		try {
 			putResult(ctx.id, result);
@@ -256,6 +374,78 @@ public class WorkerManager implements IWorkerManager, IJobRepository {
 		}
 	}
 
+	@Override
+	public void putBack(String key) throws RemoteException {
+		started.remove(key);
+
+		IJobRepository rep = results.remove(key);
+		if(rep != null) rep.putBack(key);
+	}
+
+	private void completed(String key) {
+		Long start = started.remove(key);
+		if(start != null) latency.record(System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Accounts the time spent by a worker to load classes
+	 * @param millis the time spent (ms)
+	 */
+	void addClassLoadingTime(long millis) {
+		if(millis > 0) classLoadingTime.addAndGet(millis);
+	}
+
+	/**
+	 * Reports of chained WorkerManagers are not forwarded: their jobs are already accounted in this WorkerManager's queue.
+	 */
+	@Override
+	public void putLoadReport(LoadReport report) throws RemoteException {
+		if(LOG_FINER) logger.finer("Received load report: " + report);
+	}
+
+	/**
+	 * Creates a snapshot of the load of this WorkerManager.
+	 * Latencies refer to the jobs completed since the previous snapshot.
+	 * @return the load report
+	 */
+	public LoadReport getLoadReport() {
+		final int waiting = jobs.size();
+		final long[] perc = latency.getAndReset(50, 99);
+
+		long gcTime = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			if(gc.getCollectionTime() > 0) gcTime += gc.getCollectionTime();
+
+		final Runtime runtime = Runtime.getRuntime();
+
+		String name;
+		try {
+			name = getName();
+		} catch(RemoteException e) {
+			// never happens: it's done locally!
+			name = "runner";
+		}
+
+		return new LoadReport(name, workers.get(), waiting, Math.max(0, results.size() - waiting), executedJobs.get(),
+				perc[0], perc[1], classLoadingTime.get(), gcTime,
+				runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+	}
+
+	private void sendLoadReport() {
+		if(repositories.isEmpty()) return;
+
+		final LoadReport report = getLoadReport();
+		if(LOG_FINER) logger.finer("Sending load report: " + report);
+
+		for (IJobRepository rep : repositories) {
+			try {
+				rep.putLoadReport(report);
+			} catch(RemoteException e) {
+				if(LOG_FINE) logger.log(Level.FINE, "Cannot send the load report: " + e.getMessage(), e);
+			}
+		}
+	}
+
 	private void reuseClassLoader(RemoteClassLoader cl) {
 		synchronized(classLoaders) {
 			Cacheable<Queue<RemoteClassLoader>> q = classLoaders.get(cl.getKey());
@@ -0,0 +1,99 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A lock-free histogram with logarithmic buckets: bucket i contains the values in [2^(i-1), 2^i - 1]
+ * (bucket 0 contains the values lower than 1, the last bucket contains all the larger values).
+ * Percentiles are approximated with the upper bound of their bucket.
+ * It is used for the latency of jobs and for the execution time of methods.
+ *
+ * @author matteo
+ */
+public class LogHistogram {
+
+	private static final int BUCKETS = 32;
+
+	private final AtomicIntegerArray buckets = new AtomicIntegerArray(BUCKETS);
+
+	/**
+	 * Records a value
+	 * @param value the value
+	 */
+	public void record(long value) {
+		int bucket = value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+		if(bucket >= BUCKETS) bucket = BUCKETS - 1;
+
+		buckets.incrementAndGet(bucket);
+	}
+
+	/**
+	 * Computes the given percentile
+	 * @param percentile the percentile to compute (between 0 and 100)
+	 * @return the percentile (-1 if no value has been recorded)
+	 */
+	public long getPercentile(int percentile) {
+		int[] count = new int[BUCKETS];
+		int total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count[i] = buckets.get(i);
+			total += count[i];
+		}
+
+		return getPercentile(count, total, percentile);
+	}
+
+	/**
+	 * Computes the given percentiles, and clears the histogram
+	 * @param percentiles the percentiles to compute (between 0 and 100)
+	 * @return the percentiles (-1 if no value has been recorded)
+	 */
+	public long[] getAndReset(int ... percentiles) {
+		int[] count = new int[BUCKETS];
+		int total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count[i] = buckets.getAndSet(i, 0);
+			total += count[i];
+		}
+
+		long[] ret = new long[percentiles.length];
+		for (int p = 0; p < percentiles.length; p++)
+			ret[p] = getPercentile(count, total, percentiles[p]);
+
+		return ret;
+	}
+
+	private static long getPercentile(int[] count, int total, int percentile) {
+		if(total == 0) return -1;
+
+		// the rank of the percentile (1-based)
+		final long rank = Math.max(1, ((long) total * percentile + 99) / 100);
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += count[i];
+			if(seen >= rank)
+				return i == 0 ? 0 : (1l << i) - 1;
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import testful.TestFul;
+
+/**
+ * Tracks the memory used by long-living structures (e.g., the stored tests), and
+ * tells them when the heap is running out, so that they can move their cold elements to disk.
+ * The memory pressure is measured on the heap usage after the last garbage collection,
+ * and the limit is set by the property {@link TestFul#PROPERTY_MEMORY_LIMIT}.
+ * @author matteo
+ */
+public class MemoryGovernor {
+
+	public static final MemoryGovernor singleton = new MemoryGovernor(TestFul.getProperty(TestFul.PROPERTY_MEMORY_LIMIT, 0.1f, 0.75f, 1f));
+
+	/** fraction of the heap that can be used */
+	private final float limit;
+
+	/** the heap pool holding the long-living objects (i.e., the tenured generation), or null if unknown */
+	private final MemoryPoolMXBean tenured;
+
+	/** number of garbage collections when the pressure has been reported the last time */
+	private long lastCollections = -1;
+
+	/** bytes used by the tracked structures */
+	private final AtomicLong footprint = new AtomicLong(0);
+
+	private MemoryGovernor(float limit) {
+		this(limit, ManagementFactory.getMemoryPoolMXBeans());
+	}
+
+	MemoryGovernor(float limit, List<MemoryPoolMXBean> pools) {
+		this.limit = limit;
+		tenured = getTenured(pools);
+	}
+
+	/**
+	 * Finds the tenured generation among the memory pools.
+	 * The young pools (eden and survivors) are excluded: they are almost full after every
+	 * young collection, and would report the pressure at each garbage collection.
+	 * The tenured generation is the heap pool managed by the fewest collectors
+	 * (young pools are managed by both the young and the old collector);
+	 * among them, the one with the largest maximum size is taken.
+	 * @param pools the memory pools
+	 * @return the tenured generation, or null if there are no pools reporting their usage after collections
+	 */
+	static MemoryPoolMXBean getTenured(List<MemoryPoolMXBean> pools) {
+		MemoryPoolMXBean ret = null;
+		for (MemoryPoolMXBean pool : pools) {
+			if(pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+
+			if(ret == null) {
+				ret = pool;
+				continue;
+			}
+
+			final int managers = pool.getMemoryManagerNames().length;
+			final int retManagers = ret.getMemoryManagerNames().length;
+			if(managers < retManagers || (managers == retManagers && pool.getUsage().getMax() > ret.getUsage().getMax()))
+				ret = pool;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Registers the allocation of a tracked element
+	 * @param bytes the (estimated) size of the element
+	 */
+	public void allocate(long bytes) {
+		footprint.addAndGet(bytes);
+	}
+
+	/**
+	 * Registers the release of a tracked element
+	 * @param bytes the (estimated) size of the element
+	 */
+	public void release(long bytes) {
+		footprint.addAndGet(-bytes);
+	}
+
+	/**
+	 * Returns the number of bytes used by the tracked structures
+	 * @return the number of bytes used by the tracked structures
+	 */
+	public long getFootprint() {
+		return footprint.get();
+	}
+
+	/**
+	 * Checks if the heap is running out. The live memory is taken from the usage of the
+	 * tenured generation after the last garbage collection, so that garbage is not counted;
+	 * if the JVM does not report it, the current usage of the heap is used.
+	 * Since the usage after a collection does not change until the next collection,
+	 * the pressure is reported at most once per garbage collection.
+	 * @return true if tracked structures should move their cold elements to disk
+	 */
+	public synchronized boolean isUnderPressure() {
+		if(tenured == null) {
+			final Runtime runtime = Runtime.getRuntime();
+			return runtime.totalMemory() - runtime.freeMemory() > limit * runtime.maxMemory();
+		}
+
+		long collections = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			collections += gc.getCollectionCount();
+		if(collections == lastCollections) return false;
+
+		final MemoryUsage usage = tenured.getCollectionUsage();
+		if(usage != null && usage.getMax() > 0 && usage.getUsed() > limit * usage.getMax()) {
+			lastCollections = collections;
+			return true;
+		}
+
+		return false;
+	}
+}
@@ -91,12 +91,29 @@ public class SerializationUtils {
 	}
 
 	public static Serializable deserialize(byte[] buff, boolean compressed, ClassLoader loader) {
-		ObjectInput oi = null;
 		try {
 
 			InputStream in = new ByteArrayInputStream(buff);
 			if(compressed) in = new GZIPInputStream(in);
 
+			return deserialize(in, loader);
+
+		} catch(IOException e) {
+			logger.log(Level.WARNING, "Error while reading the serialized object: " + e, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads an object from the stream, and closes it
+	 * @param in the stream containing the serialized object
+	 * @param loader the class loader to use (if null, the default one is used)
+	 * @return the object, or null if something goes wrong
+	 */
+	public static Serializable deserialize(InputStream in, ClassLoader loader) {
+		ObjectInput oi = null;
+		try {
+
 			if(loader == null) oi = new ObjectInputStream(in);
 			else  oi = new CustomObjectInputStream(in, loader);
 
@@ -105,12 +122,11 @@ public class SerializationUtils {
 		} catch(Throwable e) {
 			logger.log(Level.WARNING, "Error while reading the serialized object: " + e, e);
 		} finally {
-			if(oi != null) {
-				try {
-					oi.close();
-				} catch(IOException e) {
-					logger.log(Level.WARNING, "Error while closing the input stream: " +  e, e);
-				}
+			try {
+				if(oi != null) oi.close();
+				else in.close();
+			} catch(IOException e) {
+				logger.log(Level.WARNING, "Error while closing the input stream: " +  e, e);
 			}
 		}
 		return null;
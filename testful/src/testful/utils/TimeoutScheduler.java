@@ -0,0 +1,191 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2010 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import testful.TestFul;
+
+/**
+ * Shared scheduler of timeouts: a single thread serves the timeouts of all the workers running in this JVM.
+ * A timeout is registered once (e.g., before executing a test), and then it is armed and disarmed
+ * many times (e.g., around each operation of the test) simply by updating its deadline:
+ * the fast path does not acquire any lock and does not notify the scheduler thread.
+ * While some timeouts are registered, the scheduler thread checks their deadlines every {@link TimeoutScheduler#TICK} ms;
+ * when no timeouts are registered, it sleeps until a new one is registered.
+ *
+ * @author matteo
+ */
+public class TimeoutScheduler {
+
+	private static final Logger logger = Logger.getLogger("testful.utils.timer");
+	private static final boolean LOG_FINER = logger.isLoggable(Level.FINER);
+
+	/** Resolution of the scheduler (ms) */
+	public static final int TICK = 5;
+
+	/** Deadline of a disarmed timeout */
+	private static final long DISARMED = 0;
+
+	/** Deadline of a timeout whose callback is being executed */
+	private static final long FIRING = -1;
+
+	public interface Callback {
+
+		/**
+		 * Notifies that the timeout is expired.
+		 * @return the amount of time (ms) to wait before calling this method again (if the timeout is not disarmed in the meanwhile)
+		 */
+		long timeoutExpired();
+	}
+
+	/**
+	 * A timeout, which can be repeatedly armed and disarmed.
+	 * A timeout is used by a single thread (the controlled one), and it must not be armed twice without disarming it.
+	 * @author matteo
+	 */
+	public static final class Timeout {
+
+		private final Callback callBack;
+
+		/** the deadline (as reported by System.currentTimeMillis()), or DISARMED, or FIRING */
+		private final AtomicLong deadline = new AtomicLong(DISARMED);
+
+		private Timeout(Callback callBack) {
+			this.callBack = callBack;
+		}
+
+		/**
+		 * Arms the timeout: in delay milliseconds the callback is called.
+		 * @param delay the amount of time to wait before calling the callback
+		 */
+		public void arm(long delay) {
+			if(TestFul.DEBUG && deadline.get() != DISARMED)
+				TestFul.debug(new IllegalStateException("The timeout is already armed: the alarm is scheduled for " + deadline.get()));
+
+			deadline.set(System.currentTimeMillis() + delay);
+		}
+
+		/**
+		 * Disarms the timeout: the callback is not called anymore (unless the timeout is armed again).
+		 * If the callback is being executed, waits for its completion.
+		 */
+		public void disarm() {
+			while(true) {
+				final long d = deadline.get();
+
+				if(d == FIRING) Thread.yield();
+				else if(deadline.compareAndSet(d, DISARMED)) return;
+			}
+		}
+
+		/**
+		 * If the timeout is expired, calls the callback.
+		 * @param now the current time
+		 */
+		private void check(long now) {
+			final long d = deadline.get();
+			if(d <= DISARMED || d > now) return;
+
+			// the controlled thread may be disarming the timeout
+			if(!deadline.compareAndSet(d, FIRING)) return;
+
+			long next;
+			try {
+				next = callBack.timeoutExpired();
+			} catch(Throwable e) {
+				logger.log(Level.WARNING, "Error in the timeout callback: " + e.getMessage(), e);
+				next = TICK;
+			}
+
+			deadline.set(System.currentTimeMillis() + next);
+		}
+	}
+
+	/** The singleton, shared by all the workers of this JVM */
+	public static final TimeoutScheduler singleton = new TimeoutScheduler();
+
+	/** the registered timeouts */
+	private final List<Timeout> timeouts = new CopyOnWriteArrayList<Timeout>();
+
+	private TimeoutScheduler() {
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while(true) {
+					try {
+
+						synchronized (timeouts) {
+							while(timeouts.isEmpty()) timeouts.wait();
+						}
+
+						Thread.sleep(TICK);
+
+						final long now = System.currentTimeMillis();
+						for (Timeout t : timeouts)
+							t.check(now);
+
+					} catch (InterruptedException e) {
+						if(LOG_FINER) logger.log(Level.FINER, "Someone is killing the timeout scheduler!", e);
+					}
+				}
+			}
+		});
+
+		thread.setName("testful-timeouts");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Registers a new (disarmed) timeout
+	 * @param callBack the one to call back when the timeout expires
+	 * @return the timeout
+	 */
+	public Timeout register(Callback callBack) {
+		final Timeout t = new Timeout(callBack);
+
+		synchronized (timeouts) {
+			timeouts.add(t);
+			timeouts.notify();
+		}
+
+		return t;
+	}
+
+	/**
+	 * De-registers the timeout: after invoking this method, the timeout is no longer usable
+	 * @param t the timeout to de-register
+	 */
+	public void unregister(Timeout t) {
+		t.disarm();
+		timeouts.remove(t);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "TimeoutScheduler (" + timeouts.size() + " timeouts)";
+	}
+}
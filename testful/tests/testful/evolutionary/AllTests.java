@@ -30,7 +30,10 @@ public class AllTests {
 	public static Test suite() {
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		//$JUnit-BEGIN$
+		suite.addTestSuite(OffspringTestCase.class);
 		suite.addTestSuite(RankingTestCase.class);
+		suite.addTestSuite(SurrogateFitnessTestCase.class);
+		suite.addTestSuite(TestfulSelectionTestCase.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,268 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import jmetal.base.Problem;
+import jmetal.base.Solution;
+import jmetal.base.SolutionSet;
+import jmetal.base.TerminationCriterion;
+import jmetal.base.Variable;
+import jmetal.base.operator.mutation.Mutation;
+import junit.framework.TestCase;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Tests the parallel creation of the offspring in the {@link NSGAII}
+ * @author matteo
+ */
+public class OffspringTestCase extends TestCase {
+
+	private static final int POP_SIZE = 20;
+
+	/** An immutable gene */
+	private static class Gene implements Variable {
+		private final int value;
+
+		public Gene(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public Gene clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return Integer.toString(value);
+		}
+	}
+
+	/**
+	 * A problem evaluating solutions asynchronously, which records the evaluations and the threads requesting them.
+	 * The only objective is the sum of the values of the genes.
+	 */
+	private static class Async extends Problem<Gene> implements IAsyncProblem<Gene> {
+		private static final long serialVersionUID = 1L;
+
+		final Map<Solution<Gene>, Integer> evaluated = new IdentityHashMap<Solution<Gene>, Integer>();
+		final Map<Solution<Gene>, Integer> constraints = new IdentityHashMap<Solution<Gene>, Integer>();
+		final Set<Thread> threads = Collections.newSetFromMap(new IdentityHashMap<Thread, Boolean>());
+
+		public Async() {
+			numberOfObjectives_ = 1;
+		}
+
+		@Override
+		public List<Gene> generateNewDecisionVariable() {
+			List<Gene> ret = new ArrayList<Gene>();
+			for (int i = 0; i < 3; i++)
+				ret.add(new Gene(i));
+			return ret;
+		}
+
+		@Override
+		public synchronized void evaluate(Solution<Gene> solution) {
+			increment(evaluated, solution);
+
+			int sum = 0;
+			for (Gene g : solution.getDecisionVariables().variables_)
+				sum += g.value;
+			solution.setObjective(0, sum);
+		}
+
+		@Override
+		public synchronized void evaluateConstraints(Solution<Gene> solution) {
+			increment(constraints, solution);
+		}
+
+		@Override
+		public Future<Solution<Gene>> evaluateAsync(final Solution<Gene> solution) {
+			synchronized (this) {
+				threads.add(Thread.currentThread());
+			}
+
+			FutureTask<Solution<Gene>> ret = new FutureTask<Solution<Gene>>(new Callable<Solution<Gene>>() {
+				@Override
+				public Solution<Gene> call() {
+					evaluate(solution);
+					return solution;
+				}
+			});
+			ret.run();
+			return ret;
+		}
+	}
+
+	/** Appends a random gene, and records the mutated solutions */
+	private static class Append extends Mutation<Gene> {
+		private static final long serialVersionUID = 1L;
+
+		final Map<Solution<Gene>, Integer> mutated = new IdentityHashMap<Solution<Gene>, Integer>();
+
+		@Override
+		public void execute(Solution<Gene> solution) {
+			final int value = NSGAII.getRandom().nextInt(1000);
+
+			synchronized (this) {
+				increment(mutated, solution);
+			}
+
+			solution.getDecisionVariables().variables_.add(new Gene(value));
+		}
+	}
+
+	/** Terminates after the given number of generations */
+	private static class Generations implements TerminationCriterion {
+		private final int generations;
+		private int current = 0;
+
+		public Generations(int generations) {
+			this.generations = generations;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return current++ >= generations;
+		}
+
+		@Override
+		public float getProgressPercent() {
+			return 100.0f * current / generations;
+		}
+
+		@Override
+		public long getProgress() {
+			return current;
+		}
+
+		@Override
+		public long getTarget() {
+			return generations;
+		}
+
+		@Override
+		public String getRemaining() {
+			return (generations - current) + " generations";
+		}
+
+		@Override
+		public Generations clone() {
+			return new Generations(generations);
+		}
+	}
+
+	public void testExecute() throws Exception {
+		final Async problem = new Async();
+		final Append mutation = new Append();
+
+		final NSGAII<Gene> algorithm = create(problem, mutation, 3);
+		algorithm.setTerminationCriterion(new Generations(5));
+
+		NSGAII.setRandom(new MersenneTwisterFast(42));
+		try {
+			algorithm.execute();
+		} finally {
+			NSGAII.setRandom(null);
+		}
+
+		// every child is mutated once, evaluated once, and its constraints are evaluated once
+		assertEquals(5 * POP_SIZE, mutation.mutated.size());
+		assertEquals(mutation.mutated.keySet(), problem.evaluated.keySet());
+		for (Solution<Gene> child : mutation.mutated.keySet()) {
+			assertEquals(1, mutation.mutated.get(child).intValue());
+			assertEquals(1, problem.evaluated.get(child).intValue());
+			assertEquals(1, problem.constraints.get(child).intValue());
+		}
+
+		// the same threads are used in all generations, and they are stopped at the end
+		assertTrue(problem.threads.size() <= 3);
+		for (Thread t : problem.threads) {
+			t.join(1000);
+			assertFalse(t.isAlive());
+		}
+	}
+
+	public void testDeterministic() throws Exception {
+		List<String> expected = generate(1);
+		assertEquals(POP_SIZE, expected.size());
+		assertEquals(expected, generate(4));
+		assertEquals(expected, generate(4));
+	}
+
+	/** Creates the offspring of a population using the given number of threads */
+	private List<String> generate(int threads) throws Exception {
+		final Async problem = new Async();
+		final NSGAII<Gene> algorithm = create(problem, new Append(), threads);
+
+		final SolutionSet<Gene> population = new SolutionSet<Gene>(POP_SIZE);
+		final MersenneTwisterFast random = new MersenneTwisterFast(17);
+		for (int i = 0; i < POP_SIZE; i++) {
+			Solution<Gene> s = new Solution<Gene>(problem);
+			s.getDecisionVariables().variables_.add(new Gene(random.nextInt(1000)));
+			problem.evaluate(s);
+			population.add(s);
+		}
+
+		final SolutionSet<Gene> offspring;
+		final ExecutorService executor = algorithm.createVariationExecutor();
+		NSGAII.setRandom(new MersenneTwisterFast(42));
+		try {
+			offspring = algorithm.generateOffspring(population, executor);
+		} finally {
+			NSGAII.setRandom(null);
+			executor.shutdownNow();
+		}
+
+		List<String> ret = new ArrayList<String>();
+		for (Solution<Gene> child : offspring)
+			ret.add(child.getDecisionVariables().variables_.toString());
+		return ret;
+	}
+
+	private static NSGAII<Gene> create(Async problem, Append mutation, int threads) {
+		NSGAII<Gene> algorithm = new NSGAII<Gene>(problem);
+		algorithm.setPopulationSize(POP_SIZE);
+		algorithm.setOffspringThreads(threads);
+
+		TestfulCrossover<Gene> crossover = new TestfulCrossover<Gene>();
+		crossover.setProbability(0.5);
+		algorithm.setCrossover(crossover);
+		algorithm.setMutation(mutation);
+		algorithm.setSelection(new TestfulSelection<Gene>());
+
+		return algorithm;
+	}
+
+	private static void increment(Map<Solution<Gene>, Integer> map, Solution<Gene> solution) {
+		Integer n = map.get(solution);
+		map.put(solution, n == null ? 1 : n + 1);
+	}
+}
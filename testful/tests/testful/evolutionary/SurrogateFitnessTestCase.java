@@ -0,0 +1,177 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jmetal.base.Problem;
+import jmetal.base.Solution;
+import jmetal.base.SolutionSet;
+import testful.GenericTestCase;
+import testful.evolutionary.IConfigEvolutionary.FitnessInheritance;
+import testful.model.Invoke;
+import testful.model.Operation;
+import testful.model.Reference;
+import testful.testCut.DummySimpleCUT;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Tests the {@link SurrogateFitness}, and its use to select the children to evaluate
+ * @author matteo
+ */
+public class SurrogateFitnessTestCase extends GenericTestCase {
+
+	/** A problem with two objectives, whose solutions are created by the test */
+	private static class Stub extends Problem<Operation> {
+		private static final long serialVersionUID = 1L;
+
+		public Stub() {
+			numberOfObjectives_ = 2;
+		}
+
+		@Override
+		public List<Operation> generateNewDecisionVariable() {
+			return new ArrayList<Operation>();
+		}
+
+		@Override
+		public void evaluate(Solution<Operation> solution) { }
+	}
+
+	private final Stub problem = new Stub();
+
+	public void testReady() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+		MersenneTwisterFast random = new MersenneTwisterFast(42);
+
+		SurrogateFitness surrogate = new SurrogateFitness();
+		assertFalse(surrogate.isReady());
+		assertNull(surrogate.predict(create(cut, 1, 1)));
+
+		for (int i = 0; i < 99; i++)
+			surrogate.train(createEvaluated(cut, random.nextInt(10), random.nextInt(10)));
+		assertFalse(surrogate.isReady());
+
+		surrogate.train(createEvaluated(cut, random.nextInt(10), random.nextInt(10)));
+		assertTrue(surrogate.isReady());
+	}
+
+	public void testRanking() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+		SurrogateFitness surrogate = train(cut);
+
+		double[] inc = surrogate.predict(create(cut, 8, 1));
+		double[] dec = surrogate.predict(create(cut, 1, 8));
+		double[] both = surrogate.predict(create(cut, 8, 8));
+		double[] none = surrogate.predict(create(cut, 1, 1));
+
+		assertTrue(inc[0] < dec[0]);
+		assertTrue(dec[1] < inc[1]);
+		assertTrue(both[0] < none[0]);
+		assertTrue(both[1] < none[1]);
+	}
+
+	/** children predicted worse than the whole population are not evaluated (except the random ones) */
+	public void testSkipWorse() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+
+		SolutionSet<Operation> offspring = createOffspring(cut);
+		SolutionSet<Operation> population = new SolutionSet<Operation>(20);
+		for (int i = 0; i < 20; i++)
+			population.add(createEvaluated(cut, 20, 20));
+
+		List<Solution<Operation>> toEval = select(cut, offspring, population);
+
+		// 45% of 20 children, a fifth of them chosen randomly
+		assertEquals(2, toEval.size());
+	}
+
+	/** children predicted better than the population are evaluated, up to the uniform inheritance count */
+	public void testSelectBetter() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+
+		SolutionSet<Operation> offspring = createOffspring(cut);
+		SolutionSet<Operation> population = new SolutionSet<Operation>(20);
+		for (int i = 0; i < 20; i++)
+			population.add(createEvaluated(cut, 0, 0));
+
+		List<Solution<Operation>> toEval = select(cut, offspring, population);
+		assertEquals(9, toEval.size());
+
+		// the first ones are among the best children (with 9 invocations of both methods)
+		List<Solution<Operation>> best = new ArrayList<Solution<Operation>>();
+		for (int i = 11; i < 20; i++)
+			best.add(offspring.get(i));
+		for (int i = 0; i < 7; i++)
+			assertTrue(best.contains(toEval.get(i)));
+	}
+
+	private List<Solution<Operation>> select(DummySimpleCUT cut, SolutionSet<Operation> offspring, SolutionSet<Operation> population) throws Exception {
+		NSGAII<Operation> algorithm = new NSGAII<Operation>(problem);
+		algorithm.setInherit(FitnessInheritance.SURROGATE);
+		algorithm.setSurrogate(train(cut));
+
+		NSGAII.setRandom(new MersenneTwisterFast(42));
+		try {
+			return algorithm.selectBySurrogate(offspring, population);
+		} finally {
+			NSGAII.setRandom(null);
+		}
+	}
+
+	/** Creates 20 children, from the worst (no invocations) to the best */
+	private SolutionSet<Operation> createOffspring(DummySimpleCUT cut) {
+		SolutionSet<Operation> offspring = new SolutionSet<Operation>(20);
+		for (int i = 0; i < 11; i++)
+			offspring.add(create(cut, i / 2, (i + 1) / 2));
+		for (int i = 0; i < 9; i++)
+			offspring.add(create(cut, 9, 9));
+		return offspring;
+	}
+
+	private SurrogateFitness train(DummySimpleCUT cut) {
+		MersenneTwisterFast random = new MersenneTwisterFast(42);
+
+		SurrogateFitness surrogate = new SurrogateFitness();
+		for (int i = 0; i < 500; i++)
+			surrogate.train(createEvaluated(cut, random.nextInt(10), random.nextInt(10)));
+
+		assertTrue(surrogate.isReady());
+		return surrogate;
+	}
+
+	/** Creates a test invoking mInc and mDec, whose objectives are minus the number of their invocations */
+	private Solution<Operation> createEvaluated(DummySimpleCUT cut, int nInc, int nDec) {
+		Solution<Operation> s = create(cut, nInc, nDec);
+		s.setObjective(0, -nInc);
+		s.setObjective(1, -nDec);
+		return s;
+	}
+
+	private Solution<Operation> create(DummySimpleCUT cut, int nInc, int nDec) {
+		Solution<Operation> s = new Solution<Operation>(problem);
+		List<Operation> ops = s.getDecisionVariables().variables_;
+		for (int i = 0; i < Math.max(nInc, nDec); i++) {
+			if(i < nInc) ops.add(new Invoke(null, cut.cuts[0], cut.mInc, new Reference[] { }));
+			if(i < nDec) ops.add(new Invoke(null, cut.cuts[0], cut.mDec, new Reference[] { }));
+		}
+		return s;
+	}
+}
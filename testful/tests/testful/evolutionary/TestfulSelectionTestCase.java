@@ -0,0 +1,107 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.evolutionary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jmetal.base.Solution;
+import jmetal.base.SolutionSet;
+import jmetal.base.Variable;
+import jmetal.base.operator.selection.BinaryTournament2;
+import jmetal.base.operator.selection.Selection;
+import jmetal.util.PseudoRandom;
+import junit.framework.TestCase;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Tests the {@link TestfulSelection}, and the random number generator of threads
+ * @author matteo
+ */
+public class TestfulSelectionTestCase extends TestCase {
+
+	public void testSameAsJmetal() throws Exception {
+		SolutionSet<Variable> pop = createPopulation();
+
+		PseudoRandom.setupMersenneTwisterFast(42);
+		List<Solution<Variable>> expected = select(new BinaryTournament2<Variable>(), pop);
+
+		PseudoRandom.setupMersenneTwisterFast(42);
+		assertEquals(expected, select(new TestfulSelection<Variable>(), pop));
+	}
+
+	public void testThreadRandom() throws Exception {
+		SolutionSet<Variable> pop = createPopulation();
+
+		PseudoRandom.setupMersenneTwisterFast(42);
+		List<Solution<Variable>> expected = select(new TestfulSelection<Variable>(), pop);
+
+		PseudoRandom.setupMersenneTwisterFast(7);
+		NSGAII.setRandom(new MersenneTwisterFast(42));
+		try {
+			assertEquals(expected, select(new TestfulSelection<Variable>(), pop));
+		} finally {
+			NSGAII.setRandom(null);
+		}
+
+		// the generator of jMetal has not been used
+		assertSame(PseudoRandom.getMersenneTwisterFast(), NSGAII.getRandom());
+		assertEquals(new MersenneTwisterFast(7).nextLong(), PseudoRandom.getMersenneTwisterFast().nextLong());
+	}
+
+	public void testOtherThreads() throws Exception {
+		final MersenneTwisterFast random = new MersenneTwisterFast(42);
+		NSGAII.setRandom(random);
+		try {
+			final MersenneTwisterFast[] other = new MersenneTwisterFast[1];
+			Thread t = new Thread() {
+				@Override
+				public void run() {
+					other[0] = NSGAII.getRandom();
+				}
+			};
+			t.start();
+			t.join();
+
+			assertSame(random, NSGAII.getRandom());
+			assertSame(PseudoRandom.getMersenneTwisterFast(), other[0]);
+		} finally {
+			NSGAII.setRandom(null);
+		}
+	}
+
+	/** Creates a population where most tournaments are decided randomly */
+	private static SolutionSet<Variable> createPopulation() {
+		SolutionSet<Variable> pop = new SolutionSet<Variable>(10);
+		for (int i = 0; i < 10; i++) {
+			Solution<Variable> s = new Solution<Variable>(2);
+			s.setObjective(0, i % 2);
+			s.setObjective(1, i % 2);
+			pop.add(s);
+		}
+		return pop;
+	}
+
+	private static List<Solution<Variable>> select(Selection<Variable, Solution<Variable>> selection, SolutionSet<Variable> pop) throws Exception {
+		List<Solution<Variable>> ret = new ArrayList<Solution<Variable>>();
+		for (int i = 0; i < 50; i++)
+			ret.add(selection.execute(pop));
+		return ret;
+	}
+}
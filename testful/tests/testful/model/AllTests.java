@@ -37,6 +37,14 @@ public class AllTests {
 		suite.addTestSuite(OptimalTestCase.class);
 		suite.addTestSuite(OperationResultTestExecutorTestCase.class);
 		suite.addTestSuite(ArrayTestCase.class);
+		suite.addTestSuite(ExecutionTimeTestCase.class);
+		suite.addTestSuite(OperationPoolTestCase.class);
+		suite.addTestSuite(PackedTestTestCase.class);
+		suite.addTestSuite(TestSerializerTestCase.class);
+		suite.addTestSuite(TestArchiveTestCase.class);
+		suite.addTestSuite(TestReaderTestCase.class);
+		suite.addTestSuite(TestStoreTestCase.class);
+		suite.addTestSuite(ReferenceMaskTestCase.class);
 		//$JUnit-END$
 
 		suite.addTest(testful.model.transformation.AllTests.suite());
@@ -0,0 +1,77 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the budgets learned by {@link ExecutionTime}
+ * @author matteo
+ */
+public class ExecutionTimeTestCase extends TestCase {
+
+	private static final long MS = 1000000;
+
+	public void testNotEnoughSamples() {
+		ExecutionTime t = new ExecutionTime();
+		for (int i = 0; i < 10; i++)
+			t.record(MS);
+
+		assertEquals(500, t.getBudget(500));
+	}
+
+	public void testBudget() {
+		ExecutionTime t = new ExecutionTime();
+		for (int i = 0; i < 1000; i++)
+			t.record(MS);
+
+		// 1 ms falls in the bucket [512, 1024) us: the budget is 2 * 2 ms + 50 ms
+		assertEquals(54, t.getBudget(500));
+		assertEquals(20, t.getBudget(20));
+	}
+
+	public void testPercentile() {
+		ExecutionTime t = new ExecutionTime();
+		for (int i = 0; i < 1000; i++)
+			t.record(i < 995 ? MS : 300 * MS);
+
+		// less than 1% of the executions are slow: they are ignored
+		assertEquals(54, t.getBudget(500));
+
+		for (int i = 0; i < 1000; i++)
+			t.record(300 * MS);
+
+		// 300 ms falls in the bucket [262, 524) ms: the budget is the maximum execution time
+		assertEquals(500, t.getBudget(500));
+	}
+
+	public void testTimeout() {
+		ExecutionTime t = new ExecutionTime();
+		for (int i = 0; i < 1000; i++)
+			t.record(MS);
+		assertEquals(54, t.getBudget(500));
+
+		// more than 1% of the executions time out: they count as lasting the whole budget
+		for (int i = 0; i < 40; i++)
+			t.recordTimeout(54);
+
+		// 54 ms falls in the bucket [32, 66) ms: the budget is 2 * 66 ms + 50 ms
+		assertEquals(182, t.getBudget(500));
+	}
+}
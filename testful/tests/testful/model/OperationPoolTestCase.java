@@ -0,0 +1,80 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import testful.GenericTestCase;
+import testful.testCut.DummySimpleCUT;
+
+/**
+ * Tests the sharing of operations among tests
+ * @author matteo
+ */
+public class OperationPoolTestCase extends GenericTestCase {
+
+	public void testIntern() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+		OperationPool pool = new OperationPool();
+
+		Operation op1 = pool.intern(new Invoke(null, cut.cuts[0], cut.mInc, new Reference[] { }));
+		Operation op2 = pool.intern(new Invoke(null, cut.cuts[0], cut.mInc, new Reference[] { }));
+
+		assertSame(op1, op2);
+		assertTrue(op1.isShared());
+		assertSame(op1, op1.clone());
+		assertEquals(1, pool.size());
+
+		Operation copy = op1.copy();
+		assertNotSame(op1, copy);
+		assertEquals(op1, copy);
+		assertFalse(copy.isShared());
+	}
+
+	public void testAnnotatedNotShared() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+		OperationPool pool = new OperationPool();
+
+		Operation op = new CreateObject(cut.cuts[0], cut.cns, new Reference[] { });
+		op.addInfo(new OperationResult());
+
+		assertSame(op, pool.intern(op));
+		assertFalse(op.isShared());
+		assertEquals(0, pool.size());
+	}
+
+	public void testCopyOnWrite() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+		OperationPool pool = new OperationPool();
+
+		Operation shared = pool.intern(new CreateObject(cut.cuts[0], cut.cns, new Reference[] { }));
+		try {
+			shared.addInfo(new OperationResult());
+			fail("Shared operations must not be annotated");
+		} catch(IllegalStateException e) {
+			// expected
+		}
+
+		Operation[] ops = new Operation[] { shared, shared };
+		OperationResult.insert(ops);
+
+		assertNotSame(shared, ops[0]);
+		assertNotSame(ops[0], ops[1]);
+		assertNotNull(ops[0].getInfo(OperationResult.KEY));
+		assertNull(shared.getInfo(OperationResult.KEY));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import testful.GenericTestCase;
+import testful.testCut.DummySimpleCUT;
+
+/**
+ * Tests the compact representation of tests
+ * @author matteo
+ */
+public class PackedTestTestCase extends GenericTestCase {
+
+	public void testRoundTrip() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+
+		Operation create = new CreateObject(cut.cuts[0], cut.cns, new Reference[] { });
+		create.addInfo(new OperationResult());
+
+		Test t = new Test(cut.cluster, cut.refFactory, new Operation[] {
+				new AssignPrimitive(cut.ints[0], 5),
+				new AssignPrimitive(cut.ints[1], null),
+				create,
+				new CreateObject(cut.objects[0], cut.oCns, new Reference[] { }),
+				new Invoke(cut.ints[1], cut.cuts[0], cut.mInc, new Reference[] { }),
+				ResetRepository.singleton,
+				new Invoke(null, cut.cuts[0], cut.mDec, new Reference[] { })
+		});
+
+		PackedTest packed = new PackedTest(t);
+		assertEquals(t.getTest().length, packed.getLength());
+
+		Test unpacked = packed.getTest();
+		assertEquals(t, unpacked);
+		assertNotSame(t.getTest()[0], unpacked.getTest()[0]);
+		assertNotNull(unpacked.getTest()[2].getInfo(OperationResult.KEY));
+		assertNull(unpacked.getTest()[3].getInfo(OperationResult.KEY));
+
+		assertEquals(packed, new PackedTest(unpacked));
+		assertEquals(packed.hashCode(), new PackedTest(unpacked).hashCode());
+	}
+
+	public void testDifferent() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+
+		PackedTest p1 = new PackedTest(new Test(cut.cluster, cut.refFactory, new Operation[] {
+				new AssignPrimitive(cut.ints[0], 5)
+		}));
+
+		PackedTest p2 = new PackedTest(new Test(cut.cluster, cut.refFactory, new Operation[] {
+				new AssignPrimitive(cut.ints[0], 6)
+		}));
+
+		assertFalse(p1.equals(p2));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the masks of references
+ * @author matteo
+ */
+public class ReferenceMaskTestCase extends TestCase {
+
+	private static final Clazz clazz = new Clazz(0, "Dummy", false);
+
+	private static long[] mask(int ... ids) {
+		Set<Reference> refs = new HashSet<Reference>();
+		for (int id : ids)
+			refs.add(new Reference(clazz, id, id));
+		return ReferenceMask.create(refs);
+	}
+
+	public void testCreate() throws Exception {
+		long[] m = mask(0, 5, 63, 64, 130);
+		assertEquals(3, m.length);
+
+		for (int i = 0; i < 200; i++)
+			assertEquals(i == 0 || i == 5 || i == 63 || i == 64 || i == 130, ReferenceMask.contains(m, i));
+
+		assertEquals(0, mask().length);
+		assertFalse(ReferenceMask.contains(mask(), 0));
+	}
+
+	public void testIntersects() throws Exception {
+		assertTrue(ReferenceMask.intersects(mask(1, 70), mask(70)));
+		assertTrue(ReferenceMask.intersects(mask(70), mask(3, 70, 200)));
+		assertFalse(ReferenceMask.intersects(mask(1, 70), mask(2, 71, 200)));
+		assertFalse(ReferenceMask.intersects(mask(200), mask(1)));
+		assertFalse(ReferenceMask.intersects(mask(), mask(1)));
+	}
+
+	public void testOr() throws Exception {
+		long[] m = new long[4];
+		ReferenceMask.or(m, mask(1, 70));
+		ReferenceMask.set(m, 200);
+
+		assertTrue(ReferenceMask.contains(m, 1));
+		assertTrue(ReferenceMask.contains(m, 70));
+		assertTrue(ReferenceMask.contains(m, 200));
+		assertFalse(ReferenceMask.contains(m, 2));
+
+		ReferenceMask.clear(m);
+		assertFalse(ReferenceMask.intersects(m, mask(1, 70, 200)));
+	}
+
+	public void testOrShorterTarget() throws Exception {
+		long[] m = new long[1];
+		ReferenceMask.or(m, mask());
+		ReferenceMask.or(m, mask(1, 63));
+		assertTrue(ReferenceMask.contains(m, 1));
+		assertTrue(ReferenceMask.contains(m, 63));
+
+		try {
+			ReferenceMask.or(m, mask(1, 70));
+			fail("the target cannot contain the reference 70");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import testful.GenericTestCase;
+import testful.coverage.CoverageInformation;
+import testful.utils.ElementManager;
+
+/**
+ * Tests the archive of tests
+ * @author matteo
+ */
+public class TestArchiveTestCase extends GenericTestCase {
+
+	public void testWriteRead() throws Exception {
+		File file = File.createTempFile("testful-", TestArchive.EXTENSION);
+		file.deleteOnExit();
+
+		Test t1 = createRandomTest("apache.Fraction", 100, 17);
+		Test t2 = createRandomTest("apache.Fraction", 1000, 19);
+		Test t3 = createRandomTest("dummy.Simple", 50, 23);
+		TestCoverage t4 = new TestCoverage(createRandomTest("apache.Fraction", 10, 29), new ElementManager<String, CoverageInformation>());
+
+		TestArchive.Writer writer = new TestArchive.Writer(file);
+		writer.add("t1", t1);
+		writer.add("t2", t2);
+		writer.close();
+
+		TestArchive archive = new TestArchive(file);
+		assertEquals(2, archive.size());
+		assertEquals("t2", archive.getEntry(1).getName());
+		assertEquals(1000, archive.getEntry(1).getLength());
+		assertEquals(t2, archive.getTest(1));
+		assertEquals(t1, archive.getTest(0));
+		assertNull(archive.getCoverage(0));
+		archive.close();
+
+		// append
+		writer = new TestArchive.Writer(file);
+		writer.add("t3", t3);
+		writer.add("t4", t4);
+		writer.close();
+
+		archive = new TestArchive(file);
+		assertEquals(4, archive.size());
+		assertEquals(t1, archive.getTest(0));
+		assertEquals(t3, archive.getTest(2));
+		assertTrue(archive.getTest(3) instanceof TestCoverage);
+		assertEquals(t4, archive.getTest(3));
+		assertTrue(archive.getEntry(3).hasCoverage());
+		assertFalse(archive.getEntry(2).hasCoverage());
+		archive.close();
+	}
+
+	public void testNotClosed() throws Exception {
+		File file = File.createTempFile("testful-", TestArchive.EXTENSION);
+		file.deleteOnExit();
+
+		TestArchive.Writer writer = new TestArchive.Writer(file);
+		writer.add("t1", createRandomTest("apache.Fraction", 10, 17));
+
+		try {
+			new TestArchive(file);
+			fail("The archive must not be readable before the writer is closed");
+		} catch(java.io.IOException e) {
+			// expected
+		}
+
+		writer.close();
+
+		TestArchive archive = new TestArchive(file);
+		assertEquals(1, archive.size());
+		archive.close();
+	}
+
+	/** An operation that the TestSerializer does not know */
+	private static class Unknown extends Operation {
+
+		private static final long serialVersionUID = 1L;
+
+		public Unknown() {
+			super(0);
+		}
+
+		@Override
+		public String toString() {
+			return "unknown";
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Unknown;
+		}
+
+		@Override
+		public Operation copy() {
+			return this;
+		}
+
+		@Override
+		protected Set<Reference> calculateDefs() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		protected Set<Reference> calculateUses() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Operation adapt(TestCluster cluster, ReferenceFactory refFactory) {
+			return this;
+		}
+	}
+
+	public void testUnknownOperation() throws Exception {
+		File file = File.createTempFile("testful-", TestArchive.EXTENSION);
+		file.deleteOnExit();
+
+		Test t1 = createRandomTest("apache.Fraction", 10, 17);
+		Test bad = new Test(t1.getCluster(), t1.getReferenceFactory(), new Operation[] { new Unknown() });
+
+		TestArchive.Writer writer = new TestArchive.Writer(file);
+		writer.add("t1", t1);
+		try {
+			writer.add("bad", bad);
+			fail("The test cannot be serialized");
+		} catch(IOException e) {
+			// expected
+		}
+		writer.close();
+
+		TestArchive archive = new TestArchive(file);
+		assertEquals(1, archive.size());
+		assertEquals(t1, archive.getTest(0));
+		archive.close();
+	}
+}
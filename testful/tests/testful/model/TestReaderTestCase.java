@@ -0,0 +1,181 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import testful.GenericTestCase;
+
+/**
+ * Tests the {@link TestReader}, reading files sequentially and in parallel
+ * @author matteo
+ */
+public class TestReaderTestCase extends GenericTestCase {
+
+	private static final Logger logger = Logger.getLogger("testful.model");
+
+	/** Records the tests read, and the number of files de-serialized in advance */
+	private static class Recorder extends TestReader {
+
+		final List<String> names = new ArrayList<String>();
+		final List<Test> tests = new ArrayList<Test>();
+
+		/** number of files being de-serialized (or already de-serialized) */
+		final AtomicInteger deserialized = new AtomicInteger();
+
+		/** the maximum number of files de-serialized and not yet passed to the read methods */
+		int maxAhead = 0;
+
+		/** time spent to process each test (ms) */
+		private final long delay;
+
+		/**
+		 * @param readThreads the number of threads reading files (0 to use the default)
+		 * @param delay time spent to process each test (ms)
+		 */
+		public Recorder(int readThreads, long delay) {
+			this.delay = delay;
+			if(readThreads > 0) setReadThreads(readThreads);
+		}
+
+		@Override
+		protected Logger getLogger() {
+			return logger;
+		}
+
+		@Override
+		Object readObject(File file) {
+			deserialized.incrementAndGet();
+			return super.readObject(file);
+		}
+
+		@Override
+		protected void read(String fileName, Test test) {
+			names.add(fileName.substring(fileName.lastIndexOf(File.separatorChar) + 1));
+			tests.add(test);
+			maxAhead = Math.max(maxAhead, deserialized.get() - names.size());
+
+			if(delay > 0) try {
+				Thread.sleep(delay);
+			} catch(InterruptedException e) {
+			}
+		}
+	}
+
+	public void testDefault() throws Exception {
+		assertEquals(1, new Recorder(0, 0).getReadThreads());
+	}
+
+	public void testOrder() throws Exception {
+		File dir = createDir();
+		try {
+			List<Test> tests = new ArrayList<Test>();
+			List<File> files = new ArrayList<File>();
+			for (int i = 0; i < 10; i++) {
+				Test t = createRandomTest("dummy.Simple", 10, i);
+				tests.add(t);
+				files.add(write(new File(dir, "t" + i + (i % 3 == 0 ? ".ser.gz" : ".ser")), t));
+			}
+
+			File archive = new File(dir, "a" + TestArchive.EXTENSION);
+			TestArchive.Writer writer = new TestArchive.Writer(archive);
+			for (int i = 0; i < 3; i++) {
+				Test t = createRandomTest("dummy.Simple", 10, 100 + i);
+				tests.add(5 + i, t);
+				writer.add("e" + i, t);
+			}
+			writer.close();
+			files.add(5, archive);
+
+			Recorder sequential = new Recorder(1, 0);
+			sequential.read(files.toArray(new File[files.size()]));
+			assertEquals(tests, sequential.tests);
+
+			Recorder parallel = new Recorder(4, 0);
+			parallel.read(files.toArray(new File[files.size()]));
+			assertEquals(sequential.names, parallel.names);
+			assertEquals(tests, parallel.tests);
+
+			// directories are read in the order of their listing
+			sequential = new Recorder(1, 0);
+			sequential.read(new File[] { dir });
+			parallel = new Recorder(4, 0);
+			parallel.read(new File[] { dir });
+			assertEquals(13, sequential.names.size());
+			assertEquals(sequential.names, parallel.names);
+
+		} finally {
+			delete(dir);
+		}
+	}
+
+	public void testReadAhead() throws Exception {
+		File dir = createDir();
+		try {
+			List<File> files = new ArrayList<File>();
+			for (int i = 0; i < 40; i++)
+				files.add(write(new File(dir, "t" + i + ".ser"), createRandomTest("dummy.Simple", 10, i)));
+
+			// the read methods are slower than the threads de-serializing files
+			Recorder reader = new Recorder(3, 5);
+			reader.read(files.toArray(new File[files.size()]));
+
+			assertEquals(40, reader.names.size());
+			assertEquals(40, reader.deserialized.get());
+			assertTrue("files read in advance: " + reader.maxAhead, reader.maxAhead > 0);
+			assertTrue("files read in advance: " + reader.maxAhead, reader.maxAhead < 2 * 3);
+
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private static File createDir() throws IOException {
+		File dir = File.createTempFile("testful-", ".dir");
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+		return dir;
+	}
+
+	private static void delete(File dir) {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	private static File write(File file, Test test) throws IOException {
+		OutputStream os = new FileOutputStream(file);
+		if(file.getName().endsWith(".gz")) os = new GZIPOutputStream(os);
+
+		ObjectOutputStream oo = new ObjectOutputStream(os);
+		oo.writeObject(test);
+		oo.close();
+
+		return file;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import testful.GenericTestCase;
+import testful.model.executor.TestSerializer;
+
+/**
+ * Compares the performance of the serialization of tests with the java serialization.
+ * It is not part of the test suite: run it by hand.
+ * @author matteo
+ */
+public class TestSerializerBenchmark extends GenericTestCase {
+
+	private static final int[] LENGTHS = { 10, 100, 1000, 5000 };
+
+	public void testSerialization() throws Exception {
+		final int iterations = 200;
+
+		for (int len : LENGTHS) {
+			Test test = createRandomTest("apache.Fraction", len, len);
+
+			// warm up
+			for (int i = 0; i < iterations; i++) {
+				TestSerializer.deserialize(test.getCluster(), new DataInputStream(new ByteArrayInputStream(TestSerializer.serialize(test))));
+				javaDeserialize(javaSerialize(test));
+			}
+
+			byte[] b = null;
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				b = TestSerializer.serialize(test);
+			long write = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				TestSerializer.deserialize(test.getCluster(), new DataInputStream(new ByteArrayInputStream(b)));
+			long read = System.nanoTime() - start;
+
+			byte[] j = null;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				j = javaSerialize(test);
+			long javaWrite = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				javaDeserialize(j);
+			long javaRead = System.nanoTime() - start;
+
+			System.out.printf("[%s] length %5d: TestSerializer write %8.1f us read %8.1f us %7d bytes - java serialization write %8.1f us read %8.1f us %7d bytes%n",
+					getClass().getSimpleName(), len,
+					write / 1000.0 / iterations, read / 1000.0 / iterations, b.length,
+					javaWrite / 1000.0 / iterations, javaRead / 1000.0 / iterations, j.length);
+		}
+	}
+
+	private static byte[] javaSerialize(Test test) throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oo = new ObjectOutputStream(baos);
+		oo.writeObject(test);
+		oo.close();
+		return baos.toByteArray();
+	}
+
+	private static Test javaDeserialize(byte[] b) throws Exception {
+		ObjectInputStream oi = new ObjectInputStream(new ByteArrayInputStream(b));
+		Test ret = (Test) oi.readObject();
+		oi.close();
+		return ret;
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+
+import testful.GenericTestCase;
+import testful.model.executor.TestSerializer;
+
+/**
+ * Tests the serialization of tests
+ * @author matteo
+ */
+public class TestSerializerTestCase extends GenericTestCase {
+
+	private static final int[] LENGTHS = { 10, 100, 1000, 5000 };
+
+	public void testRoundTrip() throws Exception {
+		for (String cut : new String[] { "apache.Fraction", "dummy.Simple" }) {
+			for (int len : LENGTHS) {
+				Test test = createRandomTest(cut, len, len);
+
+				Test read = TestSerializer.deserialize(test.getCluster(), new DataInputStream(new ByteArrayInputStream(TestSerializer.serialize(test))));
+				assertEquals(test, read);
+			}
+		}
+	}
+
+	public void testOperationResult() throws Exception {
+		Test test = createRandomTest("apache.Fraction", 100, 37);
+		OperationResult.insert(test.getTest());
+
+		Test read = TestSerializer.deserialize(test.getCluster(), new DataInputStream(new ByteArrayInputStream(TestSerializer.serialize(test))));
+		assertEquals(test, read);
+
+		for (int i = 0; i < test.getTest().length; i++)
+			assertEquals(test.getTest()[i].getInfo(OperationResult.KEY) != null, read.getTest()[i].getInfo(OperationResult.KEY) != null);
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import testful.GenericTestCase;
+import testful.coverage.CoverageInformation;
+import testful.testCut.DummySimpleCUT;
+import testful.utils.ElementManager;
+
+/**
+ * Tests the store of tests, moving them to disk
+ * @author matteo
+ */
+public class TestStoreTestCase extends GenericTestCase {
+
+	public void testSpill() throws Exception {
+		DummySimpleCUT cut = new DummySimpleCUT();
+
+		Operation create = new CreateObject(cut.cuts[0], cut.cns, new Reference[] { });
+		create.addInfo(new OperationResult());
+
+		Test t = new Test(cut.cluster, cut.refFactory, new Operation[] {
+				new AssignPrimitive(cut.ints[0], 5),
+				new AssignPrimitive(cut.ints[1], null),
+				create,
+				new Invoke(cut.ints[1], cut.cuts[0], cut.mInc, new Reference[] { }),
+				ResetRepository.singleton,
+				new Invoke(null, cut.cuts[0], cut.mDec, new Reference[] { })
+		});
+
+		TestStore store = TestStore.singleton;
+		TestStore.Handle h = store.add(new PackedTest(t));
+		assertFalse(h.isSpilled());
+		assertEquals(t.getTest().length, h.getLength());
+
+		assertEquals(h.getSize(), store.spill(h));
+		assertTrue(h.isSpilled());
+		assertEquals(0, store.spill(h));
+
+		Test read = store.get(h).getTest();
+		assertEquals(t, read);
+		assertNotNull(read.getTest()[2].getInfo(OperationResult.KEY));
+
+		store.remove(h);
+	}
+
+	public void testRandom() throws Exception {
+		TestStore store = TestStore.singleton;
+		for (int i = 0; i < 20; i++) {
+			Test t = createRandomTest("apache.Fraction", 100, i);
+
+			TestStore.Handle h = store.add(new PackedTest(t));
+			store.spill(h);
+			assertEquals(t, store.get(h).getTest());
+			store.remove(h);
+		}
+	}
+
+	public void testRemoved() throws Exception {
+		TestStore store = TestStore.singleton;
+		TestStore.Handle h = store.add(new PackedTest(createRandomTest("apache.Fraction", 10, 0)));
+		store.spill(h);
+		store.remove(h);
+		store.remove(h);
+
+		try {
+			store.get(h);
+			fail("a removed test cannot be retrieved");
+		} catch(IllegalStateException e) {
+		}
+	}
+
+	public void testCompact() throws Exception {
+		TestStore store = new TestStore(1);
+
+		List<Test> tests = new ArrayList<Test>();
+		List<TestStore.Handle> handles = new ArrayList<TestStore.Handle>();
+		for (int i = 0; i < 10; i++) {
+			Test t = createRandomTest("apache.Fraction", 100, i);
+			TestStore.Handle h = store.add(new PackedTest(t));
+			store.spill(h);
+			tests.add(t);
+			handles.add(h);
+		}
+
+		final long full = store.getFileLength();
+
+		// the file is compacted as soon as removed tests take more than half of it
+		for (int i = 0; i < 6; i++)
+			store.remove(handles.get(i));
+		assertTrue(store.getFileLength() < full);
+
+		for (int i = 6; i < 10; i++) {
+			assertTrue(handles.get(i).isSpilled());
+			assertEquals(tests.get(i), store.get(handles.get(i)).getTest());
+			store.remove(handles.get(i));
+		}
+
+		assertEquals(0, store.getFileLength());
+	}
+
+	public void testSuiteAdd() throws Exception {
+		Test t = createRandomTest("apache.Fraction", 10, 0);
+
+		TestSuite source = new TestSuite();
+		source.add(new TestCoverage(t, new ElementManager<String, CoverageInformation>()));
+
+		TestSuite target = new TestSuite();
+		target.add(source);
+
+		// the test has been moved: it is not shared between the suites
+		assertNull(source.getBestTest());
+		assertEquals(t, new Test(t.getCluster(), t.getReferenceFactory(), target.getBestTest()));
+		assertNull(target.getBestTest());
+	}
+}
@@ -47,6 +47,7 @@ public class AllTests {
 		suite.addTestSuite(RemoveUselessDefsAutoTestCase.class);
 		suite.addTestSuite(Splitter_splitAndMinimizeTestCase.class);
 		suite.addTestSuite(Splitter_splitAndMergeTestCase.class);
+		suite.addTestSuite(Splitter_streamTestCase.class);
 		//$JUnit-END$
 		return suite;
 	}
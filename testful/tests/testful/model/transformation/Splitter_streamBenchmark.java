@@ -0,0 +1,61 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model.transformation;
+
+import testful.GenericTestCase;
+import testful.model.Operation;
+import testful.model.ReferenceFactory;
+import testful.model.TestCluster;
+import testful.testCut.ApacheFractionCUT;
+import ec.util.MersenneTwisterFast;
+
+/**
+ * Measures the splitter on long streams of random operations (as done by testful.random.RandomTestSplit).
+ * It is not part of the test suite: run it by hand.
+ * @author matteo
+ */
+public class Splitter_streamBenchmark extends GenericTestCase {
+
+	public void testStream() throws Exception {
+		final ApacheFractionCUT cut = new ApacheFractionCUT();
+
+		for (int length : new int[] { 100000, 1000000, 3000000 }) {
+			final long[] emitted = new long[2];
+			Splitter splitter = new Splitter(true, cut.cluster, cut.refFactory, new Splitter.Listener() {
+				@Override
+				public void notify(TestCluster cluster, ReferenceFactory refFactory, Operation[] test) {
+					emitted[0]++;
+					emitted[1] += test.length;
+				}
+			});
+
+			final MersenneTwisterFast random = new MersenneTwisterFast(length);
+			long start = System.nanoTime();
+			for (int i = 0; i < length; i++)
+				splitter.analyze(Operation.randomlyGenerate(cut.cluster, cut.refFactory, random));
+			splitter.flush();
+			long time = System.nanoTime() - start;
+
+			assertTrue(emitted[0] > 0);
+
+			System.out.printf("[Splitter] stream of %8d operations: %8.1f ms (%6.3f us/op) - %7d tests emitted, %9d operations%n",
+					length, time / 1000000.0, time / 1000.0 / length, emitted[0], emitted[1]);
+		}
+	}
+}
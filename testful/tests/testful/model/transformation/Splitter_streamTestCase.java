@@ -0,0 +1,56 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.model.transformation;
+
+import java.util.List;
+
+import testful.GenericTestCase;
+import testful.model.Operation;
+import testful.model.Test;
+
+/**
+ * Tests the splitter on long streams of random operations (as done by testful.random.RandomTestSplit)
+ * @author matteo
+ */
+public class Splitter_streamTestCase extends GenericTestCase {
+
+	public void testNoContainedParts() throws Exception {
+		for (int seed = 0; seed < 10; seed++) {
+			List<Test> parts = Splitter.split(false, createRandomTest("apache.Fraction", 1000, seed));
+
+			for (Test a : parts) {
+				assertTrue(a.getTest().length > 0);
+
+				for (Test b : parts) {
+					if(a == b) continue;
+
+					Operation[] opsA = a.getTest();
+					Operation[] opsB = b.getTest();
+					if(opsA.length < opsB.length) continue;
+
+					boolean prefix = true;
+					for (int i = 0; prefix && i < opsB.length; i++)
+						prefix = opsA[i].equals(opsB[i]);
+
+					assertFalse("a part is contained in another part", prefix);
+				}
+			}
+		}
+	}
+}
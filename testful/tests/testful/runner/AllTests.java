@@ -31,6 +31,12 @@ public class AllTests {
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		//$JUnit-BEGIN$
 		suite.addTestSuite(ClassFinderTestCase.class);
+		suite.addTestSuite(ForkedWorkerTestCase.class);
+		suite.addTestSuite(JobQueueTestCase.class);
+		suite.addTestSuite(ObjectRegistryTestCase.class);
+		suite.addTestSuite(ObjectTypeTestCase.class);
+		suite.addTestSuite(RunnerPoolTestCase.class);
+		suite.addTestSuite(SocketTransportTestCase.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,253 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.runner;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link ForkedWorker}, executing jobs in a child JVM
+ * @author matteo
+ */
+public class ForkedWorkerTestCase extends TestCase {
+
+	/** Returns the name of the JVM executing the job */
+	public static class JvmName implements IExecutor<String, String> {
+
+		@Override
+		public void setInput(String input) { }
+
+		@Override
+		public String execute() {
+			return ManagementFactory.getRuntimeMXBean().getName();
+		}
+	}
+
+	/** Kills the JVM executing the job */
+	public static class Crash implements IExecutor<String, String> {
+
+		@Override
+		public void setInput(String input) { }
+
+		@Override
+		public String execute() {
+			Runtime.getRuntime().halt(1);
+			return null;
+		}
+	}
+
+	/** Leaves some threads alive, and returns the name of the JVM executing the job */
+	public static class Threads implements IExecutor<String, String> {
+
+		private int n;
+
+		@Override
+		public void setInput(String input) {
+			n = Integer.parseInt(input);
+		}
+
+		@Override
+		public String execute() {
+			for (int i = 0; i < n; i++) {
+				Thread t = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Thread.sleep(Long.MAX_VALUE);
+						} catch(InterruptedException e) {
+						}
+					}
+				});
+				t.setDaemon(true);
+				t.start();
+			}
+
+			return ManagementFactory.getRuntimeMXBean().getName();
+		}
+	}
+
+	/** Returns its input */
+	public static class Echo implements IExecutor<String, String> {
+
+		private String input;
+
+		@Override
+		public void setInput(String input) {
+			this.input = input;
+		}
+
+		@Override
+		public String execute() {
+			return input;
+		}
+	}
+
+	private static class Finder implements DataFinder {
+
+		@Override
+		public String getKey() {
+			return "finder";
+		}
+
+		@Override
+		public byte[] getData(String type, String id) {
+			return null;
+		}
+	}
+
+	private static class Repository implements IJobRepository {
+
+		final BlockingQueue<Job<?,?,?>> jobs = new ArrayBlockingQueue<Job<?,?,?>>(10);
+		final BlockingQueue<String> results = new ArrayBlockingQueue<String>(10);
+
+		@Override
+		public String getName() {
+			return "repository";
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob() throws RemoteException {
+			try {
+				return (Job<I, R, ? extends IExecutor<I, R>>) jobs.take();
+			} catch(InterruptedException e) {
+				throw new RemoteException("interrupted", e);
+			}
+		}
+
+		@Override
+		public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob(String runner) throws RemoteException {
+			return getJob();
+		}
+
+		@Override
+		public void putResult(String key, Serializable result) {
+			results.add(key + "=" + result);
+		}
+
+		@Override
+		public void putException(String key, Exception exc) {
+			results.add(key + "!" + exc.getMessage());
+		}
+
+		@Override
+		public void putLoadReport(LoadReport report) { }
+
+		@Override
+		public void putBack(String key) { }
+	}
+
+	private Repository repository;
+
+	private void start(int jobsLimit, int threadsLimit) throws Exception {
+		repository = new Repository();
+
+		WorkerManager manager = new WorkerManager(0);
+		manager.addJobRepository(repository);
+		new ForkedWorker(manager, jobsLimit, 100, threadsLimit).start();
+	}
+
+	/**
+	 * Executes a job in the forked worker
+	 * @return "=result" or "!exception message"
+	 */
+	private <M extends IExecutor<String, String>> String execute(Class<M> executor, String input) throws Exception {
+		Job<String, String, M> job = new Job<String, String, M>(executor, new Finder(), input);
+		repository.jobs.add(job);
+
+		String ret = repository.results.poll(60, TimeUnit.SECONDS);
+		assertNotNull("the job has not been executed", ret);
+		assertTrue(ret, ret.startsWith(job.id));
+		return ret.substring(job.id.length());
+	}
+
+	public void testResult() throws Exception {
+		start(1000, 1000);
+
+		String jvm = execute(JvmName.class, "");
+		assertTrue(jvm, jvm.startsWith("="));
+		assertFalse("the job must be executed in a child JVM", jvm.equals("=" + ManagementFactory.getRuntimeMXBean().getName()));
+
+		assertEquals(jvm, execute(JvmName.class, ""));
+	}
+
+	public void testCrash() throws Exception {
+		start(1000, 1000);
+
+		String jvm = execute(JvmName.class, "");
+		assertEquals("!The child JVM died while executing the job", execute(Crash.class, ""));
+
+		String after = execute(JvmName.class, "");
+		assertTrue(after, after.startsWith("="));
+		assertFalse("a new child JVM must be started", jvm.equals(after));
+	}
+
+	public void testRecycleJobs() throws Exception {
+		start(2, 1000);
+
+		String first = execute(JvmName.class, "");
+		assertEquals(first, execute(JvmName.class, ""));
+
+		String third = execute(JvmName.class, "");
+		assertFalse("the child JVM must be recycled after 2 jobs", first.equals(third));
+		assertEquals(third, execute(JvmName.class, ""));
+	}
+
+	public void testRecycleThreads() throws Exception {
+		start(1000, 50);
+
+		String first = execute(JvmName.class, "");
+		assertEquals(first, execute(Threads.class, "60"));
+
+		// the status of the job leaving the threads alive must be considered
+		assertFalse("the child JVM must be recycled after the job leaving the threads", first.equals(execute(JvmName.class, "")));
+	}
+
+	/** Both the batch and the results exceed the capacity of the pipes */
+	public void testLargeBatch() throws Exception {
+		repository = new Repository();
+
+		StringBuilder sb = new StringBuilder();
+		while(sb.length() < 200 * 1024) sb.append("0123456789");
+		final String input = sb.toString();
+
+		final int n = 5;
+		for (int i = 0; i < n; i++)
+			repository.jobs.add(new Job<String, String, Echo>(Echo.class, new Finder(), input));
+
+		WorkerManager manager = new WorkerManager(0);
+		manager.addJobRepository(repository);
+
+		// let the WorkerManager fetch all the jobs, so that they are sent in a single batch
+		Thread.sleep(500);
+		new ForkedWorker(manager, 1000, 100, 1000).start();
+
+		for (int i = 0; i < n; i++) {
+			String ret = repository.results.poll(60, TimeUnit.SECONDS);
+			assertNotNull("the job has not been executed", ret);
+			assertTrue(ret.substring(0, Math.min(100, ret.length())), ret.endsWith("=" + input));
+		}
+	}
+}
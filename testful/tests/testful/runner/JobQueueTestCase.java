@@ -0,0 +1,121 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the priorities and the affinity of the {@link JobQueue}
+ * @author matteo
+ */
+public class JobQueueTestCase extends TestCase {
+
+	private static Job<String, String, SocketTransportTestCase.Echo> job(String input) {
+		return new Job<String, String, SocketTransportTestCase.Echo>(SocketTransportTestCase.Echo.class, null, input);
+	}
+
+	private static Job<String, String, SocketTransportTestCase.Echo> job(String input, Job.Priority priority) {
+		Job<String, String, SocketTransportTestCase.Echo> ret = job(input);
+		ret.setPriority(priority);
+		return ret;
+	}
+
+	public void testFifo() throws Exception {
+		JobQueue q = new JobQueue(10, 1000, 1000);
+
+		Job<?,?,?> a = job("a"), b = job("b"), c = job("c");
+		q.put(a, "k1");
+		q.put(b, "k2");
+		q.put(c, "k1");
+
+		assertSame(a, q.take(null));
+		assertSame(b, q.take(null));
+		assertSame(c, q.take(null));
+		assertTrue(q.isEmpty());
+	}
+
+	public void testAffinity() throws Exception {
+		JobQueue q = new JobQueue(10, 60000, 60000);
+
+		Job<?,?,?> a = job("a"), b = job("b"), c = job("c");
+		q.put(a, "k1");
+		q.put(b, "k2");
+		q.put(c, "k2");
+
+		assertSame(b, q.take(Arrays.asList("k2")));
+		assertSame(c, q.take(Arrays.asList("k3", "k2")));
+
+		// no job with the preferred keys: take the oldest
+		assertSame(a, q.take(Arrays.asList("k2")));
+	}
+
+	public void testWindow() throws Exception {
+		JobQueue q = new JobQueue(10, 50, 60000);
+
+		Job<?,?,?> a = job("a"), b = job("b");
+		q.put(a, "k1");
+		Thread.sleep(100);
+		q.put(b, "k2");
+
+		// the oldest job has been waiting for too long
+		assertSame(a, q.take(Arrays.asList("k2")));
+		assertSame(b, q.take(Arrays.asList("k2")));
+	}
+
+	public void testCapacity() throws Exception {
+		JobQueue q = new JobQueue(2, 1000, 1000);
+
+		assertTrue(q.offer(job("a"), "k1"));
+		assertTrue(q.offer(job("b"), "k2"));
+		assertFalse(q.offer(job("c"), "k1"));
+		assertEquals(2, q.size());
+
+		q.take(null);
+		assertTrue(q.offer(job("c"), "k1"));
+	}
+
+	public void testPriority() throws Exception {
+		JobQueue q = new JobQueue(10, 1000, 60000);
+
+		Job<?,?,?> a = job("a", Job.Priority.BACKGROUND), b = job("b"), c = job("c", Job.Priority.LATENCY), d = job("d");
+		q.put(a, "k1");
+		q.put(b, "k1");
+		q.put(c, "k1");
+		q.put(d, "k1");
+
+		assertSame(c, q.take(null));
+		assertSame(b, q.take(null));
+		assertSame(d, q.take(null));
+		assertSame(a, q.take(null));
+	}
+
+	public void testStarvation() throws Exception {
+		JobQueue q = new JobQueue(10, 1000, 50);
+
+		Job<?,?,?> a = job("a", Job.Priority.BACKGROUND), b = job("b", Job.Priority.LATENCY);
+		q.put(a, "k1");
+		Thread.sleep(100);
+		q.put(b, "k1");
+
+		// the background job has been waiting for too long
+		assertSame(a, q.take(null));
+		assertSame(b, q.take(null));
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.runner;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the retrieval of objects through the {@link ObjectRegistry}
+ * @author matteo
+ */
+public class ObjectRegistryTestCase extends TestCase {
+
+	private static class Obj implements ISerializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient String id;
+		private final int[] payload;
+
+		public Obj(String id, int size) {
+			this.id = id;
+			payload = new int[size];
+		}
+
+		@Override
+		public String getISerializableIdentifier() {
+			return id;
+		}
+	}
+
+	/** Serves the objects, holding the descriptor of "slow" until it is released */
+	private static class SlowFinder implements DataFinder {
+
+		private final DataFinder finder;
+		final CountDownLatch requested = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger slowRequests = new AtomicInteger();
+
+		public SlowFinder(DataFinder finder) {
+			this.finder = finder;
+		}
+
+		@Override
+		public String getKey() throws RemoteException {
+			return finder.getKey();
+		}
+
+		@Override
+		public byte[] getData(String type, String id) throws RemoteException {
+			if(id.equals("slow")) {
+				slowRequests.incrementAndGet();
+				requested.countDown();
+				try {
+					release.await();
+				} catch(InterruptedException e) {
+					throw new RemoteException("interrupted", e);
+				}
+			}
+
+			return finder.getData(type, id);
+		}
+	}
+
+	private static ObjectRegistry create(DataFinder finder) {
+		return new ObjectRegistry(finder, ObjectRegistryTestCase.class.getClassLoader());
+	}
+
+	public void testCache() throws Exception {
+		ObjectType objectType = new ObjectType();
+		objectType.addObject(new Obj("a", 10));
+		objectType.addObject(new Obj("b", 10));
+		objectType.addObject(new Obj("c", 11));
+		ObjectRegistry registry = create(new DataFinderImpl(objectType));
+
+		ISerializable a = registry.getObject("a");
+		assertEquals(10, ((Obj) a).payload.length);
+		assertSame(a, registry.getObject("a"));
+
+		// objects with the same content are shared
+		assertSame(a, registry.getObject("b"));
+		assertNotSame(a, registry.getObject("c"));
+
+		assertNull(registry.getObject("missing"));
+	}
+
+	public void testConcurrentRetrieval() throws Exception {
+		ObjectType objectType = new ObjectType();
+		objectType.addObject(new Obj("slow", 10));
+		objectType.addObject(new Obj("fast", 11));
+		final SlowFinder finder = new SlowFinder(new DataFinderImpl(objectType));
+		final ObjectRegistry registry = create(finder);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<ISerializable> slow1 = executor.submit(new Callable<ISerializable>() {
+				@Override
+				public ISerializable call() throws Exception {
+					return registry.getObject("slow");
+				}
+			});
+			assertTrue(finder.requested.await(10, TimeUnit.SECONDS));
+
+			Future<ISerializable> slow2 = executor.submit(new Callable<ISerializable>() {
+				@Override
+				public ISerializable call() throws Exception {
+					return registry.getObject("slow");
+				}
+			});
+
+			// the retrieval of an object does not block the retrieval of other objects
+			assertNotNull(registry.getObject("fast"));
+			assertFalse(slow1.isDone());
+			assertFalse(slow2.isDone());
+
+			finder.release.countDown();
+
+			ISerializable slow = slow1.get(10, TimeUnit.SECONDS);
+			assertNotNull(slow);
+			assertSame(slow, slow2.get(10, TimeUnit.SECONDS));
+
+			// the object has been retrieved only once
+			assertEquals(1, finder.slowRequests.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.runner;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import testful.utils.SerializationUtils;
+
+/**
+ * Tests the transfer of objects through the {@link ObjectType}
+ * @author matteo
+ */
+public class ObjectTypeTestCase extends TestCase {
+
+	private static class Obj implements ISerializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** objects with the same payload have the same content */
+		private final transient String id;
+		private final int[] payload;
+
+		public Obj(String id, int size) {
+			this.id = id;
+			payload = new int[size];
+			for (int i = 0; i < size; i++)
+				payload[i] = i % 17;
+		}
+
+		@Override
+		public String getISerializableIdentifier() {
+			return id;
+		}
+	}
+
+	public void testDescriptor() throws Exception {
+		ObjectType objectType = new ObjectType();
+		objectType.addObject(new Obj("a", 10));
+		objectType.addObject(new Obj("b", 10));
+		objectType.addObject(new Obj("c", 11));
+
+		ObjectType.Descriptor a = ObjectType.Descriptor.read(objectType.getData("a"));
+		ObjectType.Descriptor b = ObjectType.Descriptor.read(objectType.getData("b"));
+		ObjectType.Descriptor c = ObjectType.Descriptor.read(objectType.getData("c"));
+
+		assertEquals(a.getHash(), b.getHash());
+		assertFalse(a.getHash().equals(c.getHash()));
+		assertNull(objectType.getData("missing"));
+	}
+
+	public void testNone() throws Exception {
+		check(ObjectType.Codec.NONE, 10);
+	}
+
+	public void testDeflate() throws Exception {
+		check(ObjectType.Codec.DEFLATE, 10);
+	}
+
+	public void testNoneChunks() throws Exception {
+		check(ObjectType.Codec.NONE, 3 * ObjectType.CHUNK_SIZE);
+	}
+
+	public void testDeflateChunks() throws Exception {
+		check(ObjectType.Codec.DEFLATE, 3 * ObjectType.CHUNK_SIZE);
+	}
+
+	private static void check(ObjectType.Codec codec, int size) throws Exception {
+		Obj obj = new Obj("obj", size);
+
+		ObjectType objectType = new ObjectType();
+		DataFinder finder = new DataFinderCaching(new DataFinderImpl(objectType));
+		objectType.addObject(obj);
+
+		ObjectType.Descriptor descriptor = ObjectType.Descriptor.read(finder.getData(ObjectType.NAME, "obj"));
+		assertEquals(SerializationUtils.serialize(obj, false).length, descriptor.getLength());
+
+		Obj read = (Obj) SerializationUtils.deserialize(ObjectType.openStream(finder, descriptor.getHash(), codec), null);
+		assertTrue(Arrays.equals(obj.payload, read.payload));
+	}
+}
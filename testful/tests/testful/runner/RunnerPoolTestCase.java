@@ -0,0 +1,168 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.runner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests how the {@link RunnerPool} handles stalled and slow workers
+ * @author matteo
+ */
+public class RunnerPoolTestCase extends TestCase {
+
+	/** Returns its input (jobs are never executed: workers are simulated by the test) */
+	public static class Echo implements IExecutor<String, String> {
+
+		private String input;
+
+		@Override
+		public void setInput(String input) {
+			this.input = input;
+		}
+
+		@Override
+		public String execute() {
+			return input;
+		}
+	}
+
+	private static class Finder implements DataFinder {
+
+		@Override
+		public String getKey() {
+			return "finder";
+		}
+
+		@Override
+		public byte[] getData(String type, String id) {
+			return null;
+		}
+	}
+
+	private RunnerPool pool;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if(pool != null) pool.stop();
+		super.tearDown();
+	}
+
+	private Future<String> execute(String input) {
+		return pool.execute(new Job<String, String, Echo>(Echo.class, new Finder(), input));
+	}
+
+	/**
+	 * Takes a job on behalf of a worker
+	 * @param runner the name of the worker
+	 * @return the job
+	 */
+	private Job<?, ?, ?> take(final String runner) throws Exception {
+		FutureTask<Job<?, ?, ?>> task = new FutureTask<Job<?, ?, ?>>(new Callable<Job<?, ?, ?>>() {
+			@Override
+			public Job<?, ?, ?> call() throws Exception {
+				return pool.getJob(runner);
+			}
+		});
+
+		Thread t = new Thread(task, runner);
+		t.setDaemon(true);
+		t.start();
+
+		return task.get(10, TimeUnit.SECONDS);
+	}
+
+	public void testStalledWorker() throws Exception {
+		pool = new RunnerPool(200, 3, 0, 50);
+
+		Future<String> f = execute("a");
+		Job<?, ?, ?> stalled = take("stalled");
+
+		// the job is dispatched again once it exceeds the deadline
+		Job<?, ?, ?> again = take("healthy");
+		assertEquals(stalled.id, again.id);
+
+		pool.putResult(again.id, "done");
+		assertEquals("done", f.get(1, TimeUnit.SECONDS));
+	}
+
+	public void testAttempts() throws Exception {
+		pool = new RunnerPool(100, 2, 0, 20);
+
+		Future<String> f = execute("a");
+		Job<?, ?, ?> first = take("stalled-1");
+		Job<?, ?, ?> second = take("stalled-2");
+		assertEquals(first.id, second.id);
+
+		try {
+			f.get(10, TimeUnit.SECONDS);
+			fail("the job must fail after 2 attempts");
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("2 attempts"));
+		}
+
+		// a late result is discarded
+		pool.putResult(first.id, "late");
+	}
+
+	public void testSlowWorker() throws Exception {
+		pool = new RunnerPool(0, 3, 2, 50);
+
+		// learn the latency of jobs
+		for (int i = 0; i < 10; i++) {
+			Future<String> f = execute("fast-" + i);
+			Job<?, ?, ?> job = take("fast");
+			pool.putResult(job.id, "ok");
+			assertEquals("ok", f.get(1, TimeUnit.SECONDS));
+		}
+
+		Future<String> f = execute("b");
+		Job<?, ?, ?> slow = take("slow");
+
+		// the queue is empty and the job is much slower than the others: it is speculatively dispatched again
+		Job<?, ?, ?> duplicate = take("fast");
+		assertEquals(slow.id, duplicate.id);
+
+		// the first result wins
+		pool.putResult(duplicate.id, "fast");
+		pool.putResult(slow.id, "slow");
+		assertEquals("fast", f.get(1, TimeUnit.SECONDS));
+	}
+
+	public void testNoSpeculationWithoutLatency() throws Exception {
+		pool = new RunnerPool(0, 3, 2, 20);
+
+		Future<String> f = execute("a");
+		Job<?, ?, ?> job = take("slow");
+
+		// without enough completed jobs, the latency is unknown: the job is not dispatched again
+		Thread.sleep(300);
+		Future<String> g = execute("b");
+		assertFalse(job.id.equals(take("other").id));
+
+		pool.putResult(job.id, "a");
+		assertEquals("a", f.get(1, TimeUnit.SECONDS));
+		assertFalse(g.isDone());
+	}
+}
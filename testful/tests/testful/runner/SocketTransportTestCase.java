@@ -0,0 +1,231 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.runner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the socket transport, connecting a {@link SocketJobRepository} to a {@link SocketJobRepositoryServer}
+ * @author matteo
+ */
+public class SocketTransportTestCase extends TestCase {
+
+	public static class Echo implements IExecutor<String, String> {
+		private String input;
+
+		@Override
+		public void setInput(String input) {
+			this.input = input;
+		}
+
+		@Override
+		public String execute() {
+			return input;
+		}
+	}
+
+	private static class Finder implements DataFinder {
+
+		@Override
+		public String getKey() {
+			return "finder";
+		}
+
+		@Override
+		public byte[] getData(String type, String id) {
+			if(id.equals("missing")) return null;
+			return (type + ":" + id).getBytes();
+		}
+	}
+
+	private static class Repository implements IJobRepository {
+
+		final BlockingQueue<Job<?,?,?>> jobs = new ArrayBlockingQueue<Job<?,?,?>>(10);
+		final BlockingQueue<Serializable> results = new ArrayBlockingQueue<Serializable>(10);
+		volatile LoadReport report;
+
+		@Override
+		public String getName() {
+			return "repository";
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob() throws RemoteException {
+			try {
+				return (Job<I, R, ? extends IExecutor<I, R>>) jobs.take();
+			} catch(InterruptedException e) {
+				throw new RemoteException("interrupted", e);
+			}
+		}
+
+		@Override
+		public <I extends Serializable, R extends Serializable> Job<I, R, ? extends IExecutor<I, R>> getJob(String runner) throws RemoteException {
+			assertEquals("runner", runner);
+			return getJob();
+		}
+
+		@Override
+		public void putResult(String key, Serializable result) {
+			results.add(key + "=" + result);
+		}
+
+		@Override
+		public void putException(String key, Exception exc) {
+			results.add(key + "!" + exc.getMessage());
+		}
+
+		@Override
+		public void putLoadReport(LoadReport report) {
+			this.report = report;
+		}
+
+		@Override
+		public void putBack(String key) {
+			results.add(key + " back");
+		}
+	}
+
+	public void testTransport() throws Exception {
+		Repository repository = new Repository();
+		SocketJobRepositoryServer server = new SocketJobRepositoryServer(repository, 0);
+
+		SocketJobRepository client = new SocketJobRepository(SocketTransport.SCHEME + "localhost:" + server.getPort(), "runner");
+		assertEquals("repository", client.getName());
+
+		Job<String, String, Echo> job = new Job<String, String, Echo>(Echo.class, new Finder(), "hello");
+		repository.jobs.add(job);
+
+		Job<?,?,?> received = client.getJob();
+		assertEquals(job.id, received.id);
+
+		DataFinder finder = received.getFinder();
+		assertEquals("finder", finder.getKey());
+		assertTrue(ObjectType.isRemote(finder));
+		assertTrue(Arrays.equals("class:a.B".getBytes(), finder.getData("class", "a.B")));
+		assertNull(finder.getData("class", "missing"));
+
+		assertEquals(1, server.getFinderCount());
+		client.putResult(received.id, "world");
+		assertEquals(job.id + "=world", repository.results.poll(10, TimeUnit.SECONDS));
+		assertEquals(0, server.getFinderCount());
+
+		client.putException(received.id, new Exception("failure"));
+		assertEquals(job.id + "!failure", repository.results.poll(10, TimeUnit.SECONDS));
+
+		client.putLoadReport(new LoadReport("runner", 1, 0, 0, 1, 1, 1, 0, 0, 0, 0));
+		for (int i = 0; i < 100 && repository.report == null; i++)
+			Thread.sleep(100);
+		assertEquals("runner", repository.report.getName());
+	}
+
+	public void testLargeJob() throws Exception {
+		Repository repository = new Repository();
+		SocketJobRepositoryServer server = new SocketJobRepositoryServer(repository, 0);
+		SocketJobRepository client = new SocketJobRepository(SocketTransport.SCHEME + "localhost:" + server.getPort(), "runner");
+
+		char[] big = new char[1024 * 1024];
+		Arrays.fill(big, 'x');
+		String input = new String(big);
+
+		for (int i = 0; i < 5; i++)
+			repository.jobs.add(new Job<String, String, Echo>(Echo.class, new Finder(), input));
+
+		for (int i = 0; i < 5; i++) {
+			Job<?,?,?> received = client.getJob();
+			client.putResult(received.id, Integer.toString(i));
+		}
+
+		for (int i = 0; i < 5; i++)
+			assertNotNull(repository.results.poll(10, TimeUnit.SECONDS));
+	}
+
+	public void testClosedConnection() throws Exception {
+		Repository repository = new Repository();
+		SocketJobRepositoryServer server = new SocketJobRepositoryServer(repository, 0);
+
+		Job<String, String, Echo> job1 = new Job<String, String, Echo>(Echo.class, new Finder(), "a");
+		Job<String, String, Echo> job2 = new Job<String, String, Echo>(Echo.class, new Finder(), "b");
+		repository.jobs.add(job1);
+		repository.jobs.add(job2);
+
+		// a WorkerManager receiving two jobs, and disconnecting before completing them
+		Socket socket = new Socket("localhost", server.getPort());
+		DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+		DataInputStream in = new DataInputStream(socket.getInputStream());
+
+		SocketTransport.Frame hello = new SocketTransport.Frame(SocketTransport.MSG_HELLO);
+		hello.writeUTF("runner");
+		write(out, hello);
+
+		SocketTransport.Frame credit = new SocketTransport.Frame(SocketTransport.MSG_CREDIT);
+		credit.writeInt(2);
+		write(out, credit);
+
+		assertEquals(SocketTransport.MSG_WELCOME, readFrame(in)[0]);
+		assertEquals(SocketTransport.MSG_JOB, readFrame(in)[0]);
+		assertEquals(SocketTransport.MSG_JOB, readFrame(in)[0]);
+		assertEquals(1, server.getFinderCount());
+
+		socket.close();
+
+		Set<Serializable> back = new HashSet<Serializable>();
+		back.add(repository.results.poll(10, TimeUnit.SECONDS));
+		back.add(repository.results.poll(10, TimeUnit.SECONDS));
+		assertEquals(new HashSet<Serializable>(Arrays.asList(job1.id + " back", job2.id + " back")), back);
+		assertEquals(0, server.getFinderCount());
+	}
+
+	private static void write(DataOutputStream out, SocketTransport.Frame frame) throws IOException {
+		ByteBuffer b = frame.toByteBuffer();
+		out.write(b.array(), 0, b.limit());
+		out.flush();
+	}
+
+	private static byte[] readFrame(DataInputStream in) throws IOException {
+		byte[] frame = new byte[in.readInt()];
+		in.readFully(frame);
+		return frame;
+	}
+
+	public void testParseAddress() throws Exception {
+		String[] hp = SocketTransport.parseAddress("socket://host.domain:1234/");
+		assertEquals("host.domain", hp[0]);
+		assertEquals("1234", hp[1]);
+
+		try {
+			SocketTransport.parseAddress("socket://host");
+			fail("the port is missing");
+		} catch(IllegalArgumentException e) {
+		}
+	}
+}
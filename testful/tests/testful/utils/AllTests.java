@@ -27,6 +27,9 @@ public class AllTests {
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		//$JUnit-BEGIN$
 		suite.addTestSuite(SerializableEnvelopeTestCase.class);
+		suite.addTestSuite(TimeoutSchedulerTestCase.class);
+		suite.addTestSuite(MemoryGovernorTestCase.class);
+		suite.addTestSuite(LogHistogramTestCase.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,61 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testful.utils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the percentiles computed by the {@link LogHistogram}
+ * @author matteo
+ */
+public class LogHistogramTestCase extends TestCase {
+
+	public void testEmpty() throws Exception {
+		LogHistogram r = new LogHistogram();
+
+		long[] p = r.getAndReset(50, 99);
+		assertEquals(-1, p[0]);
+		assertEquals(-1, p[1]);
+	}
+
+	public void testPercentiles() throws Exception {
+		LogHistogram r = new LogHistogram();
+		for (int i = 0; i < 98; i++) r.record(10);
+		r.record(1000);
+		r.record(1000);
+
+		long[] p = r.getAndReset(50, 99);
+		assertEquals(15, p[0]);   // 10 is in [8, 15]
+		assertEquals(1023, p[1]); // 1000 is in [512, 1023]
+	}
+
+	public void testZero() throws Exception {
+		LogHistogram r = new LogHistogram();
+		r.record(0);
+
+		assertEquals(0, r.getAndReset(100)[0]);
+	}
+
+	public void testReset() throws Exception {
+		LogHistogram r = new LogHistogram();
+		r.record(100);
+		r.getAndReset(50);
+
+		assertEquals(-1, r.getAndReset(50)[0]);
+	}
+}
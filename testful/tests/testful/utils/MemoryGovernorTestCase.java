@@ -0,0 +1,121 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link MemoryGovernor}
+ * @author matteo
+ */
+public class MemoryGovernorTestCase extends TestCase {
+
+	/** A memory pool with a fixed usage */
+	private static class Pool implements MemoryPoolMXBean {
+
+		private final String name;
+		private final MemoryType type;
+		private final MemoryUsage usage;
+		private final String[] managers;
+
+		public Pool(String name, MemoryType type, long used, long max, String ... managers) {
+			this.name = name;
+			this.type = type;
+			usage = new MemoryUsage(0, used, used, max);
+			this.managers = managers;
+		}
+
+		@Override public String getName() { return name; }
+		@Override public MemoryType getType() { return type; }
+		@Override public MemoryUsage getUsage() { return usage; }
+		@Override public MemoryUsage getPeakUsage() { return usage; }
+		@Override public MemoryUsage getCollectionUsage() { return usage; }
+		@Override public void resetPeakUsage() { }
+		@Override public boolean isValid() { return true; }
+		@Override public String[] getMemoryManagerNames() { return managers; }
+		@Override public long getUsageThreshold() { return 0; }
+		@Override public void setUsageThreshold(long threshold) { }
+		@Override public boolean isUsageThresholdExceeded() { return false; }
+		@Override public long getUsageThresholdCount() { return 0; }
+		@Override public boolean isUsageThresholdSupported() { return true; }
+		@Override public long getCollectionUsageThreshold() { return 0; }
+		@Override public void setCollectionUsageThreshold(long threshold) { }
+		@Override public boolean isCollectionUsageThresholdExceeded() { return false; }
+		@Override public long getCollectionUsageThresholdCount() { return 0; }
+		@Override public boolean isCollectionUsageThresholdSupported() { return type == MemoryType.HEAP; }
+		public ObjectName getObjectName() { return null; }
+	}
+
+	public void testTenuredParallel() throws Exception {
+		Pool old = new Pool("PS Old Gen", MemoryType.HEAP, 10, 1000, "PS MarkSweep");
+		List<MemoryPoolMXBean> pools = Arrays.<MemoryPoolMXBean>asList(
+				new Pool("Metaspace", MemoryType.NON_HEAP, 90, 100, "Metaspace Manager"),
+				new Pool("PS Eden Space", MemoryType.HEAP, 0, 500, "PS MarkSweep", "PS Scavenge"),
+				new Pool("PS Survivor Space", MemoryType.HEAP, 9, 10, "PS MarkSweep", "PS Scavenge"),
+				old);
+
+		assertSame(old, MemoryGovernor.getTenured(pools));
+	}
+
+	public void testTenuredG1() throws Exception {
+		Pool old = new Pool("G1 Old Gen", MemoryType.HEAP, 10, 1000, "G1 Old Generation", "G1 Young Generation");
+		List<MemoryPoolMXBean> pools = Arrays.<MemoryPoolMXBean>asList(
+				new Pool("G1 Eden Space", MemoryType.HEAP, 0, -1, "G1 Old Generation", "G1 Young Generation"),
+				old,
+				new Pool("G1 Survivor Space", MemoryType.HEAP, 9, -1, "G1 Old Generation", "G1 Young Generation"));
+
+		assertSame(old, MemoryGovernor.getTenured(pools));
+	}
+
+	public void testTenuredJvm() throws Exception {
+		MemoryPoolMXBean tenured = MemoryGovernor.getTenured(ManagementFactory.getMemoryPoolMXBeans());
+		if(tenured == null) return;
+
+		assertEquals(MemoryType.HEAP, tenured.getType());
+		assertFalse(tenured.getName(), tenured.getName().contains("Eden"));
+		assertFalse(tenured.getName(), tenured.getName().contains("Survivor"));
+	}
+
+	public void testFullSurvivor() throws Exception {
+		MemoryGovernor governor = new MemoryGovernor(0.75f, Arrays.<MemoryPoolMXBean>asList(
+				new Pool("Eden Space", MemoryType.HEAP, 0, 500, "Copy", "MarkSweepCompact"),
+				new Pool("Survivor Space", MemoryType.HEAP, 9, 10, "Copy", "MarkSweepCompact"),
+				new Pool("Tenured Gen", MemoryType.HEAP, 10, 1000, "MarkSweepCompact")));
+
+		assertFalse(governor.isUnderPressure());
+	}
+
+	public void testFullTenured() throws Exception {
+		MemoryGovernor governor = new MemoryGovernor(0.75f, Arrays.<MemoryPoolMXBean>asList(
+				new Pool("Eden Space", MemoryType.HEAP, 0, 500, "Copy", "MarkSweepCompact"),
+				new Pool("Survivor Space", MemoryType.HEAP, 0, 10, "Copy", "MarkSweepCompact"),
+				new Pool("Tenured Gen", MemoryType.HEAP, 900, 1000, "MarkSweepCompact")));
+
+		assertTrue(governor.isUnderPressure());
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * TestFul - http://code.google.com/p/testful/
+ * Copyright (C) 2011 Matteo Miraz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package testful.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link TimeoutScheduler}
+ * @author matteo
+ */
+public class TimeoutSchedulerTestCase extends TestCase {
+
+	private static class Counter implements TimeoutScheduler.Callback {
+
+		final AtomicInteger n = new AtomicInteger();
+
+		@Override
+		public long timeoutExpired() {
+			n.incrementAndGet();
+			return 1000;
+		}
+	}
+
+	public void testExpire() throws Exception {
+		Counter c = new Counter();
+		TimeoutScheduler.Timeout t = TimeoutScheduler.singleton.register(c);
+
+		t.arm(20);
+		Thread.sleep(200);
+		t.disarm();
+
+		TimeoutScheduler.singleton.unregister(t);
+		assertEquals(1, c.n.get());
+	}
+
+	public void testDisarm() throws Exception {
+		Counter c = new Counter();
+		TimeoutScheduler.Timeout t = TimeoutScheduler.singleton.register(c);
+
+		for (int i = 0; i < 1000; i++) {
+			t.arm(100);
+			t.disarm();
+		}
+
+		Thread.sleep(200);
+		TimeoutScheduler.singleton.unregister(t);
+		assertEquals(0, c.n.get());
+	}
+
+	public void testRearm() throws Exception {
+		Counter c = new Counter();
+		TimeoutScheduler.Timeout t = TimeoutScheduler.singleton.register(c);
+
+		t.arm(20);
+		Thread.sleep(200);
+		t.disarm();
+
+		t.arm(20);
+		Thread.sleep(200);
+		TimeoutScheduler.singleton.unregister(t);
+
+		assertEquals(2, c.n.get());
+	}
+}